@@ -0,0 +1,148 @@
+package com.dialerapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Raw AMR-NB ("#!AMR\n" then self-delimiting frames) segments written by
+// SegmentedAmrRecorder. The format needs no finalization, so a segment cut off by a
+// crash is valid up to its last whole frame; stitching is header + frames of each
+// segment in order.
+final class AmrSegments {
+    static final String SEGMENT_SUFFIX = ".part";
+
+    private static final byte[] HEADER = "#!AMR\n".getBytes(StandardCharsets.US_ASCII);
+    // Payload bytes per frame type (header byte bits 3-6); 8-11 are comfort noise, 12-14
+    // reserved (-1) and 15 NO_DATA.
+    private static final int[] FRAME_PAYLOAD_BYTES = { 12, 13, 15, 17, 19, 20, 26, 31, 5, 6, 5, 5, -1, -1, -1, 0 };
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private AmrSegments() {
+    }
+
+    static String segmentName(int index) {
+        return String.format(Locale.ROOT, "%05d%s", index, SEGMENT_SUFFIX);
+    }
+
+    // Segment files in a segments directory, in recording order.
+    static File[] list(File segmentDir) {
+        File[] segments = segmentDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    // Writes every whole frame of the segments, in order, to output and fsyncs it. Goes
+    // through a temp file so output is either complete or absent. Returns the frame count.
+    static long stitch(File[] segments, File output) throws IOException {
+        File temp = new File(output.getPath() + ".tmp");
+        long frames = 0;
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            OutputStream out = new BufferedOutputStream(file, BUFFER_BYTES);
+            out.write(HEADER);
+            for (File segment : segments) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(segment), BUFFER_BYTES)) {
+                    frames += copyFrames(in, out);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(output)) {
+            temp.delete();
+            throw new IOException("Unable to write " + output);
+        }
+        return frames;
+    }
+
+    // Stitches each directory under segmentsRoot into recordingsDir/<directory name> and
+    // removes the segments. Directories whose stitch fails are kept for the next pass.
+    static List<File> recover(File segmentsRoot, File recordingsDir) {
+        List<File> recovered = new ArrayList<>();
+        File[] dirs = segmentsRoot.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return recovered;
+        }
+        for (File dir : dirs) {
+            File[] segments = list(dir);
+            try {
+                if (segments.length > 0 && stitch(segments, new File(recordingsDir, dir.getName())) > 0) {
+                    recovered.add(new File(recordingsDir, dir.getName()));
+                } else {
+                    new File(recordingsDir, dir.getName()).delete();
+                }
+            } catch (IOException e) {
+                continue;
+            }
+            deleteDir(dir);
+        }
+        return recovered;
+    }
+
+    static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    // Copies whole frames after the optional file header; stops at a truncated frame or
+    // a byte that cannot start one (the tail of an interrupted write).
+    private static long copyFrames(InputStream in, OutputStream out) throws IOException {
+        byte[] frame = new byte[32];
+        int first = in.read();
+        if (first == HEADER[0]) {
+            byte[] rest = new byte[HEADER.length - 1];
+            if (!readFully(in, rest, rest.length) || !Arrays.equals(rest, Arrays.copyOfRange(HEADER, 1, HEADER.length))) {
+                return 0;
+            }
+            first = in.read();
+        }
+
+        long frames = 0;
+        for (int header = first; header >= 0; header = in.read()) {
+            // Frame header: padding bit, 4-bit type, quality bit, two padding bits.
+            if ((header & 0x83) != 0) {
+                break;
+            }
+            int payload = FRAME_PAYLOAD_BYTES[(header >> 3) & 0x0f];
+            if (payload < 0 || !readFully(in, frame, payload)) {
+                break;
+            }
+            out.write(header);
+            out.write(frame, 0, payload);
+            frames++;
+        }
+        return frames;
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(buffer, read, length - read);
+            if (count < 0) {
+                return false;
+            }
+            read += count;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Finds out once per device (and OS build) which AudioSource can actually capture,
+// so recorders are configured with a single known-good source instead of
+// exception-driven fallback on the call path.
+class AudioSourceProbe {
+    static final int SOURCE_UNKNOWN = -1;
+
+    private static final int[] CANDIDATES = {
+        MediaRecorder.AudioSource.VOICE_CALL,
+        MediaRecorder.AudioSource.MIC,
+        MediaRecorder.AudioSource.VOICE_COMMUNICATION
+    };
+
+    private static final String PREFS_NAME = "audio_source_probe";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_RESULTS = "results";
+    private static final long PROBE_CAPTURE_MS = 50;
+
+    private static volatile int cachedSource = SOURCE_UNKNOWN;
+
+    static final class Result {
+        final int source;
+        final boolean supported;
+        final long prepareMs;
+        final long startMs;
+        final String error;
+
+        Result(int source, boolean supported, long prepareMs, long startMs, String error) {
+            this.source = source;
+            this.supported = supported;
+            this.prepareMs = prepareMs;
+            this.startMs = startMs;
+            this.error = error;
+        }
+    }
+
+    private AudioSourceProbe() {
+    }
+
+    static int getPreferredSource(Context context) {
+        int source = cachedSource;
+        if (source != SOURCE_UNKNOWN) {
+            return source;
+        }
+        SharedPreferences prefs = prefs(context);
+        if (!Build.FINGERPRINT.equals(prefs.getString(KEY_FINGERPRINT, null))) {
+            // Never probed, or the OS was updated since.
+            return SOURCE_UNKNOWN;
+        }
+        source = prefs.getInt(KEY_SOURCE, SOURCE_UNKNOWN);
+        cachedSource = source;
+        return source;
+    }
+
+    // Blocking; briefly captures from each candidate source. Call off the main thread
+    // and only while no recording is active.
+    static synchronized List<Result> probe(Context context) {
+        File probeFile = new File(context.getCacheDir(), "audio_source_probe.3gp");
+        List<Result> results = new ArrayList<>();
+        int chosen = SOURCE_UNKNOWN;
+
+        for (int source : CANDIDATES) {
+            Result result = probeSource(source, probeFile.getAbsolutePath());
+            results.add(result);
+            if (result.supported && chosen == SOURCE_UNKNOWN) {
+                chosen = source;
+            }
+        }
+        probeFile.delete();
+
+        StringBuilder encoded = new StringBuilder();
+        for (Result result : results) {
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(result.source).append(',')
+                .append(result.supported).append(',')
+                .append(result.prepareMs).append(',')
+                .append(result.startMs).append(',')
+                .append(result.error != null ? result.error.replaceAll("[,;]", " ") : "");
+        }
+
+        // Nothing worked usually means RECORD_AUDIO is missing; don't pin that outcome.
+        if (chosen != SOURCE_UNKNOWN) {
+            prefs(context).edit()
+                .putString(KEY_FINGERPRINT, Build.FINGERPRINT)
+                .putInt(KEY_SOURCE, chosen)
+                .putString(KEY_RESULTS, encoded.toString())
+                .apply();
+            cachedSource = chosen;
+        }
+        return results;
+    }
+
+    static List<Result> getLastResults(Context context) {
+        String encoded = prefs(context).getString(KEY_RESULTS, null);
+        if (encoded == null || encoded.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Result> results = new ArrayList<>();
+        for (String entry : encoded.split(";")) {
+            String[] fields = entry.split(",", -1);
+            results.add(new Result(
+                Integer.parseInt(fields[0]),
+                Boolean.parseBoolean(fields[1]),
+                Long.parseLong(fields[2]),
+                Long.parseLong(fields[3]),
+                fields[4].isEmpty() ? null : fields[4]
+            ));
+        }
+        return results;
+    }
+
+    static String sourceName(int source) {
+        switch (source) {
+            case MediaRecorder.AudioSource.VOICE_CALL:
+                return "VOICE_CALL";
+            case MediaRecorder.AudioSource.MIC:
+                return "MIC";
+            case MediaRecorder.AudioSource.VOICE_COMMUNICATION:
+                return "VOICE_COMMUNICATION";
+            default:
+                return String.valueOf(source);
+        }
+    }
+
+    private static Result probeSource(int source, String outputPath) {
+        MediaRecorder recorder = new MediaRecorder();
+        long prepareMs = 0;
+        long startMs = 0;
+        try {
+            long begin = SystemClock.elapsedRealtime();
+            recorder.setAudioSource(source);
+            recorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
+            recorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
+            recorder.setOutputFile(outputPath);
+            recorder.prepare();
+            prepareMs = SystemClock.elapsedRealtime() - begin;
+
+            // VOICE_CALL is accepted by setAudioSource on many builds but fails at start().
+            begin = SystemClock.elapsedRealtime();
+            recorder.start();
+            startMs = SystemClock.elapsedRealtime() - begin;
+            SystemClock.sleep(PROBE_CAPTURE_MS);
+            recorder.stop();
+            return new Result(source, true, prepareMs, startMs, null);
+        } catch (Exception e) {
+            return new Result(source, false, prepareMs, startMs, e.getClass().getSimpleName());
+        } finally {
+            recorder.release();
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,81 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+class AutoRecordRules {
+    static final String MODE_OFF = "off";
+    static final String MODE_ALL_CALLS = "all";
+    static final String MODE_UNKNOWN_NUMBERS = "unknown";
+    static final String MODE_SELECTED_CONTACTS = "contacts";
+
+    private static final String PREFS_NAME = "auto_record_rules";
+    private static final String KEY_MODE = "mode";
+    private static final String KEY_NUMBERS = "numbers";
+
+    private final String mode;
+    private final Set<String> numbers;
+
+    AutoRecordRules(String mode, Set<String> numbers) {
+        this.mode = mode != null ? mode : MODE_OFF;
+        Set<String> normalized = new HashSet<>();
+        for (String number : numbers) {
+            normalized.add(normalizeNumber(number));
+        }
+        this.numbers = Collections.unmodifiableSet(normalized);
+    }
+
+    static AutoRecordRules load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return new AutoRecordRules(
+            prefs.getString(KEY_MODE, MODE_OFF),
+            prefs.getStringSet(KEY_NUMBERS, Collections.<String>emptySet())
+        );
+    }
+
+    void save(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+            .edit()
+            .putString(KEY_MODE, mode)
+            .putStringSet(KEY_NUMBERS, new HashSet<>(numbers))
+            .apply();
+    }
+
+    String getMode() {
+        return mode;
+    }
+
+    Set<String> getNumbers() {
+        return numbers;
+    }
+
+    boolean isEnabled() {
+        return !MODE_OFF.equals(mode);
+    }
+
+    // Unknown-number mode needs a contacts lookup; the other modes decide from the number alone.
+    boolean needsContactLookup() {
+        return MODE_UNKNOWN_NUMBERS.equals(mode);
+    }
+
+    boolean shouldRecord(String phoneNumber, boolean isKnownContact) {
+        switch (mode) {
+            case MODE_ALL_CALLS:
+                return true;
+            case MODE_UNKNOWN_NUMBERS:
+                return !isKnownContact;
+            case MODE_SELECTED_CONTACTS:
+                return phoneNumber != null && numbers.contains(normalizeNumber(phoneNumber));
+            default:
+                return false;
+        }
+    }
+
+    static String normalizeNumber(String phoneNumber) {
+        return phoneNumber.replaceAll("[^0-9+]", "");
+    }
+}
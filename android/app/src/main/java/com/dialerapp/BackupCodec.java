@@ -0,0 +1,461 @@
+package com.dialerapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Row-at-a-time encoding of call-log and contact backups, so DialerBackupModule can move
+// any number of rows between a cursor and a (gzip) stream in constant memory.
+//
+// Call log, NDJSON, one call per line:
+//   {"id":1,"number":"+15551234567","name":"Ann","type":2,"date":1760000000000,"duration":42}
+// Contacts, NDJSON, one phone per line; consecutive lines with the same contactId are one contact:
+//   {"contactId":7,"name":"Ann","number":"+15551234567","type":2}
+// Contacts, vCard 3.0: one card per contact with FN and a TEL per phone.
+//
+// Contact rows must arrive grouped by contact (ContactRowMapper columns).
+final class BackupCodec {
+    static final String FORMAT_NDJSON = "ndjson";
+    static final String FORMAT_VCARD = "vcard";
+
+    // Progress is reported every this many rows, and once at the end.
+    static final int PROGRESS_INTERVAL_ROWS = 256;
+
+    // ContactsContract.CommonDataKinds.Phone.TYPE values with a vCard TEL type.
+    private static final int PHONE_TYPE_HOME = 1;
+    private static final int PHONE_TYPE_MOBILE = 2;
+    private static final int PHONE_TYPE_WORK = 3;
+    private static final int PHONE_TYPE_FAX_WORK = 4;
+    private static final int PHONE_TYPE_FAX_HOME = 5;
+    private static final int PHONE_TYPE_PAGER = 6;
+    private static final int PHONE_TYPE_OTHER = 7;
+
+    interface Progress {
+        void onRows(long rows);
+    }
+
+    interface CallSink {
+        void onCall(String number, String name, int type, long date, long duration) throws IOException;
+    }
+
+    interface ContactSink {
+        void onContact(String name, String[] numbers, int[] types) throws IOException;
+    }
+
+    private BackupCodec() {
+    }
+
+    static long writeCalls(RowCursor rows, Writer out, Progress progress) throws IOException {
+        StringBuilder line = new StringBuilder(160);
+        long count = 0;
+        while (rows.moveToNext()) {
+            line.setLength(0);
+            line.append("{\"id\":").append(rows.getLong(CallLogRowMapper.COLUMN_ID)).append(",\"number\":");
+            appendJsonString(line, rows.getString(CallLogRowMapper.COLUMN_NUMBER));
+            line.append(",\"name\":");
+            appendJsonString(line, rows.getString(CallLogRowMapper.COLUMN_NAME));
+            line.append(",\"type\":").append(rows.getInt(CallLogRowMapper.COLUMN_TYPE))
+                .append(",\"date\":").append(rows.getLong(CallLogRowMapper.COLUMN_DATE))
+                .append(",\"duration\":").append(rows.getLong(CallLogRowMapper.COLUMN_DURATION))
+                .append("}\n");
+            out.append(line);
+            report(progress, ++count);
+        }
+        progress.onRows(count);
+        return count;
+    }
+
+    static long writeContacts(RowCursor rows, Writer out, String format, Progress progress) throws IOException {
+        boolean vcard = FORMAT_VCARD.equals(format);
+        StringBuilder line = new StringBuilder(160);
+        long count = 0;
+        long currentContact = Long.MIN_VALUE;
+        while (rows.moveToNext()) {
+            long contactId = rows.getLong(ContactRowMapper.COLUMN_CONTACT_ID);
+            String name = rows.getString(ContactRowMapper.COLUMN_NAME);
+            String number = rows.getString(ContactRowMapper.COLUMN_NUMBER);
+            int type = rows.getInt(ContactRowMapper.COLUMN_TYPE);
+            line.setLength(0);
+            if (vcard) {
+                if (contactId != currentContact) {
+                    if (currentContact != Long.MIN_VALUE) {
+                        line.append("END:VCARD\r\n");
+                    }
+                    line.append("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:");
+                    appendVCardText(line, name != null ? name : "");
+                    line.append("\r\n");
+                    currentContact = contactId;
+                }
+                line.append("TEL;TYPE=").append(vCardType(type)).append(':');
+                appendVCardText(line, number != null ? number : "");
+                line.append("\r\n");
+            } else {
+                line.append("{\"contactId\":").append(contactId).append(",\"name\":");
+                appendJsonString(line, name);
+                line.append(",\"number\":");
+                appendJsonString(line, number);
+                line.append(",\"type\":").append(type).append("}\n");
+            }
+            out.append(line);
+            report(progress, ++count);
+        }
+        if (vcard && currentContact != Long.MIN_VALUE) {
+            out.append("END:VCARD\r\n");
+        }
+        progress.onRows(count);
+        return count;
+    }
+
+    // Returns the number of lines read. Lines that are not objects (blank, truncated)
+    // are skipped rather than failing the whole import.
+    static long readCalls(BufferedReader in, CallSink sink, Progress progress) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        long count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (parseObject(line, fields)) {
+                sink.onCall(fields.get("number"), fields.get("name"), parseInt(fields.get("type")),
+                    parseLong(fields.get("date")), parseLong(fields.get("duration")));
+            }
+            report(progress, ++count);
+        }
+        progress.onRows(count);
+        return count;
+    }
+
+    // Reads either contacts format, told apart by the first line.
+    static long readContacts(BufferedReader in, ContactSink sink, Progress progress) throws IOException {
+        ContactBuilder contact = new ContactBuilder();
+        Map<String, String> fields = new HashMap<>();
+        long count = 0;
+        String line = in.readLine();
+        boolean vcard = line != null && line.trim().equalsIgnoreCase("BEGIN:VCARD");
+        String pending = null;
+        while (line != null) {
+            if (vcard) {
+                // Unfold continuation lines (leading space or tab) into the previous one.
+                String next = in.readLine();
+                while (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                    line += next.substring(1);
+                    next = in.readLine();
+                }
+                readVCardLine(line, contact, sink);
+                pending = next;
+            } else {
+                if (parseObject(line, fields)) {
+                    String contactId = fields.get("contactId");
+                    if (contact.id != null && !contact.id.equals(contactId)) {
+                        contact.emit(sink);
+                    }
+                    contact.id = contactId;
+                    contact.name = fields.get("name");
+                    contact.add(fields.get("number"), parseInt(fields.get("type")));
+                }
+                pending = in.readLine();
+            }
+            report(progress, ++count);
+            line = pending;
+        }
+        if (!vcard) {
+            contact.emit(sink);
+        }
+        progress.onRows(count);
+        return count;
+    }
+
+    private static void readVCardLine(String line, ContactBuilder contact, ContactSink sink) throws IOException {
+        int colon = line.indexOf(':');
+        if (colon < 0) {
+            return;
+        }
+        String property = line.substring(0, colon).toUpperCase(java.util.Locale.ROOT);
+        String value = unescapeVCardText(line.substring(colon + 1));
+        if (property.equals("BEGIN")) {
+            contact.clear();
+        } else if (property.equals("END")) {
+            contact.emit(sink);
+        } else if (property.equals("FN")) {
+            contact.name = value;
+        } else if (property.equals("TEL") || property.startsWith("TEL;")) {
+            contact.add(value, phoneType(property));
+        }
+    }
+
+    private static final class ContactBuilder {
+        String id;
+        String name;
+        String[] numbers = new String[4];
+        int[] types = new int[4];
+        int count;
+
+        void add(String number, int type) {
+            if (number == null || number.isEmpty()) {
+                return;
+            }
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+            }
+            numbers[count] = number;
+            types[count] = type;
+            count++;
+        }
+
+        void emit(ContactSink sink) throws IOException {
+            if (count > 0 || name != null) {
+                sink.onContact(name, Arrays.copyOf(numbers, count), Arrays.copyOf(types, count));
+            }
+            clear();
+        }
+
+        void clear() {
+            id = null;
+            name = null;
+            count = 0;
+        }
+    }
+
+    private static void report(Progress progress, long rows) {
+        if (rows % PROGRESS_INTERVAL_ROWS == 0) {
+            progress.onRows(rows);
+        }
+    }
+
+    private static String vCardType(int phoneType) {
+        switch (phoneType) {
+            case PHONE_TYPE_HOME:
+                return "HOME";
+            case PHONE_TYPE_MOBILE:
+                return "CELL";
+            case PHONE_TYPE_WORK:
+                return "WORK";
+            case PHONE_TYPE_FAX_WORK:
+                return "WORK,FAX";
+            case PHONE_TYPE_FAX_HOME:
+                return "HOME,FAX";
+            case PHONE_TYPE_PAGER:
+                return "PAGER";
+            default:
+                return "VOICE";
+        }
+    }
+
+    // From a TEL property with parameters, e.g. "TEL;TYPE=WORK,FAX" or "TEL;TYPE=cell".
+    private static int phoneType(String property) {
+        boolean fax = property.contains("FAX");
+        if (property.contains("CELL")) {
+            return PHONE_TYPE_MOBILE;
+        } else if (property.contains("PAGER")) {
+            return PHONE_TYPE_PAGER;
+        } else if (property.contains("WORK")) {
+            return fax ? PHONE_TYPE_FAX_WORK : PHONE_TYPE_WORK;
+        } else if (property.contains("HOME")) {
+            return fax ? PHONE_TYPE_FAX_HOME : PHONE_TYPE_HOME;
+        }
+        return PHONE_TYPE_OTHER;
+    }
+
+    private static void appendVCardText(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == ',' || c == ';') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c != '\r') {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String unescapeVCardText(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    static void appendJsonString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // Parses one flat JSON object of string, number and null values into fields (cleared
+    // first; numbers kept as their text). Returns false for anything else.
+    static boolean parseObject(String line, Map<String, String> fields) {
+        fields.clear();
+        int[] position = { skipSpace(line, 0) };
+        if (position[0] >= line.length() || line.charAt(position[0]) != '{') {
+            return false;
+        }
+        position[0] = skipSpace(line, position[0] + 1);
+        if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+            return true;
+        }
+        while (position[0] < line.length()) {
+            String key = parseString(line, position);
+            position[0] = skipSpace(line, position[0]);
+            if (key == null || position[0] >= line.length() || line.charAt(position[0]) != ':') {
+                return false;
+            }
+            position[0] = skipSpace(line, position[0] + 1);
+            if (position[0] >= line.length()) {
+                return false;
+            }
+            char first = line.charAt(position[0]);
+            String value;
+            if (first == '"') {
+                value = parseString(line, position);
+                if (value == null) {
+                    return false;
+                }
+            } else {
+                int start = position[0];
+                while (position[0] < line.length() && ",} \t".indexOf(line.charAt(position[0])) < 0) {
+                    position[0]++;
+                }
+                value = line.substring(start, position[0]);
+                if (value.equals("null")) {
+                    value = null;
+                } else if (value.isEmpty()) {
+                    return false;
+                }
+            }
+            fields.put(key, value);
+            position[0] = skipSpace(line, position[0]);
+            if (position[0] >= line.length()) {
+                return false;
+            }
+            char separator = line.charAt(position[0]);
+            if (separator == '}') {
+                return true;
+            }
+            if (separator != ',') {
+                return false;
+            }
+            position[0] = skipSpace(line, position[0] + 1);
+        }
+        return false;
+    }
+
+    // Reads a string literal at position[0] and leaves position[0] after its closing quote.
+    private static String parseString(String line, int[] position) {
+        int i = position[0];
+        if (i >= line.length() || line.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        for (i++; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                position[0] = i + 1;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (++i >= line.length()) {
+                return null;
+            }
+            char escaped = line.charAt(i);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= line.length()) {
+                        return null;
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    i += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        return null;
+    }
+
+    private static int skipSpace(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.CallLog;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+
+// Process-wide holder of the current FrecencyIndex. The first load reads the whole call
+// log once; after that each call-log change only reads rows past the last _id seen, into
+// a copy that replaces the published index, so readers never see it half updated.
+class CallFrecency {
+    private static final String TAG = "CallFrecency";
+    private static final long UPDATE_DELAY_MS = 1000;
+
+    private static final DialerMetrics.Histogram UPDATE_LATENCY = DialerMetrics.latency(TAG + ".update");
+    private static final DialerMetrics.Histogram UPDATE_ROWS =
+        DialerMetrics.histogram(TAG + ".update.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Counter REBUILDS = DialerMetrics.counter(TAG + ".rebuilds");
+
+    // Column order matches CallLogRowMapper.
+    private static final String[] PROJECTION = {
+        CallLog.Calls._ID,
+        CallLog.Calls.NUMBER,
+        CallLog.Calls.CACHED_NAME,
+        CallLog.Calls.TYPE,
+        CallLog.Calls.DATE,
+        CallLog.Calls.DURATION
+    };
+
+    private static CallFrecency instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable updateTask = this::update;
+    private volatile FrecencyIndex index;
+
+    private CallFrecency(Context context) {
+        this.context = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    static synchronized CallFrecency get(Context context) {
+        if (instance == null) {
+            instance = new CallFrecency(context);
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    // Null until the first load completes. The returned index is never modified.
+    FrecencyIndex current() {
+        FrecencyIndex current = index;
+        if (current == null) {
+            // The first load may have been skipped for lack of READ_CALL_LOG.
+            handler.removeCallbacks(updateTask);
+            handler.post(updateTask);
+        }
+        return current;
+    }
+
+    private void startMonitoring() {
+        try {
+            context.getContentResolver().registerContentObserver(CallLog.Calls.CONTENT_URI, true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        handler.removeCallbacks(updateTask);
+                        handler.postDelayed(updateTask, UPDATE_DELAY_MS);
+                    }
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Call log not observable", e);
+        }
+        handler.post(updateTask);
+    }
+
+    private void update() {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CALL_LOG)
+            != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            FrecencyIndex current = index;
+            FrecencyIndex next;
+            if (current == null) {
+                next = new FrecencyIndex();
+            } else if (rowsDeleted(current)) {
+                REBUILDS.increment();
+                next = new FrecencyIndex();
+            } else {
+                next = current.copy();
+            }
+            try (Cursor cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI, PROJECTION,
+                CallLog.Calls._ID + " > ?", new String[] { Long.toString(next.lastId()) },
+                CallLog.Calls._ID + " ASC")) {
+                if (cursor == null) {
+                    return;
+                }
+                UPDATE_ROWS.record(next.consume(new CursorRows(cursor)));
+            }
+            index = next;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to update call frecency", e);
+        } finally {
+            UPDATE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Decayed scores cannot be taken back out, so deletions mean starting over.
+    private boolean rowsDeleted(FrecencyIndex current) {
+        try (Cursor cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI,
+            new String[] { CallLog.Calls._ID }, CallLog.Calls._ID + " <= ?",
+            new String[] { Long.toString(current.lastId()) }, null)) {
+            return cursor != null && cursor.getCount() < current.rowCount();
+        }
+    }
+}
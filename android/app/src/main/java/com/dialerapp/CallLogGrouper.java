@@ -0,0 +1,132 @@
+package com.dialerapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TimeZone;
+
+// Single pass over call-log rows sorted newest first (CallLogRowMapper order), merging
+// adjacent calls with the same number, type and local day into recents groups. Rows can
+// arrive over several cursors; the grouper stops taking them once maxGroups groups are
+// complete and remembers the row that starts the next one.
+final class CallLogGrouper {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    static final class Group {
+        final String number;
+        final long matchKey;
+        final int type;
+        final long day;
+        String name;
+        long latestDate;
+        long earliestDate;
+        long totalDuration;
+        int count;
+        long[] memberIds = new long[4];
+
+        Group(String number, long matchKey, int type, long day) {
+            this.number = number;
+            this.matchKey = matchKey;
+            this.type = type;
+            this.day = day;
+        }
+
+        long[] memberIds() {
+            return Arrays.copyOf(memberIds, count);
+        }
+
+        private boolean accepts(String number, long matchKey, int type, long day) {
+            if (type != this.type || day != this.day || matchKey != this.matchKey) {
+                return false;
+            }
+            // Private and unknown callers have no digits; only identical strings merge.
+            return matchKey != PhoneNumbers.NO_KEY || Objects.equals(number, this.number);
+        }
+
+        private void add(long id, String name, long date, long duration) {
+            if (count == memberIds.length) {
+                memberIds = Arrays.copyOf(memberIds, count * 2);
+            }
+            memberIds[count++] = id;
+            if (this.name == null) {
+                this.name = name;
+            }
+            if (count == 1) {
+                latestDate = date;
+            }
+            earliestDate = date;
+            totalDuration += duration;
+        }
+    }
+
+    private final int maxGroups;
+    private final TimeZone zone;
+    private final List<Group> groups = new ArrayList<>();
+    private Group open;
+    private boolean full;
+    private long lastDate;
+    private long lastId;
+
+    CallLogGrouper(int maxGroups, TimeZone zone) {
+        this.maxGroups = maxGroups;
+        this.zone = zone;
+    }
+
+    // Reads rows until the cursor ends or the page is full; returns the number of rows read.
+    int consume(RowCursor rows) {
+        int read = 0;
+        while (!full && rows.moveToNext()) {
+            read++;
+            long id = rows.getLong(CallLogRowMapper.COLUMN_ID);
+            String number = rows.getString(CallLogRowMapper.COLUMN_NUMBER);
+            int type = rows.getInt(CallLogRowMapper.COLUMN_TYPE);
+            long date = rows.getLong(CallLogRowMapper.COLUMN_DATE);
+            long matchKey = PhoneNumbers.matchKey(number);
+            long day = Math.floorDiv(date + zone.getOffset(date), MILLIS_PER_DAY);
+
+            if (open == null || !open.accepts(number, matchKey, type, day)) {
+                if (open != null) {
+                    groups.add(open);
+                    if (groups.size() == maxGroups) {
+                        // This row opens the next page.
+                        open = null;
+                        full = true;
+                        lastDate = date;
+                        lastId = id;
+                        break;
+                    }
+                }
+                open = new Group(number, matchKey, type, day);
+            }
+            open.add(id, rows.getString(CallLogRowMapper.COLUMN_NAME), date,
+                rows.getLong(CallLogRowMapper.COLUMN_DURATION));
+            lastDate = date;
+            lastId = id;
+        }
+        return read;
+    }
+
+    boolean isFull() {
+        return full;
+    }
+
+    // Date and _id of the last row read: once full, the first row of the next page;
+    // otherwise where the next cursor should continue (exclusive).
+    long lastDate() {
+        return lastDate;
+    }
+
+    long lastId() {
+        return lastId;
+    }
+
+    // Closes the group still being built when the rows ran out.
+    List<Group> finish() {
+        if (open != null) {
+            groups.add(open);
+            open = null;
+        }
+        return groups;
+    }
+}
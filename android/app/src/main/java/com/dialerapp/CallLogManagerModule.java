@@ -2,17 +2,56 @@ package com.dialerapp;
 
 import android.content.ContentResolver;
 import android.database.Cursor;
+import android.net.Uri;
 import android.provider.CallLog;
+import android.util.Base64;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 
+import java.util.TimeZone;
+
 public class CallLogManagerModule extends ReactContextBaseJavaModule {
+    static final String NAME = "CallLogManager";
+    private static final DialerMetrics.Histogram GET_CALL_LOG_LATENCY =
+        DialerMetrics.latency(NAME + ".getCallLog");
+    private static final DialerMetrics.Histogram GET_CALL_LOG_ROWS =
+        DialerMetrics.histogram(NAME + ".getCallLog.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_CALL_LOG_COLUMNAR_LATENCY =
+        DialerMetrics.latency(NAME + ".getCallLogColumnar");
+    private static final DialerMetrics.Histogram GET_CALL_LOG_COLUMNAR_ROWS =
+        DialerMetrics.histogram(NAME + ".getCallLogColumnar.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_CALL_LOG_COLUMNAR_BYTES =
+        DialerMetrics.histogram(NAME + ".getCallLogColumnar.bytes", DialerMetrics.UNIT_BYTES);
+    private static final DialerMetrics.Histogram DELETE_CALL_LOG_ENTRY_LATENCY =
+        DialerMetrics.latency(NAME + ".deleteCallLogEntry");
+    private static final DialerMetrics.Histogram SET_READ_MODE_LATENCY =
+        DialerMetrics.latency(NAME + ".setReadMode");
+    private static final DialerMetrics.Histogram GET_CALL_HISTORY_LATENCY =
+        DialerMetrics.latency(NAME + ".getCallHistory");
+    private static final DialerMetrics.Histogram GET_CALL_LOG_GROUPS_LATENCY =
+        DialerMetrics.latency(NAME + ".getCallLogGroups");
+    // Rows read per page; stays near groups x calls-per-group rather than the log size.
+    private static final DialerMetrics.Histogram GET_CALL_LOG_GROUPS_ROWS =
+        DialerMetrics.histogram(NAME + ".getCallLogGroups.rows", DialerMetrics.UNIT_ROWS);
+    // Query plus cursor walk only, split by where getCallLog/getCallLogColumnar read from.
+    private static final DialerMetrics.Histogram CALL_LOG_PROVIDER_READ_LATENCY =
+        DialerMetrics.latency(NAME + ".read.provider");
+    private static final DialerMetrics.Histogram CALL_LOG_MIRROR_READ_LATENCY =
+        DialerMetrics.latency(NAME + ".read.mirror");
+
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int DEFAULT_GROUP_PAGE_SIZE = 30;
+    // Rows per cursor while grouping; a page needing more issues another keyset query.
+    private static final int GROUP_ROW_BATCH = 200;
+
+    private volatile boolean readFromMirror;
     
     public CallLogManagerModule(ReactApplicationContext reactContext) {
         super(reactContext);
@@ -20,31 +59,17 @@ public class CallLogManagerModule extends ReactContextBaseJavaModule {
 
     @Override
     public String getName() {
-        return "CallLogManager";
+        return NAME;
     }
 
     @ReactMethod
     public void getCallLog(Promise promise) {
+        long start = System.nanoTime();
         try {
-            ContentResolver contentResolver = getReactApplicationContext().getContentResolver();
             WritableArray callLogs = Arguments.createArray();
-
-            String[] projection = {
-                CallLog.Calls._ID,
-                CallLog.Calls.NUMBER,
-                CallLog.Calls.CACHED_NAME,
-                CallLog.Calls.TYPE,
-                CallLog.Calls.DATE,
-                CallLog.Calls.DURATION
-            };
-
-            Cursor cursor = contentResolver.query(
-                CallLog.Calls.CONTENT_URI,
-                projection,
-                null,
-                null,
-                CallLog.Calls.DATE + " DESC"
-            );
+            boolean fromMirror = useMirror();
+            long queryStart = System.nanoTime();
+            Cursor cursor = openCallLog(fromMirror);
 
             if (cursor != null) {
                 while (cursor.moveToNext()) {
@@ -59,15 +84,199 @@ public class CallLogManagerModule extends ReactContextBaseJavaModule {
                 }
                 cursor.close();
             }
+            (fromMirror ? CALL_LOG_MIRROR_READ_LATENCY : CALL_LOG_PROVIDER_READ_LATENCY).recordSince(queryStart);
 
+            GET_CALL_LOG_ROWS.record(callLogs.size());
             promise.resolve(callLogs);
         } catch (Exception e) {
             promise.reject("CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            GET_CALL_LOG_LATENCY.recordSince(start);
+        }
+    }
+
+    // Same rows as getCallLog, as a base64 ColumnarResultBuilder blob (see src/native/columnar.ts).
+    @ReactMethod
+    public void getCallLogColumnar(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            boolean fromMirror = useMirror();
+            long queryStart = System.nanoTime();
+            Cursor cursor = openCallLog(fromMirror);
+            ColumnarResultBuilder result;
+            try {
+                result = CallLogRowMapper.toColumnar(cursor != null ? new CursorRows(cursor) : null);
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            (fromMirror ? CALL_LOG_MIRROR_READ_LATENCY : CALL_LOG_PROVIDER_READ_LATENCY).recordSince(queryStart);
+
+            String payload = Base64.encodeToString(result.toByteArray(), Base64.NO_WRAP);
+            GET_CALL_LOG_COLUMNAR_ROWS.record(result.rowCount());
+            GET_CALL_LOG_COLUMNAR_BYTES.record(payload.length());
+            promise.resolve(payload);
+        } catch (Exception e) {
+            promise.reject("CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            GET_CALL_LOG_COLUMNAR_LATENCY.recordSince(start);
+        }
+    }
+
+    // "mirror" serves getCallLog and getCallLogColumnar from the local DialerDatabase once its
+    // first sync has finished; "provider" (the default) always queries CallLog.Calls.
+    @ReactMethod
+    public void setReadMode(String mode, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            if (DialerMirror.READ_MODE_MIRROR.equals(mode)) {
+                // Starts the initial sync if nothing else has.
+                DialerMirror.get(getReactApplicationContext());
+                readFromMirror = true;
+            } else if (DialerMirror.READ_MODE_PROVIDER.equals(mode)) {
+                readFromMirror = false;
+            } else {
+                promise.reject("INVALID_READ_MODE", "Unknown read mode: " + mode);
+                return;
+            }
+            promise.resolve(mode);
+        } catch (Exception e) {
+            promise.reject("CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            SET_READ_MODE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Call-log rows joined with contact, spam verdict and recording count from the mirror.
+    // Options: limit, offset, phoneNumber (restricts to one number in any format).
+    @ReactMethod
+    public void getCallHistory(ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            DialerMirror mirror = DialerMirror.get(getReactApplicationContext());
+            if (!mirror.isCallLogReady()) {
+                promise.reject("MIRROR_NOT_READY", "Call log has not been mirrored yet");
+                return;
+            }
+            int limit = options.hasKey("limit") ? options.getInt("limit") : DEFAULT_HISTORY_PAGE_SIZE;
+            int offset = options.hasKey("offset") ? options.getInt("offset") : 0;
+            String phoneNumber = options.hasKey("phoneNumber") ? options.getString("phoneNumber") : null;
+
+            WritableArray calls = Arguments.createArray();
+            try (Cursor cursor = mirror.queryCallHistory(phoneNumber, limit, offset)) {
+                while (cursor.moveToNext()) {
+                    WritableMap call = Arguments.createMap();
+                    call.putString("id", cursor.getString(0));
+                    call.putString("number", cursor.getString(1));
+                    call.putInt("type", cursor.getInt(2));
+                    call.putDouble("date", cursor.getLong(3));
+                    call.putInt("duration", cursor.getInt(4));
+                    call.putString("contactId", cursor.isNull(5) ? null : cursor.getString(5));
+                    call.putString("contactName", cursor.getString(6));
+                    call.putBoolean("isSpam", !cursor.isNull(7));
+                    call.putString("spamCategory", cursor.getString(7));
+                    call.putString("riskLevel", cursor.getString(8));
+                    call.putInt("recordingCount", cursor.getInt(9));
+                    calls.pushMap(call);
+                }
+            }
+            promise.resolve(calls);
+        } catch (Exception e) {
+            promise.reject("CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            GET_CALL_HISTORY_LATENCY.recordSince(start);
+        }
+    }
+
+    // Recents groups: adjacent calls with the same number, type and local day, newest first.
+    // Options: limit (groups per page), pageToken (nextPageToken from the previous page).
+    // Only as many rows as the page needs are read.
+    @ReactMethod
+    public void getCallLogGroups(ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            int limit = options.hasKey("limit") ? options.getInt("limit") : DEFAULT_GROUP_PAGE_SIZE;
+            if (limit <= 0) {
+                promise.reject("INVALID_PAGE_SIZE", "limit must be positive");
+                return;
+            }
+            String selection = null;
+            String[] selectionArgs = null;
+            if (options.hasKey("pageToken") && options.getString("pageToken") != null) {
+                String token = options.getString("pageToken");
+                int separator = token.indexOf(':');
+                if (separator <= 0) {
+                    promise.reject("INVALID_PAGE_TOKEN", "Malformed page token: " + token);
+                    return;
+                }
+                // The token row starts this page, so it is included.
+                selection = CallLog.Calls.DATE + " < ? OR (" + CallLog.Calls.DATE + " = ? AND "
+                    + CallLog.Calls._ID + " <= ?)";
+                String date = token.substring(0, separator);
+                selectionArgs = new String[] { date, date, token.substring(separator + 1) };
+            }
+
+            boolean fromMirror = useMirror();
+            CallLogGrouper grouper = new CallLogGrouper(limit, TimeZone.getDefault());
+            int rowsRead = 0;
+            while (true) {
+                int batchRows;
+                Cursor cursor = openCallLogPage(fromMirror, selection, selectionArgs);
+                if (cursor == null) {
+                    break;
+                }
+                try {
+                    batchRows = grouper.consume(new CursorRows(cursor));
+                } finally {
+                    cursor.close();
+                }
+                rowsRead += batchRows;
+                if (grouper.isFull() || batchRows < GROUP_ROW_BATCH) {
+                    break;
+                }
+                String date = Long.toString(grouper.lastDate());
+                selection = CallLog.Calls.DATE + " < ? OR (" + CallLog.Calls.DATE + " = ? AND "
+                    + CallLog.Calls._ID + " < ?)";
+                selectionArgs = new String[] { date, date, Long.toString(grouper.lastId()) };
+            }
+
+            WritableArray groups = Arguments.createArray();
+            for (CallLogGrouper.Group group : grouper.finish()) {
+                WritableMap map = Arguments.createMap();
+                long[] memberIds = group.memberIds();
+                WritableArray ids = Arguments.createArray();
+                for (long id : memberIds) {
+                    ids.pushString(Long.toString(id));
+                }
+                map.putString("id", Long.toString(memberIds[0]));
+                map.putString("number", group.number);
+                map.putString("name", group.name);
+                map.putInt("type", group.type);
+                map.putInt("count", group.count);
+                map.putDouble("latestDate", group.latestDate);
+                map.putDouble("earliestDate", group.earliestDate);
+                map.putDouble("totalDuration", group.totalDuration);
+                map.putArray("memberIds", ids);
+                groups.pushMap(map);
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putArray("groups", groups);
+            result.putString("nextPageToken",
+                grouper.isFull() ? grouper.lastDate() + ":" + grouper.lastId() : null);
+            GET_CALL_LOG_GROUPS_ROWS.record(rowsRead);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            GET_CALL_LOG_GROUPS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void deleteCallLogEntry(String callId, Promise promise) {
+        long start = System.nanoTime();
         try {
             ContentResolver contentResolver = getReactApplicationContext().getContentResolver();
             int deleted = contentResolver.delete(
@@ -78,6 +287,65 @@ public class CallLogManagerModule extends ReactContextBaseJavaModule {
             promise.resolve(deleted > 0);
         } catch (Exception e) {
             promise.reject("DELETE_CALL_LOG_ERROR", e.getMessage());
+        } finally {
+            DELETE_CALL_LOG_ENTRY_LATENCY.recordSince(start);
         }
     }
+
+    private boolean useMirror() {
+        return readFromMirror && DialerMirror.get(getReactApplicationContext()).isCallLogReady();
+    }
+
+    // At most GROUP_ROW_BATCH rows in CallLogRowMapper's column order, newest first with
+    // _id breaking ties so keyset selections resume exactly.
+    private Cursor openCallLogPage(boolean fromMirror, String selection, String[] selectionArgs) {
+        if (fromMirror) {
+            return DialerMirror.get(getReactApplicationContext()).queryCallLogPage(selection, selectionArgs, GROUP_ROW_BATCH);
+        }
+
+        String[] projection = {
+            CallLog.Calls._ID,
+            CallLog.Calls.NUMBER,
+            CallLog.Calls.CACHED_NAME,
+            CallLog.Calls.TYPE,
+            CallLog.Calls.DATE,
+            CallLog.Calls.DURATION
+        };
+
+        // CallLogProvider applies the "limit" query parameter to the underlying query.
+        Uri uri = CallLog.Calls.CONTENT_URI.buildUpon()
+            .appendQueryParameter("limit", Integer.toString(GROUP_ROW_BATCH))
+            .build();
+        return getReactApplicationContext().getContentResolver().query(
+            uri,
+            projection,
+            selection,
+            selectionArgs,
+            CallLog.Calls.DATE + " DESC, " + CallLog.Calls._ID + " DESC"
+        );
+    }
+
+    // Rows in CallLogRowMapper's column order, newest first.
+    private Cursor openCallLog(boolean fromMirror) {
+        if (fromMirror) {
+            return DialerMirror.get(getReactApplicationContext()).queryCallLog();
+        }
+
+        String[] projection = {
+            CallLog.Calls._ID,
+            CallLog.Calls.NUMBER,
+            CallLog.Calls.CACHED_NAME,
+            CallLog.Calls.TYPE,
+            CallLog.Calls.DATE,
+            CallLog.Calls.DURATION
+        };
+
+        return getReactApplicationContext().getContentResolver().query(
+            CallLog.Calls.CONTENT_URI,
+            projection,
+            null,
+            null,
+            CallLog.Calls.DATE + " DESC"
+        );
+    }
 }
@@ -0,0 +1,36 @@
+package com.dialerapp;
+
+// Maps CallLogManagerModule's call-log projection to result columns. Rows must be in
+// projection order: _ID, NUMBER, CACHED_NAME, TYPE, DATE, DURATION.
+final class CallLogRowMapper {
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_NUMBER = 1;
+    static final int COLUMN_NAME = 2;
+    static final int COLUMN_TYPE = 3;
+    static final int COLUMN_DATE = 4;
+    static final int COLUMN_DURATION = 5;
+
+    private CallLogRowMapper() {
+    }
+
+    // A null cursor (provider unavailable) gives the columns with no rows.
+    static ColumnarResultBuilder toColumnar(RowCursor rows) {
+        ColumnarResultBuilder result = new ColumnarResultBuilder();
+        ColumnarResultBuilder.DoubleColumn ids = result.doubleColumn("id");
+        ColumnarResultBuilder.StringColumn numbers = result.stringColumn("number");
+        ColumnarResultBuilder.StringColumn names = result.stringColumn("name");
+        ColumnarResultBuilder.IntColumn types = result.intColumn("type");
+        ColumnarResultBuilder.DoubleColumn dates = result.doubleColumn("date");
+        ColumnarResultBuilder.IntColumn durations = result.intColumn("duration");
+
+        while (rows != null && rows.moveToNext()) {
+            ids.add(rows.getLong(COLUMN_ID));
+            numbers.add(rows.getString(COLUMN_NUMBER));
+            names.add(rows.getString(COLUMN_NAME));
+            types.add(rows.getInt(COLUMN_TYPE));
+            dates.add(rows.getLong(COLUMN_DATE));
+            durations.add(rows.getInt(COLUMN_DURATION));
+        }
+        return result;
+    }
+}
@@ -6,67 +6,198 @@ import android.telecom.TelecomManager;
 import android.telecom.PhoneAccountHandle;
 import android.content.Context;
 import android.os.Bundle;
-import android.telephony.SubscriptionManager;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.Arguments;
 
 public class CallManagerModule extends ReactContextBaseJavaModule {
+    static final String NAME = "CallManager";
+    private static final DialerMetrics.Histogram MAKE_CALL_LATENCY =
+        DialerMetrics.latency(NAME + ".makeCall");
+    private static final DialerMetrics.Histogram MAKE_CALL_WITH_SIM_LATENCY =
+        DialerMetrics.latency(NAME + ".makeCallWithSim");
+    private static final DialerMetrics.Histogram MAKE_SMART_CALL_LATENCY =
+        DialerMetrics.latency(NAME + ".makeSmartCall");
+    private static final DialerMetrics.Histogram GET_SIM_ROUTE_LATENCY =
+        DialerMetrics.latency(NAME + ".getSimRoute");
+    private static final DialerMetrics.Histogram SET_PREFERRED_SIM_LATENCY =
+        DialerMetrics.latency(NAME + ".setPreferredSim");
+    private static final DialerMetrics.Histogram CLEAR_PREFERRED_SIM_LATENCY =
+        DialerMetrics.latency(NAME + ".clearPreferredSim");
+    private static final DialerMetrics.Histogram SET_CONTACT_PREFERRED_SIM_LATENCY =
+        DialerMetrics.latency(NAME + ".setContactPreferredSim");
+    private static final DialerMetrics.Histogram CLEAR_CONTACT_PREFERRED_SIM_LATENCY =
+        DialerMetrics.latency(NAME + ".clearContactPreferredSim");
+    private static final DialerMetrics.Histogram SET_SIM_ROUTING_RULE_LATENCY =
+        DialerMetrics.latency(NAME + ".setSimRoutingRule");
+    private static final DialerMetrics.Histogram REMOVE_SIM_ROUTING_RULE_LATENCY =
+        DialerMetrics.latency(NAME + ".removeSimRoutingRule");
+    private static final DialerMetrics.Histogram END_CALL_LATENCY =
+        DialerMetrics.latency(NAME + ".endCall");
     
     public CallManagerModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        // Builds the routing table in the background so the first makeSmartCall is already warm.
+        SimRouter.get(reactContext);
     }
 
     @Override
     public String getName() {
-        return "CallManager";
+        return NAME;
     }
 
     @ReactMethod
     public void makeCall(String phoneNumber, Promise promise) {
+        long start = System.nanoTime();
         try {
-            Intent callIntent = new Intent(Intent.ACTION_CALL);
-            callIntent.setData(Uri.parse("tel:" + phoneNumber));
-            callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            
-            if (getCurrentActivity() != null) {
-                getCurrentActivity().startActivity(callIntent);
+            if (startCall(phoneNumber)) {
                 promise.resolve(true);
             } else {
                 promise.reject("NO_ACTIVITY", "No current activity available");
             }
         } catch (Exception e) {
             promise.reject("CALL_ERROR", e.getMessage());
+        } finally {
+            MAKE_CALL_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void makeCallWithSim(String phoneNumber, int subscriptionId, Promise promise) {
+        long start = System.nanoTime();
         try {
-            Intent callIntent = new Intent(Intent.ACTION_CALL);
-            callIntent.setData(Uri.parse("tel:" + phoneNumber));
-            callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            
-            // Add subscription ID for dual SIM support
-            Bundle extras = new Bundle();
-            extras.putInt("subscription", subscriptionId);
-            callIntent.putExtras(extras);
-            
-            if (getCurrentActivity() != null) {
-                getCurrentActivity().startActivity(callIntent);
+            if (startCallWithSim(phoneNumber, subscriptionId)) {
                 promise.resolve(true);
             } else {
                 promise.reject("NO_ACTIVITY", "No current activity available");
             }
         } catch (Exception e) {
             promise.reject("CALL_ERROR", e.getMessage());
+        } finally {
+            MAKE_CALL_WITH_SIM_LATENCY.recordSince(start);
+        }
+    }
+
+    // Picks the SIM natively (override, prefix rule, call history, SIM carrier, SIM country, default)
+    // and dials in one hop.
+    @ReactMethod
+    public void makeSmartCall(String phoneNumber, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRoutingEngine.Route route = SimRouter.get(getReactApplicationContext()).route(phoneNumber);
+            boolean started = route.subscriptionId != SimRoutingEngine.NO_SUBSCRIPTION
+                ? startCallWithSim(phoneNumber, route.subscriptionId)
+                : startCall(phoneNumber);
+            if (!started) {
+                promise.reject("NO_ACTIVITY", "No current activity available");
+                return;
+            }
+            promise.resolve(routeToMap(route));
+        } catch (Exception e) {
+            promise.reject("CALL_ERROR", e.getMessage());
+        } finally {
+            MAKE_SMART_CALL_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void getSimRoute(String phoneNumber, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            promise.resolve(routeToMap(SimRouter.get(getReactApplicationContext()).route(phoneNumber)));
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            GET_SIM_ROUTE_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void setPreferredSim(String phoneNumber, int subscriptionId, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).setOverride(phoneNumber, subscriptionId);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            SET_PREFERRED_SIM_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void clearPreferredSim(String phoneNumber, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).clearOverride(phoneNumber);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            CLEAR_PREFERRED_SIM_LATENCY.recordSince(start);
+        }
+    }
+
+    // Applies to every number saved under the contact; a per-number preference still wins.
+    @ReactMethod
+    public void setContactPreferredSim(String contactId, int subscriptionId, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).setContactOverride(Long.parseLong(contactId), subscriptionId);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            SET_CONTACT_PREFERRED_SIM_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void clearContactPreferredSim(String contactId, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).clearContactOverride(Long.parseLong(contactId));
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            CLEAR_CONTACT_PREFERRED_SIM_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void setSimRoutingRule(String prefix, int subscriptionId, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).setPrefixRule(prefix, subscriptionId);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            SET_SIM_ROUTING_RULE_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void removeSimRoutingRule(String prefix, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            SimRouter.get(getReactApplicationContext()).removePrefixRule(prefix);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SIM_ROUTE_ERROR", e.getMessage());
+        } finally {
+            REMOVE_SIM_ROUTING_RULE_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void endCall(Promise promise) {
+        long start = System.nanoTime();
         try {
             TelecomManager telecomManager = (TelecomManager) 
                 getReactApplicationContext().getSystemService(Context.TELECOM_SERVICE);
@@ -79,6 +210,52 @@ public class CallManagerModule extends ReactContextBaseJavaModule {
             }
         } catch (Exception e) {
             promise.reject("END_CALL_ERROR", e.getMessage());
+        } finally {
+            END_CALL_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean startCall(String phoneNumber) {
+        Intent callIntent = new Intent(Intent.ACTION_CALL);
+        callIntent.setData(Uri.parse("tel:" + phoneNumber));
+        callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+        if (getCurrentActivity() == null) {
+            return false;
         }
+        CallRecordingService.prepare(getReactApplicationContext(), phoneNumber);
+        getCurrentActivity().startActivity(callIntent);
+        return true;
+    }
+
+    private boolean startCallWithSim(String phoneNumber, int subscriptionId) {
+        Intent callIntent = new Intent(Intent.ACTION_CALL);
+        callIntent.setData(Uri.parse("tel:" + phoneNumber));
+        callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+        // Add subscription ID for dual SIM support
+        Bundle extras = new Bundle();
+        extras.putInt("subscription", subscriptionId);
+        // Served from memory; no SubscriptionManager/TelecomManager round trip on the dial path.
+        PhoneAccountHandle accountHandle = SimSubscriptionCache.get(getReactApplicationContext())
+            .snapshot().accountHandles.get(subscriptionId);
+        if (accountHandle != null) {
+            extras.putParcelable(TelecomManager.EXTRA_PHONE_ACCOUNT_HANDLE, accountHandle);
+        }
+        callIntent.putExtras(extras);
+
+        if (getCurrentActivity() == null) {
+            return false;
+        }
+        CallRecordingService.prepare(getReactApplicationContext(), phoneNumber);
+        getCurrentActivity().startActivity(callIntent);
+        return true;
+    }
+
+    private static WritableMap routeToMap(SimRoutingEngine.Route route) {
+        WritableMap result = Arguments.createMap();
+        result.putInt("subscriptionId", route.subscriptionId);
+        result.putString("reason", route.reason);
+        return result;
     }
 }
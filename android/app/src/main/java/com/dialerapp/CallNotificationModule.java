@@ -6,12 +6,11 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
+import android.graphics.Bitmap;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
 
 import com.facebook.react.bridge.Promise;
@@ -21,29 +20,55 @@ import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableMap;
 
 public class CallNotificationModule extends ReactContextBaseJavaModule {
+    static final String NAME = "CallNotification";
+    private static final DialerMetrics.Histogram SHOW_INCOMING_CALL_NOTIFICATION_LATENCY =
+        DialerMetrics.latency(NAME + ".showIncomingCallNotification");
+    private static final DialerMetrics.Histogram SHOW_ONGOING_CALL_NOTIFICATION_LATENCY =
+        DialerMetrics.latency(NAME + ".showOngoingCallNotification");
+    private static final DialerMetrics.Histogram HIDE_INCOMING_CALL_NOTIFICATION_LATENCY =
+        DialerMetrics.latency(NAME + ".hideIncomingCallNotification");
+    private static final DialerMetrics.Histogram HIDE_ONGOING_CALL_NOTIFICATION_LATENCY =
+        DialerMetrics.latency(NAME + ".hideOngoingCallNotification");
+
     private static final String INCOMING_CALL_CHANNEL = "incoming_calls";
     private static final String ONGOING_CALL_CHANNEL = "ongoing_calls";
-    private static final int INCOMING_CALL_NOTIFICATION_ID = 2001;
+    static final int INCOMING_CALL_NOTIFICATION_ID = 2001;
     private static final int ONGOING_CALL_NOTIFICATION_ID = 2002;
+    private static final long[] INCOMING_CHANNEL_VIBRATION_PATTERN = {0, 1000, 500, 1000};
     
+    // Channels outlive the module, which is recreated with every React instance.
+    private static boolean channelsCreated;
+
     private NotificationManager notificationManager;
-    private Vibrator vibrator;
 
     public CallNotificationModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        createNotificationChannels();
-        vibrator = (Vibrator) reactContext.getSystemService(Context.VIBRATOR_SERVICE);
     }
 
     @Override
     public String getName() {
-        return "CallNotification";
+        return NAME;
     }
 
-    private void createNotificationChannels() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+    // Channels and system services are set up on first use rather than at module creation,
+    // which happens on the app-launch path.
+    private NotificationManager getNotificationManager() {
+        if (notificationManager == null) {
             notificationManager = (NotificationManager) getReactApplicationContext()
                 .getSystemService(Context.NOTIFICATION_SERVICE);
+            createNotificationChannels();
+        }
+        return notificationManager;
+    }
+
+    private void createNotificationChannels() {
+        synchronized (CallNotificationModule.class) {
+            if (channelsCreated) {
+                return;
+            }
+            channelsCreated = true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
 
             // Incoming call channel - high priority with sound and vibration
             NotificationChannel incomingChannel = new NotificationChannel(
@@ -53,14 +78,10 @@ public class CallNotificationModule extends ReactContextBaseJavaModule {
             );
             incomingChannel.setDescription("Notifications for incoming calls");
             incomingChannel.enableVibration(true);
-            incomingChannel.setVibrationPattern(new long[]{0, 1000, 500, 1000});
+            incomingChannel.setVibrationPattern(INCOMING_CHANNEL_VIBRATION_PATTERN);
             
             Uri ringtoneUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_RINGTONE);
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .setUsage(AudioAttributes.USAGE_NOTIFICATION_RINGTONE)
-                .build();
-            incomingChannel.setSound(ringtoneUri, audioAttributes);
+            incomingChannel.setSound(ringtoneUri, RingAlertController.RINGTONE_ATTRIBUTES);
             
             // Ongoing call channel - low priority, no sound
             NotificationChannel ongoingChannel = new NotificationChannel(
@@ -78,6 +99,9 @@ public class CallNotificationModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void showIncomingCallNotification(ReadableMap callData, Promise promise) {
+        long start = System.nanoTime();
+        // Only used if CallStateReceiver has not already seen this call ring.
+        long calledAt = SystemClock.elapsedRealtimeNanos();
         try {
             String phoneNumber = callData.getString("phoneNumber");
             String contactName = callData.hasKey("contactName") ? callData.getString("contactName") : phoneNumber;
@@ -120,24 +144,44 @@ public class CallNotificationModule extends ReactContextBaseJavaModule {
                     .bigText("Potential " + spamCategory + " from " + phoneNumber + "\n\nThis number has been reported as spam."));
             }
 
+            // The caller's photo goes in straight from memory when it was prefetched on ringing;
+            // otherwise the notification is posted now and updated once the photo is decoded.
+            ContactPhotoCache photos = ContactPhotoCache.get(getReactApplicationContext());
+            long contactId = photos.contactIdFor(phoneNumber);
+            Bitmap photo = contactId >= 0 ? photos.peek(contactId) : null;
+            if (photo != null) {
+                builder.setLargeIcon(photo);
+            }
+
             Notification notification = builder.build();
             
-            if (notificationManager != null) {
-                notificationManager.notify(INCOMING_CALL_NOTIFICATION_ID, notification);
-            }
+            // Creates the channels on first use.
+            getNotificationManager();
+            // Starts the vibration unless this call is already alerting.
+            RingAlertController alerts = RingAlertController.get(getReactApplicationContext());
+            int generation = alerts.showIncoming(notification, calledAt);
 
-            // Start vibration pattern
-            startCallVibration();
+            if (photo == null && contactId >= 0) {
+                photos.load(contactId, (id, loaded) -> {
+                    if (loaded != null) {
+                        builder.setLargeIcon(loaded).setOnlyAlertOnce(true);
+                        alerts.postIfCurrent(generation, builder.build());
+                    }
+                });
+            }
 
             promise.resolve(true);
             
         } catch (Exception e) {
             promise.reject("NOTIFICATION_ERROR", e.getMessage());
+        } finally {
+            SHOW_INCOMING_CALL_NOTIFICATION_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void showOngoingCallNotification(ReadableMap callData, Promise promise) {
+        long start = System.nanoTime();
         try {
             String phoneNumber = callData.getString("phoneNumber");
             String contactName = callData.hasKey("contactName") ? callData.getString("contactName") : phoneNumber;
@@ -172,58 +216,44 @@ public class CallNotificationModule extends ReactContextBaseJavaModule {
                 .addAction(android.R.drawable.ic_menu_close_clear_cancel, "End Call", endCallPendingIntent)
                 .build();
 
-            if (notificationManager != null) {
-                notificationManager.notify(ONGOING_CALL_NOTIFICATION_ID, notification);
+            if (getNotificationManager() != null) {
+                getNotificationManager().notify(ONGOING_CALL_NOTIFICATION_ID, notification);
             }
 
             promise.resolve(true);
             
         } catch (Exception e) {
             promise.reject("NOTIFICATION_ERROR", e.getMessage());
+        } finally {
+            SHOW_ONGOING_CALL_NOTIFICATION_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void hideIncomingCallNotification(Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (notificationManager != null) {
-                notificationManager.cancel(INCOMING_CALL_NOTIFICATION_ID);
-            }
-            stopCallVibration();
+            RingAlertController.get(getReactApplicationContext()).hideIncoming();
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("HIDE_NOTIFICATION_ERROR", e.getMessage());
+        } finally {
+            HIDE_INCOMING_CALL_NOTIFICATION_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void hideOngoingCallNotification(Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (notificationManager != null) {
-                notificationManager.cancel(ONGOING_CALL_NOTIFICATION_ID);
+            if (getNotificationManager() != null) {
+                getNotificationManager().cancel(ONGOING_CALL_NOTIFICATION_ID);
             }
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("HIDE_NOTIFICATION_ERROR", e.getMessage());
-        }
-    }
-
-    private void startCallVibration() {
-        if (vibrator != null && vibrator.hasVibrator()) {
-            long[] pattern = {0, 1000, 500, 1000, 500, 1000}; // Vibrate pattern
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                VibrationEffect effect = VibrationEffect.createWaveform(pattern, 0); // Repeat
-                vibrator.vibrate(effect);
-            } else {
-                vibrator.vibrate(pattern, 0); // Repeat
-            }
-        }
-    }
-
-    private void stopCallVibration() {
-        if (vibrator != null) {
-            vibrator.cancel();
+        } finally {
+            HIDE_ONGOING_CALL_NOTIFICATION_LATENCY.recordSince(start);
         }
     }
 }
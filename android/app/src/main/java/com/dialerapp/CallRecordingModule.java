@@ -2,76 +2,122 @@ package com.dialerapp;
 
 import android.Manifest;
 import android.app.Notification;
-import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
-import android.media.MediaRecorder;
 import android.os.Build;
-import android.os.Environment;
-import androidx.core.app.ActivityCompat;
+import android.util.Base64;
 import androidx.core.app.NotificationCompat;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 
 public class CallRecordingModule extends ReactContextBaseJavaModule {
-    private static final String CHANNEL_ID = "call_recording_channel";
-    private static final int NOTIFICATION_ID = 1001;
+    static final String NAME = "CallRecording";
+    private static final DialerMetrics.Histogram CHECK_RECORDING_PERMISSIONS_LATENCY =
+        DialerMetrics.latency(NAME + ".checkRecordingPermissions");
+    private static final DialerMetrics.Histogram START_RECORDING_LATENCY =
+        DialerMetrics.latency(NAME + ".startRecording");
+    private static final DialerMetrics.Histogram PREPARE_RECORDING_LATENCY =
+        DialerMetrics.latency(NAME + ".prepareRecording");
+    private static final DialerMetrics.Histogram STOP_RECORDING_LATENCY =
+        DialerMetrics.latency(NAME + ".stopRecording");
+    private static final DialerMetrics.Histogram STOP_RECORDING_SESSION_LATENCY =
+        DialerMetrics.latency(NAME + ".stopRecordingSession");
+    private static final DialerMetrics.Histogram GET_RECORDING_STATUS_LATENCY =
+        DialerMetrics.latency(NAME + ".getRecordingStatus");
+    private static final DialerMetrics.Histogram GET_RECORDING_SESSIONS_LATENCY =
+        DialerMetrics.latency(NAME + ".getRecordingSessions");
+    private static final DialerMetrics.Histogram GET_ALL_RECORDINGS_LATENCY =
+        DialerMetrics.latency(NAME + ".getAllRecordings");
+    private static final DialerMetrics.Histogram GET_ALL_RECORDINGS_ROWS =
+        DialerMetrics.histogram(NAME + ".getAllRecordings.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_ALL_RECORDINGS_COLUMNAR_LATENCY =
+        DialerMetrics.latency(NAME + ".getAllRecordingsColumnar");
+    private static final DialerMetrics.Histogram GET_ALL_RECORDINGS_COLUMNAR_ROWS =
+        DialerMetrics.histogram(NAME + ".getAllRecordingsColumnar.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_ALL_RECORDINGS_COLUMNAR_BYTES =
+        DialerMetrics.histogram(NAME + ".getAllRecordingsColumnar.bytes", DialerMetrics.UNIT_BYTES);
+    private static final DialerMetrics.Histogram DELETE_RECORDING_LATENCY =
+        DialerMetrics.latency(NAME + ".deleteRecording");
+    private static final DialerMetrics.Histogram GET_RECORDING_WAVEFORM_LATENCY =
+        DialerMetrics.latency(NAME + ".getRecordingWaveform");
+    private static final DialerMetrics.Histogram SET_RECORDING_OUTPUT_MODE_LATENCY =
+        DialerMetrics.latency(NAME + ".setRecordingOutputMode");
+    private static final DialerMetrics.Histogram GET_RECORDING_OUTPUT_MODE_LATENCY =
+        DialerMetrics.latency(NAME + ".getRecordingOutputMode");
+    private static final DialerMetrics.Histogram EXPORT_RECORDING_LATENCY =
+        DialerMetrics.latency(NAME + ".exportRecording");
+    private static final DialerMetrics.Histogram SET_AUTO_RECORD_RULES_LATENCY =
+        DialerMetrics.latency(NAME + ".setAutoRecordRules");
+    private static final DialerMetrics.Histogram GET_AUTO_RECORD_RULES_LATENCY =
+        DialerMetrics.latency(NAME + ".getAutoRecordRules");
+    private static final DialerMetrics.Histogram PROBE_AUDIO_SOURCES_LATENCY =
+        DialerMetrics.latency(NAME + ".probeAudioSources");
+    private static final DialerMetrics.Histogram GET_RECORDING_START_STATS_LATENCY =
+        DialerMetrics.latency(NAME + ".getRecordingStartStats");
+
+    private static final String CHANNEL_ID = CallRecordingService.CHANNEL_ID;
+    private static final int NOTIFICATION_ID = CallRecordingService.NOTIFICATION_ID;
     
-    private MediaRecorder mediaRecorder;
-    private String currentRecordingPath;
-    private boolean isRecording = false;
+    private RecordingSessionManager sessionManager;
     private NotificationManager notificationManager;
 
     public CallRecordingModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        createNotificationChannel();
     }
 
     @Override
     public String getName() {
-        return "CallRecording";
+        return NAME;
     }
 
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                CHANNEL_ID,
-                "Call Recording",
-                NotificationManager.IMPORTANCE_LOW
-            );
-            channel.setDescription("Notifications for call recording status");
-            
+    // Deferred until the first recording call; creating the manager starts its worker and
+    // queues recovery of segmented recordings cut off by a crash.
+    private synchronized RecordingSessionManager sessionManager() {
+        if (sessionManager == null) {
+            sessionManager = MediaRecorderAdapter.getSessionManager(getReactApplicationContext());
+        }
+        return sessionManager;
+    }
+
+    // Deferred until the first notification so module creation stays off the startup path.
+    private NotificationManager getNotificationManager() {
+        if (notificationManager == null) {
             notificationManager = (NotificationManager) getReactApplicationContext()
                 .getSystemService(Context.NOTIFICATION_SERVICE);
-            notificationManager.createNotificationChannel(channel);
+            CallRecordingService.createNotificationChannel(getReactApplicationContext());
         }
+        return notificationManager;
     }
 
     @ReactMethod
     public void checkRecordingPermissions(Promise promise) {
+        long start = System.nanoTime();
         try {
-            Context context = getReactApplicationContext();
-            boolean hasRecordAudio = ActivityCompat.checkSelfPermission(context, 
-                Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED;
-            boolean hasWriteStorage = ActivityCompat.checkSelfPermission(context, 
-                Manifest.permission.WRITE_EXTERNAL_STORAGE) == PackageManager.PERMISSION_GRANTED;
-            boolean hasForegroundService = ActivityCompat.checkSelfPermission(context, 
-                Manifest.permission.FOREGROUND_SERVICE) == PackageManager.PERMISSION_GRANTED;
+            PermissionState.Snapshot snapshot = PermissionState.get(getReactApplicationContext()).snapshot();
+            boolean hasRecordAudio = snapshot.isGranted(Manifest.permission.RECORD_AUDIO);
+            boolean hasWriteStorage = snapshot.isGranted(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+            boolean hasForegroundService = snapshot.isGranted(Manifest.permission.FOREGROUND_SERVICE);
 
             WritableMap permissions = Arguments.createMap();
             permissions.putBoolean("recordAudio", hasRecordAudio);
@@ -82,164 +128,465 @@ public class CallRecordingModule extends ReactContextBaseJavaModule {
             promise.resolve(permissions);
         } catch (Exception e) {
             promise.reject("PERMISSION_CHECK_ERROR", e.getMessage());
+        } finally {
+            CHECK_RECORDING_PERMISSIONS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void startRecording(ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (isRecording) {
-                promise.reject("ALREADY_RECORDING", "Recording is already in progress");
-                return;
-            }
-
             // Check permissions
             Context context = getReactApplicationContext();
-            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) 
-                != PackageManager.PERMISSION_GRANTED) {
+            if (!PermissionState.get(context).isGranted(Manifest.permission.RECORD_AUDIO)) {
                 promise.reject("PERMISSION_DENIED", "Audio recording permission not granted");
                 return;
             }
 
-            // Create recording directory
-            File recordingsDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_MUSIC), "CallRecordings");
-            if (!recordingsDir.exists()) {
-                recordingsDir.mkdirs();
-            }
-
-            // Generate filename with timestamp
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
             String phoneNumber = options.hasKey("phoneNumber") ? options.getString("phoneNumber") : "unknown";
-            String filename = String.format("call_%s_%s.3gp", phoneNumber.replaceAll("[^0-9+]", ""), timestamp);
-            
-            currentRecordingPath = new File(recordingsDir, filename).getAbsolutePath();
-
-            // Initialize MediaRecorder
-            mediaRecorder = new MediaRecorder();
-            
-            // Configure MediaRecorder with fallback options for different OEMs
-            try {
-                // Primary configuration (works on most devices)
-                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_CALL);
-            } catch (Exception e) {
-                try {
-                    // Fallback 1: Use MIC source
-                    mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-                } catch (Exception e2) {
-                    // Fallback 2: Use VOICE_COMMUNICATION
-                    mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION);
-                }
-            }
-            
-            mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
-            mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
-            mediaRecorder.setOutputFile(currentRecordingPath);
+            String callId = options.hasKey("callId")
+                ? options.getString("callId")
+                : AutoRecordRules.normalizeNumber(phoneNumber);
+            String filePath = RecordingStorage.newRecordingFile(context, phoneNumber).getAbsolutePath();
 
-            mediaRecorder.prepare();
-            mediaRecorder.start();
-            
-            isRecording = true;
+            RecordingSession session = sessionManager().startNow(callId, filePath);
             showRecordingNotification(phoneNumber);
 
-            WritableMap result = Arguments.createMap();
-            result.putString("filePath", currentRecordingPath);
+            WritableMap result = sessionToMap(session);
             result.putString("status", "started");
-            result.putDouble("startTime", System.currentTimeMillis());
-            
             promise.resolve(result);
             
-        } catch (IOException e) {
-            promise.reject("RECORDING_START_ERROR", "Failed to start recording: " + e.getMessage());
+        } catch (RecordingException e) {
+            promise.reject(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            promise.reject("RECORDING_ERROR", e.getMessage());
+        } finally {
+            START_RECORDING_LATENCY.recordSince(start);
+        }
+    }
+
+    // Prepares a recorder for the call ahead of time (e.g. while ringing) so that a later
+    // startRecording with the same callId only has to call start(). Cancelled if not
+    // started within RecordingSessionManager.PREPARE_TIMEOUT_MS.
+    @ReactMethod
+    public void prepareRecording(ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            Context context = getReactApplicationContext();
+            if (!PermissionState.get(context).isGranted(Manifest.permission.RECORD_AUDIO)) {
+                promise.reject("PERMISSION_DENIED", "Audio recording permission not granted");
+                return;
+            }
+
+            String phoneNumber = options.hasKey("phoneNumber") ? options.getString("phoneNumber") : "unknown";
+            String callId = options.hasKey("callId")
+                ? options.getString("callId")
+                : AutoRecordRules.normalizeNumber(phoneNumber);
+            String filePath = RecordingStorage.newRecordingFile(context, phoneNumber).getAbsolutePath();
+
+            RecordingSession session = sessionManager().prepare(callId, filePath);
+            promise.resolve(sessionToMap(session));
+        } catch (RecordingException e) {
+            promise.reject(e.getCode(), e.getMessage());
         } catch (Exception e) {
             promise.reject("RECORDING_ERROR", e.getMessage());
+        } finally {
+            PREPARE_RECORDING_LATENCY.recordSince(start);
         }
     }
 
+    // Stops the most recently started recording; use stopRecordingSession when several are active.
     @ReactMethod
     public void stopRecording(Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (!isRecording || mediaRecorder == null) {
-                promise.reject("NOT_RECORDING", "No recording in progress");
+            RecordingSession latest = sessionManager().getLatestRecording();
+            if (latest == null) {
+                promise.reject(RecordingSessionManager.ERROR_NOT_RECORDING, "No recording in progress");
                 return;
             }
+            stopRecordingSession(latest.sessionId, promise);
+        } finally {
+            STOP_RECORDING_LATENCY.recordSince(start);
+        }
+    }
 
-            mediaRecorder.stop();
-            mediaRecorder.release();
-            mediaRecorder = null;
-            isRecording = false;
-            
-            hideRecordingNotification();
+    @ReactMethod
+    public void stopRecordingSession(String sessionId, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            RecordingSession session = sessionManager().stop(sessionId);
+            if (sessionManager().getLatestRecording() == null) {
+                hideRecordingNotification();
+            }
 
             // Get file info
-            File recordingFile = new File(currentRecordingPath);
+            File recordingFile = new File(session.outputPath);
             
-            WritableMap result = Arguments.createMap();
-            result.putString("filePath", currentRecordingPath);
+            WritableMap result = sessionToMap(session);
             result.putString("status", "stopped");
-            result.putDouble("endTime", System.currentTimeMillis());
             result.putDouble("fileSize", recordingFile.length());
             result.putBoolean("fileExists", recordingFile.exists());
             
             promise.resolve(result);
             
+        } catch (RecordingException e) {
+            promise.reject(e.getCode(), e.getMessage());
         } catch (Exception e) {
             promise.reject("RECORDING_STOP_ERROR", e.getMessage());
+        } finally {
+            STOP_RECORDING_SESSION_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void getRecordingStatus(Promise promise) {
+        long start = System.nanoTime();
         try {
+            RecordingSession latest = sessionManager().getLatestRecording();
             WritableMap status = Arguments.createMap();
-            status.putBoolean("isRecording", isRecording);
-            status.putString("currentFile", isRecording ? currentRecordingPath : null);
+            status.putBoolean("isRecording", latest != null);
+            status.putString("currentFile", latest != null ? latest.outputPath : null);
+            status.putString("sessionId", latest != null ? latest.sessionId : null);
             promise.resolve(status);
         } catch (Exception e) {
             promise.reject("STATUS_ERROR", e.getMessage());
+        } finally {
+            GET_RECORDING_STATUS_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void getRecordingSessions(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            WritableArray sessions = Arguments.createArray();
+            for (RecordingSession session : sessionManager().getSessions()) {
+                sessions.pushMap(sessionToMap(session));
+            }
+            promise.resolve(sessions);
+        } catch (Exception e) {
+            promise.reject("STATUS_ERROR", e.getMessage());
+        } finally {
+            GET_RECORDING_SESSIONS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void getAllRecordings(Promise promise) {
+        long start = System.nanoTime();
         try {
-            Context context = getReactApplicationContext();
-            File recordingsDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_MUSIC), "CallRecordings");
-            
+            File recordingsDir = RecordingStorage.getRecordingsDir(getReactApplicationContext());
+
             WritableArray recordings = Arguments.createArray();
-            
-            if (recordingsDir.exists()) {
-                File[] files = recordingsDir.listFiles();
-                if (files != null) {
-                    for (File file : files) {
-                        if (file.isFile() && file.getName().endsWith(".3gp")) {
-                            WritableMap recording = Arguments.createMap();
-                            recording.putString("fileName", file.getName());
-                            recording.putString("filePath", file.getAbsolutePath());
-                            recording.putDouble("fileSize", file.length());
-                            recording.putDouble("lastModified", file.lastModified());
-                            recordings.pushMap(recording);
-                        }
-                    }
-                }
+            for (File file : RecordingListing.list(recordingsDir, RecordingStorage.RECORDING_EXTENSIONS)) {
+                WritableMap recording = Arguments.createMap();
+                recording.putString("fileName", file.getName());
+                recording.putString("filePath", file.getAbsolutePath());
+                recording.putDouble("fileSize", file.length());
+                recording.putDouble("lastModified", file.lastModified());
+                recordings.pushMap(recording);
             }
-            
+
+            GET_ALL_RECORDINGS_ROWS.record(recordings.size());
             promise.resolve(recordings);
         } catch (Exception e) {
             promise.reject("GET_RECORDINGS_ERROR", e.getMessage());
+        } finally {
+            GET_ALL_RECORDINGS_LATENCY.recordSince(start);
+        }
+    }
+
+    // Same entries as getAllRecordings, as a base64 ColumnarResultBuilder blob (see src/native/columnar.ts).
+    @ReactMethod
+    public void getAllRecordingsColumnar(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            File recordingsDir = RecordingStorage.getRecordingsDir(getReactApplicationContext());
+
+            ColumnarResultBuilder result = RecordingListing.toColumnar(
+                RecordingListing.list(recordingsDir, RecordingStorage.RECORDING_EXTENSIONS));
+
+            String payload = Base64.encodeToString(result.toByteArray(), Base64.NO_WRAP);
+            GET_ALL_RECORDINGS_COLUMNAR_ROWS.record(result.rowCount());
+            GET_ALL_RECORDINGS_COLUMNAR_BYTES.record(payload.length());
+            promise.resolve(payload);
+        } catch (Exception e) {
+            promise.reject("GET_RECORDINGS_ERROR", e.getMessage());
+        } finally {
+            GET_ALL_RECORDINGS_COLUMNAR_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void deleteRecording(String filePath, Promise promise) {
+        long start = System.nanoTime();
         try {
             File file = new File(filePath);
             boolean deleted = file.delete();
+            RecordingAnalyzer.deleteSummary(file);
             promise.resolve(deleted);
         } catch (Exception e) {
             promise.reject("DELETE_ERROR", e.getMessage());
+        } finally {
+            DELETE_RECORDING_LATENCY.recordSince(start);
         }
     }
 
+    // Peak/RMS levels (base64, one byte per WaveformSummary.BUCKET_MILLIS) and silent
+    // stretches. Served from the precomputed summary file; recordings finished before
+    // it existed are analyzed on demand.
+    @ReactMethod
+    public void getRecordingWaveform(String filePath, Promise promise) {
+        // Timed until the promise settles, which includes any on-demand analysis.
+        long start = System.nanoTime();
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            promise.reject("RECORDING_NOT_FOUND", "No recording at " + filePath);
+            GET_RECORDING_WAVEFORM_LATENCY.recordSince(start);
+            return;
+        }
+        RecordingAnalyzer.getSummary(file, new RecordingAnalyzer.Callback() {
+            @Override
+            public void onSummary(WaveformSummary summary) {
+                WritableArray silences = Arguments.createArray();
+                for (int i = 0; i < summary.silences.length; i += 2) {
+                    WritableMap silence = Arguments.createMap();
+                    silence.putInt("start", summary.silences[i]);
+                    silence.putInt("end", summary.silences[i + 1]);
+                    silences.pushMap(silence);
+                }
+                WritableMap result = Arguments.createMap();
+                result.putInt("bucketMillis", WaveformSummary.BUCKET_MILLIS);
+                result.putDouble("durationMillis", summary.durationMillis);
+                result.putString("peaks", Base64.encodeToString(summary.peaks, Base64.NO_WRAP));
+                result.putString("rms", Base64.encodeToString(summary.rms, Base64.NO_WRAP));
+                result.putArray("silences", silences);
+                result.putBoolean("complete", summary.complete);
+                promise.resolve(result);
+                GET_RECORDING_WAVEFORM_LATENCY.recordSince(start);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                promise.reject("WAVEFORM_ERROR", e.getMessage());
+                GET_RECORDING_WAVEFORM_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // "container" writes one .3gp per segment; "segmented" writes crash-safe raw AMR (.amr)
+    // via SegmentedAmrRecorder; "encrypted" writes raw AMR sealed as it is recorded
+    // (.amr.enc) via EncryptedAmrRecorder. Applies to recordings started afterwards.
+    @ReactMethod
+    public void setRecordingOutputMode(String mode, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            if (!RecordingStorage.OUTPUT_MODE_CONTAINER.equals(mode)
+                && !RecordingStorage.OUTPUT_MODE_SEGMENTED.equals(mode)
+                && !RecordingStorage.OUTPUT_MODE_ENCRYPTED.equals(mode)) {
+                promise.reject("INVALID_OUTPUT_MODE", "Unknown recording output mode: " + mode);
+                return;
+            }
+            if (RecordingStorage.OUTPUT_MODE_ENCRYPTED.equals(mode) && Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+                promise.reject("UNSUPPORTED_OUTPUT_MODE", "Encrypted recordings require Android 6.0");
+                return;
+            }
+            RecordingStorage.setOutputMode(getReactApplicationContext(), mode);
+            promise.resolve(mode);
+        } catch (Exception e) {
+            promise.reject("RECORDING_ERROR", e.getMessage());
+        } finally {
+            SET_RECORDING_OUTPUT_MODE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Writes a playable copy of a recording to destPath: encrypted recordings are decrypted
+    // a chunk at a time (raw AMR out), others are copied as they are. Resolves with the
+    // path and whether the recording is complete; one whose writer died exports the audio
+    // that was saved, with complete false.
+    @ReactMethod
+    public void exportRecording(String filePath, String destPath, Promise promise) {
+        long start = System.nanoTime();
+        File source = new File(filePath);
+        File dest = new File(destPath);
+        File temp = new File(destPath + ".tmp");
+        try {
+            if (!source.isFile()) {
+                promise.reject("RECORDING_NOT_FOUND", "No recording at " + filePath);
+                return;
+            }
+            boolean complete = true;
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                if (RecordingStorage.isEncrypted(source)) {
+                    try (SealedRecording.Reader reader = SealedRecording.Reader.open(source, RecordingKeys.get())) {
+                        reader.copyTo(0, reader.length(), out);
+                        complete = reader.isComplete();
+                    }
+                } else {
+                    try (InputStream in = new FileInputStream(source)) {
+                        byte[] buffer = new byte[64 * 1024];
+                        int read;
+                        while ((read = in.read(buffer)) >= 0) {
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                }
+            }
+            if (!temp.renameTo(dest)) {
+                throw new IOException("Unable to write " + dest);
+            }
+            WritableMap result = Arguments.createMap();
+            result.putString("path", dest.getAbsolutePath());
+            result.putBoolean("complete", complete);
+            promise.resolve(result);
+        } catch (Exception e) {
+            temp.delete();
+            promise.reject("EXPORT_ERROR", e.getMessage());
+        } finally {
+            EXPORT_RECORDING_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void getRecordingOutputMode(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            promise.resolve(RecordingStorage.getOutputMode(getReactApplicationContext()));
+        } catch (Exception e) {
+            promise.reject("RECORDING_ERROR", e.getMessage());
+        } finally {
+            GET_RECORDING_OUTPUT_MODE_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void setAutoRecordRules(ReadableMap rules, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            String mode = rules.hasKey("mode") ? rules.getString("mode") : AutoRecordRules.MODE_OFF;
+            Set<String> numbers = new HashSet<>();
+            if (rules.hasKey("numbers")) {
+                ReadableArray numberArray = rules.getArray("numbers");
+                for (int i = 0; i < numberArray.size(); i++) {
+                    numbers.add(numberArray.getString(i));
+                }
+            }
+
+            AutoRecordRules autoRecordRules = new AutoRecordRules(mode, numbers);
+            autoRecordRules.save(getReactApplicationContext());
+            if (autoRecordRules.isEnabled()) {
+                probeAudioSourcesInBackground();
+            }
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("AUTO_RECORD_RULES_ERROR", e.getMessage());
+        } finally {
+            SET_AUTO_RECORD_RULES_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void getAutoRecordRules(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            AutoRecordRules rules = AutoRecordRules.load(getReactApplicationContext());
+            WritableArray numbers = Arguments.createArray();
+            for (String number : rules.getNumbers()) {
+                numbers.pushString(number);
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putString("mode", rules.getMode());
+            result.putArray("numbers", numbers);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("AUTO_RECORD_RULES_ERROR", e.getMessage());
+        } finally {
+            GET_AUTO_RECORD_RULES_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void probeAudioSources(Promise promise) {
+        if (sessionManager().getLatestRecording() != null) {
+            promise.reject(RecordingSessionManager.ERROR_ALREADY_RECORDING, "Cannot probe while recording");
+            return;
+        }
+        // Timed until the promise settles rather than until the worker thread is started.
+        long start = System.nanoTime();
+        new Thread(() -> {
+            try {
+                AudioSourceProbe.probe(getReactApplicationContext());
+                promise.resolve(probeResultsToMap());
+            } catch (Exception e) {
+                promise.reject("PROBE_ERROR", e.getMessage());
+            } finally {
+                PROBE_AUDIO_SOURCES_LATENCY.recordSince(start);
+            }
+        }, "AudioSourceProbe").start();
+    }
+
+    @ReactMethod
+    public void getRecordingStartStats(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            WritableMap stats = Arguments.createMap();
+            stats.putMap("probe", probeResultsToMap());
+            promise.resolve(stats);
+        } catch (Exception e) {
+            promise.reject("RECORDING_STATS_ERROR", e.getMessage());
+        } finally {
+            GET_RECORDING_START_STATS_LATENCY.recordSince(start);
+        }
+    }
+
+    private void probeAudioSourcesInBackground() {
+        final Context context = getReactApplicationContext();
+        if (AudioSourceProbe.getPreferredSource(context) != AudioSourceProbe.SOURCE_UNKNOWN
+            || !PermissionState.get(context).isGranted(Manifest.permission.RECORD_AUDIO)) {
+            return;
+        }
+        new Thread(() -> AudioSourceProbe.probe(context), "AudioSourceProbe").start();
+    }
+
+    private WritableMap probeResultsToMap() {
+        Context context = getReactApplicationContext();
+        int preferred = AudioSourceProbe.getPreferredSource(context);
+
+        WritableArray sources = Arguments.createArray();
+        for (AudioSourceProbe.Result result : AudioSourceProbe.getLastResults(context)) {
+            WritableMap source = Arguments.createMap();
+            source.putString("source", AudioSourceProbe.sourceName(result.source));
+            source.putBoolean("supported", result.supported);
+            source.putDouble("prepareMs", result.prepareMs);
+            source.putDouble("startMs", result.startMs);
+            source.putString("error", result.error);
+            sources.pushMap(source);
+        }
+
+        WritableMap probe = Arguments.createMap();
+        probe.putString("preferredSource",
+            preferred != AudioSourceProbe.SOURCE_UNKNOWN ? AudioSourceProbe.sourceName(preferred) : null);
+        probe.putArray("sources", sources);
+        return probe;
+    }
+
+    private static WritableMap sessionToMap(RecordingSession session) {
+        WritableMap map = Arguments.createMap();
+        map.putString("sessionId", session.sessionId);
+        map.putString("callId", session.callId);
+        map.putInt("segment", session.segment);
+        map.putString("filePath", session.outputPath);
+        map.putString("state", session.state.name().toLowerCase(Locale.ROOT));
+        map.putDouble("startTime", session.startTime);
+        if (session.endTime > 0) {
+            map.putDouble("endTime", session.endTime);
+        }
+        return map;
+    }
+
     private void showRecordingNotification(String phoneNumber) {
         Intent intent = new Intent(getReactApplicationContext(), MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
@@ -254,14 +601,10 @@ public class CallRecordingModule extends ReactContextBaseJavaModule {
             .setPriority(NotificationCompat.PRIORITY_LOW)
             .build();
 
-        if (notificationManager != null) {
-            notificationManager.notify(NOTIFICATION_ID, notification);
-        }
+        getNotificationManager().notify(NOTIFICATION_ID, notification);
     }
 
     private void hideRecordingNotification() {
-        if (notificationManager != null) {
-            notificationManager.cancel(NOTIFICATION_ID);
-        }
+        getNotificationManager().cancel(NOTIFICATION_ID);
     }
 }
@@ -0,0 +1,358 @@
+package com.dialerapp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+public class CallRecordingService extends Service {
+    private static final String TAG = "CallRecordingService";
+
+    static final String CHANNEL_ID = "call_recording_channel";
+    static final int NOTIFICATION_ID = 1001;
+
+    static final String ACTION_PREPARE = "com.dialerapp.action.PREPARE_RECORDING";
+    static final String ACTION_CALL_RINGING = "com.dialerapp.action.CALL_RINGING";
+    static final String ACTION_CALL_OFFHOOK = "com.dialerapp.action.CALL_OFFHOOK";
+    static final String ACTION_CALL_IDLE = "com.dialerapp.action.CALL_IDLE";
+
+    private static final String EXTRA_PHONE_NUMBER = "phoneNumber";
+    private static final String EXTRA_EVENT_TIME = "eventTimeNanos";
+
+    private static final long FIRST_AUDIO_POLL_INTERVAL_MS = 5;
+    private static final long FIRST_AUDIO_TIMEOUT_NANOS = 2_000_000_000L;
+
+    private static final DialerMetrics.Histogram OFFHOOK_TO_START = DialerMetrics.latency(TAG + ".offhookToStart");
+    private static final DialerMetrics.Histogram OFFHOOK_TO_FIRST_AUDIO =
+        DialerMetrics.latency(TAG + ".offhookToFirstAudio");
+
+    private static volatile boolean running;
+    // Set by the worker once the notification says the call is being recorded, so later
+    // commands keep it instead of going back to the monitoring one.
+    private volatile boolean recordingInForeground;
+
+    // Everything below is confined to the worker thread.
+    private HandlerThread workerThread;
+    private Handler worker;
+    private RecordingSessionManager sessionManager;
+    private AutoRecordRules rules;
+    private String callId;
+    private String phoneNumber;
+    private RecordingSession preparedSession;
+    private RecordingSession activeSession;
+    private long offhookTime;
+    private int lastStartId;
+
+    static void dispatch(Context context, String action, String phoneNumber, long eventTimeNanos) {
+        if (ACTION_CALL_IDLE.equals(action) && !running) {
+            return;
+        }
+        if (!ACTION_CALL_IDLE.equals(action) && !AutoRecordRules.load(context).isEnabled()) {
+            return;
+        }
+
+        Intent intent = new Intent(context, CallRecordingService.class);
+        intent.setAction(action);
+        intent.putExtra(EXTRA_PHONE_NUMBER, phoneNumber);
+        intent.putExtra(EXTRA_EVENT_TIME, eventTimeNanos);
+        try {
+            ContextCompat.startForegroundService(context, intent);
+        } catch (IllegalStateException e) {
+            // Background start restrictions (ForegroundServiceStartNotAllowedException on S+)
+            Log.w(TAG, "Unable to start recording service for " + action, e);
+        }
+    }
+
+    // Lets outgoing calls placed from the app warm up the recorder before the call goes off-hook.
+    static void prepare(Context context, String phoneNumber) {
+        dispatch(context, ACTION_PREPARE, phoneNumber, SystemClock.elapsedRealtimeNanos());
+    }
+
+    static void createNotificationChannel(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID,
+                "Call Recording",
+                NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Notifications for call recording status");
+
+            NotificationManager notificationManager = (NotificationManager) context
+                .getSystemService(Context.NOTIFICATION_SERVICE);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        running = true;
+        sessionManager = MediaRecorderAdapter.getSessionManager(this);
+        createNotificationChannel(this);
+        workerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_URGENT_AUDIO);
+        workerThread.start();
+        worker = new Handler(workerThread.getLooper());
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        final String action = intent.getAction();
+        final String number = intent.getStringExtra(EXTRA_PHONE_NUMBER);
+        final long eventTime = intent.getLongExtra(EXTRA_EVENT_TIME, SystemClock.elapsedRealtimeNanos());
+
+        // Must be called promptly after startForegroundService, whatever the action turns out
+        // to be. Until a recording starts the service only monitors the call.
+        if (!startInForeground(number, recordingInForeground)) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        worker.post(() -> handleAction(action, number, eventTime, startId));
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        running = false;
+        worker.post(() -> {
+            if (callId != null) {
+                try {
+                    sessionManager.stopCall(callId);
+                } catch (RecordingException e) {
+                    Log.w(TAG, "Failed to finalize recording for " + callId, e);
+                }
+            }
+        });
+        workerThread.quitSafely();
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void handleAction(String action, String number, long eventTime, int startId) {
+        lastStartId = startId;
+        if (number != null && !number.isEmpty()) {
+            phoneNumber = number;
+        }
+
+        switch (action) {
+            case ACTION_PREPARE:
+                onRinging();
+                // The dial may never reach off-hook; don't hold the microphone indefinitely.
+                worker.postDelayed(this::abandonIfNotStarted, RecordingSessionManager.PREPARE_TIMEOUT_MS);
+                break;
+            case ACTION_CALL_RINGING:
+                onRinging();
+                break;
+            case ACTION_CALL_OFFHOOK:
+                onOffhook(eventTime);
+                break;
+            case ACTION_CALL_IDLE:
+                onIdle();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onRinging() {
+        // Call waiting: keep recording the current call rather than re-preparing.
+        if (activeSession != null || preparedSession != null) {
+            return;
+        }
+        if (shouldRecord()) {
+            prepareRecorder();
+        } else {
+            finish();
+        }
+    }
+
+    private void onOffhook(long eventTime) {
+        if (activeSession != null) {
+            return;
+        }
+        offhookTime = eventTime;
+
+        if (preparedSession == null) {
+            if (!shouldRecord()) {
+                finish();
+                return;
+            }
+            prepareRecorder();
+            if (preparedSession == null) {
+                finish();
+                return;
+            }
+        }
+
+        // The microphone type has to be in place before the recorder starts capturing.
+        if (!startInForeground(phoneNumber, true)) {
+            finish();
+            return;
+        }
+        recordingInForeground = true;
+
+        try {
+            activeSession = sessionManager.start(preparedSession.sessionId);
+        } catch (RecordingException e) {
+            Log.e(TAG, "Failed to start recording", e);
+            finish();
+            return;
+        } finally {
+            preparedSession = null;
+        }
+
+        OFFHOOK_TO_START.record(SystemClock.elapsedRealtimeNanos() - offhookTime);
+        // The first call only resets the amplitude counter.
+        readMaxAmplitude();
+        worker.postDelayed(this::pollFirstAudio, FIRST_AUDIO_POLL_INTERVAL_MS);
+    }
+
+    private void pollFirstAudio() {
+        if (activeSession == null) {
+            return;
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - offhookTime;
+        if (readMaxAmplitude() > 0) {
+            OFFHOOK_TO_FIRST_AUDIO.record(elapsed);
+        } else if (elapsed < FIRST_AUDIO_TIMEOUT_NANOS) {
+            worker.postDelayed(this::pollFirstAudio, FIRST_AUDIO_POLL_INTERVAL_MS);
+        }
+    }
+
+    private int readMaxAmplitude() {
+        try {
+            return sessionManager.getMaxAmplitude(activeSession.sessionId);
+        } catch (RecordingException e) {
+            return 0;
+        }
+    }
+
+    private void abandonIfNotStarted() {
+        if (activeSession == null) {
+            finish();
+        }
+    }
+
+    private void onIdle() {
+        finish();
+    }
+
+    private void finish() {
+        worker.removeCallbacksAndMessages(null);
+        if (callId != null) {
+            try {
+                // Finalizes the active segment and discards a prepared one that never started.
+                sessionManager.stopCall(callId);
+            } catch (RecordingException e) {
+                Log.w(TAG, "Failed to finalize recording for " + callId, e);
+            }
+        }
+        callId = null;
+        preparedSession = null;
+        activeSession = null;
+        phoneNumber = null;
+        rules = null;
+        recordingInForeground = false;
+        // Only stops if no newer call-state intent has been delivered in the meantime.
+        stopSelfResult(lastStartId);
+    }
+
+    private boolean shouldRecord() {
+        if (rules == null) {
+            rules = AutoRecordRules.load(this);
+        }
+        boolean isKnownContact = rules.needsContactLookup() && isKnownContact(phoneNumber);
+        return rules.shouldRecord(phoneNumber, isKnownContact);
+    }
+
+    private void prepareRecorder() {
+        if (callId == null) {
+            // Keyed like CallRecordingModule so a manual start from JS reuses this prepared recorder.
+            callId = phoneNumber != null && !phoneNumber.isEmpty()
+                ? AutoRecordRules.normalizeNumber(phoneNumber)
+                : "auto-" + SystemClock.elapsedRealtime();
+        }
+        String path = RecordingStorage.newRecordingFile(this, phoneNumber).getAbsolutePath();
+        try {
+            preparedSession = sessionManager.prepare(callId, path);
+        } catch (RecordingException e) {
+            Log.e(TAG, "Failed to prepare recorder", e);
+            preparedSession = null;
+        }
+    }
+
+    private boolean isKnownContact(String number) {
+        if (number == null || number.isEmpty()) {
+            return false;
+        }
+        Uri uri = Uri.withAppendedPath(ContactsContract.PhoneLookup.CONTENT_FILTER_URI, Uri.encode(number));
+        String[] projection = { ContactsContract.PhoneLookup._ID };
+        try (Cursor cursor = getContentResolver().query(uri, projection, null, null, null)) {
+            return cursor != null && cursor.moveToFirst();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Returns false if the system refused: a microphone service started from the background
+    // throws SecurityException, and ForegroundServiceStartNotAllowedException on S+.
+    private boolean startInForeground(String number, boolean recording) {
+        Intent intent = new Intent(this, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setSmallIcon(android.R.drawable.ic_media_play)
+            .setContentIntent(pendingIntent)
+            .setOngoing(true)
+            .setPriority(NotificationCompat.PRIORITY_LOW);
+        if (recording) {
+            builder.setContentTitle("Recording Call")
+                .setContentText(number != null ? "Call with " + number + " is being recorded" : "Call is being recorded");
+        } else {
+            builder.setContentTitle("Monitoring Call")
+                .setContentText("Checking whether to record this call");
+        }
+        Notification notification = builder.build();
+
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                int type = ServiceInfo.FOREGROUND_SERVICE_TYPE_PHONE_CALL;
+                if (recording) {
+                    type |= ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE;
+                }
+                startForeground(NOTIFICATION_ID, notification, type);
+            } else {
+                startForeground(NOTIFICATION_ID, notification);
+            }
+            return true;
+        } catch (IllegalStateException | SecurityException e) {
+            Log.w(TAG, "Unable to start in the foreground", e);
+            return false;
+        }
+    }
+}
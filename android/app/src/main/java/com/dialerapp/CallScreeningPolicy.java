@@ -0,0 +1,67 @@
+package com.dialerapp;
+
+// The decision behind DialerScreeningService: the caller-ID rules of
+// CallerIdentificationModule.identify (contacts, then spam reports, then number
+// patterns) turned into allow / silence / reject. Spam is looked up in a SpamTable
+// snapshot, matched on trailing digits, and in the live SpamDatabase for reports that
+// arrived after the snapshot was taken.
+final class CallScreeningPolicy {
+    static final int ALLOW = 0;
+    static final int SILENCE = 1;
+    static final int REJECT = 2;
+
+    interface ContactLookup {
+        boolean isContact(String phoneNumber);
+    }
+
+    private final SpamDatabase spamDatabase;
+    private final int rejectAtRisk;
+    private final int silenceAtRisk;
+    private volatile SpamTable table = SpamTable.empty();
+
+    CallScreeningPolicy(SpamDatabase spamDatabase) {
+        this(spamDatabase, SpamTable.RISK_HIGH, SpamTable.RISK_MEDIUM);
+    }
+
+    CallScreeningPolicy(SpamDatabase spamDatabase, int rejectAtRisk, int silenceAtRisk) {
+        this.spamDatabase = spamDatabase;
+        this.rejectAtRisk = rejectAtRisk;
+        this.silenceAtRisk = silenceAtRisk;
+    }
+
+    // Rebuilds the snapshot if the database changed since the last one. Linear in the
+    // database size, so callers run it off the screening path.
+    synchronized boolean refresh() {
+        if (table.isCurrent(spamDatabase)) {
+            return false;
+        }
+        table = SpamTable.snapshot(spamDatabase);
+        return true;
+    }
+
+    int tableSize() {
+        return table.size();
+    }
+
+    // Contacts are only consulted for numbers that would otherwise be screened out,
+    // since the lookup is the slowest step.
+    int decide(String phoneNumber, ContactLookup contacts) {
+        if (phoneNumber == null || phoneNumber.isEmpty()) {
+            // Private and unknown callers have nothing to match on.
+            return ALLOW;
+        }
+
+        int risk = Math.max(table.risk(phoneNumber), SpamTable.riskOf(spamDatabase.get(phoneNumber)));
+        int decision;
+        if (risk >= rejectAtRisk) {
+            decision = REJECT;
+        } else if (risk >= silenceAtRisk) {
+            decision = SILENCE;
+        } else if (NumberPatterns.PREMIUM_RATE.equals(NumberPatterns.identify(phoneNumber))) {
+            decision = SILENCE;
+        } else {
+            return ALLOW;
+        }
+        return contacts.isContact(phoneNumber) ? ALLOW : decision;
+    }
+}
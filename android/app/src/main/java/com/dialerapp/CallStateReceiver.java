@@ -0,0 +1,41 @@
+package com.dialerapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.telephony.TelephonyManager;
+
+public class CallStateReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!TelephonyManager.ACTION_PHONE_STATE_CHANGED.equals(intent.getAction())) {
+            return;
+        }
+
+        // Timestamp the transition here, before any work is queued, so latency covers the whole pipeline.
+        long eventTime = SystemClock.elapsedRealtimeNanos();
+        String state = intent.getStringExtra(TelephonyManager.EXTRA_STATE);
+        String phoneNumber = intent.getStringExtra(TelephonyManager.EXTRA_INCOMING_NUMBER);
+
+        String action;
+        if (TelephonyManager.EXTRA_STATE_RINGING.equals(state)) {
+            action = CallRecordingService.ACTION_CALL_RINGING;
+            // The alert itself starts when JS shows the incoming-call notification.
+            RingAlertController.get(context).onRingingDetected(eventTime);
+            // Decode the caller's photo while JS is still putting up the incoming-call notification.
+            ContactPhotoCache.get(context).prefetchNumber(phoneNumber);
+        } else if (TelephonyManager.EXTRA_STATE_OFFHOOK.equals(state)) {
+            action = CallRecordingService.ACTION_CALL_OFFHOOK;
+            RingAlertController.get(context).onOffhook();
+        } else if (TelephonyManager.EXTRA_STATE_IDLE.equals(state)) {
+            action = CallRecordingService.ACTION_CALL_IDLE;
+            RingAlertController.get(context).onIdle();
+        } else {
+            return;
+        }
+
+        CallRecordingService.dispatch(context, action, phoneNumber, eventTime);
+    }
+}
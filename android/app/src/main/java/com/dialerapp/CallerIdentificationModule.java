@@ -14,107 +14,123 @@ import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableMap;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
 
 public class CallerIdentificationModule extends ReactContextBaseJavaModule {
+    static final String NAME = "CallerIdentification";
+    private static final DialerMetrics.Histogram IDENTIFY_CALLER_LATENCY =
+        DialerMetrics.latency(NAME + ".identifyCaller");
+    private static final DialerMetrics.Histogram IDENTIFY_CALLER_SYNC_LATENCY =
+        DialerMetrics.latency(NAME + ".identifyCallerSync");
+    private static final DialerMetrics.Histogram REPORT_SPAM_LATENCY =
+        DialerMetrics.latency(NAME + ".reportSpam");
+    private static final DialerMetrics.Histogram GET_SPAM_STATISTICS_LATENCY =
+        DialerMetrics.latency(NAME + ".getSpamStatistics");
+    private static final DialerMetrics.Counter CONTACT_LOOKUP_FALLBACKS =
+        DialerMetrics.counter(NAME + ".contactLookupFallbacks");
+    private static final DialerMetrics.Gauge SPAM_DATABASE_SIZE =
+        DialerMetrics.gauge(NAME + ".spamDatabaseSize");
     
-    // Demo spam database - in production, this would be a real database or API
-    private static final Map<String, SpamInfo> SPAM_DATABASE = new HashMap<>();
-    
+    private static final SpamDatabase SPAM_DATABASE = SpamDatabase.shared();
+
     static {
-        // Demo spam numbers
-        SPAM_DATABASE.put("+1234567890", new SpamInfo("Telemarketer", "high", 150, "Sales calls"));
-        SPAM_DATABASE.put("+1987654321", new SpamInfo("Scam", "critical", 300, "Fake IRS calls"));
-        SPAM_DATABASE.put("+1555123456", new SpamInfo("Robocall", "medium", 75, "Automated messages"));
+        SPAM_DATABASE_SIZE.set(SPAM_DATABASE.size());
     }
-    
-    private static class SpamInfo {
-        String category;
-        String riskLevel;
-        int reportCount;
-        String description;
-        
-        SpamInfo(String category, String riskLevel, int reportCount, String description) {
-            this.category = category;
-            this.riskLevel = riskLevel;
-            this.reportCount = reportCount;
-            this.description = description;
+
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    private static final class Identity {
+        final String name;
+        final String source;
+        final String type;
+        final SpamDatabase.SpamInfo spamInfo;
+
+        Identity(String name, String source, String type, SpamDatabase.SpamInfo spamInfo) {
+            this.name = name;
+            this.source = source;
+            this.type = type;
+            this.spamInfo = spamInfo;
         }
     }
 
     public CallerIdentificationModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        // Starts mapping the prefix table so it is ready by the first unknown caller.
+        NumberPrefixes.get(reactContext);
     }
 
     @Override
     public String getName() {
-        return "CallerIdentification";
+        return NAME;
     }
 
     @ReactMethod
     public void identifyCaller(String phoneNumber, Promise promise) {
+        long start = System.nanoTime();
         try {
+            Identity identity = identify(phoneNumber);
             WritableMap result = Arguments.createMap();
-            
-            // First, check local contacts
-            String contactName = getContactName(phoneNumber);
-            if (contactName != null) {
-                result.putString("name", contactName);
-                result.putString("source", "contacts");
-                result.putString("type", "contact");
-                result.putBoolean("isSpam", false);
-                promise.resolve(result);
-                return;
-            }
-            
-            // Check spam database
-            SpamInfo spamInfo = SPAM_DATABASE.get(phoneNumber);
-            if (spamInfo != null) {
-                result.putString("name", spamInfo.category);
-                result.putString("source", "spam_database");
-                result.putString("type", "spam");
-                result.putBoolean("isSpam", true);
-                result.putString("spamCategory", spamInfo.category);
-                result.putString("riskLevel", spamInfo.riskLevel);
-                result.putInt("reportCount", spamInfo.reportCount);
-                result.putString("description", spamInfo.description);
-                promise.resolve(result);
-                return;
+            result.putString("name", identity.name);
+            result.putString("source", identity.source);
+            result.putString("type", identity.type);
+            result.putBoolean("isSpam", identity.spamInfo != null);
+            if (identity.spamInfo != null) {
+                result.putString("spamCategory", identity.spamInfo.category);
+                result.putString("riskLevel", identity.spamInfo.riskLevel);
+                result.putInt("reportCount", identity.spamInfo.reportCount);
+                result.putString("description", identity.spamInfo.description);
             }
-            
-            // Try to identify from phone number patterns
-            String identifiedInfo = identifyFromPattern(phoneNumber);
-            if (identifiedInfo != null) {
-                result.putString("name", identifiedInfo);
-                result.putString("source", "pattern_analysis");
-                result.putString("type", "business");
-                result.putBoolean("isSpam", false);
-                promise.resolve(result);
-                return;
-            }
-            
-            // Unknown number
-            result.putString("name", "Unknown");
-            result.putString("source", "unknown");
-            result.putString("type", "unknown");
-            result.putBoolean("isSpam", false);
             promise.resolve(result);
             
         } catch (Exception e) {
             promise.reject("IDENTIFICATION_ERROR", e.getMessage());
+        } finally {
+            IDENTIFY_CALLER_LATENCY.recordSince(start);
+        }
+    }
+
+    // Synchronous variant for the incoming-call and dialpad hot paths. Called directly
+    // through JSI when the new architecture is enabled. Returns one flat
+    // FIELD_SEPARATOR-joined record (name, source, type, isSpam, spamCategory, riskLevel,
+    // reportCount, description) instead of a map.
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String identifyCallerSync(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            Identity identity = identify(phoneNumber);
+            StringBuilder record = new StringBuilder(64)
+                .append(identity.name).append(FIELD_SEPARATOR)
+                .append(identity.source).append(FIELD_SEPARATOR)
+                .append(identity.type).append(FIELD_SEPARATOR)
+                .append(identity.spamInfo != null ? '1' : '0');
+            if (identity.spamInfo != null) {
+                record.append(FIELD_SEPARATOR).append(identity.spamInfo.category)
+                    .append(FIELD_SEPARATOR).append(identity.spamInfo.riskLevel)
+                    .append(FIELD_SEPARATOR).append(identity.spamInfo.reportCount)
+                    .append(FIELD_SEPARATOR).append(identity.spamInfo.description);
+            }
+            return record.toString();
+        } finally {
+            IDENTIFY_CALLER_SYNC_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void reportSpam(String phoneNumber, ReadableMap reportData, Promise promise) {
+        long start = System.nanoTime();
         try {
             // In production, this would report to a real spam database
             String category = reportData.hasKey("category") ? reportData.getString("category") : "spam";
             String description = reportData.hasKey("description") ? reportData.getString("description") : "";
             
             // Add to local spam database for demo
-            SPAM_DATABASE.put(phoneNumber, new SpamInfo(category, "medium", 1, description));
+            SpamDatabase.SpamInfo spamInfo = new SpamDatabase.SpamInfo(category, "medium", 1, description);
+            SPAM_DATABASE.put(phoneNumber, spamInfo);
+            SPAM_DATABASE_SIZE.set(SPAM_DATABASE.size());
+            DialerMirror mirror = DialerMirror.getIfStarted();
+            if (mirror != null) {
+                mirror.putSpamVerdicts(Collections.singletonMap(phoneNumber, spamInfo));
+            }
             
             WritableMap result = Arguments.createMap();
             result.putBoolean("success", true);
@@ -123,24 +139,64 @@ public class CallerIdentificationModule extends ReactContextBaseJavaModule {
             
         } catch (Exception e) {
             promise.reject("REPORT_ERROR", e.getMessage());
+        } finally {
+            REPORT_SPAM_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void getSpamStatistics(Promise promise) {
+        long start = System.nanoTime();
         try {
             WritableMap stats = Arguments.createMap();
             stats.putInt("totalSpamNumbers", SPAM_DATABASE.size());
-            stats.putInt("highRiskNumbers", (int) SPAM_DATABASE.values().stream()
-                .filter(info -> "high".equals(info.riskLevel) || "critical".equals(info.riskLevel))
-                .count());
+            stats.putInt("highRiskNumbers", SPAM_DATABASE.highRiskCount());
             promise.resolve(stats);
         } catch (Exception e) {
             promise.reject("STATS_ERROR", e.getMessage());
+        } finally {
+            GET_SPAM_STATISTICS_LATENCY.recordSince(start);
         }
     }
 
+    private Identity identify(String phoneNumber) {
+        // First, check local contacts
+        String contactName = getContactName(phoneNumber);
+        if (contactName != null) {
+            return new Identity(contactName, "contacts", "contact", null);
+        }
+
+        // Check spam database
+        SpamDatabase.SpamInfo spamInfo = SPAM_DATABASE.get(phoneNumber);
+        if (spamInfo != null) {
+            return new Identity(spamInfo.category, "spam_database", "spam", spamInfo);
+        }
+
+        // Try to identify from phone number patterns
+        String identifiedInfo = NumberPatterns.identify(phoneNumber);
+        if (identifiedInfo != null) {
+            return new Identity(identifiedInfo, "pattern_analysis", "business", null);
+        }
+
+        // Fall back to where the number is from
+        String location = NumberPrefixes.get(getReactApplicationContext()).label(phoneNumber);
+        if (location != null) {
+            return new Identity(location, "prefix_table", "location", null);
+        }
+
+        // Unknown number
+        return new Identity("Unknown", "unknown", "unknown", null);
+    }
+
     private String getContactName(String phoneNumber) {
+        // In-memory index once loaded; the provider lookup only covers the first moments after launch.
+        DialpadIndex index = ContactIndex.get(getReactApplicationContext()).current();
+        if (index != null) {
+            int row = index.findByNumber(phoneNumber);
+            return row >= 0 ? index.names[row] : null;
+        }
+
+        CONTACT_LOOKUP_FALLBACKS.increment();
         try {
             Context context = getReactApplicationContext();
             Uri uri = Uri.withAppendedPath(ContactsContract.PhoneLookup.CONTENT_FILTER_URI, 
@@ -163,19 +219,4 @@ public class CallerIdentificationModule extends ReactContextBaseJavaModule {
         }
         return null;
     }
-
-    private String identifyFromPattern(String phoneNumber) {
-        // Simple pattern matching for demo
-        if (phoneNumber.startsWith("+1800") || phoneNumber.startsWith("+1888") || 
-            phoneNumber.startsWith("+1877") || phoneNumber.startsWith("+1866")) {
-            return "Toll-free number";
-        }
-        
-        if (phoneNumber.startsWith("+1900")) {
-            return "Premium rate number";
-        }
-        
-        // Could add more sophisticated pattern matching
-        return null;
-    }
 }
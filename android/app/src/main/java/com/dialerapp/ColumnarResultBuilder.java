@@ -0,0 +1,205 @@
+package com.dialerapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds a column-oriented binary result: one typed array per column plus a
+// deduplicated string table, so large result sets cross the bridge as a single
+// blob instead of one map per row.
+//
+// Layout (little-endian, every column's data 8-byte aligned so JS can view it
+// with a typed array directly):
+//   header       magic "DCR1", u16 version, u16 columnCount, u32 rowCount, u32 stringTableOffset
+//   columns      columnCount x (u8 type, 3 bytes padding, u32 nameStringIndex, u32 dataOffset)
+//   column data  INT32/STRING: int32[rowCount] (STRING holds string indices, -1 for null)
+//                FLOAT64:      float64[rowCount]
+//   strings      u32 count, u32[count] UTF-8 byte lengths, UTF-8 bytes
+final class ColumnarResultBuilder {
+    static final int MAGIC = 0x31524344; // "DCR1"
+    static final short VERSION = 1;
+    static final byte TYPE_INT32 = 1;
+    static final byte TYPE_FLOAT64 = 2;
+    static final byte TYPE_STRING = 3;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int COLUMN_DESCRIPTOR_SIZE = 12;
+
+    private final List<Column> columns = new ArrayList<>();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private int stringBytes;
+
+    abstract static class Column {
+        final byte type;
+        final int nameIndex;
+        int size;
+
+        Column(byte type, int nameIndex) {
+            this.type = type;
+            this.nameIndex = nameIndex;
+        }
+
+        abstract int elementSize();
+
+        abstract void write(ByteBuffer buffer);
+    }
+
+    static final class IntColumn extends Column {
+        private int[] values = new int[64];
+
+        IntColumn(byte type, int nameIndex) {
+            super(type, nameIndex);
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        int elementSize() {
+            return 4;
+        }
+
+        @Override
+        void write(ByteBuffer buffer) {
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(values[i]);
+            }
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private double[] values = new double[64];
+
+        DoubleColumn(int nameIndex) {
+            super(TYPE_FLOAT64, nameIndex);
+        }
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        int elementSize() {
+            return 8;
+        }
+
+        @Override
+        void write(ByteBuffer buffer) {
+            for (int i = 0; i < size; i++) {
+                buffer.putDouble(values[i]);
+            }
+        }
+    }
+
+    final class StringColumn {
+        private final IntColumn indices;
+
+        StringColumn(IntColumn indices) {
+            this.indices = indices;
+        }
+
+        void add(String value) {
+            indices.add(value == null ? -1 : intern(value));
+        }
+    }
+
+    IntColumn intColumn(String name) {
+        IntColumn column = new IntColumn(TYPE_INT32, intern(name));
+        columns.add(column);
+        return column;
+    }
+
+    // Also used for 64-bit ids and epoch-millisecond dates, which a double holds exactly.
+    DoubleColumn doubleColumn(String name) {
+        DoubleColumn column = new DoubleColumn(intern(name));
+        columns.add(column);
+        return column;
+    }
+
+    StringColumn stringColumn(String name) {
+        IntColumn indices = new IntColumn(TYPE_STRING, intern(name));
+        columns.add(indices);
+        return new StringColumn(indices);
+    }
+
+    int rowCount() {
+        return columns.isEmpty() ? 0 : columns.get(0).size;
+    }
+
+    byte[] toByteArray() {
+        int rowCount = rowCount();
+        for (Column column : columns) {
+            if (column.size != rowCount) {
+                throw new IllegalStateException("Columns have different row counts");
+            }
+        }
+
+        int[] dataOffsets = new int[columns.size()];
+        int offset = align8(HEADER_SIZE + columns.size() * COLUMN_DESCRIPTOR_SIZE);
+        for (int i = 0; i < columns.size(); i++) {
+            dataOffsets[i] = offset;
+            offset = align8(offset + rowCount * columns.get(i).elementSize());
+        }
+        int stringTableOffset = offset;
+        int totalSize = stringTableOffset + 4 + strings.size() * 4 + stringBytes;
+
+        ByteBuffer buffer = ByteBuffer.allocate(totalSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) columns.size());
+        buffer.putInt(rowCount);
+        buffer.putInt(stringTableOffset);
+
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            buffer.put(column.type);
+            buffer.put((byte) 0).put((byte) 0).put((byte) 0);
+            buffer.putInt(column.nameIndex);
+            buffer.putInt(dataOffsets[i]);
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            buffer.position(dataOffsets[i]);
+            columns.get(i).write(buffer);
+        }
+
+        buffer.position(stringTableOffset);
+        buffer.putInt(strings.size());
+        for (byte[] string : strings) {
+            buffer.putInt(string.length);
+        }
+        for (byte[] string : strings) {
+            buffer.put(string);
+        }
+        return buffer.array();
+    }
+
+    private int intern(String value) {
+        Integer index = stringIndices.get(value);
+        if (index == null) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            index = strings.size();
+            strings.add(encoded);
+            stringBytes += encoded.length;
+            stringIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private static int align8(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
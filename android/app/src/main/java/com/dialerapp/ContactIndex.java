@@ -0,0 +1,111 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.ContactsContract;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+
+import java.util.Arrays;
+
+// Process-wide holder of the current DialpadIndex, reloaded in the background
+// when the contacts provider reports a change.
+class ContactIndex {
+    private static final String TAG = "ContactIndex";
+    private static final long RELOAD_DELAY_MS = 1000;
+
+    private static ContactIndex instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable reloadTask = this::reload;
+    private volatile DialpadIndex index;
+
+    private ContactIndex(Context context) {
+        this.context = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    static synchronized ContactIndex get(Context context) {
+        if (instance == null) {
+            instance = new ContactIndex(context);
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    // Null until the first load completes; callers fall back to the provider.
+    DialpadIndex current() {
+        DialpadIndex current = index;
+        if (current == null) {
+            // The first load may have been skipped for lack of READ_CONTACTS.
+            handler.removeCallbacks(reloadTask);
+            handler.post(reloadTask);
+        }
+        return current;
+    }
+
+    private void startMonitoring() {
+        try {
+            context.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        handler.removeCallbacks(reloadTask);
+                        handler.postDelayed(reloadTask, RELOAD_DELAY_MS);
+                    }
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Contacts not observable", e);
+        }
+        handler.post(reloadTask);
+    }
+
+    private void reload() {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS)
+            != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        String[] projection = {
+            ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+            ContactsContract.CommonDataKinds.Phone.NUMBER
+        };
+
+        try (Cursor cursor = context.getContentResolver().query(
+            ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+            projection,
+            null,
+            null,
+            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
+        )) {
+            if (cursor == null) {
+                return;
+            }
+            int count = cursor.getCount();
+            long[] contactIds = new long[count];
+            String[] names = new String[count];
+            String[] numbers = new String[count];
+            int row = 0;
+            while (cursor.moveToNext() && row < count) {
+                contactIds[row] = cursor.getLong(0);
+                names[row] = cursor.getString(1);
+                numbers[row] = cursor.getString(2);
+                row++;
+            }
+            index = new DialpadIndex(
+                Arrays.copyOf(contactIds, row), Arrays.copyOf(names, row), Arrays.copyOf(numbers, row));
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load contact index", e);
+        }
+    }
+}
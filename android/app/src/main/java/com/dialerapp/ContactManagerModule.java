@@ -5,47 +5,76 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.ContactsContract;
+import android.util.Base64;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public class ContactManagerModule extends ReactContextBaseJavaModule {
+    static final String NAME = "ContactManager";
+    private static final DialerMetrics.Histogram GET_ALL_CONTACTS_LATENCY =
+        DialerMetrics.latency(NAME + ".getAllContacts");
+    private static final DialerMetrics.Histogram GET_ALL_CONTACTS_ROWS =
+        DialerMetrics.histogram(NAME + ".getAllContacts.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_ALL_CONTACTS_COLUMNAR_LATENCY =
+        DialerMetrics.latency(NAME + ".getAllContactsColumnar");
+    private static final DialerMetrics.Histogram GET_ALL_CONTACTS_COLUMNAR_ROWS =
+        DialerMetrics.histogram(NAME + ".getAllContactsColumnar.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram GET_ALL_CONTACTS_COLUMNAR_BYTES =
+        DialerMetrics.histogram(NAME + ".getAllContactsColumnar.bytes", DialerMetrics.UNIT_BYTES);
+    private static final DialerMetrics.Histogram SEARCH_DIALPAD_LATENCY =
+        DialerMetrics.latency(NAME + ".searchDialpad");
+    private static final DialerMetrics.Histogram SEARCH_DIALPAD_SYNC_LATENCY =
+        DialerMetrics.latency(NAME + ".searchDialpadSync");
+    private static final DialerMetrics.Histogram GET_TOP_CONTACTS_LATENCY =
+        DialerMetrics.latency(NAME + ".getTopContacts");
+    private static final DialerMetrics.Histogram ADD_CONTACT_LATENCY =
+        DialerMetrics.latency(NAME + ".addContact");
+    private static final DialerMetrics.Histogram GET_CONTACT_PHOTOS_LATENCY =
+        DialerMetrics.latency(NAME + ".getContactPhotos");
+    private static final DialerMetrics.Histogram PREFETCH_CONTACT_PHOTOS_LATENCY =
+        DialerMetrics.latency(NAME + ".prefetchContactPhotos");
+    private static final DialerMetrics.Histogram SET_READ_MODE_LATENCY =
+        DialerMetrics.latency(NAME + ".setReadMode");
+    // Query plus cursor walk only, split by where getAllContacts/getAllContactsColumnar read from.
+    private static final DialerMetrics.Histogram CONTACTS_PROVIDER_READ_LATENCY =
+        DialerMetrics.latency(NAME + ".read.provider");
+    private static final DialerMetrics.Histogram CONTACTS_MIRROR_READ_LATENCY =
+        DialerMetrics.latency(NAME + ".read.mirror");
+
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    private volatile boolean readFromMirror;
     
     public ContactManagerModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        // Starts the first call-log pass so rankings are ready by the first search.
+        CallFrecency.get(reactContext);
     }
 
     @Override
     public String getName() {
-        return "ContactManager";
+        return NAME;
     }
 
     @ReactMethod
     public void getAllContacts(Promise promise) {
+        long start = System.nanoTime();
         try {
-            ContentResolver contentResolver = getReactApplicationContext().getContentResolver();
             WritableArray contacts = Arguments.createArray();
-
-            String[] projection = {
-                ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
-                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
-                ContactsContract.CommonDataKinds.Phone.NUMBER,
-                ContactsContract.CommonDataKinds.Phone.TYPE
-            };
-
-            Cursor cursor = contentResolver.query(
-                ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-                projection,
-                null,
-                null,
-                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
-            );
+            boolean fromMirror = useMirror();
+            long queryStart = System.nanoTime();
+            Cursor cursor = openContacts(fromMirror);
 
             if (cursor != null) {
                 while (cursor.moveToNext()) {
@@ -58,15 +87,220 @@ public class ContactManagerModule extends ReactContextBaseJavaModule {
                 }
                 cursor.close();
             }
+            (fromMirror ? CONTACTS_MIRROR_READ_LATENCY : CONTACTS_PROVIDER_READ_LATENCY).recordSince(queryStart);
 
+            GET_ALL_CONTACTS_ROWS.record(contacts.size());
             promise.resolve(contacts);
         } catch (Exception e) {
             promise.reject("CONTACTS_ERROR", e.getMessage());
+        } finally {
+            GET_ALL_CONTACTS_LATENCY.recordSince(start);
+        }
+    }
+
+    // Same rows as getAllContacts, as a base64 ColumnarResultBuilder blob (see src/native/columnar.ts).
+    @ReactMethod
+    public void getAllContactsColumnar(Promise promise) {
+        long start = System.nanoTime();
+        try {
+            boolean fromMirror = useMirror();
+            long queryStart = System.nanoTime();
+            Cursor cursor = openContacts(fromMirror);
+            ColumnarResultBuilder result;
+            try {
+                result = ContactRowMapper.toColumnar(cursor != null ? new CursorRows(cursor) : null);
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            (fromMirror ? CONTACTS_MIRROR_READ_LATENCY : CONTACTS_PROVIDER_READ_LATENCY).recordSince(queryStart);
+
+            String payload = Base64.encodeToString(result.toByteArray(), Base64.NO_WRAP);
+            GET_ALL_CONTACTS_COLUMNAR_ROWS.record(result.rowCount());
+            GET_ALL_CONTACTS_COLUMNAR_BYTES.record(payload.length());
+            promise.resolve(payload);
+        } catch (Exception e) {
+            promise.reject("CONTACTS_ERROR", e.getMessage());
+        } finally {
+            GET_ALL_CONTACTS_COLUMNAR_LATENCY.recordSince(start);
+        }
+    }
+
+    // "mirror" serves getAllContacts and getAllContactsColumnar from the local DialerDatabase
+    // once its first sync has finished; "provider" (the default) always queries ContactsContract.
+    @ReactMethod
+    public void setReadMode(String mode, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            if (DialerMirror.READ_MODE_MIRROR.equals(mode)) {
+                // Starts the initial sync if nothing else has.
+                DialerMirror.get(getReactApplicationContext());
+                readFromMirror = true;
+            } else if (DialerMirror.READ_MODE_PROVIDER.equals(mode)) {
+                readFromMirror = false;
+            } else {
+                promise.reject("INVALID_READ_MODE", "Unknown read mode: " + mode);
+                return;
+            }
+            promise.resolve(mode);
+        } catch (Exception e) {
+            promise.reject("CONTACTS_ERROR", e.getMessage());
+        } finally {
+            SET_READ_MODE_LATENCY.recordSince(start);
+        }
+    }
+
+    @ReactMethod
+    public void searchDialpad(String digits, double limit, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            DialpadIndex index = ContactIndex.get(getReactApplicationContext()).current();
+            WritableArray results = Arguments.createArray();
+            if (index != null) {
+                FrecencyIndex frecency = CallFrecency.get(getReactApplicationContext()).current();
+                for (int row : index.search(digits, (int) limit, frecency)) {
+                    WritableMap contact = Arguments.createMap();
+                    contact.putString("id", String.valueOf(index.contactIds[row]));
+                    contact.putString("name", index.names[row]);
+                    contact.putString("phoneNumber", index.numbers[row]);
+                    results.pushMap(contact);
+                }
+            }
+            promise.resolve(results);
+        } catch (Exception e) {
+            promise.reject("SEARCH_ERROR", e.getMessage());
+        } finally {
+            SEARCH_DIALPAD_LATENCY.recordSince(start);
+        }
+    }
+
+    // Synchronous dialpad search, called through JSI under the new architecture. Returns
+    // one line per match with id, name and number separated by FIELD_SEPARATOR.
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String searchDialpadSync(String digits, double limit) {
+        long start = System.nanoTime();
+        try {
+            DialpadIndex index = ContactIndex.get(getReactApplicationContext()).current();
+            if (index == null) {
+                return "";
+            }
+            FrecencyIndex frecency = CallFrecency.get(getReactApplicationContext()).current();
+            StringBuilder results = new StringBuilder();
+            for (int row : index.search(digits, (int) limit, frecency)) {
+                if (results.length() > 0) {
+                    results.append('\n');
+                }
+                results.append(index.contactIds[row]).append(FIELD_SEPARATOR)
+                    .append(index.names[row]).append(FIELD_SEPARATOR)
+                    .append(index.numbers[row]);
+            }
+            return results.toString();
+        } finally {
+            SEARCH_DIALPAD_SYNC_LATENCY.recordSince(start);
+        }
+    }
+
+    // Saved contacts by how often and recently they were called, best first. One entry
+    // per contact, with its highest-scoring number.
+    @ReactMethod
+    public void getTopContacts(double limit, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            DialpadIndex index = ContactIndex.get(getReactApplicationContext()).current();
+            FrecencyIndex frecency = CallFrecency.get(getReactApplicationContext()).current();
+            WritableArray results = Arguments.createArray();
+            if (index == null || frecency == null || limit <= 0) {
+                promise.resolve(results);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            Set<Long> contactIds = new HashSet<>();
+            int wanted = (int) limit;
+            // Contacts with several called numbers take more than one slot; widen until enough.
+            for (int fetch = wanted; ; fetch *= 2) {
+                long[] keys = frecency.top(fetch, key -> index.findByMatchKey(key) >= 0);
+                results = Arguments.createArray();
+                contactIds.clear();
+                for (long key : keys) {
+                    int row = index.findByMatchKey(key);
+                    if (contactIds.size() == wanted || !contactIds.add(index.contactIds[row])) {
+                        continue;
+                    }
+                    WritableMap contact = Arguments.createMap();
+                    contact.putString("id", String.valueOf(index.contactIds[row]));
+                    contact.putString("name", index.names[row]);
+                    contact.putString("phoneNumber", index.numbers[row]);
+                    contact.putDouble("score", frecency.score(key, now));
+                    contact.putInt("callCount", frecency.callCount(key));
+                    contact.putDouble("lastCallDate", frecency.lastDate(key));
+                    results.pushMap(contact);
+                }
+                if (contactIds.size() == wanted || keys.length < fetch) {
+                    break;
+                }
+            }
+            promise.resolve(results);
+        } catch (Exception e) {
+            promise.reject("CONTACTS_ERROR", e.getMessage());
+        } finally {
+            GET_TOP_CONTACTS_LATENCY.recordSince(start);
         }
     }
 
+    // file:// URIs of cached thumbnails, keyed by contact id; contacts without a photo are
+    // left out. Meant for the rows on screen: misses are decoded before resolving.
+    @ReactMethod
+    public void getContactPhotos(ReadableArray contactIds, Promise promise) {
+        long start = System.nanoTime();
+        long[] ids;
+        try {
+            ids = toContactIds(contactIds);
+        } catch (NumberFormatException e) {
+            GET_CONTACT_PHOTOS_LATENCY.recordSince(start);
+            promise.reject("CONTACTS_ERROR", "Invalid contact id: " + e.getMessage());
+            return;
+        }
+        ContactPhotoCache.get(getReactApplicationContext()).loadFiles(ids, files -> {
+            try {
+                WritableMap photos = Arguments.createMap();
+                for (int i = 0; i < ids.length; i++) {
+                    if (files[i] != null) {
+                        photos.putString(String.valueOf(ids[i]), Uri.fromFile(files[i]).toString());
+                    }
+                }
+                promise.resolve(photos);
+            } finally {
+                GET_CONTACT_PHOTOS_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // Fire and forget; replaces the previous prefetch if it has not finished.
+    @ReactMethod
+    public void prefetchContactPhotos(ReadableArray contactIds) {
+        long start = System.nanoTime();
+        try {
+            ContactPhotoCache.get(getReactApplicationContext()).prefetch(toContactIds(contactIds));
+        } catch (NumberFormatException e) {
+            // Nothing to warm
+        } finally {
+            PREFETCH_CONTACT_PHOTOS_LATENCY.recordSince(start);
+        }
+    }
+
+    private static long[] toContactIds(ReadableArray contactIds) {
+        long[] ids = new long[contactIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Long.parseLong(contactIds.getString(i));
+        }
+        return ids;
+    }
+
     @ReactMethod
     public void addContact(ReadableMap contactData, Promise promise) {
+        long start = System.nanoTime();
         try {
             ContentResolver contentResolver = getReactApplicationContext().getContentResolver();
             
@@ -95,6 +329,34 @@ public class ContactManagerModule extends ReactContextBaseJavaModule {
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ADD_CONTACT_ERROR", e.getMessage());
+        } finally {
+            ADD_CONTACT_LATENCY.recordSince(start);
         }
     }
+
+    private boolean useMirror() {
+        return readFromMirror && DialerMirror.get(getReactApplicationContext()).isContactsReady();
+    }
+
+    // Rows in ContactRowMapper's column order, sorted by name.
+    private Cursor openContacts(boolean fromMirror) {
+        if (fromMirror) {
+            return DialerMirror.get(getReactApplicationContext()).queryContacts();
+        }
+
+        String[] projection = {
+            ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+            ContactsContract.CommonDataKinds.Phone.NUMBER,
+            ContactsContract.CommonDataKinds.Phone.TYPE
+        };
+
+        return getReactApplicationContext().getContentResolver().query(
+            ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+            projection,
+            null,
+            null,
+            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
+        );
+    }
 }
@@ -0,0 +1,439 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.ContactsContract;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Process-wide two-level cache of contact thumbnails: decoded, downsampled bitmaps in a
+// byte-bounded LRU, backed by the same thumbnails re-encoded as JPEG files under the cache
+// directory (which is also what JS gets to display). Entries are keyed by contact id and
+// the contact's last-updated timestamp, so an edited contact simply misses; stale files
+// are swept when the contacts provider reports a change, and the directory is trimmed to
+// MAX_DISK_BYTES whenever a write takes it over.
+//
+// All loading happens on one background thread. Contacts without a photo are known from a
+// single query and never cost a provider round trip.
+class ContactPhotoCache {
+    private static final String TAG = "ContactPhotoCache";
+    private static final String DIRECTORY = "contact_photos";
+    private static final String EXTENSION = ".jpg";
+    private static final long RELOAD_DELAY_MS = 1000;
+    private static final int MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 8 * 1024 * 1024;
+    private static final int JPEG_QUALITY = 90;
+
+    private static final DialerMetrics.Counter MEMORY_HITS = DialerMetrics.counter(TAG + ".memoryHits");
+    private static final DialerMetrics.Counter DISK_HITS = DialerMetrics.counter(TAG + ".diskHits");
+    private static final DialerMetrics.Counter MISSES = DialerMetrics.counter(TAG + ".misses");
+    private static final DialerMetrics.Counter NO_PHOTO = DialerMetrics.counter(TAG + ".noPhoto");
+    private static final DialerMetrics.Histogram DECODE_LATENCY = DialerMetrics.latency(TAG + ".decode");
+    private static final DialerMetrics.Histogram PROVIDER_LOAD_LATENCY =
+        DialerMetrics.latency(TAG + ".load.provider");
+    private static final DialerMetrics.Histogram SWEEP_LATENCY = DialerMetrics.latency(TAG + ".sweep");
+    private static final DialerMetrics.Gauge MEMORY_BYTES = DialerMetrics.gauge(TAG + ".memoryBytes");
+
+    private static ContactPhotoCache instance;
+
+    interface Callback {
+        // Called on the cache thread; photo is null if the contact has none.
+        void onPhoto(long contactId, Bitmap photo);
+    }
+
+    interface FilesCallback {
+        // Called on the cache thread with one entry per requested id, null where there is no photo.
+        void onFiles(File[] files);
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final File directory;
+    private final int targetSize;
+    private final LruCache<String, Bitmap> memory;
+    private final Runnable sweepTask = this::sweep;
+    private final Runnable prefetchTask = this::drainPrefetch;
+    // Written on the cache thread only. contactId -> last-updated timestamp, for contacts
+    // that have a photo.
+    private volatile Map<Long, Long> versions;
+    private volatile long[] pendingPrefetch;
+    // Cache thread only: bytes in the directory, -1 until a sweep has counted them.
+    private long diskBytes = -1;
+
+    private ContactPhotoCache(Context context) {
+        this.context = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        directory = new File(this.context.getCacheDir(), DIRECTORY);
+        // Notification large icons are the biggest place a thumbnail is shown natively.
+        targetSize = this.context.getResources().getDimensionPixelSize(
+            android.R.dimen.notification_large_icon_width);
+        int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    static synchronized ContactPhotoCache get(Context context) {
+        if (instance == null) {
+            instance = new ContactPhotoCache(context);
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    // Memory only, safe on any thread. Null on a miss, which does not start a load.
+    Bitmap peek(long contactId) {
+        Map<Long, Long> current = versions;
+        Long version = current != null ? current.get(contactId) : null;
+        Bitmap photo = version != null ? memory.get(key(contactId, version)) : null;
+        if (photo != null) {
+            MEMORY_HITS.increment();
+        }
+        return photo;
+    }
+
+    void load(long contactId, Callback callback) {
+        handler.post(() -> callback.onPhoto(contactId, loadNow(contactId)));
+    }
+
+    void loadFiles(long[] contactIds, FilesCallback callback) {
+        handler.post(() -> {
+            File[] files = new File[contactIds.length];
+            for (int i = 0; i < contactIds.length; i++) {
+                Bitmap photo = loadNow(contactIds[i]);
+                if (photo == null) {
+                    continue;
+                }
+                File file = file(key(contactIds[i], versions.get(contactIds[i])));
+                // A memory hit can outlive its file: trimmed, or the cache directory cleared.
+                if (file.setLastModified(System.currentTimeMillis()) || writeFile(file, photo)) {
+                    files[i] = file;
+                }
+            }
+            callback.onFiles(files);
+        });
+    }
+
+    // Warms the cache for the rows on screen. Replaces any earlier prefetch that has not
+    // run yet: those rows have usually scrolled away.
+    void prefetch(long[] contactIds) {
+        synchronized (this) {
+            pendingPrefetch = contactIds;
+        }
+        handler.removeCallbacks(prefetchTask);
+        handler.post(prefetchTask);
+    }
+
+    // Warms the cache for an incoming caller, if the number belongs to a saved contact.
+    void prefetchNumber(String phoneNumber) {
+        long contactId = contactIdFor(phoneNumber);
+        if (contactId >= 0) {
+            handler.post(() -> loadNow(contactId));
+        }
+    }
+
+    // Contact id for a number from the dialpad index, or -1 if unknown or not loaded yet.
+    long contactIdFor(String phoneNumber) {
+        DialpadIndex index = ContactIndex.get(context).current();
+        if (index == null) {
+            return -1;
+        }
+        int row = index.findByMatchKey(PhoneNumbers.matchKey(phoneNumber));
+        return row >= 0 ? index.contactIds[row] : -1;
+    }
+
+    private void startMonitoring() {
+        try {
+            context.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        handler.removeCallbacks(sweepTask);
+                        handler.postDelayed(sweepTask, RELOAD_DELAY_MS);
+                    }
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Contacts not observable", e);
+        }
+        handler.post(sweepTask);
+    }
+
+    private void drainPrefetch() {
+        long[] contactIds;
+        synchronized (this) {
+            contactIds = pendingPrefetch;
+            pendingPrefetch = null;
+        }
+        if (contactIds == null) {
+            return;
+        }
+        for (long contactId : contactIds) {
+            if (pendingPrefetch != null) {
+                // Newer rows came into view; prefetchTask is already queued for them.
+                return;
+            }
+            loadNow(contactId);
+        }
+    }
+
+    // Cache thread only.
+    private Bitmap loadNow(long contactId) {
+        if (versions == null) {
+            sweep();
+            if (versions == null) {
+                return null;
+            }
+        }
+        Long version = versions.get(contactId);
+        if (version == null) {
+            NO_PHOTO.increment();
+            return null;
+        }
+        String key = key(contactId, version);
+        Bitmap photo = memory.get(key);
+        if (photo != null) {
+            MEMORY_HITS.increment();
+            return photo;
+        }
+
+        File file = file(key);
+        byte[] encoded = readFile(file);
+        if (encoded != null) {
+            DISK_HITS.increment();
+            file.setLastModified(System.currentTimeMillis());
+            photo = decode(encoded);
+        } else {
+            MISSES.increment();
+            long start = System.nanoTime();
+            try {
+                encoded = readProvider(contactId);
+                photo = encoded != null ? decode(encoded) : null;
+                if (photo != null) {
+                    writeFile(file, photo);
+                }
+            } finally {
+                PROVIDER_LOAD_LATENCY.recordSince(start);
+            }
+        }
+        if (photo != null) {
+            memory.put(key, photo);
+            MEMORY_BYTES.set(memory.size());
+        }
+        return photo;
+    }
+
+    // Downsamples while decoding so an oversized thumbnail never lands in memory at full size.
+    private Bitmap decode(byte[] encoded) {
+        long start = System.nanoTime();
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetSize);
+            options.inJustDecodeBounds = false;
+            return BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+        } finally {
+            DECODE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Largest power of two that keeps both sides at or above target.
+    static int sampleSize(int width, int height, int target) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= target && height / (sampleSize * 2) >= target) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private byte[] readProvider(long contactId) {
+        Uri uri = ContentUris.withAppendedId(ContactsContract.Contacts.CONTENT_URI, contactId);
+        try (InputStream in = ContactsContract.Contacts.openContactPhotoInputStream(
+            context.getContentResolver(), uri, false)) {
+            return in != null ? readFully(in) : null;
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Failed to read photo for contact " + contactId, e);
+            return null;
+        }
+    }
+
+    private static byte[] readFile(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return readFully(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Written under a temporary name and renamed, so a reader never sees half a file.
+    // Returns false if nothing was written.
+    private boolean writeFile(File file, Bitmap photo) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return false;
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            photo.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache " + file.getName(), e);
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return false;
+        }
+        if (diskBytes >= 0) {
+            diskBytes += file.length();
+            if (diskBytes > MAX_DISK_BYTES) {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    diskBytes = trim(files, sizeOf(files));
+                }
+            }
+        }
+        return true;
+    }
+
+    // Re-reads which contacts have a photo and as of when, then drops memory and disk
+    // entries for any other version and trims the directory to MAX_DISK_BYTES.
+    private void sweep() {
+        if (!PermissionState.get(context).isGranted(Manifest.permission.READ_CONTACTS)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<Long, Long> updated = new HashMap<>();
+        String[] projection = {
+            ContactsContract.Contacts._ID,
+            ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP
+        };
+        try (Cursor cursor = context.getContentResolver().query(
+            ContactsContract.Contacts.CONTENT_URI,
+            projection,
+            ContactsContract.Contacts.PHOTO_ID + " IS NOT NULL",
+            null,
+            null
+        )) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                updated.put(cursor.getLong(0), cursor.getLong(1));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load contact photo versions", e);
+            return;
+        }
+        versions = updated;
+
+        Set<String> valid = new HashSet<>();
+        for (Map.Entry<Long, Long> entry : updated.entrySet()) {
+            valid.add(key(entry.getKey(), entry.getValue()));
+        }
+        for (String key : memory.snapshot().keySet()) {
+            if (!valid.contains(key)) {
+                memory.remove(key);
+            }
+        }
+        MEMORY_BYTES.set(memory.size());
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            long total = 0;
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(EXTENSION)
+                    || !valid.contains(name.substring(0, name.length() - EXTENSION.length()))) {
+                    file.delete();
+                } else {
+                    total += file.length();
+                }
+            }
+            diskBytes = trim(files, total);
+        } else {
+            diskBytes = 0;
+        }
+        SWEEP_LATENCY.recordSince(start);
+    }
+
+    // Deletes files least recently used first (hits touch the modification time) until
+    // total, the bytes they hold, is within MAX_DISK_BYTES. Returns what is left.
+    private static long trim(File[] files, long total) {
+        if (total <= MAX_DISK_BYTES) {
+            return total;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= MAX_DISK_BYTES) {
+                break;
+            }
+            if (file.isFile()) {
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long sizeOf(File[] files) {
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        return total;
+    }
+
+    private File file(String key) {
+        return new File(directory, key + EXTENSION);
+    }
+
+    private static String key(long contactId, long version) {
+        return contactId + "_" + version;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,30 @@
+package com.dialerapp;
+
+// Maps ContactManagerModule's phone projection to result columns. Rows must be in
+// projection order: CONTACT_ID, DISPLAY_NAME, NUMBER, TYPE.
+final class ContactRowMapper {
+    static final int COLUMN_CONTACT_ID = 0;
+    static final int COLUMN_NAME = 1;
+    static final int COLUMN_NUMBER = 2;
+    static final int COLUMN_TYPE = 3;
+
+    private ContactRowMapper() {
+    }
+
+    // A null cursor (provider unavailable) gives the columns with no rows.
+    static ColumnarResultBuilder toColumnar(RowCursor rows) {
+        ColumnarResultBuilder result = new ColumnarResultBuilder();
+        ColumnarResultBuilder.DoubleColumn ids = result.doubleColumn("id");
+        ColumnarResultBuilder.StringColumn names = result.stringColumn("name");
+        ColumnarResultBuilder.StringColumn phoneNumbers = result.stringColumn("phoneNumber");
+        ColumnarResultBuilder.IntColumn types = result.intColumn("type");
+
+        while (rows != null && rows.moveToNext()) {
+            ids.add(rows.getLong(COLUMN_CONTACT_ID));
+            names.add(rows.getString(COLUMN_NAME));
+            phoneNumbers.add(rows.getString(COLUMN_NUMBER));
+            types.add(rows.getInt(COLUMN_TYPE));
+        }
+        return result;
+    }
+}
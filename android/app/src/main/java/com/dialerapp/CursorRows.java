@@ -0,0 +1,32 @@
+package com.dialerapp;
+
+import android.database.Cursor;
+
+// RowCursor over a provider cursor. Closing stays with the caller that owns the cursor.
+final class CursorRows implements RowCursor {
+    private final Cursor cursor;
+
+    CursorRows(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return cursor.moveToNext();
+    }
+
+    @Override
+    public long getLong(int column) {
+        return cursor.getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return cursor.getInt(column);
+    }
+
+    @Override
+    public String getString(int column) {
+        return cursor.getString(column);
+    }
+}
@@ -0,0 +1,468 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.CallLog;
+import android.provider.ContactsContract;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Backup files are written and read a row at a time straight between the providers and a
+// gzip stream (see BackupCodec), so a backup never passes through JS and memory does not
+// grow with the history. Imports go back through applyBatch in fixed-size batches.
+public class DialerBackupModule extends ReactContextBaseJavaModule {
+    static final String NAME = "DialerBackup";
+    static final String EVENT_PROGRESS = "DialerBackupProgress";
+
+    private static final int BATCH_SIZE = 200;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final DialerMetrics.Histogram EXPORT_CALL_LOG_LATENCY =
+        DialerMetrics.latency(NAME + ".exportCallLog");
+    private static final DialerMetrics.Histogram EXPORT_CONTACTS_LATENCY =
+        DialerMetrics.latency(NAME + ".exportContacts");
+    private static final DialerMetrics.Histogram IMPORT_CALL_LOG_LATENCY =
+        DialerMetrics.latency(NAME + ".importCallLog");
+    private static final DialerMetrics.Histogram IMPORT_CONTACTS_LATENCY =
+        DialerMetrics.latency(NAME + ".importContacts");
+    private static final DialerMetrics.Histogram ROWS =
+        DialerMetrics.histogram(NAME + ".rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Histogram FILE_BYTES =
+        DialerMetrics.histogram(NAME + ".fileBytes", DialerMetrics.UNIT_BYTES);
+
+    // Column order matches CallLogRowMapper.
+    private static final String[] CALL_LOG_PROJECTION = {
+        CallLog.Calls._ID,
+        CallLog.Calls.NUMBER,
+        CallLog.Calls.CACHED_NAME,
+        CallLog.Calls.TYPE,
+        CallLog.Calls.DATE,
+        CallLog.Calls.DURATION
+    };
+
+    // Column order matches ContactRowMapper.
+    private static final String[] CONTACTS_PROJECTION = {
+        ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+        ContactsContract.CommonDataKinds.Phone.NUMBER,
+        ContactsContract.CommonDataKinds.Phone.TYPE
+    };
+
+    // One backup or restore at a time; they would only contend for the same providers.
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, NAME));
+
+    public DialerBackupModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @ReactMethod
+    public void exportCallLog(String path, Promise promise) {
+        if (!hasPermission(Manifest.permission.READ_CALL_LOG)) {
+            promise.reject("PERMISSION_DENIED", "READ_CALL_LOG permission not granted");
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            long start = System.nanoTime();
+            Progress progress = new Progress("exportCallLog");
+            try (Cursor cursor = getReactApplicationContext().getContentResolver().query(
+                CallLog.Calls.CONTENT_URI, CALL_LOG_PROJECTION, null, null, CallLog.Calls._ID + " ASC")) {
+                if (cursor == null) {
+                    promise.reject("EXPORT_ERROR", "Call log unavailable");
+                    return;
+                }
+                File file = new File(path);
+                progress.total = cursor.getCount();
+                writeAtomically(file, progress, writer -> BackupCodec.writeCalls(new CursorRows(cursor), writer, progress));
+                promise.resolve(progress.finish(file.length()));
+            } catch (Exception e) {
+                promise.reject("EXPORT_ERROR", e.getMessage());
+            } finally {
+                EXPORT_CALL_LOG_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // format: BackupCodec.FORMAT_NDJSON or FORMAT_VCARD.
+    @ReactMethod
+    public void exportContacts(String path, String format, Promise promise) {
+        if (!hasPermission(Manifest.permission.READ_CONTACTS)) {
+            promise.reject("PERMISSION_DENIED", "READ_CONTACTS permission not granted");
+            return;
+        }
+        if (!BackupCodec.FORMAT_NDJSON.equals(format) && !BackupCodec.FORMAT_VCARD.equals(format)) {
+            promise.reject("INVALID_FORMAT", "Unknown contacts format: " + format);
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            long start = System.nanoTime();
+            Progress progress = new Progress("exportContacts");
+            // Grouped by contact, as BackupCodec.writeContacts requires.
+            try (Cursor cursor = getReactApplicationContext().getContentResolver().query(
+                ContactsContract.CommonDataKinds.Phone.CONTENT_URI, CONTACTS_PROJECTION, null, null,
+                ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " ASC")) {
+                if (cursor == null) {
+                    promise.reject("EXPORT_ERROR", "Contacts unavailable");
+                    return;
+                }
+                File file = new File(path);
+                progress.total = cursor.getCount();
+                writeAtomically(file, progress,
+                    writer -> BackupCodec.writeContacts(new CursorRows(cursor), writer, format, progress));
+                promise.resolve(progress.finish(file.length()));
+            } catch (Exception e) {
+                promise.reject("EXPORT_ERROR", e.getMessage());
+            } finally {
+                EXPORT_CONTACTS_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // Calls already in the log (same date and number) are skipped, so a backup can be
+    // restored more than once.
+    @ReactMethod
+    public void importCallLog(String path, Promise promise) {
+        if (!hasPermission(Manifest.permission.WRITE_CALL_LOG) || !hasPermission(Manifest.permission.READ_CALL_LOG)) {
+            promise.reject("PERMISSION_DENIED", "READ_CALL_LOG and WRITE_CALL_LOG permissions not granted");
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            long start = System.nanoTime();
+            Progress progress = new Progress("importCallLog");
+            ContentResolver resolver = getReactApplicationContext().getContentResolver();
+            try {
+                long[] existing = existingCallKeys(resolver);
+                Batch batch = new Batch(resolver, CallLog.AUTHORITY);
+                readGzip(new File(path), progress, reader -> BackupCodec.readCalls(reader,
+                    (number, name, type, date, duration) -> {
+                        if (number == null || Arrays.binarySearch(existing, callKey(date, number)) >= 0) {
+                            return;
+                        }
+                        batch.add(ContentProviderOperation.newInsert(CallLog.Calls.CONTENT_URI)
+                            .withValue(CallLog.Calls.NUMBER, number)
+                            .withValue(CallLog.Calls.CACHED_NAME, name)
+                            .withValue(CallLog.Calls.TYPE, type)
+                            .withValue(CallLog.Calls.DATE, date)
+                            .withValue(CallLog.Calls.DURATION, duration)
+                            .withValue(CallLog.Calls.NEW, 0)
+                            .build());
+                        batch.flushIfFull();
+                    }, progress));
+                batch.flush();
+                WritableMap result = progress.finish(new File(path).length());
+                result.putDouble("inserted", batch.inserted);
+                promise.resolve(result);
+            } catch (Exception e) {
+                promise.reject("IMPORT_ERROR", e.getMessage());
+            } finally {
+                IMPORT_CALL_LOG_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // Reads either contacts format. Each contact becomes a local raw contact with its
+    // name and phones in one batch, so a contact is never left half inserted.
+    @ReactMethod
+    public void importContacts(String path, Promise promise) {
+        if (!hasPermission(Manifest.permission.WRITE_CONTACTS)) {
+            promise.reject("PERMISSION_DENIED", "WRITE_CONTACTS permission not granted");
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            long start = System.nanoTime();
+            Progress progress = new Progress("importContacts");
+            ContentResolver resolver = getReactApplicationContext().getContentResolver();
+            try {
+                Batch batch = new Batch(resolver, ContactsContract.AUTHORITY);
+                readGzip(new File(path), progress, reader -> BackupCodec.readContacts(reader,
+                    (name, numbers, types) -> {
+                        // Back-references are relative to the whole batch.
+                        int rawContact = batch.operations.size();
+                        batch.add(ContentProviderOperation.newInsert(ContactsContract.RawContacts.CONTENT_URI)
+                            .withValue(ContactsContract.RawContacts.ACCOUNT_TYPE, null)
+                            .withValue(ContactsContract.RawContacts.ACCOUNT_NAME, null)
+                            .build());
+                        if (name != null) {
+                            batch.add(ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                                .withValue(ContactsContract.Data.MIMETYPE,
+                                    ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE)
+                                .withValue(ContactsContract.CommonDataKinds.StructuredName.DISPLAY_NAME, name)
+                                .build());
+                        }
+                        for (int i = 0; i < numbers.length; i++) {
+                            batch.add(ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                                .withValue(ContactsContract.Data.MIMETYPE,
+                                    ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE)
+                                .withValue(ContactsContract.CommonDataKinds.Phone.NUMBER, numbers[i])
+                                .withValue(ContactsContract.CommonDataKinds.Phone.TYPE, types[i])
+                                .build());
+                        }
+                        batch.flushIfFull();
+                    }, progress));
+                batch.flush();
+                WritableMap result = progress.finish(new File(path).length());
+                result.putDouble("inserted", batch.inserted);
+                promise.resolve(result);
+            } catch (Exception e) {
+                promise.reject("IMPORT_ERROR", e.getMessage());
+            } finally {
+                IMPORT_CONTACTS_LATENCY.recordSince(start);
+            }
+        });
+    }
+
+    // Required by NativeEventEmitter.
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    private boolean hasPermission(String permission) {
+        return PermissionState.get(getReactApplicationContext()).isGranted(permission);
+    }
+
+    private interface WriteBody {
+        void write(Writer writer) throws IOException;
+    }
+
+    private interface ReadBody {
+        void read(BufferedReader reader) throws IOException;
+    }
+
+    // Writes beside the target and renames over it, so a failed export never replaces a
+    // good backup with a truncated one.
+    private static void writeAtomically(File file, Progress progress, WriteBody body) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                new CountingOutputStream(new FileOutputStream(temp), progress), BUFFER_SIZE),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            body.write(writer);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    private static void readGzip(File file, Progress progress, ReadBody body) throws IOException {
+        progress.totalBytes = file.length();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                new CountingInputStream(new FileInputStream(file), progress), BUFFER_SIZE),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            body.read(reader);
+        }
+    }
+
+    // Sorted (date, number) keys of the calls already logged: a long per call instead of
+    // a set of rows, and a binary search per imported line.
+    private static long[] existingCallKeys(ContentResolver resolver) {
+        try (Cursor cursor = resolver.query(CallLog.Calls.CONTENT_URI,
+            new String[] { CallLog.Calls.DATE, CallLog.Calls.NUMBER }, null, null, null)) {
+            if (cursor == null) {
+                return new long[0];
+            }
+            long[] keys = new long[cursor.getCount()];
+            int count = 0;
+            while (cursor.moveToNext() && count < keys.length) {
+                keys[count++] = callKey(cursor.getLong(0), cursor.getString(1));
+            }
+            keys = Arrays.copyOf(keys, count);
+            Arrays.sort(keys);
+            return keys;
+        }
+    }
+
+    private static long callKey(long date, String number) {
+        long key = date * 31 + PhoneNumbers.matchKey(number);
+        return key ^ (key >>> 29);
+    }
+
+    private static final class Batch {
+        final ContentResolver resolver;
+        final String authority;
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(BATCH_SIZE + 16);
+        long inserted;
+
+        Batch(ContentResolver resolver, String authority) {
+            this.resolver = resolver;
+            this.authority = authority;
+        }
+
+        void add(ContentProviderOperation operation) {
+            operations.add(operation);
+        }
+
+        // Only called between records, so back-references never cross batches.
+        void flushIfFull() throws IOException {
+            if (operations.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (operations.isEmpty()) {
+                return;
+            }
+            try {
+                inserted += resolver.applyBatch(authority, operations).length;
+            } catch (Exception e) {
+                throw new IOException("Batch insert failed", e);
+            }
+            operations.clear();
+        }
+    }
+
+    // Rows and bytes for one operation, forwarded to JS as EVENT_PROGRESS at most every
+    // PROGRESS_INTERVAL_MS.
+    private final class Progress implements BackupCodec.Progress {
+        final String operation;
+        final long startedAt = SystemClock.elapsedRealtime();
+        long total = -1;
+        long totalBytes = -1;
+        long rows;
+        long bytes;
+        private long lastEmit;
+
+        Progress(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void onRows(long rows) {
+            this.rows = rows;
+            long now = SystemClock.elapsedRealtime();
+            if (now - lastEmit >= PROGRESS_INTERVAL_MS) {
+                lastEmit = now;
+                emit(toMap(now, false));
+            }
+        }
+
+        WritableMap finish(long fileBytes) {
+            ROWS.record(rows);
+            FILE_BYTES.record(fileBytes);
+            bytes = fileBytes;
+            long now = SystemClock.elapsedRealtime();
+            emit(toMap(now, true));
+            return toMap(now, true);
+        }
+
+        private WritableMap toMap(long now, boolean done) {
+            long elapsedMs = now - startedAt;
+            WritableMap map = Arguments.createMap();
+            map.putString("operation", operation);
+            map.putDouble("rows", rows);
+            map.putDouble("bytes", bytes);
+            map.putDouble("totalRows", total);
+            map.putDouble("totalBytes", totalBytes);
+            map.putDouble("elapsedMs", elapsedMs);
+            map.putDouble("rowsPerSecond", elapsedMs > 0 ? rows * 1000.0 / elapsedMs : 0);
+            map.putBoolean("done", done);
+            return map;
+        }
+
+        private void emit(WritableMap event) {
+            ReactApplicationContext context = getReactApplicationContext();
+            if (!context.hasActiveReactInstance()) {
+                return;
+            }
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT_PROGRESS, event);
+        }
+    }
+
+    // Compressed bytes written so far.
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final Progress progress;
+
+        CountingOutputStream(OutputStream out, Progress progress) {
+            super(out);
+            this.progress = progress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            progress.bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            progress.bytes += len;
+        }
+    }
+
+    // Compressed bytes read so far, against Progress.totalBytes.
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Progress progress;
+
+        CountingInputStream(InputStream in, Progress progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                progress.bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                progress.bytes += read;
+            }
+            return read;
+        }
+    }
+}
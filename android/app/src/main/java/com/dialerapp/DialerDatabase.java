@@ -0,0 +1,105 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+// App-owned mirror of the call log, contact phones, spam verdicts and recordings, so
+// screens can join them in one indexed query instead of hitting each provider.
+// Numbers are joined on PhoneNumbers.matchKey, stored as match_key.
+class DialerDatabase extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "dialer_mirror.db";
+    private static final int DATABASE_VERSION = 2;
+
+    static final String TABLE_CALLS = "calls";
+    static final String TABLE_CONTACT_PHONES = "contact_phones";
+    static final String TABLE_SPAM_VERDICTS = "spam_verdicts";
+    static final String TABLE_RECORDINGS = "recordings";
+    static final String TABLE_SYNC_STATE = "sync_state";
+    static final String TABLE_SEARCH_INDEX = "search_index";
+
+    private static DialerDatabase instance;
+
+    private DialerDatabase(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+        // Readers on the module thread never wait for the sync thread's writes.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    static synchronized DialerDatabase get(Context context) {
+        if (instance == null) {
+            instance = new DialerDatabase(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // _id is the provider's CallLog.Calls._ID.
+        db.execSQL("CREATE TABLE " + TABLE_CALLS + " ("
+            + "_id INTEGER PRIMARY KEY, "
+            + "number TEXT, "
+            + "match_key INTEGER NOT NULL, "
+            + "cached_name TEXT, "
+            + "type INTEGER NOT NULL, "
+            + "date INTEGER NOT NULL, "
+            + "duration INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX calls_date ON " + TABLE_CALLS + " (date DESC)");
+        db.execSQL("CREATE INDEX calls_match_key_date ON " + TABLE_CALLS + " (match_key, date DESC)");
+
+        // _id is the provider's Phone._ID (a Data row); contacts can have several.
+        db.execSQL("CREATE TABLE " + TABLE_CONTACT_PHONES + " ("
+            + "_id INTEGER PRIMARY KEY, "
+            + "contact_id INTEGER NOT NULL, "
+            + "name TEXT, "
+            + "number TEXT, "
+            + "match_key INTEGER NOT NULL, "
+            + "type INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX contact_phones_name ON " + TABLE_CONTACT_PHONES + " (name COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX contact_phones_match_key ON " + TABLE_CONTACT_PHONES + " (match_key)");
+        db.execSQL("CREATE INDEX contact_phones_contact_id ON " + TABLE_CONTACT_PHONES + " (contact_id)");
+
+        db.execSQL("CREATE TABLE " + TABLE_SPAM_VERDICTS + " ("
+            + "match_key INTEGER PRIMARY KEY, "
+            + "number TEXT, "
+            + "category TEXT, "
+            + "risk_level TEXT, "
+            + "report_count INTEGER NOT NULL, "
+            + "description TEXT)");
+
+        db.execSQL("CREATE TABLE " + TABLE_RECORDINGS + " ("
+            + "path TEXT PRIMARY KEY, "
+            + "file_name TEXT NOT NULL, "
+            + "match_key INTEGER NOT NULL, "
+            + "size INTEGER NOT NULL, "
+            + "last_modified INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX recordings_match_key ON " + TABLE_RECORDINGS + " (match_key)");
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+            + "name TEXT PRIMARY KEY, "
+            + "value INTEGER NOT NULL)");
+
+        // Written by DialerSearchIndex.Writer; column order is what SearchRanker weights.
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH_INDEX + " USING fts4("
+            + "kind, ref, title, number, terms, date, "
+            + "notindexed=kind, notindexed=ref, notindexed=number, notindexed=date, "
+            + "tokenize=unicode61)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Everything here is derived from the providers and the recordings directory.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CALLS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CONTACT_PHONES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SPAM_VERDICTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_INDEX);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        onUpgrade(db, oldVersion, newVersion);
+    }
+}
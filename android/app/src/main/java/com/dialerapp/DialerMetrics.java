@@ -0,0 +1,252 @@
+package com.dialerapp;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Process-wide registry of histograms, counters and gauges. Recording is lock-free and
+// allocation-free so it can sit on every bridge call; reads build a consistent-enough
+// snapshot by walking the buckets.
+final class DialerMetrics {
+    static final String UNIT_NANOS = "ns";
+    static final String UNIT_ROWS = "rows";
+    static final String UNIT_BYTES = "bytes";
+
+    private static final Map<String, Object> METRICS = new ConcurrentHashMap<>();
+
+    private DialerMetrics() {
+    }
+
+    static Histogram latency(String name) {
+        return histogram(name, UNIT_NANOS);
+    }
+
+    static Histogram histogram(String name, String unit) {
+        return (Histogram) METRICS.computeIfAbsent(name, key -> new Histogram(unit));
+    }
+
+    static Counter counter(String name) {
+        return (Counter) METRICS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    static Gauge gauge(String name) {
+        return (Gauge) METRICS.computeIfAbsent(name, key -> new Gauge());
+    }
+
+    // Sorted by name so dumps diff cleanly between runs.
+    static Map<String, Object> all() {
+        return new TreeMap<>(METRICS);
+    }
+
+    static void reset() {
+        for (Object metric : METRICS.values()) {
+            if (metric instanceof Histogram) {
+                ((Histogram) metric).reset();
+            } else if (metric instanceof Counter) {
+                ((Counter) metric).value.set(0);
+            }
+        }
+    }
+
+    static void writeJson(Appendable out) throws IOException {
+        out.append("{\n  \"histograms\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Object> entry : all().entrySet()) {
+            if (!(entry.getValue() instanceof Histogram)) {
+                continue;
+            }
+            Histogram histogram = (Histogram) entry.getValue();
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            out.append(separator).append("    ");
+            appendString(out, entry.getKey());
+            out.append(": {\"unit\": ");
+            appendString(out, histogram.unit);
+            out.append(", \"count\": ").append(Long.toString(snapshot.count))
+                .append(", \"mean\": ").append(Double.toString(snapshot.mean()))
+                .append(", \"p50\": ").append(Long.toString(snapshot.percentile(50)))
+                .append(", \"p90\": ").append(Long.toString(snapshot.percentile(90)))
+                .append(", \"p99\": ").append(Long.toString(snapshot.percentile(99)))
+                .append(", \"max\": ").append(Long.toString(snapshot.max))
+                .append('}');
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"counters\": {");
+        appendValues(out, Counter.class);
+        out.append("\n  },\n  \"gauges\": {");
+        appendValues(out, Gauge.class);
+        out.append("\n  }\n}\n");
+    }
+
+    private static void appendValues(Appendable out, Class<?> type) throws IOException {
+        String separator = "\n";
+        for (Map.Entry<String, Object> entry : all().entrySet()) {
+            Object metric = entry.getValue();
+            if (!type.isInstance(metric)) {
+                continue;
+            }
+            long value = metric instanceof Counter ? ((Counter) metric).get() : ((Gauge) metric).get();
+            out.append(separator).append("    ");
+            appendString(out, entry.getKey());
+            out.append(": ").append(Long.toString(value));
+            separator = ",\n";
+        }
+    }
+
+    // Metric names and units are code constants; only quotes and backslashes need escaping.
+    private static void appendString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    // Log-linear buckets in the style of HdrHistogram: each power of two is split into
+    // SUB_BUCKETS linear buckets, so any recorded value is reported within 1/SUB_BUCKETS
+    // of its true value. Values from 0 to 2^41 (about 36 minutes in nanoseconds) are
+    // covered; larger ones land in the last bucket but still update max exactly.
+    static final class Histogram {
+        static final int SUB_BUCKET_BITS = 3;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        static final int MAX_EXPONENT = 40;
+        static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+        final String unit;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String unit) {
+            this.unit = unit;
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketIndex(value));
+            sum.addAndGet(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        // For use as: long start = System.nanoTime(); try { ... } finally { X.recordSince(start); }
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        Snapshot snapshot() {
+            long[] counts = new long[BUCKET_COUNT];
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            return new Snapshot(counts, count, sum.get(), max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            sum.set(0);
+            max.set(0);
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKET_COUNT - 1;
+            }
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long bucketLowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        }
+
+        static long bucketWidth(int index) {
+            return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+        }
+
+        static final class Snapshot {
+            final long count;
+            final long sum;
+            final long max;
+            private final long[] counts;
+
+            Snapshot(long[] counts, long count, long sum, long max) {
+                this.counts = counts;
+                this.count = count;
+                this.sum = sum;
+                this.max = max;
+            }
+
+            double mean() {
+                return count == 0 ? 0 : (double) sum / count;
+            }
+
+            // Midpoint of the bucket holding the requested rank, capped at the exact max.
+            long percentile(double percentile) {
+                if (count == 0) {
+                    return 0;
+                }
+                long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+                long seen = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    seen += counts[i];
+                    if (seen >= rank) {
+                        return Math.min(max, bucketLowerBound(i) + (bucketWidth(i) - 1) / 2);
+                    }
+                }
+                return max;
+            }
+        }
+    }
+
+    static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        void increment() {
+            value.incrementAndGet();
+        }
+
+        void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        long get() {
+            return value.get();
+        }
+    }
+
+    // Last-written value, e.g. the size of an in-memory index.
+    static final class Gauge {
+        private volatile long value;
+
+        void set(long value) {
+            this.value = value;
+        }
+
+        long get() {
+            return value;
+        }
+    }
+}
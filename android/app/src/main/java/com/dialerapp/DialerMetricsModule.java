@@ -0,0 +1,101 @@
+package com.dialerapp;
+
+import android.content.Context;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.Arguments;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class DialerMetricsModule extends ReactContextBaseJavaModule {
+    static final String NAME = "DialerMetrics";
+    private static final String METRICS_DIR = "metrics";
+
+    public DialerMetricsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // Latencies are reported in nanoseconds; each histogram carries its unit.
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        try {
+            WritableMap histograms = Arguments.createMap();
+            WritableMap counters = Arguments.createMap();
+            WritableMap gauges = Arguments.createMap();
+            for (Map.Entry<String, Object> entry : DialerMetrics.all().entrySet()) {
+                Object metric = entry.getValue();
+                if (metric instanceof DialerMetrics.Histogram) {
+                    histograms.putMap(entry.getKey(), histogramToMap((DialerMetrics.Histogram) metric));
+                } else if (metric instanceof DialerMetrics.Counter) {
+                    counters.putDouble(entry.getKey(), ((DialerMetrics.Counter) metric).get());
+                } else if (metric instanceof DialerMetrics.Gauge) {
+                    gauges.putDouble(entry.getKey(), ((DialerMetrics.Gauge) metric).get());
+                }
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putMap("histograms", histograms);
+            result.putMap("counters", counters);
+            result.putMap("gauges", gauges);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("METRICS_ERROR", e.getMessage());
+        }
+    }
+
+    // Writes the current metrics as JSON under the app's files dir and resolves with the path.
+    @ReactMethod
+    public void dumpMetrics(Promise promise) {
+        try {
+            Context context = getReactApplicationContext();
+            File dir = new File(context.getFilesDir(), METRICS_DIR);
+            if (!dir.exists() && !dir.mkdirs()) {
+                promise.reject("METRICS_DUMP_ERROR", "Unable to create " + dir);
+                return;
+            }
+
+            File file = new File(dir, "metrics-" + System.currentTimeMillis() + ".json");
+            try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                DialerMetrics.writeJson(writer);
+            }
+            promise.resolve(file.getAbsolutePath());
+        } catch (Exception e) {
+            promise.reject("METRICS_DUMP_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void resetMetrics(Promise promise) {
+        DialerMetrics.reset();
+        promise.resolve(true);
+    }
+
+    private static WritableMap histogramToMap(DialerMetrics.Histogram histogram) {
+        DialerMetrics.Histogram.Snapshot snapshot = histogram.snapshot();
+        WritableMap map = Arguments.createMap();
+        map.putString("unit", histogram.unit);
+        map.putDouble("count", snapshot.count);
+        map.putDouble("mean", snapshot.mean());
+        map.putDouble("p50", snapshot.percentile(50));
+        map.putDouble("p90", snapshot.percentile(90));
+        map.putDouble("p99", snapshot.percentile(99));
+        map.putDouble("max", snapshot.max);
+        return map;
+    }
+}
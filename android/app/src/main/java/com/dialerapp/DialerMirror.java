@@ -0,0 +1,503 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.CallLog;
+import android.provider.ContactsContract;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps DialerDatabase, including its DialerSearchIndex, in step with the call log,
+// contacts, spam verdicts and the recordings directory. Each source is synced
+// incrementally on its own debounced task on one background thread; reads go straight
+// to the database from any thread.
+class DialerMirror {
+    private static final String TAG = "DialerMirror";
+    private static final long SYNC_DELAY_MS = 1000;
+
+    static final String READ_MODE_PROVIDER = "provider";
+    static final String READ_MODE_MIRROR = "mirror";
+
+    private static final String STATE_CONTACTS_UPDATED_AT = "contacts_updated_at";
+
+    private static final DialerMetrics.Histogram SYNC_CALL_LOG_LATENCY =
+        DialerMetrics.latency(TAG + ".syncCallLog");
+    private static final DialerMetrics.Histogram SYNC_CONTACTS_LATENCY =
+        DialerMetrics.latency(TAG + ".syncContacts");
+    private static final DialerMetrics.Histogram SYNC_RECORDINGS_LATENCY =
+        DialerMetrics.latency(TAG + ".syncRecordings");
+    private static final DialerMetrics.Counter ROWS_WRITTEN = DialerMetrics.counter(TAG + ".rowsWritten");
+    private static final DialerMetrics.Counter ROWS_DELETED = DialerMetrics.counter(TAG + ".rowsDeleted");
+
+    // Column order matches CallLogRowMapper and ContactRowMapper.
+    private static final String QUERY_CALL_LOG =
+        "SELECT _id, number, cached_name, type, date, duration FROM " + DialerDatabase.TABLE_CALLS
+            + " ORDER BY date DESC";
+    private static final String QUERY_CONTACTS =
+        "SELECT contact_id, name, number, type FROM " + DialerDatabase.TABLE_CONTACT_PHONES
+            + " ORDER BY name COLLATE NOCASE";
+
+    // Call-log rows with the matching contact, spam verdict and recording count. Numbers
+    // without digits (private/unknown callers) have match_key NO_KEY and join to nothing.
+    private static final String QUERY_CALL_HISTORY =
+        "SELECT c._id, c.number, c.type, c.date, c.duration, "
+            + "p.contact_id, p.name, s.category, s.risk_level, "
+            + "(SELECT COUNT(*) FROM " + DialerDatabase.TABLE_RECORDINGS + " r"
+            + " WHERE r.match_key = c.match_key AND c.match_key <> " + PhoneNumbers.NO_KEY + ") "
+            + "FROM " + DialerDatabase.TABLE_CALLS + " c "
+            + "LEFT JOIN " + DialerDatabase.TABLE_CONTACT_PHONES + " p ON p._id = "
+            + "(SELECT _id FROM " + DialerDatabase.TABLE_CONTACT_PHONES
+            + " WHERE match_key = c.match_key AND c.match_key <> " + PhoneNumbers.NO_KEY + " LIMIT 1) "
+            + "LEFT JOIN " + DialerDatabase.TABLE_SPAM_VERDICTS + " s ON s.match_key = c.match_key "
+            + "AND c.match_key <> " + PhoneNumbers.NO_KEY + " ";
+
+    private static DialerMirror instance;
+
+    private final Context context;
+    private final DialerDatabase database;
+    private final Handler handler;
+    private final Runnable syncCallLogTask = this::syncCallLog;
+    private final Runnable syncContactsTask = this::syncContacts;
+    private final Runnable syncRecordingsTask = this::syncRecordings;
+    private FileObserver recordingsObserver;
+    private volatile boolean callLogReady;
+    private volatile boolean contactsReady;
+
+    private DialerMirror(Context context) {
+        this.context = context.getApplicationContext();
+        database = DialerDatabase.get(this.context);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    static synchronized DialerMirror get(Context context) {
+        if (instance == null) {
+            instance = new DialerMirror(context);
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    // For writers that should feed a running mirror without starting one.
+    static synchronized DialerMirror getIfStarted() {
+        return instance;
+    }
+
+    // True once the mirror holds a full copy; until then readers should use the provider.
+    boolean isCallLogReady() {
+        if (!callLogReady) {
+            // The first sync may have been skipped for lack of READ_CALL_LOG.
+            scheduleSync(syncCallLogTask, 0);
+        }
+        return callLogReady;
+    }
+
+    boolean isContactsReady() {
+        if (!contactsReady) {
+            scheduleSync(syncContactsTask, 0);
+        }
+        return contactsReady;
+    }
+
+    Cursor queryCallLog() {
+        return database.getReadableDatabase().rawQuery(QUERY_CALL_LOG, null);
+    }
+
+    // Newest first with _id breaking ties, as getCallLogGroups pages through it.
+    Cursor queryCallLogPage(String selection, String[] selectionArgs, int limit) {
+        return database.getReadableDatabase().rawQuery("SELECT _id, number, cached_name, type, date, duration FROM "
+            + DialerDatabase.TABLE_CALLS + (selection != null ? " WHERE " + selection : "")
+            + " ORDER BY date DESC, _id DESC LIMIT " + limit, selectionArgs);
+    }
+
+    Cursor queryContacts() {
+        return database.getReadableDatabase().rawQuery(QUERY_CONTACTS, null);
+    }
+
+    // Newest first. A non-null phoneNumber restricts the result to that number in any format.
+    Cursor queryCallHistory(String phoneNumber, int limit, int offset) {
+        String where = phoneNumber != null ? "WHERE c.match_key = " + PhoneNumbers.matchKey(phoneNumber) + " " : "";
+        return database.getReadableDatabase().rawQuery(
+            QUERY_CALL_HISTORY + where + "ORDER BY c.date DESC LIMIT " + limit + " OFFSET " + offset, null);
+    }
+
+    // Ranked full-text search over mirrored calls, contacts and recordings; see DialerSearchIndex.
+    DialerSearchIndex.Result search(String query, int kindMask, long since, long until,
+                                    int limit, int offset, long budgetMs) {
+        return DialerSearchIndex.search(database.getReadableDatabase(), query, kindMask, since, until,
+            limit, offset, budgetMs);
+    }
+
+    void putSpamVerdicts(Map<String, SpamDatabase.SpamInfo> verdicts) {
+        final Map<String, SpamDatabase.SpamInfo> copy = new HashMap<>(verdicts);
+        handler.post(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + DialerDatabase.TABLE_SPAM_VERDICTS
+                + " (match_key, number, category, risk_level, report_count, description) VALUES (?, ?, ?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (Map.Entry<String, SpamDatabase.SpamInfo> entry : copy.entrySet()) {
+                    long matchKey = PhoneNumbers.matchKey(entry.getKey());
+                    if (matchKey == PhoneNumbers.NO_KEY) {
+                        continue;
+                    }
+                    SpamDatabase.SpamInfo info = entry.getValue();
+                    insert.bindLong(1, matchKey);
+                    bindNullableString(insert, 2, entry.getKey());
+                    bindNullableString(insert, 3, info.category);
+                    bindNullableString(insert, 4, info.riskLevel);
+                    insert.bindLong(5, info.reportCount);
+                    bindNullableString(insert, 6, info.description);
+                    insert.executeInsert();
+                    ROWS_WRITTEN.increment();
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to store spam verdicts", e);
+            } finally {
+                db.endTransaction();
+                insert.close();
+            }
+        });
+    }
+
+    private void startMonitoring() {
+        ContentResolver resolver = context.getContentResolver();
+        try {
+            resolver.registerContentObserver(CallLog.Calls.CONTENT_URI, true, new ContentObserver(handler) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    scheduleSync(syncCallLogTask, SYNC_DELAY_MS);
+                }
+            });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Call log not observable", e);
+        }
+        try {
+            resolver.registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, new ContentObserver(handler) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    scheduleSync(syncContactsTask, SYNC_DELAY_MS);
+                }
+            });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Contacts not observable", e);
+        }
+
+        File recordingsDir = RecordingStorage.getRecordingsDir(context);
+        int mask = FileObserver.CLOSE_WRITE | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+        recordingsObserver = new FileObserver(recordingsDir.getAbsolutePath(), mask) {
+            @Override
+            public void onEvent(int event, String path) {
+                scheduleSync(syncRecordingsTask, SYNC_DELAY_MS);
+            }
+        };
+        recordingsObserver.startWatching();
+
+        putSpamVerdicts(SpamDatabase.shared().entries());
+        scheduleSync(syncCallLogTask, 0);
+        scheduleSync(syncContactsTask, 0);
+        scheduleSync(syncRecordingsTask, 0);
+    }
+
+    private void scheduleSync(Runnable task, long delayMs) {
+        // Coalesces bursts of provider notifications into one pass.
+        handler.removeCallbacks(task);
+        handler.postDelayed(task, delayMs);
+    }
+
+    // Appends rows newer than the newest mirrored _id, then, if the row counts still
+    // differ, drops mirrored rows the provider no longer has. In-place edits by the system
+    // (e.g. CACHED_NAME refreshes) are not picked up; names come from contact_phones.
+    private void syncCallLog() {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CALL_LOG)
+            != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        long start = System.nanoTime();
+        SQLiteDatabase db = database.getWritableDatabase();
+        ContentResolver resolver = context.getContentResolver();
+        try {
+            long newestId = DatabaseUtils.longForQuery(db,
+                "SELECT IFNULL(MAX(_id), 0) FROM " + DialerDatabase.TABLE_CALLS, null);
+            String[] projection = {
+                CallLog.Calls._ID,
+                CallLog.Calls.NUMBER,
+                CallLog.Calls.CACHED_NAME,
+                CallLog.Calls.TYPE,
+                CallLog.Calls.DATE,
+                CallLog.Calls.DURATION
+            };
+            try (Cursor cursor = resolver.query(CallLog.Calls.CONTENT_URI, projection,
+                CallLog.Calls._ID + " > ?", new String[] { Long.toString(newestId) }, CallLog.Calls._ID + " ASC")) {
+                if (cursor != null) {
+                    insertCalls(db, cursor);
+                }
+            }
+
+            try (Cursor ids = resolver.query(CallLog.Calls.CONTENT_URI, new String[] { CallLog.Calls._ID },
+                null, null, CallLog.Calls._ID + " ASC")) {
+                long mirrored = DatabaseUtils.queryNumEntries(db, DialerDatabase.TABLE_CALLS);
+                if (ids != null && ids.getCount() != mirrored) {
+                    long[] providerIds = new long[ids.getCount()];
+                    int count = 0;
+                    while (ids.moveToNext() && count < providerIds.length) {
+                        providerIds[count++] = ids.getLong(0);
+                    }
+                    deleteMissing(db, DialerDatabase.TABLE_CALLS, "_id", Arrays.copyOf(providerIds, count),
+                        DialerSearchIndex.KIND_CALL);
+                }
+            }
+            callLogReady = true;
+        } catch (Exception e) {
+            Log.w(TAG, "Call log sync failed", e);
+        } finally {
+            SYNC_CALL_LOG_LATENCY.recordSince(start);
+        }
+    }
+
+    private void insertCalls(SQLiteDatabase db, Cursor cursor) {
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + DialerDatabase.TABLE_CALLS
+            + " (_id, number, match_key, cached_name, type, date, duration) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        DialerSearchIndex.Writer index = new DialerSearchIndex.Writer(db);
+        db.beginTransaction();
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                String number = cursor.getString(1);
+                String cachedName = cursor.getString(2);
+                long date = cursor.getLong(4);
+                insert.bindLong(1, id);
+                bindNullableString(insert, 2, number);
+                insert.bindLong(3, PhoneNumbers.matchKey(number));
+                bindNullableString(insert, 4, cachedName);
+                insert.bindLong(5, cursor.getInt(3));
+                insert.bindLong(6, date);
+                insert.bindLong(7, cursor.getLong(5));
+                insert.executeInsert();
+                index.put(DialerSearchIndex.KIND_CALL, id, Long.toString(id), cachedName, number, date);
+                ROWS_WRITTEN.increment();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            index.close();
+        }
+    }
+
+    // Re-mirrors every contact whose CONTACT_LAST_UPDATED_TIMESTAMP moved past the last
+    // sync, and drops contacts listed in DeletedContacts since then.
+    private void syncContacts() {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS)
+            != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        long start = System.nanoTime();
+        SQLiteDatabase db = database.getWritableDatabase();
+        ContentResolver resolver = context.getContentResolver();
+        try {
+            long since = readState(db, STATE_CONTACTS_UPDATED_AT);
+            long newest = since;
+            String[] sinceArgs = { Long.toString(since) };
+
+            String[] projection = {
+                ContactsContract.CommonDataKinds.Phone._ID,
+                ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+                ContactsContract.CommonDataKinds.Phone.NUMBER,
+                ContactsContract.CommonDataKinds.Phone.TYPE,
+                ContactsContract.CommonDataKinds.Phone.CONTACT_LAST_UPDATED_TIMESTAMP
+            };
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + DialerDatabase.TABLE_CONTACT_PHONES
+                + " (_id, contact_id, name, number, match_key, type) VALUES (?, ?, ?, ?, ?, ?)");
+            DialerSearchIndex.Writer index = new DialerSearchIndex.Writer(db);
+            db.beginTransaction();
+            try (Cursor cursor = resolver.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, projection,
+                ContactsContract.CommonDataKinds.Phone.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?", sinceArgs, null)) {
+                Set<Long> replaced = new HashSet<>();
+                while (cursor != null && cursor.moveToNext()) {
+                    long contactId = cursor.getLong(1);
+                    if (replaced.add(contactId)) {
+                        // Drops numbers removed from the contact since the last sync.
+                        deleteContact(db, index, contactId);
+                    }
+                    long phoneId = cursor.getLong(0);
+                    String name = cursor.getString(2);
+                    String number = cursor.getString(3);
+                    insert.bindLong(1, phoneId);
+                    insert.bindLong(2, contactId);
+                    bindNullableString(insert, 3, name);
+                    bindNullableString(insert, 4, number);
+                    insert.bindLong(5, PhoneNumbers.matchKey(number));
+                    insert.bindLong(6, cursor.getInt(4));
+                    insert.executeInsert();
+                    index.put(DialerSearchIndex.KIND_CONTACT, phoneId, Long.toString(contactId), name, number, 0);
+                    ROWS_WRITTEN.increment();
+                    newest = Math.max(newest, cursor.getLong(5));
+                }
+
+                try (Cursor deleted = resolver.query(ContactsContract.DeletedContacts.CONTENT_URI,
+                    new String[] {
+                        ContactsContract.DeletedContacts.CONTACT_ID,
+                        ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP
+                    },
+                    ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?", sinceArgs, null)) {
+                    while (deleted != null && deleted.moveToNext()) {
+                        deleteContact(db, index, deleted.getLong(0));
+                        newest = Math.max(newest, deleted.getLong(1));
+                    }
+                }
+
+                writeState(db, STATE_CONTACTS_UPDATED_AT, newest);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                index.close();
+            }
+            contactsReady = true;
+        } catch (Exception e) {
+            Log.w(TAG, "Contacts sync failed", e);
+        } finally {
+            SYNC_CONTACTS_LATENCY.recordSince(start);
+        }
+    }
+
+    // Upserts files whose size or mtime changed and drops rows for files that are gone.
+    private void syncRecordings() {
+        long start = System.nanoTime();
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            Map<String, long[]> mirrored = new HashMap<>();
+            try (Cursor cursor = db.rawQuery(
+                "SELECT path, size, last_modified FROM " + DialerDatabase.TABLE_RECORDINGS, null)) {
+                while (cursor.moveToNext()) {
+                    mirrored.put(cursor.getString(0), new long[] { cursor.getLong(1), cursor.getLong(2) });
+                }
+            }
+
+            File[] files = RecordingListing.list(
+                RecordingStorage.getRecordingsDir(context), RecordingStorage.RECORDING_EXTENSIONS);
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + DialerDatabase.TABLE_RECORDINGS
+                + " (path, file_name, match_key, size, last_modified) VALUES (?, ?, ?, ?, ?)");
+            DialerSearchIndex.Writer index = new DialerSearchIndex.Writer(db);
+            db.beginTransaction();
+            try {
+                for (File file : files) {
+                    String path = file.getAbsolutePath();
+                    long size = file.length();
+                    long lastModified = file.lastModified();
+                    long[] known = mirrored.remove(path);
+                    if (known != null && known[0] == size && known[1] == lastModified) {
+                        continue;
+                    }
+                    if (known != null) {
+                        // The REPLACE below gives the row a new rowid, and with it a new docid.
+                        index.removeRecording(path);
+                    }
+                    String number = RecordingListing.numberFromFileName(file.getName());
+                    insert.bindString(1, path);
+                    insert.bindString(2, file.getName());
+                    insert.bindLong(3, PhoneNumbers.matchKey(number));
+                    insert.bindLong(4, size);
+                    insert.bindLong(5, lastModified);
+                    long rowId = insert.executeInsert();
+                    index.put(DialerSearchIndex.KIND_RECORDING, rowId, path, file.getName(), number, lastModified);
+                    ROWS_WRITTEN.increment();
+                }
+                for (String path : mirrored.keySet()) {
+                    index.removeRecording(path);
+                    ROWS_DELETED.add(db.delete(DialerDatabase.TABLE_RECORDINGS, "path = ?", new String[] { path }));
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                index.close();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Recordings sync failed", e);
+        } finally {
+            SYNC_RECORDINGS_LATENCY.recordSince(start);
+        }
+    }
+
+    private static void deleteContact(SQLiteDatabase db, DialerSearchIndex.Writer index, long contactId) {
+        String[] args = { Long.toString(contactId) };
+        try (Cursor phones = db.rawQuery(
+            "SELECT _id FROM " + DialerDatabase.TABLE_CONTACT_PHONES + " WHERE contact_id = ?", args)) {
+            while (phones.moveToNext()) {
+                index.remove(DialerSearchIndex.KIND_CONTACT, phones.getLong(0));
+            }
+        }
+        ROWS_DELETED.add(db.delete(DialerDatabase.TABLE_CONTACT_PHONES, "contact_id = ?", args));
+    }
+
+    // Merge-walks the mirrored keys against the provider's sorted keys, dropping each
+    // removed row's search entry of the given kind along with it.
+    private static void deleteMissing(SQLiteDatabase db, String table, String column, long[] sortedProviderIds,
+                                      int searchKind) {
+        SQLiteStatement delete = db.compileStatement("DELETE FROM " + table + " WHERE " + column + " = ?");
+        DialerSearchIndex.Writer index = new DialerSearchIndex.Writer(db);
+        db.beginTransaction();
+        try (Cursor cursor = db.rawQuery("SELECT " + column + " FROM " + table + " ORDER BY " + column, null)) {
+            int next = 0;
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                while (next < sortedProviderIds.length && sortedProviderIds[next] < id) {
+                    next++;
+                }
+                if (next < sortedProviderIds.length && sortedProviderIds[next] == id) {
+                    continue;
+                }
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+                index.remove(searchKind, id);
+                ROWS_DELETED.increment();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+            index.close();
+        }
+    }
+
+    private static long readState(SQLiteDatabase db, String name) {
+        return DatabaseUtils.longForQuery(db, "SELECT IFNULL((SELECT value FROM " + DialerDatabase.TABLE_SYNC_STATE
+            + " WHERE name = ?), 0)", new String[] { name });
+    }
+
+    private static void writeState(SQLiteDatabase db, String name, long value) {
+        db.execSQL("INSERT OR REPLACE INTO " + DialerDatabase.TABLE_SYNC_STATE + " (name, value) VALUES (?, ?)",
+            new Object[] { name, value });
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -1,32 +1,84 @@
 package com.dialerapp;
 
-import com.facebook.react.ReactPackage;
+import android.os.Trace;
+
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class DialerPackage implements ReactPackage {
+// Modules are created on first access from JS rather than all at React startup.
+public class DialerPackage extends TurboReactPackage {
+    private static final String[][] MODULES = {
+        { PermissionManagerModule.NAME, PermissionManagerModule.class.getName() },
+        { CallManagerModule.NAME, CallManagerModule.class.getName() },
+        { ContactManagerModule.NAME, ContactManagerModule.class.getName() },
+        { CallLogManagerModule.NAME, CallLogManagerModule.class.getName() },
+        { CallRecordingModule.NAME, CallRecordingModule.class.getName() },
+        { CallerIdentificationModule.NAME, CallerIdentificationModule.class.getName() },
+        { CallNotificationModule.NAME, CallNotificationModule.class.getName() },
+        { SimManagerModule.NAME, SimManagerModule.class.getName() },
+        { DialerMetricsModule.NAME, DialerMetricsModule.class.getName() },
+        { DialerSearchModule.NAME, DialerSearchModule.class.getName() },
+        { DialerBackupModule.NAME, DialerBackupModule.class.getName() }
+    };
 
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        // Shows up in Perfetto/systrace startup captures as one slice per module.
+        Trace.beginSection("DialerPackage.getModule:" + name);
+        try {
+            switch (name) {
+                case PermissionManagerModule.NAME:
+                    return new PermissionManagerModule(reactContext);
+                case CallManagerModule.NAME:
+                    return new CallManagerModule(reactContext);
+                case ContactManagerModule.NAME:
+                    return new ContactManagerModule(reactContext);
+                case CallLogManagerModule.NAME:
+                    return new CallLogManagerModule(reactContext);
+                case CallRecordingModule.NAME:
+                    return new CallRecordingModule(reactContext);
+                case CallerIdentificationModule.NAME:
+                    return new CallerIdentificationModule(reactContext);
+                case CallNotificationModule.NAME:
+                    return new CallNotificationModule(reactContext);
+                case SimManagerModule.NAME:
+                    return new SimManagerModule(reactContext);
+                case DialerMetricsModule.NAME:
+                    return new DialerMetricsModule(reactContext);
+                case DialerSearchModule.NAME:
+                    return new DialerSearchModule(reactContext);
+                case DialerBackupModule.NAME:
+                    return new DialerBackupModule(reactContext);
+                default:
+                    return null;
+            }
+        } finally {
+            Trace.endSection();
+        }
     }
 
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new PermissionManagerModule(reactContext));
-        modules.add(new CallManagerModule(reactContext));
-        modules.add(new ContactManagerModule(reactContext));
-        modules.add(new CallLogManagerModule(reactContext));
-        modules.add(new CallRecordingModule(reactContext));
-        modules.add(new CallerIdentificationModule(reactContext));
-        modules.add(new CallNotificationModule(reactContext));
-        modules.add(new SimManagerModule(reactContext));
-        return modules;
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            for (String[] module : MODULES) {
+                moduleInfos.put(module[0], new ReactModuleInfo(
+                    module[0],
+                    module[1],
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // hasConstants
+                    false, // isCxxModule
+                    false  // isTurboModule
+                ));
+            }
+            return moduleInfos;
+        };
     }
 }
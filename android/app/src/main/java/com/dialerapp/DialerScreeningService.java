@@ -0,0 +1,117 @@
+package com.dialerapp;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.ContactsContract;
+import android.telecom.Call;
+import android.telecom.CallScreeningService;
+import android.util.Log;
+
+// Screens incoming calls natively, before JS or the incoming-call UI is involved, so
+// known spam is turned away within the platform's screening deadline even on a cold
+// start. Bound by telecom while the app is the default dialer or holds the call
+// screening role (API 24+).
+public class DialerScreeningService extends CallScreeningService {
+    private static final String TAG = "DialerScreeningService";
+
+    private static final DialerMetrics.Histogram SCREEN_LATENCY = DialerMetrics.latency(TAG + ".screen");
+    private static final DialerMetrics.Histogram REFRESH_LATENCY = DialerMetrics.latency(TAG + ".refresh");
+    private static final DialerMetrics.Counter ALLOWED = DialerMetrics.counter(TAG + ".allowed");
+    private static final DialerMetrics.Counter SILENCED = DialerMetrics.counter(TAG + ".silenced");
+    private static final DialerMetrics.Counter REJECTED = DialerMetrics.counter(TAG + ".rejected");
+    private static final DialerMetrics.Gauge SPAM_TABLE_SIZE = DialerMetrics.gauge(TAG + ".spamTableSize");
+
+    private static final CallScreeningPolicy POLICY = new CallScreeningPolicy(SpamDatabase.shared());
+
+    private static final Runnable REFRESH_TASK = DialerScreeningService::refreshPolicy;
+
+    private static Handler refreshHandler;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Until the first snapshot is built, decisions use exact-match lookups only.
+        scheduleRefresh();
+    }
+
+    @Override
+    public void onScreenCall(Call.Details details) {
+        long start = System.nanoTime();
+        int decision = CallScreeningPolicy.ALLOW;
+        try {
+            if (isIncoming(details)) {
+                Uri handle = details.getHandle();
+                decision = POLICY.decide(handle != null ? handle.getSchemeSpecificPart() : null, this::isContact);
+            }
+        } catch (RuntimeException e) {
+            // Never turn a call away because screening failed.
+            Log.w(TAG, "Screening failed, allowing call", e);
+        }
+        respondToCall(details, buildResponse(decision));
+        SCREEN_LATENCY.recordSince(start);
+        scheduleRefresh();
+    }
+
+    private static boolean isIncoming(Call.Details details) {
+        // Before Q only incoming calls reach the screening service.
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+            || details.getCallDirection() == Call.Details.DIRECTION_INCOMING;
+    }
+
+    private static CallResponse buildResponse(int decision) {
+        CallResponse.Builder response = new CallResponse.Builder();
+        if (decision == CallScreeningPolicy.REJECT) {
+            REJECTED.increment();
+            // Kept in the call log so the user can see what was blocked.
+            response.setDisallowCall(true).setRejectCall(true).setSkipNotification(true);
+        } else if (decision == CallScreeningPolicy.SILENCE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            SILENCED.increment();
+            response.setSilenceCall(true);
+        } else {
+            // Silencing needs Q; earlier releases let suspected spam ring.
+            ALLOWED.increment();
+        }
+        return response.build();
+    }
+
+    private boolean isContact(String phoneNumber) {
+        DialpadIndex index = ContactIndex.get(this).current();
+        if (index != null) {
+            return index.findByNumber(phoneNumber) >= 0;
+        }
+        Uri uri = Uri.withAppendedPath(ContactsContract.PhoneLookup.CONTENT_FILTER_URI, Uri.encode(phoneNumber));
+        String[] projection = { ContactsContract.PhoneLookup._ID };
+        try (Cursor cursor = getContentResolver().query(uri, projection, null, null, null)) {
+            return cursor != null && cursor.moveToFirst();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void scheduleRefresh() {
+        Handler handler = refreshHandler();
+        handler.removeCallbacks(REFRESH_TASK);
+        handler.post(REFRESH_TASK);
+    }
+
+    private static synchronized Handler refreshHandler() {
+        if (refreshHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            refreshHandler = new Handler(thread.getLooper());
+        }
+        return refreshHandler;
+    }
+
+    private static void refreshPolicy() {
+        long start = System.nanoTime();
+        if (POLICY.refresh()) {
+            REFRESH_LATENCY.recordSince(start);
+            SPAM_TABLE_SIZE.set(POLICY.tableSize());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.dialerapp;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Full-text search over the mirrored calls, contact phones and recordings. DialerMirror
+// keeps the index current inside its sync transactions; docids are the source row id
+// times KIND_COUNT plus the kind, so each source can drop exactly its own entries.
+final class DialerSearchIndex {
+    static final int KIND_CALL = 0;
+    static final int KIND_CONTACT = 1;
+    static final int KIND_RECORDING = 2;
+    private static final int KIND_COUNT = 3;
+    static final String[] KIND_NAMES = { "call", "contact", "recording" };
+
+    // Matches read before ranking. Past this the best of the first MAX_CANDIDATES are
+    // returned (contacts first, then newest) and the result is flagged truncated.
+    private static final int MAX_CANDIDATES = 2000;
+
+    // Weights in DialerDatabase's search_index column order: kind, ref, title, number, terms, date.
+    private static final double[] COLUMN_WEIGHTS = { 0, 0, 2.0, 0, 1.0, 0 };
+    private static final double[] KIND_WEIGHTS = { 1.0, 1.5, 0.8 };
+
+    private static final Handler TIMEOUT_HANDLER = new Handler(Looper.getMainLooper());
+
+    private DialerSearchIndex() {
+    }
+
+    static final class Hit {
+        final String kind;
+        final String ref;
+        final String title;
+        final String number;
+        final long date;
+        final double score;
+
+        Hit(String kind, String ref, String title, String number, long date, double score) {
+            this.kind = kind;
+            this.ref = ref;
+            this.title = title;
+            this.number = number;
+            this.date = date;
+            this.score = score;
+        }
+    }
+
+    static final class Result {
+        final List<Hit> hits;
+        final boolean hasMore;
+        // Ranking only saw part of the matches, because of MAX_CANDIDATES or the time budget.
+        final boolean truncated;
+
+        Result(List<Hit> hits, boolean hasMore, boolean truncated) {
+            this.hits = hits;
+            this.hasMore = hasMore;
+            this.truncated = truncated;
+        }
+    }
+
+    // Compiled statements for one sync pass; use inside the caller's transaction.
+    static final class Writer {
+        private final SQLiteDatabase db;
+        private final SQLiteStatement insert;
+        private final SQLiteStatement delete;
+        private SQLiteStatement deleteRecording;
+
+        Writer(SQLiteDatabase db) {
+            this.db = db;
+            insert = db.compileStatement("INSERT INTO " + DialerDatabase.TABLE_SEARCH_INDEX
+                + " (docid, kind, ref, title, number, terms, date) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            delete = db.compileStatement("DELETE FROM " + DialerDatabase.TABLE_SEARCH_INDEX + " WHERE docid = ?");
+        }
+
+        // Replaces any entry for the same source row.
+        void put(int kind, long id, String ref, String title, String number, long date) {
+            remove(kind, id);
+            insert.bindLong(1, id * KIND_COUNT + kind);
+            insert.bindLong(2, kind);
+            bindNullableString(insert, 3, ref);
+            bindNullableString(insert, 4, title);
+            bindNullableString(insert, 5, number);
+            insert.bindString(6, SearchText.numberTerms(number));
+            insert.bindLong(7, date);
+            insert.executeInsert();
+        }
+
+        void remove(int kind, long id) {
+            delete.bindLong(1, id * KIND_COUNT + kind);
+            delete.executeUpdateDelete();
+        }
+
+        // Recordings are keyed by path; their docid comes from the recordings table rowid.
+        void removeRecording(String path) {
+            if (deleteRecording == null) {
+                deleteRecording = db.compileStatement("DELETE FROM " + DialerDatabase.TABLE_SEARCH_INDEX
+                    + " WHERE docid = (SELECT rowid * " + KIND_COUNT + " + " + KIND_RECORDING
+                    + " FROM " + DialerDatabase.TABLE_RECORDINGS + " WHERE path = ?)");
+            }
+            deleteRecording.bindString(1, path);
+            deleteRecording.executeUpdateDelete();
+        }
+
+        void close() {
+            insert.close();
+            delete.close();
+            if (deleteRecording != null) {
+                deleteRecording.close();
+            }
+        }
+    }
+
+    // kindMask has bit (1 << KIND_*) set for each kind to include. since/until bound the
+    // item date in epoch millis (0 for no bound) and leave out undated contacts when set.
+    static Result search(SQLiteDatabase db, String query, int kindMask, long since, long until,
+                         int limit, int offset, long budgetMs) {
+        String match = SearchText.matchExpression(query);
+        if (match == null || limit <= 0) {
+            return new Result(Collections.<Hit>emptyList(), false, false);
+        }
+
+        // Numeric filters are inlined: bound arguments would be compared as text.
+        StringBuilder sql = new StringBuilder("SELECT kind, ref, title, number, date, matchinfo(")
+            .append(DialerDatabase.TABLE_SEARCH_INDEX).append(", '").append(SearchRanker.MATCHINFO_FORMAT)
+            .append("') FROM ").append(DialerDatabase.TABLE_SEARCH_INDEX)
+            .append(" WHERE ").append(DialerDatabase.TABLE_SEARCH_INDEX).append(" MATCH ?");
+        StringBuilder kinds = new StringBuilder();
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            if ((kindMask & (1 << kind)) != 0) {
+                kinds.append(kinds.length() == 0 ? "" : ", ").append(kind);
+            }
+        }
+        if (kinds.length() == 0) {
+            return new Result(Collections.<Hit>emptyList(), false, false);
+        }
+        sql.append(" AND kind IN (").append(kinds).append(')');
+        if (since > 0) {
+            sql.append(" AND date >= ").append(since);
+        }
+        if (until > 0) {
+            sql.append(" AND date < ").append(until);
+        }
+        sql.append(" ORDER BY kind = ").append(KIND_CONTACT).append(" DESC, date DESC LIMIT ").append(MAX_CANDIDATES + 1);
+
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        long now = System.currentTimeMillis();
+        List<Hit> hits = new ArrayList<>();
+        boolean truncated = false;
+        CancellationSignal signal = new CancellationSignal();
+        Runnable cancel = signal::cancel;
+        TIMEOUT_HANDLER.postDelayed(cancel, budgetMs);
+        try (Cursor cursor = db.rawQuery(sql.toString(), new String[] { match }, signal)) {
+            while (cursor.moveToNext()) {
+                if (hits.size() == MAX_CANDIDATES || System.nanoTime() > deadline) {
+                    truncated = true;
+                    break;
+                }
+                int kind = cursor.getInt(0);
+                long date = cursor.getLong(4);
+                double score = KIND_WEIGHTS[kind]
+                    * SearchRanker.score(SearchRanker.decodeMatchinfo(cursor.getBlob(5)), COLUMN_WEIGHTS, date, now);
+                hits.add(new Hit(KIND_NAMES[kind], cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3), date, score));
+            }
+        } catch (OperationCanceledException e) {
+            // Out of time while SQLite was still filling the window; rank what was read.
+            truncated = true;
+        } finally {
+            TIMEOUT_HANDLER.removeCallbacks(cancel);
+        }
+
+        Collections.sort(hits, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(b.date, a.date);
+        });
+        int from = Math.min(offset, hits.size());
+        int to = Math.min(from + limit, hits.size());
+        return new Result(new ArrayList<>(hits.subList(from, to)), to < hits.size() || truncated, truncated);
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dialerapp;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.Arguments;
+
+public class DialerSearchModule extends ReactContextBaseJavaModule {
+    static final String NAME = "DialerSearch";
+    private static final DialerMetrics.Histogram SEARCH_LATENCY =
+        DialerMetrics.latency(NAME + ".search");
+    private static final DialerMetrics.Histogram SEARCH_ROWS =
+        DialerMetrics.histogram(NAME + ".search.rows", DialerMetrics.UNIT_ROWS);
+    private static final DialerMetrics.Counter SEARCH_TRUNCATED =
+        DialerMetrics.counter(NAME + ".search.truncated");
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final long DEFAULT_TIMEOUT_MS = 250;
+
+    public DialerSearchModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // Options: limit, offset, kinds ("call" | "contact" | "recording"), since and until
+    // (epoch millis), timeoutMs. Results are ranked best first; page with offset.
+    @ReactMethod
+    public void search(String query, ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
+        try {
+            int limit = options.hasKey("limit") ? options.getInt("limit") : DEFAULT_PAGE_SIZE;
+            int offset = options.hasKey("offset") ? options.getInt("offset") : 0;
+            long since = options.hasKey("since") ? (long) options.getDouble("since") : 0;
+            long until = options.hasKey("until") ? (long) options.getDouble("until") : 0;
+            long timeoutMs = options.hasKey("timeoutMs") ? (long) options.getDouble("timeoutMs") : DEFAULT_TIMEOUT_MS;
+
+            int kindMask = ~0;
+            if (options.hasKey("kinds")) {
+                kindMask = 0;
+                ReadableArray kinds = options.getArray("kinds");
+                for (int i = 0; i < kinds.size(); i++) {
+                    int kind = kindIndex(kinds.getString(i));
+                    if (kind < 0) {
+                        promise.reject("INVALID_SEARCH_KIND", "Unknown search kind: " + kinds.getString(i));
+                        return;
+                    }
+                    kindMask |= 1 << kind;
+                }
+            }
+
+            DialerMirror mirror = DialerMirror.get(getReactApplicationContext());
+            // Also schedules the first syncs if permissions have been granted since startup.
+            boolean indexing = !mirror.isCallLogReady() | !mirror.isContactsReady();
+            DialerSearchIndex.Result result = mirror.search(query, kindMask, since, until, limit, offset, timeoutMs);
+
+            WritableArray hits = Arguments.createArray();
+            for (DialerSearchIndex.Hit hit : result.hits) {
+                WritableMap map = Arguments.createMap();
+                map.putString("kind", hit.kind);
+                map.putString("id", hit.ref);
+                map.putString("title", hit.title);
+                map.putString("number", hit.number);
+                map.putDouble("date", hit.date);
+                map.putDouble("score", hit.score);
+                hits.pushMap(map);
+            }
+            if (result.truncated) {
+                SEARCH_TRUNCATED.increment();
+            }
+            SEARCH_ROWS.record(result.hits.size());
+
+            WritableMap response = Arguments.createMap();
+            response.putArray("results", hits);
+            response.putBoolean("hasMore", result.hasMore);
+            response.putBoolean("truncated", result.truncated);
+            response.putBoolean("indexing", indexing);
+            promise.resolve(response);
+        } catch (Exception e) {
+            promise.reject("SEARCH_ERROR", e.getMessage());
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
+        }
+    }
+
+    private static int kindIndex(String name) {
+        for (int kind = 0; kind < DialerSearchIndex.KIND_NAMES.length; kind++) {
+            if (DialerSearchIndex.KIND_NAMES[kind].equals(name)) {
+                return kind;
+            }
+        }
+        return -1;
+    }
+}
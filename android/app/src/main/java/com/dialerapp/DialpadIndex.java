@@ -0,0 +1,188 @@
+package com.dialerapp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable in-memory index over contact phone rows, built once per contacts
+// change. Serves caller-name lookups and T9/number dialpad matching without
+// touching the contacts provider.
+final class DialpadIndex {
+    private static final char[] T9 = {
+        '2', '2', '2', '3', '3', '3', '4', '4', '4', '5', '5', '5', '6',
+        '6', '6', '7', '7', '7', '7', '8', '8', '8', '9', '9', '9', '9'
+    };
+
+    // Lower rank sorts first.
+    private static final int RANK_NAME_PREFIX = 0;
+    private static final int RANK_NAME_WORD = 1;
+    private static final int RANK_NUMBER_PREFIX = 2;
+    private static final int RANK_NUMBER_CONTAINS = 3;
+
+    final long[] contactIds;
+    final String[] names;
+    final String[] numbers;
+    private final String[] numberDigits;
+    private final String[] nameDigits;
+    private final long[] matchKeys;
+    private final Map<Long, Integer> rowsByNumber;
+
+    DialpadIndex(long[] contactIds, String[] names, String[] numbers) {
+        this.contactIds = contactIds;
+        this.names = names;
+        this.numbers = numbers;
+        this.numberDigits = new String[numbers.length];
+        this.nameDigits = new String[names.length];
+        this.matchKeys = new long[numbers.length];
+        this.rowsByNumber = new HashMap<>(numbers.length * 2);
+        for (int i = 0; i < numbers.length; i++) {
+            numberDigits[i] = digitsOnly(numbers[i]);
+            nameDigits[i] = toT9(names[i]);
+            long key = PhoneNumbers.matchKey(numbers[i]);
+            matchKeys[i] = key;
+            if (key != PhoneNumbers.NO_KEY && !rowsByNumber.containsKey(key)) {
+                rowsByNumber.put(key, i);
+            }
+        }
+    }
+
+    static DialpadIndex empty() {
+        return new DialpadIndex(new long[0], new String[0], new String[0]);
+    }
+
+    int size() {
+        return numbers.length;
+    }
+
+    // Row for the number, or -1.
+    int findByNumber(String phoneNumber) {
+        Integer row = rowsByNumber.get(PhoneNumbers.matchKey(phoneNumber));
+        return row != null ? row : -1;
+    }
+
+    // Rows matching a dialpad digit string, best first, at most limit of them.
+    int[] search(String digits, int limit) {
+        return search(digits, limit, null);
+    }
+
+    // Orders by match rank, then by how often and recently the number was called when
+    // frecency is given, then by the contacts' display-name order.
+    int[] search(String digits, int limit, FrecencyIndex frecency) {
+        String query = digitsOnly(digits);
+        if (query.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        // Per match rather than per row: a few digits already rule out most contacts.
+        Matches matches = new Matches();
+        TopRows top = new TopRows(limit, (a, b) -> {
+            if (matches.ranks[a] != matches.ranks[b]) {
+                return matches.ranks[a] < matches.ranks[b];
+            }
+            if (matches.scores[a] != matches.scores[b]) {
+                return matches.scores[a] > matches.scores[b];
+            }
+            return matches.rows[a] < matches.rows[b];
+        });
+        for (int row = 0; row < numbers.length; row++) {
+            int rank = rank(row, query);
+            if (rank >= 0) {
+                top.offer(matches.add(row, rank, frecency != null ? frecency.rankingScore(matchKeys[row]) : 0));
+            }
+        }
+        int[] best = top.drain();
+        for (int i = 0; i < best.length; i++) {
+            best[i] = matches.rows[best[i]];
+        }
+        return best;
+    }
+
+    // Row for a PhoneNumbers.matchKey, or -1.
+    int findByMatchKey(long matchKey) {
+        Integer row = rowsByNumber.get(matchKey);
+        return row != null ? row : -1;
+    }
+
+    private int rank(int row, String query) {
+        String t9 = nameDigits[row];
+        if (t9.startsWith(query)) {
+            return RANK_NAME_PREFIX;
+        }
+        // Word starts are marked with a space in the T9 form.
+        int space = t9.indexOf(' ');
+        while (space >= 0) {
+            if (t9.startsWith(query, space + 1)) {
+                return RANK_NAME_WORD;
+            }
+            space = t9.indexOf(' ', space + 1);
+        }
+        String number = numberDigits[row];
+        if (number.startsWith(query)) {
+            return RANK_NUMBER_PREFIX;
+        }
+        if (number.contains(query)) {
+            return RANK_NUMBER_CONTAINS;
+        }
+        return -1;
+    }
+
+    static String toT9(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder t9 = new StringBuilder(name.length());
+        boolean wordStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                if (wordStart && t9.length() > 0) {
+                    t9.append(' ');
+                }
+                t9.append(T9[c - 'a']);
+                wordStart = false;
+            } else if (c >= '0' && c <= '9') {
+                if (wordStart && t9.length() > 0) {
+                    t9.append(' ');
+                }
+                t9.append(c);
+                wordStart = false;
+            } else {
+                wordStart = true;
+            }
+        }
+        return t9.toString();
+    }
+
+    private static String digitsOnly(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static final class Matches {
+        int[] rows = new int[64];
+        int[] ranks = new int[64];
+        double[] scores = new double[64];
+        int count;
+
+        int add(int row, int rank, double score) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+                ranks = Arrays.copyOf(ranks, count * 2);
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            rows[count] = row;
+            ranks[count] = rank;
+            scores[count] = score;
+            return count++;
+        }
+    }
+}
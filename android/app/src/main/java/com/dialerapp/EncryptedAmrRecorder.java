@@ -0,0 +1,155 @@
+package com.dialerapp;
+
+import android.media.MediaRecorder;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+// Recorder for RecordingStorage.OUTPUT_MODE_ENCRYPTED. MediaRecorder writes raw AMR-NB
+// (a streaming format, so it needs no seekable output) into a pipe, and a pump thread
+// seals what comes out into outputPath with SealedRecording: plaintext audio only ever
+// exists in memory, and no second pass over the file is needed. API 23+.
+class EncryptedAmrRecorder implements Recorder {
+    private static final String TAG = "EncryptedAmrRecorder";
+    private static final long PUMP_JOIN_TIMEOUT_MS = 5000;
+
+    private static final DialerMetrics.Histogram SEAL_LATENCY = DialerMetrics.latency(TAG + ".seal");
+    private static final DialerMetrics.Histogram SEALED_BYTES =
+        DialerMetrics.histogram(TAG + ".sealedBytes", DialerMetrics.UNIT_BYTES);
+    private static final DialerMetrics.Counter FAILURES = DialerMetrics.counter(TAG + ".failures");
+
+    private final String outputPath;
+    private final int audioSource;
+    private MediaRecorder mediaRecorder;
+    private ParcelFileDescriptor writeSide;
+    private Thread pump;
+    private volatile IOException pumpFailure;
+
+    EncryptedAmrRecorder(String outputPath, int audioSource) {
+        this.outputPath = outputPath;
+        this.audioSource = audioSource;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        RecordingKeys keys = RecordingKeys.get();
+        RecordingKeys.DataKey dataKey;
+        try {
+            dataKey = keys.newDataKey();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to create a recording key", e);
+        }
+        OutputStream sealed = new SealedRecording.Writer(new FileOutputStream(outputPath), dataKey.key,
+            dataKey.wrapped, SealedRecording.CHUNK_BYTES, keys.random);
+        ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            sealed.close();
+            throw e;
+        }
+        // From here on release() ends the pump, which closes both streams.
+        writeSide = pipe[1];
+        InputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pipe[0]);
+        pump = new Thread(() -> pump(in, sealed), TAG);
+        pump.start();
+
+        mediaRecorder = new MediaRecorder();
+        MediaRecorderAdapter.setAudioSource(mediaRecorder, audioSource);
+        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.AMR_NB);
+        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
+        mediaRecorder.setOutputFile(writeSide.getFileDescriptor());
+        mediaRecorder.prepare();
+    }
+
+    @Override
+    public void start() {
+        mediaRecorder.start();
+    }
+
+    // Ends the stream: once the recorder has let go of the pipe the pump reads EOF and
+    // seals the last chunk, and only then is the file complete.
+    @Override
+    public void stop() {
+        try {
+            mediaRecorder.stop();
+        } finally {
+            mediaRecorder.release();
+            mediaRecorder = null;
+            closeWriteSide();
+        }
+        joinPump();
+        if (pumpFailure != null) {
+            throw new IllegalStateException("Failed to seal " + outputPath + ": " + pumpFailure.getMessage(),
+                pumpFailure);
+        }
+    }
+
+    @Override
+    public void release() {
+        if (mediaRecorder != null) {
+            mediaRecorder.release();
+            mediaRecorder = null;
+        }
+        closeWriteSide();
+        joinPump();
+    }
+
+    @Override
+    public int getMaxAmplitude() {
+        return mediaRecorder != null ? mediaRecorder.getMaxAmplitude() : 0;
+    }
+
+    private void pump(InputStream in, OutputStream sealed) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        byte[] buffer = new byte[SealedRecording.CHUNK_BYTES];
+        long total = 0;
+        try (InputStream source = in; OutputStream sink = sealed) {
+            int read;
+            while ((read = source.read(buffer)) >= 0) {
+                long start = System.nanoTime();
+                sink.write(buffer, 0, read);
+                SEAL_LATENCY.recordSince(start);
+                total += read;
+            }
+        } catch (IOException e) {
+            FAILURES.increment();
+            pumpFailure = e;
+            Log.w(TAG, "Sealing " + outputPath + " failed", e);
+        } finally {
+            SEALED_BYTES.record(total);
+        }
+    }
+
+    private void closeWriteSide() {
+        if (writeSide != null) {
+            try {
+                writeSide.close();
+            } catch (IOException e) {
+                // The pump still sees EOF once the recorder's copy is closed
+            }
+            writeSide = null;
+        }
+    }
+
+    private void joinPump() {
+        if (pump == null) {
+            return;
+        }
+        try {
+            pump.join(PUMP_JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pump.isAlive() && pumpFailure == null) {
+            pumpFailure = new IOException("Timed out waiting for the recording stream to end");
+        }
+        pump = null;
+    }
+}
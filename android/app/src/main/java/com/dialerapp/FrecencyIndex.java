@@ -0,0 +1,201 @@
+package com.dialerapp;
+
+import java.util.Arrays;
+
+// How often and how recently each number was called, as an exponentially decayed score
+// per PhoneNumbers.matchKey. Scores use forward decay: a call adds its weight scaled by
+// 2^((date - epoch) / HALF_LIFE_MILLIS) and is never touched again, and every score
+// shares the same decay to "now", so ranking needs no rescan as time passes. Rows are
+// added incrementally; the map is open addressing over primitive arrays. Not thread-safe.
+final class FrecencyIndex {
+    static final long HALF_LIFE_MILLIS = 14L * 24 * 60 * 60 * 1000;
+
+    // CallLog.Calls.TYPE values.
+    static final int TYPE_INCOMING = 1;
+    static final int TYPE_OUTGOING = 2;
+    static final int TYPE_MISSED = 3;
+
+    // Rebase before the scale factors approach double's range (2^1023).
+    private static final double MAX_EXPONENT = 512;
+    private static final long EMPTY = PhoneNumbers.NO_KEY;
+
+    private long[] keys = new long[64];
+    private double[] scores = new double[64];
+    private long[] lastDates = new long[64];
+    private int[] counts = new int[64];
+    private int size;
+    private long epoch = Long.MIN_VALUE;
+    private long lastId;
+    private int rowCount;
+
+    FrecencyIndex() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    // An independent copy to extend while readers keep using this one.
+    FrecencyIndex copy() {
+        FrecencyIndex copy = new FrecencyIndex();
+        copy.keys = keys.clone();
+        copy.scores = scores.clone();
+        copy.lastDates = lastDates.clone();
+        copy.counts = counts.clone();
+        copy.size = size;
+        copy.epoch = epoch;
+        copy.lastId = lastId;
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    // Reads call-log rows (CallLogRowMapper columns) in _id order; returns the number read.
+    int consume(RowCursor rows) {
+        int read = 0;
+        while (rows.moveToNext()) {
+            read++;
+            long id = rows.getLong(CallLogRowMapper.COLUMN_ID);
+            add(PhoneNumbers.matchKey(rows.getString(CallLogRowMapper.COLUMN_NUMBER)),
+                rows.getInt(CallLogRowMapper.COLUMN_TYPE), rows.getLong(CallLogRowMapper.COLUMN_DATE),
+                rows.getLong(CallLogRowMapper.COLUMN_DURATION));
+            lastId = Math.max(lastId, id);
+        }
+        rowCount += read;
+        return read;
+    }
+
+    // Highest call-log _id consumed; the next batch starts after it.
+    long lastId() {
+        return lastId;
+    }
+
+    // Call-log rows consumed, scored or not. Fewer rows up to lastId() in the provider
+    // means some were deleted and the index has to be rebuilt.
+    int rowCount() {
+        return rowCount;
+    }
+
+    void add(long matchKey, int type, long date, long duration) {
+        double weight = weight(type, duration);
+        if (matchKey == PhoneNumbers.NO_KEY || weight == 0) {
+            return;
+        }
+        if (epoch == Long.MIN_VALUE) {
+            epoch = date;
+        } else if ((double) (date - epoch) / HALF_LIFE_MILLIS > MAX_EXPONENT) {
+            rebase(date);
+        }
+        int slot = slot(matchKey);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = matchKey;
+            if (++size * 2 > keys.length) {
+                grow();
+                slot = slot(matchKey);
+            }
+        }
+        scores[slot] += weight * Math.pow(2, (double) (date - epoch) / HALF_LIFE_MILLIS);
+        lastDates[slot] = Math.max(lastDates[slot], date);
+        counts[slot]++;
+    }
+
+    // Decayed score at now: a call made at now with weight 1 scores 1.
+    double score(long matchKey, long now) {
+        int slot = slot(matchKey);
+        return keys[slot] == EMPTY ? 0 : decay(scores[slot], now);
+    }
+
+    int callCount(long matchKey) {
+        int slot = slot(matchKey);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    long lastDate(long matchKey) {
+        int slot = slot(matchKey);
+        return keys[slot] == EMPTY ? 0 : lastDates[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    interface KeyFilter {
+        boolean accept(long matchKey);
+    }
+
+    // The limit highest-scoring numbers that filter accepts (all if null), best first.
+    long[] top(int limit, KeyFilter filter) {
+        TopRows top = new TopRows(limit, (a, b) -> scores[a] > scores[b]);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && (filter == null || filter.accept(keys[slot]))) {
+                top.offer(slot);
+            }
+        }
+        int[] slots = top.drain();
+        long[] result = new long[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            result[i] = keys[slots[i]];
+        }
+        return result;
+    }
+
+    // Comparable across numbers at any single point in time, unlike score(), without the
+    // decay to a particular now.
+    double rankingScore(long matchKey) {
+        int slot = slot(matchKey);
+        return keys[slot] == EMPTY ? 0 : scores[slot];
+    }
+
+    // Answered and placed calls count fully, plus a little for talking longer; missed
+    // calls a quarter; rejected, blocked and voicemail not at all.
+    private static double weight(int type, long durationSeconds) {
+        switch (type) {
+            case TYPE_INCOMING:
+            case TYPE_OUTGOING:
+                return durationSeconds >= 60 ? 1.25 : 1.0;
+            case TYPE_MISSED:
+                return 0.25;
+            default:
+                return 0;
+        }
+    }
+
+    private double decay(double score, long now) {
+        return score * Math.pow(2, (double) (epoch - now) / HALF_LIFE_MILLIS);
+    }
+
+    private void rebase(long newEpoch) {
+        double factor = Math.pow(2, (double) (epoch - newEpoch) / HALF_LIFE_MILLIS);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] *= factor;
+        }
+        epoch = newEpoch;
+    }
+
+    private int slot(long matchKey) {
+        int mask = keys.length - 1;
+        long hash = matchKey * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != matchKey) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldScores = scores;
+        long[] oldDates = lastDates;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        scores = new double[keys.length];
+        lastDates = new long[keys.length];
+        counts = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                scores[slot] = oldScores[i];
+                lastDates[slot] = oldDates[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
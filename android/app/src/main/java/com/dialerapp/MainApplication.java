@@ -1,16 +1,23 @@
 package com.dialerapp;
 
 import android.app.Application;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 import com.facebook.react.PackageList;
 import com.facebook.react.ReactApplication;
 import com.facebook.react.ReactNativeHost;
 import com.facebook.react.ReactPackage;
+import com.facebook.react.bridge.ReactMarker;
+import com.facebook.react.bridge.ReactMarkerConstants;
 import com.facebook.react.defaults.DefaultNewArchitectureEntryPoint;
 import com.facebook.react.defaults.DefaultReactNativeHost;
 import com.facebook.soloader.SoLoader;
 import java.util.List;
 
 public class MainApplication extends Application implements ReactApplication {
+  private static final String TAG = "DialerStartup";
 
   private final ReactNativeHost mReactNativeHost =
       new DefaultReactNativeHost(this) {
@@ -51,9 +58,28 @@ public class MainApplication extends Application implements ReactApplication {
   @Override
   public void onCreate() {
     super.onCreate();
+    logTimeToFirstContent();
     SoLoader.init(this, /* native exopackage */ false);
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       DefaultNewArchitectureEntryPoint.load();
     }
   }
+
+  // Logs process start -> first React content on screen, for comparing startup changes
+  // (e.g. `adb logcat -s DialerStartup` across cold starts).
+  private void logTimeToFirstContent() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+      return;
+    }
+    ReactMarker.addListener(new ReactMarker.MarkerListener() {
+      @Override
+      public void logMarker(ReactMarkerConstants name, String tag, int instanceKey) {
+        if (name == ReactMarkerConstants.CONTENT_APPEARED) {
+          ReactMarker.removeListener(this);
+          long elapsed = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+          Log.i(TAG, "Time to first content: " + elapsed + " ms");
+        }
+      }
+    });
+  }
 }
@@ -0,0 +1,113 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.media.MediaRecorder;
+
+import java.io.File;
+import java.io.IOException;
+
+class MediaRecorderAdapter implements Recorder {
+    private static final DialerMetrics.Counter RECOVERED_RECORDINGS =
+        DialerMetrics.counter("RecordingStorage.recoveredRecordings");
+
+    private static RecordingSessionManager sharedManager;
+
+    private final String outputPath;
+    private final int audioSource;
+    private MediaRecorder mediaRecorder;
+
+    MediaRecorderAdapter(String outputPath, int audioSource) {
+        this.outputPath = outputPath;
+        this.audioSource = audioSource;
+    }
+
+    // Process-wide manager shared by CallRecordingModule and CallRecordingService, created
+    // on first use rather than at startup. Creating it queues recovery of segmented
+    // recordings cut off by a crash.
+    static synchronized RecordingSessionManager getSessionManager(Context context) {
+        if (sharedManager == null) {
+            Context appContext = context.getApplicationContext();
+            sharedManager = new RecordingSessionManager(outputPath -> {
+                int source = AudioSourceProbe.getPreferredSource(appContext);
+                if (outputPath.endsWith(RecordingStorage.SEGMENTED_EXTENSION)) {
+                    return new SegmentedAmrRecorder(outputPath,
+                        RecordingStorage.getSegmentsDir(appContext, outputPath), source);
+                }
+                if (outputPath.endsWith(RecordingStorage.ENCRYPTED_EXTENSION)) {
+                    return new EncryptedAmrRecorder(outputPath, source);
+                }
+                return new MediaRecorderAdapter(outputPath, source);
+            });
+            sharedManager.setCompletionListener(session -> RecordingAnalyzer.enqueue(new File(session.outputPath)));
+            // Runs before any recording can be prepared, so every segment dir found is orphaned.
+            sharedManager.execute(() -> {
+                for (File recovered : AmrSegments.recover(RecordingStorage.getSegmentsRoot(appContext),
+                    RecordingStorage.getRecordingsDir(appContext))) {
+                    RECOVERED_RECORDINGS.increment();
+                    RecordingAnalyzer.enqueue(recovered);
+                }
+            });
+        }
+        return sharedManager;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        mediaRecorder = new MediaRecorder();
+
+        setAudioSource(mediaRecorder, audioSource);
+
+        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
+        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
+        mediaRecorder.setOutputFile(outputPath);
+        mediaRecorder.prepare();
+    }
+
+    static void setAudioSource(MediaRecorder mediaRecorder, int audioSource) {
+        if (audioSource != AudioSourceProbe.SOURCE_UNKNOWN) {
+            mediaRecorder.setAudioSource(audioSource);
+        } else {
+            setAudioSourceWithFallback(mediaRecorder);
+        }
+    }
+
+    // Used until AudioSourceProbe has found a working source on this device.
+    private static void setAudioSourceWithFallback(MediaRecorder mediaRecorder) {
+        // Configure MediaRecorder with fallback options for different OEMs
+        try {
+            // Primary configuration (works on most devices)
+            mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_CALL);
+        } catch (Exception e) {
+            try {
+                // Fallback 1: Use MIC source
+                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
+            } catch (Exception e2) {
+                // Fallback 2: Use VOICE_COMMUNICATION
+                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        mediaRecorder.start();
+    }
+
+    @Override
+    public void stop() {
+        mediaRecorder.stop();
+    }
+
+    @Override
+    public void release() {
+        if (mediaRecorder != null) {
+            mediaRecorder.release();
+            mediaRecorder = null;
+        }
+    }
+
+    @Override
+    public int getMaxAmplitude() {
+        return mediaRecorder != null ? mediaRecorder.getMaxAmplitude() : 0;
+    }
+}
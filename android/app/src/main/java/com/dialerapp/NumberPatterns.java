@@ -0,0 +1,26 @@
+package com.dialerapp;
+
+// Labels numbers that can be recognised from their prefix alone.
+final class NumberPatterns {
+    static final String TOLL_FREE = "Toll-free number";
+    static final String PREMIUM_RATE = "Premium rate number";
+
+    private NumberPatterns() {
+    }
+
+    // Returns a label, or null when the number matches no known pattern.
+    static String identify(String phoneNumber) {
+        // Simple pattern matching for demo
+        if (phoneNumber.startsWith("+1800") || phoneNumber.startsWith("+1888") ||
+            phoneNumber.startsWith("+1877") || phoneNumber.startsWith("+1866")) {
+            return TOLL_FREE;
+        }
+
+        if (phoneNumber.startsWith("+1900")) {
+            return PREMIUM_RATE;
+        }
+
+        // Could add more sophisticated pattern matching
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Process-wide PrefixTable for caller location labels. The table source ships as an
+// asset and is compiled into filesDir once per install or update, then memory-mapped,
+// so the data is paged in on demand and shared with the page cache instead of the heap.
+class NumberPrefixes {
+    private static final String TAG = "NumberPrefixes";
+    private static final String ASSET_NAME = "number_prefixes.txt";
+    private static final String TABLE_NAME = "number_prefixes.bin";
+
+    private static final DialerMetrics.Histogram LOAD_LATENCY = DialerMetrics.latency(TAG + ".load");
+    private static final DialerMetrics.Gauge TABLE_BYTES = DialerMetrics.gauge(TAG + ".tableBytes");
+
+    private static NumberPrefixes instance;
+
+    private final Context context;
+    private final List<Runnable> loadListeners = new ArrayList<>();
+    private volatile PrefixTable table;
+    // The user's region, set before table is published: its calling code (null if not
+    // known) as digits and as a number, and its trunk prefix.
+    private String homeCode;
+    private long homeCodeValue;
+    private String trunkPrefix;
+
+    private NumberPrefixes(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    static synchronized NumberPrefixes get(Context context) {
+        if (instance == null) {
+            NumberPrefixes prefixes = new NumberPrefixes(context);
+            HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            new Handler(thread.getLooper()).post(() -> {
+                prefixes.load();
+                thread.quitSafely();
+            });
+            instance = prefixes;
+        }
+        return instance;
+    }
+
+    // Null until the table is mapped, and for numbers no prefix covers. Domestic numbers,
+    // national or in E.164 form, only get a region or carrier block's label, never just the
+    // home country's. Allocation-free.
+    String label(String phoneNumber) {
+        PrefixTable current = table;
+        if (current == null || phoneNumber == null || phoneNumber.isEmpty()) {
+            return null;
+        }
+        String code = homeCode;
+        if (phoneNumber.startsWith("+")) {
+            return code != null && PhoneNumbers.startsWithDigits(phoneNumber, code)
+                ? current.lookupBelowCountryCode(phoneNumber)
+                : current.lookup(phoneNumber);
+        }
+        if (code == null) {
+            return null;
+        }
+        return current.lookupNational(homeCodeValue, code.length(), phoneNumber,
+            PhoneNumbers.nationalStart(phoneNumber, trunkPrefix));
+    }
+
+    // Null until the table is mapped.
+    PrefixTable table() {
+        return table;
+    }
+
+    // Runs listener once the table is mapped: right away if it already is, otherwise on
+    // the loading thread. Never runs if the table fails to load.
+    void whenLoaded(Runnable listener) {
+        synchronized (loadListeners) {
+            if (table == null) {
+                loadListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            homeCode = PhoneNumbers.callingCode(currentCountryIso());
+            if (homeCode != null) {
+                homeCodeValue = Long.parseLong(homeCode);
+                trunkPrefix = PhoneNumbers.trunkPrefix(homeCode);
+            }
+            File file = new File(context.getFilesDir(), TABLE_NAME);
+            long installed = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            if (!file.exists() || file.lastModified() < installed) {
+                compile(file);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                // The mapping outlives the channel.
+                table = PrefixTable.open(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+            } catch (IOException e) {
+                // Recompiled on the next launch.
+                file.delete();
+                throw e;
+            }
+            TABLE_BYTES.set(file.length());
+            List<Runnable> listeners;
+            synchronized (loadListeners) {
+                listeners = new ArrayList<>(loadListeners);
+                loadListeners.clear();
+            }
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        } catch (IOException | PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Prefix table unavailable", e);
+        } finally {
+            LOAD_LATENCY.recordSince(start);
+        }
+    }
+
+    private void compile(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (BufferedReader source = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(ASSET_NAME), StandardCharsets.UTF_8));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            PrefixTable.compile(source, out);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    // Region for reading national numbers: the network's country, then the SIM's, then the locale's.
+    private String currentCountryIso() {
+        TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+        String iso = telephonyManager != null ? telephonyManager.getNetworkCountryIso() : null;
+        if ((iso == null || iso.isEmpty()) && telephonyManager != null) {
+            iso = telephonyManager.getSimCountryIso();
+        }
+        if (iso == null || iso.isEmpty()) {
+            iso = Locale.getDefault().getCountry();
+        }
+        return iso.toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,18 +1,31 @@
 package com.dialerapp;
 
 import android.Manifest;
-import android.content.pm.PackageManager;
+import android.app.Activity;
 import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.modules.core.PermissionAwareActivity;
+
+import java.util.List;
 
 public class PermissionManagerModule extends ReactContextBaseJavaModule {
+    static final String NAME = "PermissionManager";
+    static final String EVENT_PERMISSIONS_CHANGED = "PermissionsChanged";
+    private static final DialerMetrics.Histogram REQUEST_ALL_PERMISSIONS_LATENCY =
+        DialerMetrics.latency(NAME + ".requestAllPermissions");
+    private static final DialerMetrics.Histogram CHECK_PERMISSIONS_LATENCY =
+        DialerMetrics.latency(NAME + ".checkPermissions");
+
+    private static final int REQUEST_CODE = 1001;
+
     private static final String[] REQUIRED_PERMISSIONS = {
         Manifest.permission.CALL_PHONE,
         Manifest.permission.READ_CONTACTS,
@@ -23,53 +36,117 @@ public class PermissionManagerModule extends ReactContextBaseJavaModule {
         Manifest.permission.PROCESS_OUTGOING_CALLS
     };
 
+    private final PermissionState.Listener permissionListener = this::emitPermissionsChanged;
+    private PermissionState permissionState;
+    private boolean forwardingEvents;
+
     public PermissionManagerModule(ReactApplicationContext reactContext) {
         super(reactContext);
     }
 
     @Override
     public String getName() {
-        return "PermissionManager";
+        return NAME;
+    }
+
+    @Override
+    public void invalidate() {
+        if (permissionState != null) {
+            permissionState.removeListener(permissionListener);
+        }
+        super.invalidate();
+    }
+
+    private PermissionState getPermissionState() {
+        if (permissionState == null) {
+            permissionState = PermissionState.get(getReactApplicationContext());
+        }
+        return permissionState;
     }
 
     @ReactMethod
     public void requestAllPermissions(Promise promise) {
+        long start = System.nanoTime();
         try {
+            PermissionState.Snapshot snapshot = getPermissionState().snapshot();
             boolean allGranted = true;
             for (String permission : REQUIRED_PERMISSIONS) {
-                if (ContextCompat.checkSelfPermission(getCurrentActivity(), permission) 
-                    != PackageManager.PERMISSION_GRANTED) {
+                if (!snapshot.isGranted(permission)) {
                     allGranted = false;
                     break;
                 }
             }
 
             if (!allGranted) {
-                ActivityCompat.requestPermissions(
-                    getCurrentActivity(),
-                    REQUIRED_PERMISSIONS,
-                    1001
-                );
+                Activity activity = getCurrentActivity();
+                if (activity instanceof PermissionAwareActivity) {
+                    // The result refreshes the cache, which emits EVENT_PERMISSIONS_CHANGED.
+                    ((PermissionAwareActivity) activity).requestPermissions(REQUIRED_PERMISSIONS, REQUEST_CODE,
+                        (requestCode, permissions, grantResults) -> {
+                            getPermissionState().refresh();
+                            return true;
+                        });
+                } else {
+                    ActivityCompat.requestPermissions(activity, REQUIRED_PERMISSIONS, REQUEST_CODE);
+                }
             }
 
             promise.resolve(allGranted);
         } catch (Exception e) {
             promise.reject("PERMISSION_ERROR", e.getMessage());
+        } finally {
+            REQUEST_ALL_PERMISSIONS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void checkPermissions(Promise promise) {
+        long start = System.nanoTime();
         try {
+            PermissionState.Snapshot snapshot = getPermissionState().snapshot();
             WritableMap permissions = Arguments.createMap();
             for (String permission : REQUIRED_PERMISSIONS) {
-                boolean granted = ContextCompat.checkSelfPermission(
-                    getCurrentActivity(), permission) == PackageManager.PERMISSION_GRANTED;
-                permissions.putBoolean(permission, granted);
+                permissions.putBoolean(permission, snapshot.isGranted(permission));
             }
             promise.resolve(permissions);
         } catch (Exception e) {
             promise.reject("PERMISSION_CHECK_ERROR", e.getMessage());
+        } finally {
+            CHECK_PERMISSIONS_LATENCY.recordSince(start);
+        }
+    }
+
+    // Required by NativeEventEmitter; changes are only forwarded once JS subscribes.
+    @ReactMethod
+    public void addListener(String eventName) {
+        if (!forwardingEvents) {
+            forwardingEvents = true;
+            getPermissionState().addListener(permissionListener);
+        }
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    private void emitPermissionsChanged(PermissionState.Snapshot snapshot, List<String> changed) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (!context.hasActiveReactInstance()) {
+            return;
+        }
+
+        WritableMap permissions = Arguments.createMap();
+        for (String permission : PermissionState.TRACKED) {
+            permissions.putBoolean(permission, snapshot.isGranted(permission));
+        }
+        WritableArray changedPermissions = Arguments.createArray();
+        for (String permission : changed) {
+            changedPermissions.pushString(permission);
         }
+        WritableMap event = Arguments.createMap();
+        event.putMap("permissions", permissions);
+        event.putArray("changed", changedPermissions);
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(EVENT_PERMISSIONS_CHANGED, event);
     }
 }
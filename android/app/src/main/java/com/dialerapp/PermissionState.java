@@ -0,0 +1,194 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Process-wide view of the runtime permissions the dialer uses. Readers only touch a
+// volatile immutable snapshot; the platform is asked again whenever an activity comes to
+// the foreground and after each permission request, on a background thread.
+//
+// A revoked permission kills the process, so a grant seen here stays true. A denial can
+// go stale while no activity is resumed (granted from Settings, read by a service), so
+// isGranted() rechecks a permission the snapshot shows as denied.
+class PermissionState {
+    private static final String TAG = "PermissionState";
+
+    private static final DialerMetrics.Histogram REFRESH_LATENCY = DialerMetrics.latency(TAG + ".refresh");
+    private static final DialerMetrics.Counter CHANGES = DialerMetrics.counter(TAG + ".changes");
+    private static final DialerMetrics.Counter DENIED_RECHECKS = DialerMetrics.counter(TAG + ".deniedRechecks");
+
+    // Everything PermissionManagerModule asks for, plus what recording needs. At most 64.
+    static final String[] TRACKED = {
+        Manifest.permission.CALL_PHONE,
+        Manifest.permission.READ_CONTACTS,
+        Manifest.permission.WRITE_CONTACTS,
+        Manifest.permission.READ_CALL_LOG,
+        Manifest.permission.WRITE_CALL_LOG,
+        Manifest.permission.READ_PHONE_STATE,
+        Manifest.permission.PROCESS_OUTGOING_CALLS,
+        Manifest.permission.READ_PHONE_NUMBERS,
+        Manifest.permission.RECORD_AUDIO,
+        Manifest.permission.WRITE_EXTERNAL_STORAGE,
+        Manifest.permission.FOREGROUND_SERVICE
+    };
+
+    private static PermissionState instance;
+
+    static final class Snapshot {
+        private final long grantedMask;
+
+        Snapshot(long grantedMask) {
+            this.grantedMask = grantedMask;
+        }
+
+        // False for permissions not in TRACKED.
+        boolean isGranted(String permission) {
+            int index = indexOf(permission);
+            return index >= 0 && (grantedMask & (1L << index)) != 0;
+        }
+    }
+
+    interface Listener {
+        // changed holds the permissions whose state differs from the previous snapshot.
+        void onPermissionsChanged(Snapshot snapshot, List<String> changed);
+    }
+
+    private final Context context;
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, TAG));
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    private PermissionState(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    static synchronized PermissionState get(Context context) {
+        if (instance == null) {
+            instance = new PermissionState(context);
+            instance.snapshot = new Snapshot(instance.check());
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    boolean isGranted(String permission) {
+        if (snapshot.isGranted(permission)) {
+            return true;
+        }
+        if (indexOf(permission) < 0) {
+            return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+        }
+        DENIED_RECHECKS.increment();
+        if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        refresh();
+        return true;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Re-reads every TRACKED permission in the background and notifies listeners if any changed.
+    void refresh() {
+        refreshExecutor.execute(this::refreshNow);
+    }
+
+    private void startMonitoring() {
+        if (!(context instanceof Application)) {
+            return;
+        }
+        ((Application) context).registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityResumed(Activity activity) {
+                refresh();
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    private void refreshNow() {
+        long start = System.nanoTime();
+        Snapshot previous = snapshot;
+        Snapshot updated = new Snapshot(check());
+        REFRESH_LATENCY.recordSince(start);
+        long changedMask = previous.grantedMask ^ updated.grantedMask;
+        if (changedMask == 0) {
+            return;
+        }
+        snapshot = updated;
+        CHANGES.increment();
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < TRACKED.length; i++) {
+            if ((changedMask & (1L << i)) != 0) {
+                changed.add(TRACKED[i]);
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.onPermissionsChanged(updated, changed);
+        }
+    }
+
+    private long check() {
+        long mask = 0;
+        for (int i = 0; i < TRACKED.length; i++) {
+            if (ContextCompat.checkSelfPermission(context, TRACKED[i]) == PackageManager.PERMISSION_GRANTED) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static int indexOf(String permission) {
+        for (int i = 0; i < TRACKED.length; i++) {
+            if (TRACKED[i].equals(permission)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.dialerapp;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+final class PhoneNumbers {
+    static final long NO_KEY = -1;
+
+    // Trailing digits compared when matching numbers stored in different formats
+    // ("+1 555-123-4567" vs "5551234567").
+    private static final int MATCH_DIGITS = 10;
+
+    private static final Map<String, String> CALLING_CODES = new HashMap<>();
+
+    static {
+        String[] codes = {
+            "us", "1", "ca", "1", "gb", "44", "ie", "353", "fr", "33", "de", "49", "es", "34", "it", "39",
+            "pt", "351", "nl", "31", "be", "32", "ch", "41", "at", "43", "se", "46", "no", "47", "dk", "45",
+            "fi", "358", "pl", "48", "cz", "420", "gr", "30", "tr", "90", "ru", "7", "ua", "380", "in", "91",
+            "pk", "92", "bd", "880", "lk", "94", "np", "977", "cn", "86", "hk", "852", "jp", "81", "kr", "82",
+            "sg", "65", "my", "60", "id", "62", "th", "66", "vn", "84", "ph", "63", "au", "61", "nz", "64",
+            "ae", "971", "sa", "966", "qa", "974", "kw", "965", "om", "968", "bh", "973", "il", "972", "eg", "20",
+            "za", "27", "ng", "234", "ke", "254", "br", "55", "ar", "54", "mx", "52", "co", "57", "cl", "56"
+        };
+        for (int i = 0; i < codes.length; i += 2) {
+            CALLING_CODES.put(codes[i], codes[i + 1]);
+        }
+    }
+
+    private PhoneNumbers() {
+    }
+
+    // Country calling code for an ISO 3166 region ("us" -> "1"), or null if not listed.
+    static String callingCode(String countryIso) {
+        return countryIso != null ? CALLING_CODES.get(countryIso.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    // Prefix dialled before national numbers in the region with callingCode: "0" in most,
+    // "1" in North America, "8" in Russia and Kazakhstan, none in Italy, where the leading 0
+    // belongs to the number.
+    static String trunkPrefix(String callingCode) {
+        switch (callingCode) {
+            case "1":
+                return "1";
+            case "7":
+                return "8";
+            case "39":
+                return "";
+            default:
+                return "0";
+        }
+    }
+
+    // Whether phoneNumber's digits, separators skipped, start with digits.
+    static boolean startsWithDigits(CharSequence phoneNumber, String digits) {
+        int matched = 0;
+        for (int i = 0; i < phoneNumber.length() && matched < digits.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (c != digits.charAt(matched++)) {
+                    return false;
+                }
+            }
+        }
+        return matched == digits.length();
+    }
+
+    // Index just past trunkPrefix at the start of a national number, or 0 if it was dialled
+    // without one. Allocation-free.
+    static int nationalStart(CharSequence phoneNumber, String trunkPrefix) {
+        int matched = 0;
+        for (int i = 0; i < phoneNumber.length() && matched < trunkPrefix.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (c != trunkPrefix.charAt(matched++)) {
+                    return 0;
+                }
+                if (matched == trunkPrefix.length()) {
+                    return i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Digits only, keeping a leading '+'.
+    static String normalize(String phoneNumber) {
+        if (phoneNumber == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                normalized.append(c);
+            } else if (c == '+' && normalized.length() == 0) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Allocation-free key over the trailing MATCH_DIGITS digits. The digit count is
+    // folded in so "012" and "12" stay distinct.
+    static long matchKey(CharSequence phoneNumber) {
+        if (phoneNumber == null) {
+            return NO_KEY;
+        }
+        long value = 0;
+        long scale = 1;
+        int count = 0;
+        for (int i = phoneNumber.length() - 1; i >= 0 && count < MATCH_DIGITS; i--) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value += (c - '0') * scale;
+                scale *= 10;
+                count++;
+            }
+        }
+        return count == 0 ? NO_KEY : ((long) count << 40) | value;
+    }
+}
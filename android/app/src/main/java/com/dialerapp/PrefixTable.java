@@ -0,0 +1,305 @@
+package com.dialerapp;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Longest-prefix match of international numbers against a table of dialing prefixes
+// (country codes, regions, carrier blocks), read in place from a compiled file that is
+// normally memory-mapped. Lookups walk the number's digits once, then binary search one
+// length group at a time from longest to shortest; they allocate nothing. About 10 bytes
+// per prefix plus the distinct labels.
+//
+// Source format (compile): one "<digits><TAB><label>" per line, digits without '+',
+// '#' starts a comment line.
+//
+// Compiled format, big-endian:
+//   int magic "DPFX", int version, int prefixCount, int labelCount
+//   int[MAX_DIGITS + 1] first prefix of each length group (1..MAX_DIGITS, then the end)
+//   padding to 8 bytes, long[prefixCount] prefixes (by length, then value)
+//   char[prefixCount] label index
+//   int[labelCount + 1] label offsets into the UTF-8 label bytes that follow
+final class PrefixTable {
+    static final int MAGIC = 0x44504658; // "DPFX"
+    static final int VERSION = 1;
+    static final int NO_MATCH = -1;
+    // E.164 numbers have at most 15 digits.
+    static final int MAX_DIGITS = 15;
+
+    private static final int GROUPS_OFFSET = 16;
+    private static final int PREFIXES_OFFSET = (GROUPS_OFFSET + (MAX_DIGITS + 1) * 4 + 7) & ~7;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int[] groupStarts = new int[MAX_DIGITS + 2];
+    private final int labelIndexOffset;
+    private final String[] labels;
+
+    private PrefixTable(ByteBuffer buffer, int prefixCount, int labelCount) {
+        this.buffer = buffer;
+        for (int length = 1; length <= MAX_DIGITS + 1; length++) {
+            groupStarts[length] = buffer.getInt(GROUPS_OFFSET + (length - 1) * 4);
+        }
+        labelIndexOffset = PREFIXES_OFFSET + prefixCount * 8;
+
+        // Few enough to decode once, so lookups can hand out the same String every time.
+        int offsetsOffset = labelIndexOffset + prefixCount * 2;
+        int bytesOffset = offsetsOffset + (labelCount + 1) * 4;
+        labels = new String[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            int start = buffer.getInt(offsetsOffset + i * 4);
+            int end = buffer.getInt(offsetsOffset + (i + 1) * 4);
+            byte[] utf8 = new byte[end - start];
+            for (int b = 0; b < utf8.length; b++) {
+                utf8[b] = buffer.get(bytesOffset + start + b);
+            }
+            labels[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Wraps a compiled table; the buffer must stay unchanged while the table is in use.
+    static PrefixTable open(ByteBuffer compiled) throws IOException {
+        ByteBuffer buffer = compiled.duplicate();
+        if (buffer.limit() < PREFIXES_OFFSET || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a prefix table");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported prefix table version " + buffer.getInt(4));
+        }
+        int prefixCount = buffer.getInt(8);
+        int labelCount = buffer.getInt(12);
+        long offsetsEnd = PREFIXES_OFFSET + prefixCount * 10L + (labelCount + 1) * 4L;
+        if (prefixCount < 0 || labelCount < 0 || buffer.limit() < offsetsEnd
+            || buffer.getInt(GROUPS_OFFSET + MAX_DIGITS * 4) != prefixCount
+            || buffer.limit() < offsetsEnd + buffer.getInt((int) offsetsEnd - 4)) {
+            throw new IOException("Truncated prefix table");
+        }
+        return new PrefixTable(buffer, prefixCount, labelCount);
+    }
+
+    // Reads the source format and writes the compiled one. Rejects malformed lines and
+    // duplicate prefixes rather than guessing which label was meant.
+    static void compile(BufferedReader source, OutputStream out) throws IOException {
+        List<TreeMap<Long, Integer>> groups = new ArrayList<>();
+        for (int length = 0; length <= MAX_DIGITS; length++) {
+            groups.add(new TreeMap<>());
+        }
+        Map<String, Integer> labelIds = new HashMap<>();
+        List<String> labels = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = source.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            String digits = tab > 0 ? line.substring(0, tab) : "";
+            String label = tab > 0 ? line.substring(tab + 1).trim() : "";
+            if (!isPrefix(digits) || label.isEmpty()) {
+                throw new IOException("Bad prefix entry on line " + lineNumber + ": " + line);
+            }
+            Integer labelId = labelIds.get(label);
+            if (labelId == null) {
+                labelId = labels.size();
+                labelIds.put(label, labelId);
+                labels.add(label);
+            }
+            if (groups.get(digits.length()).put(Long.parseLong(digits), labelId) != null) {
+                throw new IOException("Duplicate prefix " + digits + " on line " + lineNumber);
+            }
+        }
+        if (labels.size() > Character.MAX_VALUE) {
+            throw new IOException("Too many labels: " + labels.size());
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        int prefixCount = 0;
+        for (TreeMap<Long, Integer> group : groups) {
+            prefixCount += group.size();
+        }
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(prefixCount);
+        data.writeInt(labels.size());
+        int start = 0;
+        for (int length = 1; length <= MAX_DIGITS; length++) {
+            data.writeInt(start);
+            start += groups.get(length).size();
+        }
+        data.writeInt(start);
+        for (int i = GROUPS_OFFSET + (MAX_DIGITS + 1) * 4; i < PREFIXES_OFFSET; i++) {
+            data.writeByte(0);
+        }
+        for (TreeMap<Long, Integer> group : groups) {
+            for (long prefix : group.keySet()) {
+                data.writeLong(prefix);
+            }
+        }
+        for (TreeMap<Long, Integer> group : groups) {
+            for (int labelId : group.values()) {
+                data.writeChar(labelId);
+            }
+        }
+        List<byte[]> encoded = new ArrayList<>(labels.size());
+        int offset = 0;
+        data.writeInt(0);
+        for (String label : labels) {
+            byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            offset += utf8.length;
+            data.writeInt(offset);
+        }
+        for (byte[] utf8 : encoded) {
+            data.write(utf8);
+        }
+        data.flush();
+    }
+
+    // Label index of the longest prefix of phoneNumber's digits, or NO_MATCH. The number
+    // is read as international: '+' and separators are skipped, so callers convert
+    // national numbers to E.164 first.
+    int find(CharSequence phoneNumber) {
+        return find(phoneNumber, false);
+    }
+
+    String lookup(CharSequence phoneNumber) {
+        int label = find(phoneNumber);
+        return label != NO_MATCH ? labels[label] : null;
+    }
+
+    // Like lookup, but null when the only match is the shortest prefix covering the number,
+    // its country code. For national numbers read in the user's own region, which that
+    // prefix would label with the user's own country.
+    String lookupBelowCountryCode(CharSequence phoneNumber) {
+        int label = find(phoneNumber, true);
+        return label != NO_MATCH ? labels[label] : null;
+    }
+
+    // For a national number dialled in the region with countryCode (countryCodeLength
+    // digits): the digits of phoneNumber from nationalStart on, after its trunk prefix, are
+    // read as following countryCode. Null when only the country code matches, as in
+    // lookupBelowCountryCode. Allocation-free.
+    String lookupNational(long countryCode, int countryCodeLength, CharSequence phoneNumber, int nationalStart) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        long value = countryCode;
+        int digits = countryCodeLength;
+        for (int i = nationalStart; i < phoneNumber.length() && digits < MAX_DIGITS; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+        }
+        int label = find(value, digits, true);
+        return label != NO_MATCH ? labels[label] : null;
+    }
+
+    String label(int index) {
+        return labels[index];
+    }
+
+    private int find(CharSequence phoneNumber, boolean belowCountryCode) {
+        if (phoneNumber == null) {
+            return NO_MATCH;
+        }
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < phoneNumber.length() && digits < MAX_DIGITS; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+        }
+        return find(value, digits, belowCountryCode);
+    }
+
+    // value holds the number's first digits digits.
+    private int find(long value, int digits, boolean belowCountryCode) {
+        for (int length = digits; length >= 1; length--) {
+            int index = search(groupStarts[length], groupStarts[length + 1], value / POWERS_OF_TEN[digits - length]);
+            if (index >= 0) {
+                if (belowCountryCode && !hasShorterMatch(value / POWERS_OF_TEN[digits - length], length)) {
+                    return NO_MATCH;
+                }
+                return buffer.getChar(labelIndexOffset + index * 2);
+            }
+        }
+        return NO_MATCH;
+    }
+
+    private boolean hasShorterMatch(long prefix, int length) {
+        for (int shorter = length - 1; shorter >= 1; shorter--) {
+            if (search(groupStarts[shorter], groupStarts[shorter + 1], prefix / POWERS_OF_TEN[length - shorter]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    interface Visitor {
+        // digits holds the prefix's length digits as a number.
+        void visit(long digits, int length, String label);
+    }
+
+    // Every prefix with its label, shortest first. For deriving other tables off the lookup path.
+    void forEach(Visitor visitor) {
+        for (int length = 1; length <= MAX_DIGITS; length++) {
+            for (int index = groupStarts[length]; index < groupStarts[length + 1]; index++) {
+                visitor.visit(buffer.getLong(PREFIXES_OFFSET + index * 8), length,
+                    labels[buffer.getChar(labelIndexOffset + index * 2)]);
+            }
+        }
+    }
+
+    int prefixCount() {
+        return groupStarts[MAX_DIGITS + 1];
+    }
+
+    private static boolean isPrefix(String digits) {
+        if (digits.isEmpty() || digits.length() > MAX_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            if (digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int search(int low, int high, long prefix) {
+        high--;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(PREFIXES_OFFSET + mid * 8);
+            if (value < prefix) {
+                low = mid + 1;
+            } else if (value > prefix) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
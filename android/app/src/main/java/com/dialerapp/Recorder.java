@@ -0,0 +1,22 @@
+package com.dialerapp;
+
+import java.io.IOException;
+
+// Minimal recorder surface used by RecordingSessionManager, so the session
+// state machine can run on the JVM against a fake implementation.
+interface Recorder {
+
+    void prepare() throws IOException;
+
+    void start();
+
+    void stop();
+
+    void release();
+
+    int getMaxAmplitude();
+
+    interface Factory {
+        Recorder create(String outputPath);
+    }
+}
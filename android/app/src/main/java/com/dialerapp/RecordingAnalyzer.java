@@ -0,0 +1,207 @@
+package com.dialerapp;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Post-recording analysis: decodes a finished recording with MediaCodec one buffer at a
+// time and writes its WaveformSummary next to it. Runs on one lowest-priority thread so
+// it never competes with a live call or the UI.
+final class RecordingAnalyzer {
+    private static final String TAG = "RecordingAnalyzer";
+    private static final long CODEC_TIMEOUT_US = 10_000;
+
+    private static final DialerMetrics.Histogram ANALYZE_LATENCY = DialerMetrics.latency(TAG + ".analyze");
+    private static final DialerMetrics.Histogram SUMMARY_BYTES =
+        DialerMetrics.histogram(TAG + ".summary.bytes", DialerMetrics.UNIT_BYTES);
+    private static final DialerMetrics.Counter FAILURES = DialerMetrics.counter(TAG + ".failures");
+    private static final DialerMetrics.Counter CUT_OFF = DialerMetrics.counter(TAG + ".cutOff");
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+        runnable.run();
+    }, TAG));
+
+    interface Callback {
+        void onSummary(WaveformSummary summary);
+
+        void onError(Exception e);
+    }
+
+    private RecordingAnalyzer() {
+    }
+
+    static void enqueue(File recording) {
+        EXECUTOR.execute(() -> {
+            try {
+                analyzeIfStale(recording);
+            } catch (Exception e) {
+                Log.w(TAG, "Analysis failed for " + recording, e);
+            }
+        });
+    }
+
+    // Reads the stored summary if it is current; otherwise analyzes on the background
+    // thread (behind anything already queued) and calls back from there.
+    static void getSummary(File recording, Callback callback) {
+        WaveformSummary stored = readIfCurrent(recording);
+        if (stored != null) {
+            callback.onSummary(stored);
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            try {
+                callback.onSummary(analyzeIfStale(recording));
+            } catch (Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    static void deleteSummary(File recording) {
+        WaveformSummary.fileFor(recording).delete();
+    }
+
+    private static WaveformSummary readIfCurrent(File recording) {
+        File summaryFile = WaveformSummary.fileFor(recording);
+        if (!summaryFile.exists() || summaryFile.lastModified() < recording.lastModified()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(summaryFile))) {
+            return WaveformSummary.readFrom(in);
+        } catch (IOException e) {
+            // Unreadable or from an older format; analyze again.
+            return null;
+        }
+    }
+
+    private static WaveformSummary analyzeIfStale(File recording) throws IOException {
+        WaveformSummary summary = readIfCurrent(recording);
+        if (summary != null) {
+            return summary;
+        }
+        long start = System.nanoTime();
+        try {
+            summary = decode(recording);
+            File summaryFile = WaveformSummary.fileFor(recording);
+            File temp = new File(summaryFile.getPath() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                summary.writeTo(out);
+            }
+            if (!temp.renameTo(summaryFile)) {
+                temp.delete();
+                throw new IOException("Unable to write " + summaryFile);
+            }
+            SUMMARY_BYTES.record(summaryFile.length());
+            return summary;
+        } catch (IOException | RuntimeException e) {
+            FAILURES.increment();
+            throw e;
+        } finally {
+            ANALYZE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Holds at most one compressed and one decoded buffer at a time.
+    private static WaveformSummary decode(File recording) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        SealedRecordingSource sealed = null;
+        try {
+            if (RecordingStorage.isEncrypted(recording)) {
+                // Decrypted chunk by chunk as the extractor reads.
+                sealed = new SealedRecordingSource(recording);
+                extractor.setDataSource(sealed);
+            } else {
+                extractor.setDataSource(recording.getAbsolutePath());
+            }
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                throw new IOException("No audio track in " + recording);
+            }
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            // AMR-NB and AAC decoders emit 16-bit PCM; the real rate and channel count
+            // arrive with the output format.
+            WaveformAnalyzer analyzer = new WaveformAnalyzer(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            while (true) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inputIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    // Reported before the first decoded buffer.
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    analyzer = new WaveformAnalyzer(outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                        outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                } else if (outputIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    if (output != null && info.size > 0) {
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        analyzer.addPcm16(output.order(ByteOrder.nativeOrder()));
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        if (sealed != null && !sealed.isComplete()) {
+                            CUT_OFF.increment();
+                            Log.w(TAG, recording + " was cut off; analyzed what was saved");
+                            return analyzer.finish().cutOff();
+                        }
+                        return analyzer.finish();
+                    }
+                }
+            }
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+            if (sealed != null) {
+                sealed.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dialerapp;
+
+class RecordingException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String code;
+
+    RecordingException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    RecordingException(String code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,116 @@
+package com.dialerapp;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// Per-recording data keys for SealedRecording, wrapped by one AES key that never leaves
+// the Android Keystore. Only the wrap and unwrap go through the Keystore (once per file);
+// the audio itself is sealed in process, where AES-GCM runs at memory speed. API 23+.
+final class RecordingKeys implements SealedRecording.KeyUnwrapper {
+    private static final String TAG = "RecordingKeys";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String MASTER_KEY_ALIAS = "dialer_recordings";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int DATA_KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+
+    private static final DialerMetrics.Histogram WRAP_LATENCY = DialerMetrics.latency(TAG + ".wrap");
+    private static final DialerMetrics.Histogram UNWRAP_LATENCY = DialerMetrics.latency(TAG + ".unwrap");
+
+    private static RecordingKeys instance;
+
+    final SecureRandom random = new SecureRandom();
+    private SecretKey masterKey;
+
+    private RecordingKeys() {
+    }
+
+    static synchronized RecordingKeys get() {
+        if (instance == null) {
+            instance = new RecordingKeys();
+        }
+        return instance;
+    }
+
+    // A fresh data key and its wrapped form for a new file's header.
+    static final class DataKey {
+        final SecretKey key;
+        final byte[] wrapped;
+
+        DataKey(SecretKey key, byte[] wrapped) {
+            this.key = key;
+            this.wrapped = wrapped;
+        }
+    }
+
+    DataKey newDataKey() throws GeneralSecurityException {
+        long start = System.nanoTime();
+        try {
+            byte[] raw = new byte[DATA_KEY_BYTES];
+            random.nextBytes(raw);
+            // The Keystore picks the IV; it goes in front of the wrapped key.
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, masterKey());
+            byte[] iv = cipher.getIV();
+            byte[] sealed = cipher.doFinal(raw);
+            byte[] wrapped = Arrays.copyOf(iv, iv.length + sealed.length);
+            System.arraycopy(sealed, 0, wrapped, iv.length, sealed.length);
+            return new DataKey(new SecretKeySpec(raw, "AES"), wrapped);
+        } finally {
+            WRAP_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public SecretKey unwrap(byte[] wrappedKey) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        try {
+            if (wrappedKey.length <= IV_BYTES) {
+                throw new GeneralSecurityException("Wrapped key too short");
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, masterKey(), new GCMParameterSpec(128, wrappedKey, 0, IV_BYTES));
+            return new SecretKeySpec(cipher.doFinal(wrappedKey, IV_BYTES, wrappedKey.length - IV_BYTES), "AES");
+        } finally {
+            UNWRAP_LATENCY.recordSince(start);
+        }
+    }
+
+    private synchronized SecretKey masterKey() throws GeneralSecurityException {
+        if (masterKey != null) {
+            return masterKey;
+        }
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+            keyStore.load(null);
+            KeyStore.Entry entry = keyStore.getEntry(MASTER_KEY_ALIAS, null);
+            if (entry instanceof KeyStore.SecretKeyEntry) {
+                masterKey = ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+                return masterKey;
+            }
+        } catch (IOException e) {
+            throw new GeneralSecurityException("Android Keystore unavailable", e);
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(MASTER_KEY_ALIAS,
+            KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+            .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+            .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+            .setKeySize(256)
+            .build());
+        masterKey = generator.generateKey();
+        return masterKey;
+    }
+}
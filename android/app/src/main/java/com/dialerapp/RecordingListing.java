@@ -0,0 +1,65 @@
+package com.dialerapp;
+
+import java.io.File;
+
+// Directory scan behind getAllRecordings and getAllRecordingsColumnar.
+final class RecordingListing {
+    private static final String FILE_NAME_PREFIX = "call_";
+
+    private RecordingListing() {
+    }
+
+    static File[] list(File dir, String... extensions) {
+        File[] files = dir.listFiles((parent, name) -> hasExtension(name, extensions));
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isFile()) {
+                files[count++] = file;
+            }
+        }
+        if (count == files.length) {
+            return files;
+        }
+        File[] regularFiles = new File[count];
+        System.arraycopy(files, 0, regularFiles, 0, count);
+        return regularFiles;
+    }
+
+    private static boolean hasExtension(String name, String[] extensions) {
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The number part of a RecordingStorage file name ("call_<number>_<date>_<time>.3gp"),
+    // or null for files named some other way.
+    static String numberFromFileName(String fileName) {
+        if (!fileName.startsWith(FILE_NAME_PREFIX)) {
+            return null;
+        }
+        int end = fileName.indexOf('_', FILE_NAME_PREFIX.length());
+        return end > FILE_NAME_PREFIX.length() ? fileName.substring(FILE_NAME_PREFIX.length(), end) : null;
+    }
+
+    static ColumnarResultBuilder toColumnar(File[] files) {
+        ColumnarResultBuilder result = new ColumnarResultBuilder();
+        ColumnarResultBuilder.StringColumn fileNames = result.stringColumn("fileName");
+        ColumnarResultBuilder.StringColumn filePaths = result.stringColumn("filePath");
+        ColumnarResultBuilder.DoubleColumn fileSizes = result.doubleColumn("fileSize");
+        ColumnarResultBuilder.DoubleColumn lastModified = result.doubleColumn("lastModified");
+
+        for (File file : files) {
+            fileNames.add(file.getName());
+            filePaths.add(file.getAbsolutePath());
+            fileSizes.add(file.length());
+            lastModified.add(file.lastModified());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.dialerapp;
+
+// Immutable view of one recording segment; the manager replaces it on every transition.
+final class RecordingSession {
+
+    enum State {
+        // Recorder prepared, capture not started.
+        PREPARED,
+        RECORDING,
+        FINALIZING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    final String sessionId;
+    final String callId;
+    final int segment;
+    final String outputPath;
+    final State state;
+    final long startTime;
+    final long endTime;
+
+    RecordingSession(String sessionId, String callId, int segment, String outputPath,
+                     State state, long startTime, long endTime) {
+        this.sessionId = sessionId;
+        this.callId = callId;
+        this.segment = segment;
+        this.outputPath = outputPath;
+        this.state = state;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    RecordingSession withState(State newState) {
+        return new RecordingSession(sessionId, callId, segment, outputPath, newState, startTime, endTime);
+    }
+
+    RecordingSession started(long time) {
+        return new RecordingSession(sessionId, callId, segment, outputPath, State.RECORDING, time, endTime);
+    }
+
+    RecordingSession ended(State newState, long time) {
+        return new RecordingSession(sessionId, callId, segment, outputPath, newState, startTime, time);
+    }
+
+    boolean isTerminal() {
+        return state == State.COMPLETED || state == State.CANCELLED || state == State.FAILED;
+    }
+}
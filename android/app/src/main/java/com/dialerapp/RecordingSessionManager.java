@@ -0,0 +1,343 @@
+package com.dialerapp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Owns every in-flight recording. All state transitions run on a single worker
+// thread, so concurrent start/stop requests from JS and the call-state service
+// are serialized without locks. Readers get a published immutable snapshot.
+//
+// A prepared recorder holds the audio input and its output file, so one that is not
+// started within the prepare timeout is cancelled, whoever prepared it.
+class RecordingSessionManager {
+    static final long PREPARE_TIMEOUT_MS = 60_000;
+
+    static final String ERROR_ALREADY_RECORDING = "ALREADY_RECORDING";
+    static final String ERROR_NOT_RECORDING = "NOT_RECORDING";
+    static final String ERROR_INVALID_STATE = "INVALID_STATE";
+    static final String ERROR_START_FAILED = "RECORDING_START_ERROR";
+    static final String ERROR_STOP_FAILED = "RECORDING_STOP_ERROR";
+
+    private static final DialerMetrics.Counter ABANDONED_PREPARES =
+        DialerMetrics.counter("RecordingSessionManager.abandonedPrepares");
+    // Request-to-capture latency, split by whether a recorder was already prepared for the call.
+    private static final DialerMetrics.Histogram WARM_START_LATENCY =
+        DialerMetrics.latency("RecordingSessionManager.warmStart");
+    private static final DialerMetrics.Histogram COLD_START_LATENCY =
+        DialerMetrics.latency("RecordingSessionManager.coldStart");
+
+    private final Recorder.Factory recorderFactory;
+    private final long prepareTimeoutMs;
+    private final ScheduledExecutorService executor;
+    private volatile Thread workerThread;
+
+    // Worker-confined
+    private final Map<String, RecordingSession> sessions = new LinkedHashMap<>();
+    private final Map<String, Recorder> recorders = new HashMap<>();
+    private final Map<String, Integer> segmentCounters = new HashMap<>();
+    // Never reset, so a session id is never reused, even when the same number calls again.
+    private long sessionCounter;
+
+    private volatile List<RecordingSession> published = Collections.emptyList();
+    private volatile CompletionListener completionListener;
+
+    interface CompletionListener {
+        // Called on the worker thread once a segment's output file is finalized.
+        void onCompleted(RecordingSession session);
+    }
+
+    RecordingSessionManager(Recorder.Factory recorderFactory) {
+        this(recorderFactory, PREPARE_TIMEOUT_MS);
+    }
+
+    RecordingSessionManager(Recorder.Factory recorderFactory, long prepareTimeoutMs) {
+        this.recorderFactory = recorderFactory;
+        this.prepareTimeoutMs = prepareTimeoutMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RecordingSessionManager");
+            workerThread = thread;
+            return thread;
+        });
+    }
+
+    void setCompletionListener(CompletionListener listener) {
+        completionListener = listener;
+    }
+
+    // Runs a task on the worker thread, ordered with every state transition.
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    // Creates a new segment for the call and prepares its recorder without starting capture.
+    RecordingSession prepare(String callId, String outputPath) throws RecordingException {
+        return call(() -> prepareLocked(callId, outputPath));
+    }
+
+    RecordingSession start(String sessionId) throws RecordingException {
+        return call(() -> startLocked(sessionId));
+    }
+
+    // Starts the call's prepared segment if there is one, so capture begins with a single
+    // start(); otherwise prepares a new segment at outputPath first.
+    RecordingSession startNow(String callId, String outputPath) throws RecordingException {
+        long requestTime = System.nanoTime();
+        return call(() -> {
+            RecordingSession prepared = findPrepared(callId);
+            if (prepared != null) {
+                RecordingSession started = startLocked(prepared.sessionId);
+                WARM_START_LATENCY.recordSince(requestTime);
+                return started;
+            }
+            RecordingSession started = startLocked(prepareLocked(callId, outputPath).sessionId);
+            COLD_START_LATENCY.recordSince(requestTime);
+            return started;
+        });
+    }
+
+    RecordingSession stop(String sessionId) throws RecordingException {
+        return call(() -> stopLocked(sessionId));
+    }
+
+    // Finalizes or cancels every segment of the call and forgets its segment counter.
+    List<RecordingSession> stopCall(String callId) throws RecordingException {
+        return call(() -> {
+            List<RecordingSession> ended = new ArrayList<>();
+            for (RecordingSession session : new ArrayList<>(sessions.values())) {
+                if (!session.callId.equals(callId)) {
+                    continue;
+                }
+                if (session.state == RecordingSession.State.RECORDING) {
+                    ended.add(stopLocked(session.sessionId));
+                } else {
+                    ended.add(cancelLocked(session.sessionId));
+                }
+            }
+            segmentCounters.remove(callId);
+            return ended;
+        });
+    }
+
+    RecordingSession cancel(String sessionId) throws RecordingException {
+        return call(() -> cancelLocked(sessionId));
+    }
+
+    int getMaxAmplitude(String sessionId) throws RecordingException {
+        return call(() -> {
+            Recorder recorder = recorders.get(sessionId);
+            return recorder != null ? recorder.getMaxAmplitude() : 0;
+        });
+    }
+
+    // Lock-free; returns sessions that have not reached a terminal state.
+    List<RecordingSession> getSessions() {
+        return published;
+    }
+
+    RecordingSession getSession(String sessionId) {
+        for (RecordingSession session : published) {
+            if (session.sessionId.equals(sessionId)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    RecordingSession getLatestRecording() {
+        RecordingSession latest = null;
+        for (RecordingSession session : published) {
+            if (session.state == RecordingSession.State.RECORDING) {
+                latest = session;
+            }
+        }
+        return latest;
+    }
+
+    void shutdown() {
+        executor.execute(() -> {
+            for (RecordingSession session : new ArrayList<>(sessions.values())) {
+                if (session.state == RecordingSession.State.RECORDING) {
+                    try {
+                        stopLocked(session.sessionId);
+                    } catch (RecordingException e) {
+                        // Already moved to FAILED
+                    }
+                } else {
+                    cancelLocked(session.sessionId);
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    private RecordingSession prepareLocked(String callId, String outputPath) throws RecordingException {
+        for (RecordingSession session : sessions.values()) {
+            if (session.callId.equals(callId) && session.state == RecordingSession.State.PREPARED) {
+                // Already warm; preparing twice would hold a second audio input.
+                return session;
+            }
+            if (session.callId.equals(callId) && session.state == RecordingSession.State.RECORDING) {
+                throw new RecordingException(ERROR_ALREADY_RECORDING,
+                    "Recording is already in progress for call " + callId);
+            }
+        }
+
+        Integer previous = segmentCounters.get(callId);
+        int segment = previous == null ? 1 : previous + 1;
+        segmentCounters.put(callId, segment);
+
+        RecordingSession session = new RecordingSession(callId + "#" + segment + "." + ++sessionCounter, callId,
+            segment, outputPath, RecordingSession.State.PREPARED, 0, 0);
+        Recorder recorder = recorderFactory.create(outputPath);
+        try {
+            recorder.prepare();
+        } catch (Exception e) {
+            recorder.release();
+            new File(outputPath).delete();
+            throw new RecordingException(ERROR_START_FAILED, "Failed to prepare recorder: " + e.getMessage(), e);
+        }
+
+        recorders.put(session.sessionId, recorder);
+        executor.schedule(() -> abandonIfPrepared(session), prepareTimeoutMs, TimeUnit.MILLISECONDS);
+        return transition(session);
+    }
+
+    // Sessions are replaced on every transition, so finding the same object means this one
+    // is still prepared and has not moved on.
+    private void abandonIfPrepared(RecordingSession prepared) {
+        if (sessions.get(prepared.sessionId) == prepared) {
+            ABANDONED_PREPARES.increment();
+            cancelLocked(prepared.sessionId);
+        }
+    }
+
+    private RecordingSession findPrepared(String callId) {
+        for (RecordingSession session : sessions.values()) {
+            if (session.callId.equals(callId) && session.state == RecordingSession.State.PREPARED) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    private RecordingSession startLocked(String sessionId) throws RecordingException {
+        RecordingSession session = requireSession(sessionId);
+        if (session.state != RecordingSession.State.PREPARED) {
+            throw new RecordingException(ERROR_INVALID_STATE,
+                "Cannot start session " + sessionId + " in state " + session.state);
+        }
+
+        Recorder recorder = recorders.get(sessionId);
+        try {
+            recorder.start();
+        } catch (RuntimeException e) {
+            releaseRecorder(sessionId);
+            new File(session.outputPath).delete();
+            transition(session.ended(RecordingSession.State.FAILED, System.currentTimeMillis()));
+            throw new RecordingException(ERROR_START_FAILED, "Failed to start recording: " + e.getMessage(), e);
+        }
+        return transition(session.started(System.currentTimeMillis()));
+    }
+
+    private RecordingSession stopLocked(String sessionId) throws RecordingException {
+        RecordingSession session = sessions.get(sessionId);
+        if (session == null || session.state != RecordingSession.State.RECORDING) {
+            throw new RecordingException(ERROR_NOT_RECORDING, "No recording in progress for session " + sessionId);
+        }
+
+        session = transition(session.withState(RecordingSession.State.FINALIZING));
+        Recorder recorder = recorders.get(sessionId);
+        try {
+            recorder.stop();
+        } catch (RuntimeException e) {
+            // stop() throws when no audio was captured; the output is unusable.
+            releaseRecorder(sessionId);
+            new File(session.outputPath).delete();
+            transition(session.ended(RecordingSession.State.FAILED, System.currentTimeMillis()));
+            throw new RecordingException(ERROR_STOP_FAILED, "Failed to stop recording: " + e.getMessage(), e);
+        }
+        releaseRecorder(sessionId);
+        RecordingSession completed = transition(session.ended(RecordingSession.State.COMPLETED, System.currentTimeMillis()));
+        CompletionListener listener = completionListener;
+        if (listener != null) {
+            listener.onCompleted(completed);
+        }
+        return completed;
+    }
+
+    private RecordingSession cancelLocked(String sessionId) {
+        RecordingSession session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        if (session.state == RecordingSession.State.RECORDING) {
+            try {
+                recorders.get(sessionId).stop();
+            } catch (RuntimeException e) {
+                // Discarding the output anyway
+            }
+        }
+        releaseRecorder(sessionId);
+        new File(session.outputPath).delete();
+        return transition(session.ended(RecordingSession.State.CANCELLED, System.currentTimeMillis()));
+    }
+
+    private RecordingSession requireSession(String sessionId) throws RecordingException {
+        RecordingSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new RecordingException(ERROR_INVALID_STATE, "Unknown recording session " + sessionId);
+        }
+        return session;
+    }
+
+    private void releaseRecorder(String sessionId) {
+        Recorder recorder = recorders.remove(sessionId);
+        if (recorder != null) {
+            recorder.release();
+        }
+    }
+
+    private RecordingSession transition(RecordingSession session) {
+        if (session.isTerminal()) {
+            sessions.remove(session.sessionId);
+        } else {
+            sessions.put(session.sessionId, session);
+        }
+        published = Collections.unmodifiableList(new ArrayList<>(sessions.values()));
+        return session;
+    }
+
+    private <T> T call(Callable<T> task) throws RecordingException {
+        try {
+            if (Thread.currentThread() == workerThread) {
+                return task.call();
+            }
+            Future<T> future = executor.submit(task);
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RecordingException) {
+                throw (RecordingException) cause;
+            }
+            throw new RecordingException("RECORDING_ERROR", String.valueOf(cause), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RecordingException("RECORDING_ERROR", "Interrupted", e);
+        } catch (RecordingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RecordingException("RECORDING_ERROR", e.getMessage(), e);
+        }
+    }
+}
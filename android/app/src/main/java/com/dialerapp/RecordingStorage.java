@@ -0,0 +1,75 @@
+package com.dialerapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+class RecordingStorage {
+    static final String RECORDING_EXTENSION = ".3gp";
+    // Raw AMR from SegmentedAmrRecorder.
+    static final String SEGMENTED_EXTENSION = ".amr";
+    // Raw AMR sealed by EncryptedAmrRecorder; read back through SealedRecording.
+    static final String ENCRYPTED_EXTENSION = ".amr.enc";
+    static final String[] RECORDING_EXTENSIONS = { RECORDING_EXTENSION, SEGMENTED_EXTENSION, ENCRYPTED_EXTENSION };
+
+    static final String OUTPUT_MODE_CONTAINER = "container";
+    static final String OUTPUT_MODE_SEGMENTED = "segmented";
+    static final String OUTPUT_MODE_ENCRYPTED = "encrypted";
+
+    private static final String PREFS_NAME = "recording_storage";
+    private static final String KEY_OUTPUT_MODE = "output_mode";
+    private static final String SEGMENTS_DIR = ".segments";
+
+    private RecordingStorage() {
+    }
+
+    static File getRecordingsDir(Context context) {
+        File recordingsDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_MUSIC), "CallRecordings");
+        if (!recordingsDir.exists()) {
+            recordingsDir.mkdirs();
+        }
+        return recordingsDir;
+    }
+
+    // Working segments of an in-progress segmented recording, named after its final file.
+    static File getSegmentsDir(Context context, String outputPath) {
+        return new File(getSegmentsRoot(context), new File(outputPath).getName());
+    }
+
+    static File getSegmentsRoot(Context context) {
+        return new File(getRecordingsDir(context), SEGMENTS_DIR);
+    }
+
+    static String getOutputMode(Context context) {
+        return prefs(context).getString(KEY_OUTPUT_MODE, OUTPUT_MODE_CONTAINER);
+    }
+
+    static void setOutputMode(Context context, String mode) {
+        prefs(context).edit().putString(KEY_OUTPUT_MODE, mode).apply();
+    }
+
+    static boolean isEncrypted(File recording) {
+        return recording.getName().endsWith(ENCRYPTED_EXTENSION);
+    }
+
+    // The extension picks the recorder: SEGMENTED_EXTENSION files are written by
+    // SegmentedAmrRecorder, ENCRYPTED_EXTENSION files by EncryptedAmrRecorder.
+    static File newRecordingFile(Context context, String phoneNumber) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        String number = phoneNumber != null ? phoneNumber.replaceAll("[^0-9+]", "") : "unknown";
+        String mode = getOutputMode(context);
+        String extension = OUTPUT_MODE_SEGMENTED.equals(mode) ? SEGMENTED_EXTENSION
+            : OUTPUT_MODE_ENCRYPTED.equals(mode) ? ENCRYPTED_EXTENSION : RECORDING_EXTENSION;
+        String filename = String.format("call_%s_%s%s", number, timestamp, extension);
+        return new File(getRecordingsDir(context), filename);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,166 @@
+package com.dialerapp;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+
+// Process-wide owner of the incoming-call alert: the vibration and the incoming-call
+// notification. Patterns, effects and audio attributes are built once, so starting an
+// alert allocates nothing; RingAlertStateMachine decides what plays.
+//
+// Only JS starts an alert, by showing the notification through CallNotificationModule, so
+// calls JS chooses to silence never vibrate. CallStateReceiver timestamps the ringing
+// broadcast for the latency metric, and on answer or hang-up cancels both the vibration
+// and the notification, even with no React instance.
+class RingAlertController {
+    private static final String TAG = "RingAlertController";
+    // Alerts are also stopped after this long, in case the idle broadcast never arrives.
+    private static final long MAX_ALERT_MS = 120_000;
+    private static final int NOTIFICATION_ID = CallNotificationModule.INCOMING_CALL_NOTIFICATION_ID;
+
+    // Repeats from the start until cancelled.
+    private static final long[] RING_PATTERN = {0, 1000, 500, 1000, 500, 1000};
+    // Two short pulses every few seconds, so a call in progress is not drowned out.
+    private static final long[] WAITING_PATTERN = {0, 150, 150, 150, 3000};
+
+    static final AudioAttributes RINGTONE_ATTRIBUTES = new AudioAttributes.Builder()
+        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+        .setUsage(AudioAttributes.USAGE_NOTIFICATION_RINGTONE)
+        .build();
+
+    private static final DialerMetrics.Histogram DETECTION_TO_ALERT_LATENCY =
+        DialerMetrics.latency(TAG + ".detectionToAlert");
+    private static final DialerMetrics.Counter REPEATED_INCOMING = DialerMetrics.counter(TAG + ".repeatedIncoming");
+    private static final DialerMetrics.Counter TIMEOUTS = DialerMetrics.counter(TAG + ".timeouts");
+
+    private static RingAlertController instance;
+
+    private final NotificationManager notificationManager;
+    private final Vibrator vibrator;
+    private final boolean canVibrate;
+    private final VibrationEffect ringEffect;
+    private final VibrationEffect waitingEffect;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable timeoutTask = this::onTimeout;
+    private final RingAlertStateMachine machine = new RingAlertStateMachine();
+    // Bumped whenever the incoming notification is posted or removed, so an update that
+    // finishes late (the caller's photo) only reaches the notification it was built for.
+    private int incomingGeneration;
+    // When CallStateReceiver saw the current call ring, 0 if it has not.
+    private long ringingDetectedAt;
+
+    private RingAlertController(Context context) {
+        Context appContext = context.getApplicationContext();
+        notificationManager = (NotificationManager) appContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        vibrator = (Vibrator) appContext.getSystemService(Context.VIBRATOR_SERVICE);
+        canVibrate = vibrator != null && vibrator.hasVibrator();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            ringEffect = VibrationEffect.createWaveform(RING_PATTERN, 0);
+            waitingEffect = VibrationEffect.createWaveform(WAITING_PATTERN, 0);
+        } else {
+            ringEffect = null;
+            waitingEffect = null;
+        }
+    }
+
+    static synchronized RingAlertController get(Context context) {
+        if (instance == null) {
+            instance = new RingAlertController(context);
+        }
+        return instance;
+    }
+
+    // eventTimeNanos is SystemClock.elapsedRealtimeNanos() when the broadcast arrived.
+    synchronized void onRingingDetected(long eventTimeNanos) {
+        ringingDetectedAt = eventTimeNanos;
+    }
+
+    // Posts (or updates) the incoming-call notification and starts the alert if none is
+    // playing. calledAt is when JS asked, the latency start if no ringing broadcast came
+    // first. Returns the notification's generation, for postIfCurrent.
+    synchronized int showIncoming(Notification notification, long calledAt) {
+        incomingGeneration++;
+        notificationManager.notify(NOTIFICATION_ID, notification);
+        if (machine.isAlerting()) {
+            REPEATED_INCOMING.increment();
+        }
+        apply(machine.onIncoming(ringingDetectedAt != 0 ? ringingDetectedAt : calledAt));
+        ringingDetectedAt = 0;
+        return incomingGeneration;
+    }
+
+    // Replaces the incoming-call notification unless it was removed or re-posted since.
+    synchronized void postIfCurrent(int generation, Notification notification) {
+        if (generation == incomingGeneration) {
+            notificationManager.notify(NOTIFICATION_ID, notification);
+        }
+    }
+
+    synchronized void hideIncoming() {
+        removeIncoming();
+        apply(machine.onDismissed());
+    }
+
+    synchronized void onOffhook() {
+        ringingDetectedAt = 0;
+        removeIncoming();
+        apply(machine.onOffhook());
+    }
+
+    synchronized void onIdle() {
+        ringingDetectedAt = 0;
+        removeIncoming();
+        apply(machine.onIdle());
+    }
+
+    private void removeIncoming() {
+        incomingGeneration++;
+        notificationManager.cancel(NOTIFICATION_ID);
+    }
+
+    private synchronized void onTimeout() {
+        if (machine.isAlerting()) {
+            TIMEOUTS.increment();
+            apply(machine.onDismissed());
+        }
+    }
+
+    private void apply(RingAlertStateMachine.Action action) {
+        switch (action) {
+            case START_RING:
+                start(ringEffect, RING_PATTERN);
+                break;
+            case START_WAITING:
+                start(waitingEffect, WAITING_PATTERN);
+                break;
+            case STOP:
+                handler.removeCallbacks(timeoutTask);
+                if (canVibrate) {
+                    vibrator.cancel();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void start(VibrationEffect effect, long[] pattern) {
+        if (canVibrate) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                vibrator.vibrate(effect, RINGTONE_ATTRIBUTES);
+            } else {
+                vibrator.vibrate(pattern, 0, RINGTONE_ATTRIBUTES);
+            }
+        }
+        DETECTION_TO_ALERT_LATENCY.record(SystemClock.elapsedRealtimeNanos() - machine.alertDetectedAt());
+        handler.removeCallbacks(timeoutTask);
+        handler.postDelayed(timeoutTask, MAX_ALERT_MS);
+    }
+}
@@ -0,0 +1,86 @@
+package com.dialerapp;
+
+// Which incoming-call alert should be playing, driven by call-state events. JS may show
+// the incoming-call notification again for the same call (to update it), and a second
+// call can arrive while one is ringing or in progress; each event maps to at most one
+// vibrator action, so neither restarts an alert. RingAlertController applies the actions.
+final class RingAlertStateMachine {
+    enum State {
+        IDLE,
+        // Incoming call, nothing else in progress.
+        RINGING,
+        // In a call, nothing alerting.
+        ACTIVE,
+        // Incoming call while another one is in progress.
+        WAITING
+    }
+
+    enum Action {
+        NONE,
+        START_RING,
+        START_WAITING,
+        STOP
+    }
+
+    private State state = State.IDLE;
+    // SystemClock.elapsedRealtimeNanos() of the event that started the current alert.
+    private long alertDetectedAt;
+
+    State state() {
+        return state;
+    }
+
+    boolean isAlerting() {
+        return state == State.RINGING || state == State.WAITING;
+    }
+
+    long alertDetectedAt() {
+        return alertDetectedAt;
+    }
+
+    Action onIncoming(long eventTimeNanos) {
+        switch (state) {
+            case IDLE:
+                state = State.RINGING;
+                alertDetectedAt = eventTimeNanos;
+                return Action.START_RING;
+            case ACTIVE:
+                state = State.WAITING;
+                alertDetectedAt = eventTimeNanos;
+                return Action.START_WAITING;
+            default:
+                // Already alerting for this call, or for another one that is still ringing.
+                return Action.NONE;
+        }
+    }
+
+    // Off-hook: the ringing call was answered, a waiting call was answered or rejected, or
+    // an outgoing call started.
+    Action onOffhook() {
+        Action action = isAlerting() ? Action.STOP : Action.NONE;
+        state = State.ACTIVE;
+        return action;
+    }
+
+    // No calls left.
+    Action onIdle() {
+        Action action = isAlerting() ? Action.STOP : Action.NONE;
+        state = State.IDLE;
+        return action;
+    }
+
+    // The alert was silenced without the call state changing: the notification was hidden,
+    // or the alert ran too long.
+    Action onDismissed() {
+        switch (state) {
+            case RINGING:
+                state = State.IDLE;
+                return Action.STOP;
+            case WAITING:
+                state = State.ACTIVE;
+                return Action.STOP;
+            default:
+                return Action.NONE;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.dialerapp;
+
+// Forward-only view of query results. The row mappers read through this rather than
+// android.database.Cursor so the same code runs against in-memory fixtures on the JVM.
+interface RowCursor {
+    boolean moveToNext();
+
+    long getLong(int column);
+
+    int getInt(int column);
+
+    String getString(int column);
+}
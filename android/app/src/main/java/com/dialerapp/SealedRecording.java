@@ -0,0 +1,375 @@
+package com.dialerapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+// Recordings encrypted as they are written: the plaintext is cut into CHUNK_BYTES chunks
+// and each is sealed on its own with AES-GCM, so any byte range can be read back by
+// decrypting only the chunks it touches, and every chunk is authenticated before use.
+//
+//   header: "DREC", version, chunk size, 7-byte nonce prefix, wrapped data key
+//   chunks: ciphertext + 16-byte tag each; all but the last hold exactly chunk size bytes
+//
+// A chunk's nonce is the file's random prefix, its index and a last-chunk flag, and the
+// header is its associated data, so chunks cannot be reordered, dropped, moved between
+// files or the file truncated at a chunk boundary without failing authentication. The
+// data key is random per file and stored wrapped (see KeyUnwrapper); a file whose writer
+// died keeps every whole chunk, and reads as incomplete.
+final class SealedRecording {
+    static final int CHUNK_BYTES = 4096;
+
+    private static final int MAGIC = 0x44524543; // "DREC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NONCE_PREFIX_BYTES = 7;
+    private static final int TAG_BYTES = 16;
+    private static final int FIXED_HEADER_BYTES = 4 + 1 + 4 + NONCE_PREFIX_BYTES + 2;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    interface KeyUnwrapper {
+        SecretKey unwrap(byte[] wrappedKey) throws GeneralSecurityException;
+    }
+
+    private SealedRecording() {
+    }
+
+    static boolean isSealed(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() >= FIXED_HEADER_BYTES && raf.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] header(int chunkBytes, byte[] noncePrefix, byte[] wrappedKey) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(FIXED_HEADER_BYTES + wrappedKey.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(chunkBytes);
+        out.write(noncePrefix);
+        out.writeShort(wrappedKey.length);
+        out.write(wrappedKey);
+        return bytes.toByteArray();
+    }
+
+    private static void nonce(byte[] nonce, long index, boolean last) {
+        nonce[NONCE_PREFIX_BYTES] = (byte) (index >>> 24);
+        nonce[NONCE_PREFIX_BYTES + 1] = (byte) (index >>> 16);
+        nonce[NONCE_PREFIX_BYTES + 2] = (byte) (index >>> 8);
+        nonce[NONCE_PREFIX_BYTES + 3] = (byte) index;
+        nonce[NONCE_PREFIX_BYTES + 4] = (byte) (last ? 1 : 0);
+    }
+
+    // Encrypts everything written to it into out, sealing each chunk as soon as it fills
+    // (straight from the caller's array when it holds a whole chunk). close() seals the
+    // rest, possibly nothing, as the last chunk. Not thread-safe.
+    static final class Writer extends OutputStream {
+        private final OutputStream out;
+        private final SecretKey key;
+        private final byte[] header;
+        private final byte[] nonce = new byte[NONCE_PREFIX_BYTES + 5];
+        private final byte[] plaintext;
+        private final byte[] sealed;
+        private final Cipher cipher;
+        private int buffered;
+        private long chunkIndex;
+        private boolean closed;
+
+        Writer(OutputStream out, SecretKey key, byte[] wrappedKey, int chunkBytes, SecureRandom random)
+            throws IOException {
+            this.out = out;
+            this.key = key;
+            byte[] prefix = new byte[NONCE_PREFIX_BYTES];
+            random.nextBytes(prefix);
+            System.arraycopy(prefix, 0, nonce, 0, NONCE_PREFIX_BYTES);
+            header = header(chunkBytes, prefix, wrappedKey);
+            plaintext = new byte[chunkBytes];
+            sealed = new byte[chunkBytes + TAG_BYTES];
+            try {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("AES-GCM unavailable", e);
+            }
+            out.write(header);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            plaintext[buffered++] = (byte) b;
+            if (buffered == plaintext.length) {
+                seal(plaintext, 0, buffered, false);
+                buffered = 0;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffered == 0 && len >= plaintext.length) {
+                    seal(b, off, plaintext.length, false);
+                    off += plaintext.length;
+                    len -= plaintext.length;
+                    continue;
+                }
+                int count = Math.min(len, plaintext.length - buffered);
+                System.arraycopy(b, off, plaintext, buffered, count);
+                buffered += count;
+                off += count;
+                len -= count;
+                if (buffered == plaintext.length) {
+                    seal(plaintext, 0, buffered, false);
+                    buffered = 0;
+                }
+            }
+        }
+
+        // Chunks are written whole as they are sealed; flush() adds nothing, since a
+        // partial chunk cannot be sealed without ending the file.
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                seal(plaintext, 0, buffered, true);
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void seal(byte[] b, int off, int len, boolean last) throws IOException {
+            nonce(nonce, chunkIndex, last);
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+                cipher.updateAAD(header);
+                int length = cipher.doFinal(b, off, len, sealed, 0);
+                out.write(sealed, 0, length);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to seal chunk " + chunkIndex, e);
+            }
+            chunkIndex++;
+        }
+    }
+
+    // Random-access plaintext view of a sealed file. Reads decrypt only the chunks they
+    // touch and keep the last one, so sequential reads open each chunk once. Thread-safe.
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final SecretKey key;
+        private final byte[] header;
+        private final int chunkBytes;
+        private final byte[] nonce = new byte[NONCE_PREFIX_BYTES + 5];
+        private final Cipher cipher;
+        private final ByteBuffer sealed;
+        private final byte[] chunk;
+        private long cachedIndex = -1;
+        private int cachedLength;
+        // Set by open(): the last readable chunk, and whether it carries the last flag.
+        private long lastIndex;
+        private int lastLength;
+        private boolean complete;
+
+        private Reader(FileChannel channel, SecretKey key, byte[] header, int chunkBytes) throws IOException {
+            this.channel = channel;
+            this.key = key;
+            this.header = header;
+            this.chunkBytes = chunkBytes;
+            System.arraycopy(header, 9, nonce, 0, NONCE_PREFIX_BYTES);
+            sealed = ByteBuffer.allocate(chunkBytes + TAG_BYTES);
+            chunk = new byte[chunkBytes];
+            try {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("AES-GCM unavailable", e);
+            }
+        }
+
+        static Reader open(File file, KeyUnwrapper unwrapper) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return open(raf.getChannel(), unwrapper);
+            } catch (IOException | RuntimeException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        // Takes ownership of channel.
+        static Reader open(FileChannel channel, KeyUnwrapper unwrapper) throws IOException {
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+            readFully(channel, fixed, 0);
+            fixed.flip();
+            if (fixed.getInt() != MAGIC || fixed.get() != FORMAT_VERSION) {
+                throw new IOException("Not a sealed recording");
+            }
+            int chunkBytes = fixed.getInt();
+            int wrappedLength = fixed.getShort(FIXED_HEADER_BYTES - 2) & 0xffff;
+            if (chunkBytes <= 0 || chunkBytes > 1 << 24) {
+                throw new IOException("Bad chunk size " + chunkBytes);
+            }
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES + wrappedLength);
+            readFully(channel, header, 0);
+            byte[] headerBytes = header.array();
+            SecretKey key;
+            try {
+                key = unwrapper.unwrap(Arrays.copyOfRange(headerBytes, FIXED_HEADER_BYTES, headerBytes.length));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Unable to unwrap the recording key", e);
+            }
+            Reader reader = new Reader(channel, key, headerBytes, chunkBytes);
+            reader.findEnd();
+            return reader;
+        }
+
+        // Plaintext bytes readable.
+        long length() {
+            return lastIndex * chunkBytes + lastLength;
+        }
+
+        // False if the writer never closed the file (the recording was cut off).
+        boolean isComplete() {
+            return complete;
+        }
+
+        // Like RandomAccessFile.read at position: up to len bytes, -1 at the end.
+        synchronized int read(long position, byte[] b, int off, int len) throws IOException {
+            long length = length();
+            if (position >= length) {
+                return len == 0 ? 0 : -1;
+            }
+            len = (int) Math.min(len, length - position);
+            int read = 0;
+            while (read < len) {
+                long index = (position + read) / chunkBytes;
+                int inChunk = (int) ((position + read) % chunkBytes);
+                int available = decrypt(index);
+                int count = Math.min(len - read, available - inChunk);
+                System.arraycopy(chunk, inChunk, b, off + read, count);
+                read += count;
+            }
+            return read;
+        }
+
+        // Decrypts [position, position + length) into out, a chunk at a time.
+        void copyTo(long position, long length, OutputStream out) throws IOException {
+            byte[] buffer = new byte[chunkBytes];
+            long end = Math.min(length(), position + length);
+            while (position < end) {
+                int read = read(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                position += read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        // The last chunk is whatever follows the last whole stride: sealed as last if
+        // the writer closed, a full chunk not sealed as last if it died between chunks,
+        // or a torn write to drop if it died mid-chunk.
+        private void findEnd() throws IOException {
+            int stride = chunkBytes + TAG_BYTES;
+            long body = channel.size() - header.length;
+            long index = body / stride;
+            int tail = (int) (body % stride);
+            if (tail == 0) {
+                index--;
+                tail = stride;
+            }
+            for (int attempt = 0; attempt < 2 && index >= 0; attempt++) {
+                if (tail >= TAG_BYTES && tryOpen(index, tail, true)) {
+                    complete = true;
+                    return;
+                }
+                if (tail == stride && tryOpen(index, tail, false)) {
+                    return;
+                }
+                index--;
+                tail = stride;
+            }
+            if (index >= 0) {
+                throw new IOException("Sealed recording failed authentication");
+            }
+            // Nothing readable; also the state of a file whose writer died before sealing anything.
+            lastIndex = 0;
+            lastLength = 0;
+        }
+
+        private boolean tryOpen(long index, int sealedLength, boolean last) throws IOException {
+            try {
+                int length = open(index, sealedLength, last);
+                lastIndex = index;
+                lastLength = length;
+                cachedIndex = index;
+                cachedLength = length;
+                return true;
+            } catch (GeneralSecurityException e) {
+                return false;
+            }
+        }
+
+        // Returns the plaintext length of chunk index, decrypting it unless cached.
+        private int decrypt(long index) throws IOException {
+            if (index == cachedIndex) {
+                return cachedLength;
+            }
+            boolean last = index == lastIndex;
+            int sealedLength = last ? lastLength + TAG_BYTES : chunkBytes + TAG_BYTES;
+            try {
+                cachedLength = open(index, sealedLength, last && complete);
+            } catch (GeneralSecurityException e) {
+                cachedIndex = -1;
+                throw new IOException("Chunk " + index + " failed authentication", e);
+            }
+            cachedIndex = index;
+            return cachedLength;
+        }
+
+        private int open(long index, int sealedLength, boolean last) throws IOException, GeneralSecurityException {
+            cachedIndex = -1;
+            sealed.clear();
+            sealed.limit(sealedLength);
+            readFully(channel, sealed, header.length + index * (chunkBytes + TAG_BYTES));
+            nonce(nonce, index, last);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+            cipher.updateAAD(header);
+            return cipher.doFinal(sealed.array(), 0, sealedLength, chunk, 0);
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Sealed recording is truncated");
+                }
+                position += read;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.dialerapp;
+
+import android.media.MediaDataSource;
+
+import java.io.File;
+import java.io.IOException;
+
+// Seekable plaintext of a SealedRecording for MediaExtractor and MediaPlayer, which read
+// and seek through it at will; only the chunks they touch are decrypted. API 23+.
+class SealedRecordingSource extends MediaDataSource {
+    private final SealedRecording.Reader reader;
+
+    SealedRecordingSource(File recording) throws IOException {
+        reader = SealedRecording.Reader.open(recording, RecordingKeys.get());
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        return reader.read(position, buffer, offset, size);
+    }
+
+    @Override
+    public long getSize() {
+        return reader.length();
+    }
+
+    // False if the recording was cut off; see SealedRecording.Reader.isComplete.
+    boolean isComplete() {
+        return reader.isComplete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.dialerapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Scores FTS4 matches from matchinfo(table, 'pcnx'): a BM25-style term weight without
+// length normalisation (titles and number terms are all short), per-column weights and
+// a boost for recent items.
+final class SearchRanker {
+    static final String MATCHINFO_FORMAT = "pcnx";
+
+    private static final double K1 = 1.2;
+    private static final double RECENCY_BOOST = 0.5;
+    private static final double RECENCY_HALF_LIFE_DAYS = 30;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private SearchRanker() {
+    }
+
+    // matchinfo returns native-endian unsigned 32-bit integers.
+    static int[] decodeMatchinfo(byte[] blob) {
+        ByteBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder());
+        int[] values = new int[blob.length / 4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    // columnWeights is indexed like the table's columns; dateMillis <= 0 means undated.
+    static double score(int[] matchinfo, double[] columnWeights, long dateMillis, long nowMillis) {
+        int phrases = matchinfo[0];
+        int columns = matchinfo[1];
+        long rows = Math.max(1, matchinfo[2] & 0xffffffffL);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < columnWeights.length; column++) {
+                double weight = columnWeights[column];
+                int base = 3 + 3 * (phrase * columns + column);
+                long hits = matchinfo[base] & 0xffffffffL;
+                if (weight == 0 || hits == 0) {
+                    continue;
+                }
+                long rowsWithHits = matchinfo[base + 2] & 0xffffffffL;
+                double idf = Math.log(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                score += weight * idf * hits * (K1 + 1) / (hits + K1);
+            }
+        }
+        if (dateMillis > 0) {
+            double ageDays = Math.max(0, nowMillis - dateMillis) / (double) MILLIS_PER_DAY;
+            score *= 1 + RECENCY_BOOST * RECENCY_HALF_LIFE_DAYS / (RECENCY_HALF_LIFE_DAYS + ageDays);
+        }
+        return score;
+    }
+}
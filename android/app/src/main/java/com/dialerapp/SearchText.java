@@ -0,0 +1,90 @@
+package com.dialerapp;
+
+import java.util.Locale;
+
+// Turns numbers into index terms and user input into FTS4 MATCH expressions for
+// DialerSearchIndex.
+final class SearchText {
+    // Shortest number suffix that is indexed, so "1234" finds "+1 555-123-1234".
+    private static final int MIN_NUMBER_TERM = 3;
+
+    private SearchText() {
+    }
+
+    // Every digit suffix of the number, longest first, space separated. FTS4 only matches
+    // term prefixes, so suffixes are what let a query hit the middle or end of a number.
+    static String numberTerms(String phoneNumber) {
+        String digits = digitsOnly(phoneNumber);
+        if (digits.length() < MIN_NUMBER_TERM) {
+            return digits;
+        }
+        StringBuilder terms = new StringBuilder();
+        for (int start = 0; start <= digits.length() - MIN_NUMBER_TERM; start++) {
+            if (start > 0) {
+                terms.append(' ');
+            }
+            terms.append(digits, start, digits.length());
+        }
+        return terms.toString();
+    }
+
+    // A prefix query ANDing every word of the input, or null if it has none. Input that
+    // looks like a phone number ("555-12", "(555) 123") becomes a single digit term.
+    static String matchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        if (isPhoneNumberLike(query)) {
+            String digits = digitsOnly(query);
+            return digits.isEmpty() ? null : digits + "*";
+        }
+
+        StringBuilder expression = new StringBuilder();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (expression.length() > 0) {
+                    expression.append(' ');
+                }
+                // Lower case keeps words like "or" and "near" from being read as operators.
+                expression.append(query.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+            }
+        }
+        return expression.length() == 0 ? null : expression.toString();
+    }
+
+    private static boolean isPhoneNumberLike(String query) {
+        boolean hasDigit = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c != ' ' && c != '-' && c != '(' && c != ')' && c != '+' && c != '.') {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    private static String digitsOnly(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
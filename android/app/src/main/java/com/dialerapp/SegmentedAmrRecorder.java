@@ -0,0 +1,268 @@
+package com.dialerapp;
+
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// Crash-safe Recorder for RecordingStorage.OUTPUT_MODE_SEGMENTED: raw AMR-NB, which needs
+// no container finalization, written to SEGMENT_MILLIS segments under
+// RecordingStorage.getSegmentsDir and fsynced every SYNC_INTERVAL_MS. stop() stitches the
+// segments into outputPath; after a crash AmrSegments.recover does the same at startup,
+// losing at most the last sync interval. Once capture has started, segments are only
+// deleted after a successful stitch or when none of them holds audio.
+//
+// MediaRecorder can only switch output files with the MPEG-4 writer, so each segment gets
+// its own recorder: the next one is prepared first, then the current one is stopped and
+// the next started, leaving a gap of a few frames at each boundary.
+class SegmentedAmrRecorder implements Recorder {
+    private static final String TAG = "SegmentedAmrRecorder";
+    static final int SEGMENT_MILLIS = 5 * 60 * 1000;
+    private static final long SYNC_INTERVAL_MS = 2000;
+    private static final long ROTATE_RETRY_MS = 10_000;
+
+    private static final DialerMetrics.Histogram SYNC_LATENCY = DialerMetrics.latency(TAG + ".sync");
+    private static final DialerMetrics.Histogram STITCH_LATENCY = DialerMetrics.latency(TAG + ".stitch");
+    private static final DialerMetrics.Histogram ROTATE_LATENCY = DialerMetrics.latency(TAG + ".rotate");
+    private static final DialerMetrics.Counter ROTATE_FAILURES = DialerMetrics.counter(TAG + ".rotateFailures");
+
+    private static Handler syncHandler;
+
+    private final String outputPath;
+    private final File segmentDir;
+    private final int audioSource;
+    // Set by start(); from then on the segments may hold audio and release() keeps them.
+    private boolean started;
+
+    // Guarded by this: the recorder and the segment it is writing. Swapped by rotate() on
+    // the sync thread while the session's thread may be stopping.
+    private MediaRecorder mediaRecorder;
+    private RandomAccessFile currentSegment;
+    private int segmentCount;
+    private boolean recording;
+
+    private final Runnable syncTask = new Runnable() {
+        @Override
+        public void run() {
+            syncCurrentSegment();
+            synchronized (SegmentedAmrRecorder.this) {
+                if (recording) {
+                    syncHandler().postDelayed(this, SYNC_INTERVAL_MS);
+                }
+            }
+        }
+    };
+    private final Runnable rotateTask = this::rotate;
+
+    SegmentedAmrRecorder(String outputPath, File segmentDir, int audioSource) {
+        this.outputPath = outputPath;
+        this.segmentDir = segmentDir;
+        this.audioSource = audioSource;
+    }
+
+    private static synchronized Handler syncHandler() {
+        if (syncHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            syncHandler = new Handler(thread.getLooper());
+        }
+        return syncHandler;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        if (!segmentDir.isDirectory() && !segmentDir.mkdirs()) {
+            throw new IOException("Unable to create " + segmentDir);
+        }
+        RandomAccessFile segment = openSegment();
+        MediaRecorder recorder;
+        try {
+            recorder = prepareRecorder(segment);
+        } catch (IOException | RuntimeException e) {
+            syncAndClose(segment);
+            throw e;
+        }
+        synchronized (this) {
+            mediaRecorder = recorder;
+            currentSegment = segment;
+        }
+    }
+
+    @Override
+    public void start() {
+        synchronized (this) {
+            mediaRecorder.start();
+            recording = true;
+        }
+        started = true;
+        syncHandler().postDelayed(syncTask, SYNC_INTERVAL_MS);
+        syncHandler().postDelayed(rotateTask, SEGMENT_MILLIS);
+    }
+
+    // Throws only if no segment holds audio, or if stitching fails (the segments then stay
+    // behind for the recovery pass).
+    @Override
+    public void stop() {
+        syncHandler().removeCallbacks(syncTask);
+        syncHandler().removeCallbacks(rotateTask);
+        RuntimeException stopFailure = null;
+        synchronized (this) {
+            recording = false;
+            try {
+                mediaRecorder.stop();
+            } catch (RuntimeException e) {
+                // Nothing captured since the last rotation; the earlier segments still count,
+                // and stitching skips a segment with no whole frame.
+                stopFailure = e;
+            } finally {
+                mediaRecorder.release();
+                mediaRecorder = null;
+            }
+        }
+        closeSegment();
+        long start = System.nanoTime();
+        long frames;
+        try {
+            frames = AmrSegments.stitch(AmrSegments.list(segmentDir), new File(outputPath));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to stitch " + segmentDir + ": " + e.getMessage(), e);
+        } finally {
+            STITCH_LATENCY.recordSince(start);
+        }
+        AmrSegments.deleteDir(segmentDir);
+        if (frames == 0) {
+            new File(outputPath).delete();
+            throw new IllegalStateException("No audio captured", stopFailure);
+        }
+    }
+
+    @Override
+    public void release() {
+        syncHandler().removeCallbacks(syncTask);
+        syncHandler().removeCallbacks(rotateTask);
+        synchronized (this) {
+            recording = false;
+            if (mediaRecorder != null) {
+                mediaRecorder.release();
+                mediaRecorder = null;
+            }
+        }
+        closeSegment();
+        if (!started) {
+            // Never captured anything. Otherwise whatever stop() left is AmrSegments.recover's.
+            AmrSegments.deleteDir(segmentDir);
+        }
+    }
+
+    @Override
+    public synchronized int getMaxAmplitude() {
+        return mediaRecorder != null ? mediaRecorder.getMaxAmplitude() : 0;
+    }
+
+    private MediaRecorder prepareRecorder(RandomAccessFile segment) throws IOException {
+        MediaRecorder recorder = new MediaRecorder();
+        try {
+            MediaRecorderAdapter.setAudioSource(recorder, audioSource);
+            recorder.setOutputFormat(MediaRecorder.OutputFormat.AMR_NB);
+            recorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
+            recorder.setOutputFile(segment.getFD());
+            recorder.prepare();
+            return recorder;
+        } catch (IOException | RuntimeException e) {
+            recorder.release();
+            throw e;
+        }
+    }
+
+    // Sync thread. If the next recorder cannot be prepared the current one keeps writing
+    // its segment and rotation is retried.
+    private void rotate() {
+        long start = System.nanoTime();
+        RandomAccessFile finished;
+        synchronized (this) {
+            if (!recording) {
+                return;
+            }
+            RandomAccessFile next = null;
+            MediaRecorder nextRecorder;
+            try {
+                next = openSegment();
+                nextRecorder = prepareRecorder(next);
+            } catch (IOException | RuntimeException e) {
+                ROTATE_FAILURES.increment();
+                Log.w(TAG, "Segment rotation failed", e);
+                if (next != null) {
+                    syncAndClose(next);
+                    // Reuse the name so the segments stay contiguous.
+                    new File(segmentDir, AmrSegments.segmentName(--segmentCount)).delete();
+                }
+                syncHandler().postDelayed(rotateTask, ROTATE_RETRY_MS);
+                return;
+            }
+            MediaRecorder previous = mediaRecorder;
+            try {
+                previous.stop();
+            } catch (RuntimeException e) {
+                // Whatever reached the segment is still whole frames
+                Log.w(TAG, "Stopping the segment recorder failed", e);
+            } finally {
+                previous.release();
+            }
+            finished = currentSegment;
+            mediaRecorder = nextRecorder;
+            currentSegment = next;
+            nextRecorder.start();
+        }
+        syncAndClose(finished);
+        ROTATE_LATENCY.recordSince(start);
+        syncHandler().postDelayed(rotateTask, SEGMENT_MILLIS);
+    }
+
+    private RandomAccessFile openSegment() throws IOException {
+        return new RandomAccessFile(new File(segmentDir, AmrSegments.segmentName(segmentCount++)), "rw");
+    }
+
+    private void syncCurrentSegment() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            try {
+                if (currentSegment != null) {
+                    currentSegment.getFD().sync();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Segment sync failed", e);
+            }
+        }
+        SYNC_LATENCY.recordSince(start);
+    }
+
+    private void closeSegment() {
+        RandomAccessFile current;
+        synchronized (this) {
+            current = currentSegment;
+            currentSegment = null;
+        }
+        syncAndClose(current);
+    }
+
+    private static void syncAndClose(RandomAccessFile segment) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Segment sync failed", e);
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            // Nothing more to write
+        }
+    }
+}
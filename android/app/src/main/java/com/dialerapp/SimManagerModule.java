@@ -1,12 +1,6 @@
 package com.dialerapp;
 
-import android.content.Context;
-import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
-import android.telephony.TelephonyManager;
-import android.Manifest;
-import android.content.pm.PackageManager;
-import androidx.core.app.ActivityCompat;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -15,99 +9,135 @@ import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
-
-import java.util.List;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 public class SimManagerModule extends ReactContextBaseJavaModule {
-    
+    static final String NAME = "SimManager";
+    static final String EVENT_SUBSCRIPTIONS_CHANGED = "SimSubscriptionsChanged";
+    private static final DialerMetrics.Histogram GET_AVAILABLE_SIM_CARDS_LATENCY =
+        DialerMetrics.latency(NAME + ".getAvailableSimCards");
+    private static final DialerMetrics.Histogram GET_DEFAULT_SIM_FOR_CALLS_LATENCY =
+        DialerMetrics.latency(NAME + ".getDefaultSimForCalls");
+    private static final DialerMetrics.Histogram IS_DUAL_SIM_DEVICE_LATENCY =
+        DialerMetrics.latency(NAME + ".isDualSimDevice");
+
+    private final SimSubscriptionCache.Listener subscriptionListener = this::emitSubscriptionsChanged;
+    private SimSubscriptionCache subscriptionCache;
+    private boolean forwardingEvents;
+
     public SimManagerModule(ReactApplicationContext reactContext) {
         super(reactContext);
     }
 
     @Override
     public String getName() {
-        return "SimManager";
+        return NAME;
+    }
+
+    @Override
+    public void invalidate() {
+        if (subscriptionCache != null) {
+            subscriptionCache.removeListener(subscriptionListener);
+        }
+        super.invalidate();
+    }
+
+    // The cache registers its receivers and listener on first use, not at module creation.
+    private SimSubscriptionCache getSubscriptionCache() {
+        if (subscriptionCache == null) {
+            subscriptionCache = SimSubscriptionCache.get(getReactApplicationContext());
+        }
+        return subscriptionCache;
     }
 
     @ReactMethod
     public void getAvailableSimCards(Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (ActivityCompat.checkSelfPermission(getReactApplicationContext(), 
-                Manifest.permission.READ_PHONE_STATE) != PackageManager.PERMISSION_GRANTED) {
+            SimSubscriptionCache.Snapshot snapshot = getSubscriptionCache().snapshot();
+            if (!snapshot.permissionGranted) {
                 promise.reject("PERMISSION_DENIED", "READ_PHONE_STATE permission not granted");
                 return;
             }
-
-            SubscriptionManager subscriptionManager = (SubscriptionManager) 
-                getReactApplicationContext().getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
-            
-            if (subscriptionManager == null) {
-                promise.reject("SUBSCRIPTION_MANAGER_NULL", "SubscriptionManager not available");
-                return;
-            }
-
-            List<SubscriptionInfo> subscriptionInfos = subscriptionManager.getActiveSubscriptionInfoList();
-            WritableArray simCards = Arguments.createArray();
-
-            if (subscriptionInfos != null) {
-                for (SubscriptionInfo info : subscriptionInfos) {
-                    WritableMap simCard = Arguments.createMap();
-                    simCard.putInt("subscriptionId", info.getSubscriptionId());
-                    simCard.putInt("simSlotIndex", info.getSimSlotIndex());
-                    simCard.putString("displayName", info.getDisplayName().toString());
-                    simCard.putString("carrierName", info.getCarrierName().toString());
-                    simCard.putString("number", info.getNumber());
-                    simCard.putString("countryIso", info.getCountryIso());
-                    simCards.pushMap(simCard);
-                }
-            }
-
-            promise.resolve(simCards);
+            promise.resolve(simCardsToArray(snapshot));
         } catch (Exception e) {
             promise.reject("SIM_ERROR", e.getMessage());
+        } finally {
+            GET_AVAILABLE_SIM_CARDS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void getDefaultSimForCalls(Promise promise) {
+        long start = System.nanoTime();
         try {
-            if (ActivityCompat.checkSelfPermission(getReactApplicationContext(), 
-                Manifest.permission.READ_PHONE_STATE) != PackageManager.PERMISSION_GRANTED) {
+            SimSubscriptionCache.Snapshot snapshot = getSubscriptionCache().snapshot();
+            if (!snapshot.permissionGranted) {
                 promise.reject("PERMISSION_DENIED", "READ_PHONE_STATE permission not granted");
                 return;
             }
-
-            SubscriptionManager subscriptionManager = (SubscriptionManager) 
-                getReactApplicationContext().getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
-            
-            if (subscriptionManager == null) {
-                promise.reject("SUBSCRIPTION_MANAGER_NULL", "SubscriptionManager not available");
-                return;
-            }
-
-            int defaultSubId = subscriptionManager.getDefaultVoiceSubscriptionId();
-            promise.resolve(defaultSubId);
+            promise.resolve(snapshot.defaultVoiceSubscriptionId);
         } catch (Exception e) {
             promise.reject("SIM_ERROR", e.getMessage());
+        } finally {
+            GET_DEFAULT_SIM_FOR_CALLS_LATENCY.recordSince(start);
         }
     }
 
     @ReactMethod
     public void isDualSimDevice(Promise promise) {
+        long start = System.nanoTime();
         try {
-            TelephonyManager telephonyManager = (TelephonyManager) 
-                getReactApplicationContext().getSystemService(Context.TELEPHONY_SERVICE);
-            
-            if (telephonyManager == null) {
-                promise.resolve(false);
-                return;
-            }
-
             // Check if device supports dual SIM
-            int phoneCount = telephonyManager.getPhoneCount();
-            promise.resolve(phoneCount > 1);
+            promise.resolve(getSubscriptionCache().snapshot().phoneCount > 1);
         } catch (Exception e) {
             promise.reject("SIM_ERROR", e.getMessage());
+        } finally {
+            IS_DUAL_SIM_DEVICE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Required by NativeEventEmitter; change events are only forwarded once JS subscribes.
+    @ReactMethod
+    public void addListener(String eventName) {
+        if (!forwardingEvents) {
+            forwardingEvents = true;
+            getSubscriptionCache().addListener(subscriptionListener);
+        }
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    private void emitSubscriptionsChanged(SimSubscriptionCache.Snapshot snapshot) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (!context.hasActiveReactInstance()) {
+            return;
+        }
+
+        WritableMap event = Arguments.createMap();
+        event.putArray("simCards", simCardsToArray(snapshot));
+        event.putInt("defaultSimForCalls", snapshot.permissionGranted
+            ? snapshot.defaultVoiceSubscriptionId
+            : SubscriptionManager.INVALID_SUBSCRIPTION_ID);
+        event.putBoolean("isDualSim", snapshot.phoneCount > 1);
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(EVENT_SUBSCRIPTIONS_CHANGED, event);
+    }
+
+    private static WritableArray simCardsToArray(SimSubscriptionCache.Snapshot snapshot) {
+        WritableArray simCards = Arguments.createArray();
+        for (SimSubscriptionCache.SimInfo info : snapshot.sims) {
+            WritableMap simCard = Arguments.createMap();
+            simCard.putInt("subscriptionId", info.subscriptionId);
+            simCard.putInt("simSlotIndex", info.simSlotIndex);
+            simCard.putString("displayName", info.displayName);
+            simCard.putString("carrierName", info.carrierName);
+            simCard.putString("number", info.number);
+            simCard.putString("countryIso", info.countryIso);
+            simCards.pushMap(simCard);
         }
+        return simCards;
     }
 }
@@ -0,0 +1,302 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.provider.CallLog;
+import android.provider.ContactsContract;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Keeps a SimRoutingEngine built from call-log history, user overrides, SIM carriers
+// and SIM countries, rebuilding it in the background whenever one of those changes.
+// Per-contact overrides are expanded to the contact's numbers at build time; a
+// per-number override for one of them wins.
+class SimRouter {
+    private static final String TAG = "SimRouter";
+    private static final String PREFS_NAME = "sim_routing";
+    private static final String OVERRIDE_PREFIX = "number:";
+    private static final String CONTACT_OVERRIDE_PREFIX = "contact:";
+    private static final String RULE_PREFIX = "prefix:";
+    private static final int HISTORY_LIMIT = 5000;
+    private static final long REBUILD_DELAY_MS = 2000;
+
+    private static SimRouter instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable rebuildTask = this::rebuild;
+    private volatile SimRoutingEngine engine = SimRoutingEngine.empty();
+    // Contact edits only matter to the table while some contact has an override.
+    private volatile boolean hasContactOverrides;
+
+    private SimRouter(Context context) {
+        this.context = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    static synchronized SimRouter get(Context context) {
+        if (instance == null) {
+            instance = new SimRouter(context);
+            instance.startMonitoring();
+        }
+        return instance;
+    }
+
+    SimRoutingEngine.Route route(String phoneNumber) {
+        return engine.route(phoneNumber);
+    }
+
+    void setOverride(String phoneNumber, int subscriptionId) {
+        prefs().edit().putInt(OVERRIDE_PREFIX + PhoneNumbers.normalize(phoneNumber), subscriptionId).apply();
+        scheduleRebuild(0);
+    }
+
+    void clearOverride(String phoneNumber) {
+        prefs().edit().remove(OVERRIDE_PREFIX + PhoneNumbers.normalize(phoneNumber)).apply();
+        scheduleRebuild(0);
+    }
+
+    void setContactOverride(long contactId, int subscriptionId) {
+        prefs().edit().putInt(CONTACT_OVERRIDE_PREFIX + contactId, subscriptionId).apply();
+        scheduleRebuild(0);
+    }
+
+    void clearContactOverride(long contactId) {
+        prefs().edit().remove(CONTACT_OVERRIDE_PREFIX + contactId).apply();
+        scheduleRebuild(0);
+    }
+
+    void setPrefixRule(String prefix, int subscriptionId) {
+        prefs().edit().putInt(RULE_PREFIX + PhoneNumbers.normalize(prefix), subscriptionId).apply();
+        scheduleRebuild(0);
+    }
+
+    void removePrefixRule(String prefix) {
+        prefs().edit().remove(RULE_PREFIX + PhoneNumbers.normalize(prefix)).apply();
+        scheduleRebuild(0);
+    }
+
+    private void startMonitoring() {
+        SimSubscriptionCache.get(context).addListener(snapshot -> scheduleRebuild(0));
+        try {
+            context.getContentResolver().registerContentObserver(CallLog.Calls.CONTENT_URI, true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        scheduleRebuild(REBUILD_DELAY_MS);
+                    }
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Call log not observable", e);
+        }
+        try {
+            context.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true,
+                new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        if (hasContactOverrides) {
+                            scheduleRebuild(REBUILD_DELAY_MS);
+                        }
+                    }
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Contacts not observable", e);
+        }
+        // Carrier rules come from the prefix table, which maps in the background.
+        NumberPrefixes.get(context).whenLoaded(() -> scheduleRebuild(0));
+        scheduleRebuild(0);
+    }
+
+    private void scheduleRebuild(long delayMs) {
+        // Coalesces bursts of call-log writes into one rebuild.
+        handler.removeCallbacks(rebuildTask);
+        handler.postDelayed(rebuildTask, delayMs);
+    }
+
+    private void rebuild() {
+        SimSubscriptionCache.Snapshot snapshot = SimSubscriptionCache.get(context).snapshot();
+        int[] subscriptionIds = new int[snapshot.sims.size()];
+        for (int i = 0; i < subscriptionIds.length; i++) {
+            subscriptionIds[i] = snapshot.sims.get(i).subscriptionId;
+        }
+
+        SimRoutingEngine.Builder builder = new SimRoutingEngine.Builder(
+            subscriptionIds, snapshot.defaultVoiceSubscriptionId);
+        addCountryRules(builder, snapshot);
+        addCarrierRules(builder, snapshot);
+        addHistory(builder, snapshot);
+
+        Map<String, Integer> numberOverrides = new HashMap<>();
+        Map<Long, Integer> contactOverrides = new HashMap<>();
+        for (Map.Entry<String, ?> entry : prefs().getAll().entrySet()) {
+            if (!(entry.getValue() instanceof Integer)) {
+                continue;
+            }
+            int subscriptionId = (Integer) entry.getValue();
+            if (entry.getKey().startsWith(OVERRIDE_PREFIX)) {
+                numberOverrides.put(entry.getKey().substring(OVERRIDE_PREFIX.length()), subscriptionId);
+            } else if (entry.getKey().startsWith(CONTACT_OVERRIDE_PREFIX)) {
+                try {
+                    contactOverrides.put(Long.parseLong(entry.getKey().substring(CONTACT_OVERRIDE_PREFIX.length())),
+                        subscriptionId);
+                } catch (NumberFormatException e) {
+                    // Not written by setContactOverride
+                }
+            } else if (entry.getKey().startsWith(RULE_PREFIX)) {
+                builder.addPrefixRule(entry.getKey().substring(RULE_PREFIX.length()), subscriptionId);
+            }
+        }
+        hasContactOverrides = !contactOverrides.isEmpty();
+        addContactOverrides(builder, contactOverrides);
+        for (Map.Entry<String, Integer> entry : numberOverrides.entrySet()) {
+            builder.addOverride(entry.getKey(), entry.getValue());
+        }
+
+        engine = builder.build();
+    }
+
+    // Routes international numbers to the SIM issued in the dialled country, when exactly one SIM is.
+    private void addCountryRules(SimRoutingEngine.Builder builder, SimSubscriptionCache.Snapshot snapshot) {
+        Map<String, Integer> simByCode = new HashMap<>();
+        for (SimSubscriptionCache.SimInfo sim : snapshot.sims) {
+            String code = PhoneNumbers.callingCode(sim.countryIso);
+            if (code == null) {
+                continue;
+            }
+            simByCode.put(code, simByCode.containsKey(code) ? SimRoutingEngine.NO_SUBSCRIPTION : sim.subscriptionId);
+        }
+        for (Map.Entry<String, Integer> entry : simByCode.entrySet()) {
+            if (entry.getValue() != SimRoutingEngine.NO_SUBSCRIPTION) {
+                builder.addCountryRule("+" + entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Routes numbers in a carrier's block of the prefix table (an entry labelled with the
+    // carrier's name) to the SIM on that carrier, when exactly one SIM is.
+    private void addCarrierRules(SimRoutingEngine.Builder builder, SimSubscriptionCache.Snapshot snapshot) {
+        PrefixTable table = NumberPrefixes.get(context).table();
+        if (table == null) {
+            return;
+        }
+        Map<String, Integer> simByCarrier = new HashMap<>();
+        for (SimSubscriptionCache.SimInfo sim : snapshot.sims) {
+            if (sim.carrierName == null || sim.carrierName.isEmpty()) {
+                continue;
+            }
+            String carrier = sim.carrierName.toLowerCase(Locale.ROOT);
+            simByCarrier.put(carrier,
+                simByCarrier.containsKey(carrier) ? SimRoutingEngine.NO_SUBSCRIPTION : sim.subscriptionId);
+        }
+        if (simByCarrier.isEmpty()) {
+            return;
+        }
+        table.forEach((digits, length, label) -> {
+            Integer subscriptionId = simByCarrier.get(label.toLowerCase(Locale.ROOT));
+            if (subscriptionId != null && subscriptionId != SimRoutingEngine.NO_SUBSCRIPTION) {
+                StringBuilder prefix = new StringBuilder("+");
+                String value = Long.toString(digits);
+                for (int i = value.length(); i < length; i++) {
+                    prefix.append('0');
+                }
+                builder.addCarrierRule(prefix.append(value).toString(), subscriptionId);
+            }
+        });
+    }
+
+    // Every number saved under an overridden contact gets that contact's SIM.
+    private void addContactOverrides(SimRoutingEngine.Builder builder, Map<Long, Integer> contactOverrides) {
+        if (contactOverrides.isEmpty()
+            || ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        StringBuilder selection = new StringBuilder(ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " IN (");
+        String separator = "";
+        for (Long contactId : contactOverrides.keySet()) {
+            selection.append(separator).append(contactId);
+            separator = ",";
+        }
+        selection.append(')');
+        String[] projection = {
+            ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+            ContactsContract.CommonDataKinds.Phone.NUMBER
+        };
+
+        try (Cursor cursor = context.getContentResolver().query(
+            ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+            projection,
+            selection.toString(),
+            null,
+            null
+        )) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                Integer subscriptionId = contactOverrides.get(cursor.getLong(0));
+                if (subscriptionId != null) {
+                    builder.addOverride(cursor.getString(1), subscriptionId);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read contact numbers for SIM routing", e);
+        }
+    }
+
+    private void addHistory(SimRoutingEngine.Builder builder, SimSubscriptionCache.Snapshot snapshot) {
+        if (snapshot.subscriptionIdsByAccountId.isEmpty()
+            || ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CALL_LOG)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        String[] projection = {
+            CallLog.Calls.NUMBER,
+            CallLog.Calls.PHONE_ACCOUNT_ID,
+            CallLog.Calls.TYPE
+        };
+
+        try (Cursor cursor = contentResolver.query(
+            CallLog.Calls.CONTENT_URI,
+            projection,
+            null,
+            null,
+            CallLog.Calls.DATE + " DESC"
+        )) {
+            if (cursor == null) {
+                return;
+            }
+            int rows = 0;
+            while (cursor.moveToNext() && rows++ < HISTORY_LIMIT) {
+                Integer subscriptionId = snapshot.subscriptionIdsByAccountId.get(cursor.getString(1));
+                if (subscriptionId != null) {
+                    builder.addHistory(cursor.getString(0), subscriptionId,
+                        cursor.getInt(2) == CallLog.Calls.OUTGOING_TYPE);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read call history for SIM routing", e);
+        }
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
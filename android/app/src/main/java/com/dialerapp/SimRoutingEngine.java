@@ -0,0 +1,206 @@
+package com.dialerapp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable routing table. Everything expensive (call-log history, overrides,
+// carrier and country matching) is folded into per-number and per-prefix maps when
+// the engine is built, so route() is a handful of hash lookups. Precedence is
+// override > prefix rule > history > carrier > country > default.
+final class SimRoutingEngine {
+    static final int NO_SUBSCRIPTION = -1;
+
+    static final String REASON_OVERRIDE = "override";
+    static final String REASON_PREFIX_RULE = "prefix_rule";
+    static final String REASON_HISTORY = "history";
+    static final String REASON_CARRIER = "carrier";
+    static final String REASON_COUNTRY = "country";
+    static final String REASON_DEFAULT = "default";
+    static final String REASON_NONE = "none";
+
+    // Longest prefix rule considered, in normalized characters (including '+').
+    static final int MAX_PREFIX_LENGTH = 8;
+
+    static final class Route {
+        final int subscriptionId;
+        final String reason;
+
+        Route(int subscriptionId, String reason) {
+            this.subscriptionId = subscriptionId;
+            this.reason = reason;
+        }
+    }
+
+    private final Map<Long, Route> numberRoutes;
+    private final Map<String, Route> prefixRoutes;
+    private final Map<String, Route> carrierRoutes;
+    private final Map<String, Route> countryRoutes;
+    private final Route defaultRoute;
+
+    private SimRoutingEngine(Map<Long, Route> numberRoutes, Map<String, Route> prefixRoutes,
+                             Map<String, Route> carrierRoutes, Map<String, Route> countryRoutes,
+                             Route defaultRoute) {
+        this.numberRoutes = numberRoutes;
+        this.prefixRoutes = prefixRoutes;
+        this.carrierRoutes = carrierRoutes;
+        this.countryRoutes = countryRoutes;
+        this.defaultRoute = defaultRoute;
+    }
+
+    static SimRoutingEngine empty() {
+        return new SimRoutingEngine(Collections.<Long, Route>emptyMap(), Collections.<String, Route>emptyMap(),
+            Collections.<String, Route>emptyMap(), Collections.<String, Route>emptyMap(),
+            new Route(NO_SUBSCRIPTION, REASON_NONE));
+    }
+
+    Route route(String phoneNumber) {
+        Route route = numberRoutes.get(PhoneNumbers.matchKey(phoneNumber));
+        if (route != null && route.reason.equals(REASON_OVERRIDE)) {
+            return route;
+        }
+
+        String normalized = null;
+        if (!prefixRoutes.isEmpty()) {
+            normalized = PhoneNumbers.normalize(phoneNumber);
+            Route prefixRoute = longestPrefix(prefixRoutes, normalized);
+            if (prefixRoute != null) {
+                return prefixRoute;
+            }
+        }
+
+        if (route != null) {
+            return route;
+        }
+
+        if (!carrierRoutes.isEmpty() || !countryRoutes.isEmpty()) {
+            if (normalized == null) {
+                normalized = PhoneNumbers.normalize(phoneNumber);
+            }
+            Route carrierRoute = longestPrefix(carrierRoutes, normalized);
+            if (carrierRoute != null) {
+                return carrierRoute;
+            }
+            Route countryRoute = longestPrefix(countryRoutes, normalized);
+            if (countryRoute != null) {
+                return countryRoute;
+            }
+        }
+        return defaultRoute;
+    }
+
+    private static Route longestPrefix(Map<String, Route> routes, String normalized) {
+        if (routes.isEmpty()) {
+            return null;
+        }
+        for (int length = Math.min(MAX_PREFIX_LENGTH, normalized.length()); length > 0; length--) {
+            Route route = routes.get(normalized.substring(0, length));
+            if (route != null) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return numberRoutes.size();
+    }
+
+    static final class Builder {
+        private final Map<Long, int[]> votes = new HashMap<>();
+        private final Map<Long, Integer> overrides = new HashMap<>();
+        private final Map<String, Route> prefixRoutes = new HashMap<>();
+        private final Map<String, Route> carrierRoutes = new HashMap<>();
+        private final Map<String, Route> countryRoutes = new HashMap<>();
+        private final Map<Long, Integer> latestSubscription = new HashMap<>();
+        private final int[] subscriptionIds;
+        private final int defaultSubscriptionId;
+
+        // subscriptionIds are the active SIMs; history for other subscriptions is ignored.
+        Builder(int[] subscriptionIds, int defaultSubscriptionId) {
+            this.subscriptionIds = subscriptionIds;
+            this.defaultSubscriptionId = defaultSubscriptionId;
+        }
+
+        // Rows must be fed newest first so ties go to the most recently used SIM.
+        Builder addHistory(String phoneNumber, int subscriptionId, boolean outgoing) {
+            int slot = slotOf(subscriptionId);
+            long key = PhoneNumbers.matchKey(phoneNumber);
+            if (slot < 0 || key == PhoneNumbers.NO_KEY) {
+                return this;
+            }
+            int[] counts = votes.get(key);
+            if (counts == null) {
+                counts = new int[subscriptionIds.length];
+                votes.put(key, counts);
+                latestSubscription.put(key, subscriptionId);
+            }
+            // An outgoing call is a deliberate SIM choice; incoming calls only show which SIM the number knows.
+            counts[slot] += outgoing ? 2 : 1;
+            return this;
+        }
+
+        Builder addOverride(String phoneNumber, int subscriptionId) {
+            long key = PhoneNumbers.matchKey(phoneNumber);
+            if (key != PhoneNumbers.NO_KEY && slotOf(subscriptionId) >= 0) {
+                overrides.put(key, subscriptionId);
+            }
+            return this;
+        }
+
+        // A user rule; ranks above history.
+        Builder addPrefixRule(String prefix, int subscriptionId) {
+            return addRule(prefixRoutes, prefix, subscriptionId, REASON_PREFIX_RULE);
+        }
+
+        // Numbers in a carrier's block go to the SIM on that carrier; ranks below history.
+        Builder addCarrierRule(String prefix, int subscriptionId) {
+            return addRule(carrierRoutes, prefix, subscriptionId, REASON_CARRIER);
+        }
+
+        // Numbers under a calling code go to the SIM issued there; ranks below carrier rules.
+        Builder addCountryRule(String prefix, int subscriptionId) {
+            return addRule(countryRoutes, prefix, subscriptionId, REASON_COUNTRY);
+        }
+
+        private Builder addRule(Map<String, Route> routes, String prefix, int subscriptionId, String reason) {
+            String normalized = PhoneNumbers.normalize(prefix);
+            if (!normalized.isEmpty() && normalized.length() <= MAX_PREFIX_LENGTH && slotOf(subscriptionId) >= 0) {
+                routes.put(normalized, new Route(subscriptionId, reason));
+            }
+            return this;
+        }
+
+        SimRoutingEngine build() {
+            Map<Long, Route> numberRoutes = new HashMap<>(votes.size() + overrides.size());
+            for (Map.Entry<Long, int[]> entry : votes.entrySet()) {
+                int[] counts = entry.getValue();
+                int bestSlot = slotOf(latestSubscription.get(entry.getKey()));
+                for (int slot = 0; slot < counts.length; slot++) {
+                    if (counts[slot] > counts[bestSlot]) {
+                        bestSlot = slot;
+                    }
+                }
+                numberRoutes.put(entry.getKey(), new Route(subscriptionIds[bestSlot], REASON_HISTORY));
+            }
+            for (Map.Entry<Long, Integer> entry : overrides.entrySet()) {
+                numberRoutes.put(entry.getKey(), new Route(entry.getValue(), REASON_OVERRIDE));
+            }
+
+            Route defaultRoute = slotOf(defaultSubscriptionId) >= 0
+                ? new Route(defaultSubscriptionId, REASON_DEFAULT)
+                : new Route(NO_SUBSCRIPTION, REASON_NONE);
+            return new SimRoutingEngine(numberRoutes, new HashMap<>(prefixRoutes), new HashMap<>(carrierRoutes),
+                new HashMap<>(countryRoutes), defaultRoute);
+        }
+
+        private int slotOf(int subscriptionId) {
+            for (int i = 0; i < subscriptionIds.length; i++) {
+                if (subscriptionIds[i] == subscriptionId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
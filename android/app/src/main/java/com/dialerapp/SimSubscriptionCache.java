@@ -0,0 +1,251 @@
+package com.dialerapp;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.telecom.PhoneAccountHandle;
+import android.telecom.TelecomManager;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// In-memory view of the active subscriptions. Readers only touch a volatile
+// immutable snapshot; SubscriptionManager/TelecomManager are queried on a
+// background thread when the platform reports a change.
+class SimSubscriptionCache {
+    private static final String TAG = "SimSubscriptionCache";
+    // TelephonyIntents.ACTION_DEFAULT_VOICE_SUBSCRIPTION_CHANGED is not public API.
+    private static final String ACTION_DEFAULT_VOICE_SUBSCRIPTION_CHANGED =
+        "android.intent.action.ACTION_DEFAULT_VOICE_SUBSCRIPTION_CHANGED";
+    private static final String ACTION_SIM_STATE_CHANGED = "android.intent.action.SIM_STATE_CHANGED";
+
+    private static SimSubscriptionCache instance;
+
+    static final class SimInfo {
+        final int subscriptionId;
+        final int simSlotIndex;
+        final String displayName;
+        final String carrierName;
+        final String number;
+        final String countryIso;
+
+        SimInfo(SubscriptionInfo info) {
+            subscriptionId = info.getSubscriptionId();
+            simSlotIndex = info.getSimSlotIndex();
+            displayName = info.getDisplayName() != null ? info.getDisplayName().toString() : null;
+            carrierName = info.getCarrierName() != null ? info.getCarrierName().toString() : null;
+            number = info.getNumber();
+            countryIso = info.getCountryIso();
+        }
+    }
+
+    static final class Snapshot {
+        final boolean permissionGranted;
+        final List<SimInfo> sims;
+        final int defaultVoiceSubscriptionId;
+        final int phoneCount;
+        final Map<Integer, PhoneAccountHandle> accountHandles;
+        // PhoneAccountHandle.getId() as stored in CallLog.Calls.PHONE_ACCOUNT_ID
+        final Map<String, Integer> subscriptionIdsByAccountId;
+
+        Snapshot(boolean permissionGranted, List<SimInfo> sims, int defaultVoiceSubscriptionId, int phoneCount,
+                 Map<Integer, PhoneAccountHandle> accountHandles, Map<String, Integer> subscriptionIdsByAccountId) {
+            this.permissionGranted = permissionGranted;
+            this.sims = Collections.unmodifiableList(sims);
+            this.defaultVoiceSubscriptionId = defaultVoiceSubscriptionId;
+            this.phoneCount = phoneCount;
+            this.accountHandles = Collections.unmodifiableMap(accountHandles);
+            this.subscriptionIdsByAccountId = Collections.unmodifiableMap(subscriptionIdsByAccountId);
+        }
+
+        SimInfo findSim(int subscriptionId) {
+            for (SimInfo sim : sims) {
+                if (sim.subscriptionId == subscriptionId) {
+                    return sim;
+                }
+            }
+            return null;
+        }
+    }
+
+    interface Listener {
+        void onSubscriptionsChanged(Snapshot snapshot);
+    }
+
+    private final Context context;
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, TAG));
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+    private boolean monitoring;
+
+    private SimSubscriptionCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    static synchronized SimSubscriptionCache get(Context context) {
+        if (instance == null) {
+            instance = new SimSubscriptionCache(context);
+        }
+        instance.startMonitoring();
+        return instance;
+    }
+
+    // Lock-free after the first load. A missing READ_PHONE_STATE grant is retried on
+    // each read so the cache fills as soon as the user grants it.
+    Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || (!current.permissionGranted && hasPhoneStatePermission())) {
+            current = refreshNow();
+        }
+        return current;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void invalidate() {
+        refreshExecutor.execute(() -> {
+            Snapshot updated = refreshNow();
+            for (Listener listener : listeners) {
+                listener.onSubscriptionsChanged(updated);
+            }
+        });
+    }
+
+    private synchronized void startMonitoring() {
+        if (monitoring) {
+            return;
+        }
+        monitoring = true;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(SubscriptionManager.ACTION_DEFAULT_SUBSCRIPTION_CHANGED);
+        filter.addAction(ACTION_DEFAULT_VOICE_SUBSCRIPTION_CHANGED);
+        filter.addAction(ACTION_SIM_STATE_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+        // A grant changes what load() can see; listeners hear about it like any other change.
+        PermissionState.get(context).addListener((permissions, changed) -> {
+            if (changed.contains(Manifest.permission.READ_PHONE_STATE)) {
+                invalidate();
+            }
+        });
+
+        // Pre-R the listener binds to the Looper of the thread that constructs it.
+        new Handler(Looper.getMainLooper()).post(() -> {
+            SubscriptionManager subscriptionManager = (SubscriptionManager)
+                context.getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
+            if (subscriptionManager == null) {
+                return;
+            }
+            subscriptionManager.addOnSubscriptionsChangedListener(
+                new SubscriptionManager.OnSubscriptionsChangedListener() {
+                    @Override
+                    public void onSubscriptionsChanged() {
+                        invalidate();
+                    }
+                });
+        });
+    }
+
+    private synchronized Snapshot refreshNow() {
+        Snapshot updated;
+        try {
+            updated = load();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to load subscriptions", e);
+            updated = emptySnapshot(false, 1);
+        }
+        snapshot = updated;
+        return updated;
+    }
+
+    private Snapshot load() {
+        TelephonyManager telephonyManager = (TelephonyManager)
+            context.getSystemService(Context.TELEPHONY_SERVICE);
+        int phoneCount = telephonyManager != null ? telephonyManager.getPhoneCount() : 1;
+        if (!hasPhoneStatePermission()) {
+            return emptySnapshot(false, phoneCount);
+        }
+
+        SubscriptionManager subscriptionManager = (SubscriptionManager)
+            context.getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
+        TelecomManager telecomManager = (TelecomManager)
+            context.getSystemService(Context.TELECOM_SERVICE);
+
+        List<SimInfo> sims = new ArrayList<>();
+        if (subscriptionManager != null) {
+            List<SubscriptionInfo> infos = subscriptionManager.getActiveSubscriptionInfoList();
+            if (infos != null) {
+                for (SubscriptionInfo info : infos) {
+                    sims.add(new SimInfo(info));
+                }
+            }
+        }
+
+        int defaultVoiceSubscriptionId = SubscriptionManager.getDefaultVoiceSubscriptionId();
+
+        Map<Integer, PhoneAccountHandle> accountHandles = new HashMap<>();
+        Map<String, Integer> subscriptionIdsByAccountId = new HashMap<>();
+        if (telecomManager != null) {
+            for (PhoneAccountHandle handle : telecomManager.getCallCapablePhoneAccounts()) {
+                int subscriptionId = resolveSubscriptionId(handle, telephonyManager, sims);
+                if (subscriptionId != SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
+                    accountHandles.put(subscriptionId, handle);
+                    subscriptionIdsByAccountId.put(handle.getId(), subscriptionId);
+                }
+            }
+        }
+
+        return new Snapshot(true, sims, defaultVoiceSubscriptionId, phoneCount,
+            accountHandles, subscriptionIdsByAccountId);
+    }
+
+    private static int resolveSubscriptionId(PhoneAccountHandle handle, TelephonyManager telephonyManager,
+                                             List<SimInfo> sims) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && telephonyManager != null) {
+            return telephonyManager.getSubscriptionId(handle);
+        }
+        // Older telephony stacks use the subscription ID as the account ID.
+        for (SimInfo sim : sims) {
+            if (String.valueOf(sim.subscriptionId).equals(handle.getId())) {
+                return sim.subscriptionId;
+            }
+        }
+        return SubscriptionManager.INVALID_SUBSCRIPTION_ID;
+    }
+
+    private Snapshot emptySnapshot(boolean permissionGranted, int phoneCount) {
+        return new Snapshot(permissionGranted, new ArrayList<>(), SubscriptionManager.INVALID_SUBSCRIPTION_ID, phoneCount,
+            new HashMap<>(), new HashMap<>());
+    }
+
+    private boolean hasPhoneStatePermission() {
+        return PermissionState.get(context).isGranted(Manifest.permission.READ_PHONE_STATE);
+    }
+}
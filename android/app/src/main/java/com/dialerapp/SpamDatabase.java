@@ -0,0 +1,79 @@
+package com.dialerapp;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Numbers reported as spam, keyed by the number exactly as reported. Kept free of Android
+// types so lookups can be benchmarked on the JVM.
+final class SpamDatabase {
+    private static final SpamDatabase SHARED = withDemoEntries();
+
+    private final Map<String, SpamInfo> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger version = new AtomicInteger();
+
+    static final class SpamInfo {
+        final String category;
+        final String riskLevel;
+        final int reportCount;
+        final String description;
+
+        SpamInfo(String category, String riskLevel, int reportCount, String description) {
+            this.category = category;
+            this.riskLevel = riskLevel;
+            this.reportCount = reportCount;
+            this.description = description;
+        }
+
+        boolean isHighRisk() {
+            return "high".equals(riskLevel) || "critical".equals(riskLevel);
+        }
+    }
+
+    // Demo spam database - in production, this would be a real database or API
+    static SpamDatabase withDemoEntries() {
+        SpamDatabase database = new SpamDatabase();
+        database.put("+1234567890", new SpamInfo("Telemarketer", "high", 150, "Sales calls"));
+        database.put("+1987654321", new SpamInfo("Scam", "critical", 300, "Fake IRS calls"));
+        database.put("+1555123456", new SpamInfo("Robocall", "medium", 75, "Automated messages"));
+        return database;
+    }
+
+    // The app-wide instance that caller ID reads and DialerMirror copies verdicts from.
+    static SpamDatabase shared() {
+        return SHARED;
+    }
+
+    SpamInfo get(String phoneNumber) {
+        return entries.get(phoneNumber);
+    }
+
+    void put(String phoneNumber, SpamInfo info) {
+        entries.put(phoneNumber, info);
+        version.incrementAndGet();
+    }
+
+    // Changes on every put, so snapshots such as SpamTable can tell they are stale.
+    int version() {
+        return version.get();
+    }
+
+    Map<String, SpamInfo> entries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int highRiskCount() {
+        int count = 0;
+        for (SpamInfo info : entries.values()) {
+            if (info.isHighRisk()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
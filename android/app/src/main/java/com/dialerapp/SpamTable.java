@@ -0,0 +1,100 @@
+package com.dialerapp;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Immutable snapshot of a SpamDatabase for the screening path: one sorted long per
+// number, (PhoneNumbers.matchKey << 3) | risk, so a lookup is a binary search with no
+// allocation and numbers match whatever format they were reported in. About 8 bytes per
+// entry against a few hundred for the map.
+final class SpamTable {
+    static final int RISK_NONE = 0;
+    static final int RISK_LOW = 1;
+    static final int RISK_MEDIUM = 2;
+    static final int RISK_HIGH = 3;
+    static final int RISK_CRITICAL = 4;
+
+    private static final int RISK_BITS = 3;
+    private static final long RISK_MASK = (1 << RISK_BITS) - 1;
+
+    private static final SpamTable EMPTY = new SpamTable(new long[0], -1);
+
+    private final long[] entries;
+    private final int version;
+
+    private SpamTable(long[] entries, int version) {
+        this.entries = entries;
+        this.version = version;
+    }
+
+    static SpamTable empty() {
+        return EMPTY;
+    }
+
+    static SpamTable snapshot(SpamDatabase database) {
+        // Read the version first: a put racing the copy only makes the snapshot look stale.
+        int version = database.version();
+        Map<String, SpamDatabase.SpamInfo> source = database.entries();
+        long[] entries = new long[source.size()];
+        int count = 0;
+        for (Map.Entry<String, SpamDatabase.SpamInfo> entry : source.entrySet()) {
+            long key = PhoneNumbers.matchKey(entry.getKey());
+            if (key == PhoneNumbers.NO_KEY) {
+                continue;
+            }
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2 + 1);
+            }
+            entries[count++] = (key << RISK_BITS) | riskOf(entry.getValue());
+        }
+        Arrays.sort(entries, 0, count);
+
+        // Formats of the same number sort together, highest risk last; keep that one.
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i + 1 < count && entries[i] >>> RISK_BITS == entries[i + 1] >>> RISK_BITS) {
+                continue;
+            }
+            entries[unique++] = entries[i];
+        }
+        return new SpamTable(unique == entries.length ? entries : Arrays.copyOf(entries, unique), version);
+    }
+
+    static int riskOf(SpamDatabase.SpamInfo info) {
+        if (info == null || info.riskLevel == null) {
+            return RISK_NONE;
+        }
+        switch (info.riskLevel) {
+            case "critical":
+                return RISK_CRITICAL;
+            case "high":
+                return RISK_HIGH;
+            case "medium":
+                return RISK_MEDIUM;
+            default:
+                return RISK_LOW;
+        }
+    }
+
+    int risk(CharSequence phoneNumber) {
+        long key = PhoneNumbers.matchKey(phoneNumber);
+        if (key == PhoneNumbers.NO_KEY) {
+            return RISK_NONE;
+        }
+        // Searching above every risk of the key lands just after its entry, if any.
+        int index = Arrays.binarySearch(entries, (key << RISK_BITS) | RISK_MASK);
+        int candidate = -index - 2;
+        if (candidate >= 0 && entries[candidate] >>> RISK_BITS == key) {
+            return (int) (entries[candidate] & RISK_MASK);
+        }
+        return RISK_NONE;
+    }
+
+    boolean isCurrent(SpamDatabase database) {
+        return version == database.version();
+    }
+
+    int size() {
+        return entries.length;
+    }
+}
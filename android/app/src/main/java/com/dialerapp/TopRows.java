@@ -0,0 +1,81 @@
+package com.dialerapp;
+
+// Keeps the best capacity rows (int indices into the caller's arrays) out of any number
+// offered, in a primitive min-heap with the weakest kept row at the root: O(n log k)
+// for n offers, no boxing.
+final class TopRows {
+    interface Order {
+        // True if row a ranks ahead of row b.
+        boolean before(int a, int b);
+    }
+
+    private final int[] heap;
+    private final Order order;
+    private int size;
+
+    TopRows(int capacity, Order order) {
+        this.heap = new int[Math.max(0, capacity)];
+        this.order = order;
+    }
+
+    void offer(int row) {
+        if (size < heap.length) {
+            heap[size] = row;
+            siftUp(size++);
+        } else if (size > 0 && order.before(row, heap[0])) {
+            heap[0] = row;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The kept rows, best first. Empties the heap.
+    int[] drain() {
+        int[] rows = new int[size];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return rows;
+    }
+
+    private void siftUp(int index) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!order.before(heap[parent], row)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private void siftDown(int index) {
+        if (size == 0) {
+            return;
+        }
+        int row = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            // Move towards the weaker child; the root must rank behind everything kept.
+            if (child + 1 < size && order.before(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!order.before(row, heap[child])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+}
@@ -0,0 +1,126 @@
+package com.dialerapp;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Streaming peak/RMS and silence detection over 16-bit PCM. Memory is two bytes per
+// WaveformSummary.BUCKET_MILLIS of audio plus the silence list, whatever the chunk sizes
+// the decoder hands over; channels are averaged to mono.
+final class WaveformAnalyzer {
+    // Buckets quieter than this (RMS, dBFS) count as silence. Call audio carries codec
+    // and line noise well above digital silence.
+    static final double SILENCE_THRESHOLD_DB = -45;
+    // Shorter pauses are ordinary gaps in speech, not worth skipping.
+    static final int MIN_SILENCE_MILLIS = 700;
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final long framesPerBucket;
+    private final int minSilenceBuckets;
+
+    private byte[] peaks = new byte[256];
+    private byte[] rms = new byte[256];
+    private int bucketCount;
+    private int[] silences = new int[16];
+    private int silenceCount;
+    private int silentRunStart = -1;
+
+    // Current bucket and frame, carried over between chunks.
+    private long bucketFrames;
+    private int bucketPeak;
+    private long bucketSumSquares;
+    private int frameChannel;
+    private int frameSum;
+    private long totalFrames;
+
+    WaveformAnalyzer(int sampleRate, int channelCount) {
+        if (sampleRate <= 0 || channelCount <= 0) {
+            throw new IllegalArgumentException("Bad PCM format: " + sampleRate + " Hz, " + channelCount + " channels");
+        }
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        framesPerBucket = Math.max(1, (long) sampleRate * WaveformSummary.BUCKET_MILLIS / 1000);
+        minSilenceBuckets = (MIN_SILENCE_MILLIS + WaveformSummary.BUCKET_MILLIS - 1) / WaveformSummary.BUCKET_MILLIS;
+    }
+
+    // Interleaved 16-bit samples in the buffer's byte order (MediaCodec output is native
+    // order); consumes everything remaining.
+    void addPcm16(ByteBuffer pcm) {
+        ByteBuffer samples = pcm.slice().order(pcm.order());
+        while (samples.remaining() >= 2) {
+            addSample(samples.getShort());
+        }
+        pcm.position(pcm.limit());
+    }
+
+    void addSamples(short[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            addSample(samples[i]);
+        }
+    }
+
+    WaveformSummary finish() {
+        if (bucketFrames > 0) {
+            closeBucket();
+        }
+        closeSilentRun(bucketCount);
+        long durationMillis = totalFrames * 1000 / sampleRate;
+        return new WaveformSummary(durationMillis, Arrays.copyOf(peaks, bucketCount), Arrays.copyOf(rms, bucketCount),
+            Arrays.copyOf(silences, silenceCount * 2), true);
+    }
+
+    private void addSample(short sample) {
+        frameSum += sample;
+        if (++frameChannel < channelCount) {
+            return;
+        }
+        int value = frameSum / channelCount;
+        frameChannel = 0;
+        frameSum = 0;
+
+        int magnitude = Math.abs(value);
+        if (magnitude > bucketPeak) {
+            bucketPeak = magnitude;
+        }
+        bucketSumSquares += (long) value * value;
+        totalFrames++;
+        if (++bucketFrames == framesPerBucket) {
+            closeBucket();
+        }
+    }
+
+    private void closeBucket() {
+        double rmsLevel = Math.sqrt((double) bucketSumSquares / bucketFrames);
+        if (bucketCount == peaks.length) {
+            peaks = Arrays.copyOf(peaks, bucketCount * 2);
+            rms = Arrays.copyOf(rms, bucketCount * 2);
+        }
+        peaks[bucketCount] = WaveformSummary.quantize(bucketPeak);
+        rms[bucketCount] = WaveformSummary.quantize(rmsLevel);
+
+        boolean silent = WaveformSummary.toDecibels(rmsLevel) < SILENCE_THRESHOLD_DB;
+        if (silent && silentRunStart < 0) {
+            silentRunStart = bucketCount;
+        } else if (!silent) {
+            closeSilentRun(bucketCount);
+        }
+
+        bucketCount++;
+        bucketFrames = 0;
+        bucketPeak = 0;
+        bucketSumSquares = 0;
+    }
+
+    private void closeSilentRun(int endBucket) {
+        if (silentRunStart >= 0 && endBucket - silentRunStart >= minSilenceBuckets) {
+            if (silenceCount * 2 == silences.length) {
+                silences = Arrays.copyOf(silences, silences.length * 2);
+            }
+            silences[silenceCount * 2] = silentRunStart * WaveformSummary.BUCKET_MILLIS;
+            long end = Math.min((long) endBucket * WaveformSummary.BUCKET_MILLIS, totalFrames * 1000 / sampleRate);
+            silences[silenceCount * 2 + 1] = (int) end;
+            silenceCount++;
+        }
+        silentRunStart = -1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dialerapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Peak/RMS levels per BUCKET_MILLIS and silent stretches of one recording, stored next
+// to it as "<recording>.wfm" (a few KB for a typical call). Levels are one byte each on
+// a 0-255 scale spanning FLOOR_DB..0 dBFS, so quiet speech still draws.
+final class WaveformSummary {
+    static final int BUCKET_MILLIS = 100;
+    static final String FILE_SUFFIX = ".wfm";
+
+    private static final int MAGIC = 0x4457464d; // "DWFM"
+    private static final int FORMAT_VERSION = 2;
+    private static final double FLOOR_DB = -60;
+
+    final long durationMillis;
+    final byte[] peaks;
+    final byte[] rms;
+    // Pairs of start and end offsets in milliseconds.
+    final int[] silences;
+    // False if the recording was cut off (a sealed file whose writer died); the levels
+    // cover what was saved.
+    final boolean complete;
+
+    WaveformSummary(long durationMillis, byte[] peaks, byte[] rms, int[] silences, boolean complete) {
+        this.durationMillis = durationMillis;
+        this.peaks = peaks;
+        this.rms = rms;
+        this.silences = silences;
+        this.complete = complete;
+    }
+
+    WaveformSummary cutOff() {
+        return new WaveformSummary(durationMillis, peaks, rms, silences, false);
+    }
+
+    static File fileFor(File recording) {
+        return new File(recording.getPath() + FILE_SUFFIX);
+    }
+
+    static double toDecibels(double amplitude) {
+        return amplitude <= 0 ? Double.NEGATIVE_INFINITY : 20 * Math.log10(amplitude / 32768.0);
+    }
+
+    static byte quantize(double amplitude) {
+        double scaled = (toDecibels(amplitude) - FLOOR_DB) / -FLOOR_DB * 255;
+        return (byte) Math.max(0, Math.min(255, Math.round(scaled)));
+    }
+
+    void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(BUCKET_MILLIS);
+        out.writeLong(durationMillis);
+        out.writeInt(peaks.length);
+        out.write(peaks);
+        out.write(rms);
+        out.writeInt(silences.length / 2);
+        for (int value : silences) {
+            out.writeInt(value);
+        }
+        out.writeBoolean(complete);
+        out.flush();
+    }
+
+    static WaveformSummary readFrom(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != BUCKET_MILLIS) {
+            throw new IOException("Not a waveform summary in the current format");
+        }
+        long durationMillis = in.readLong();
+        byte[] peaks = new byte[in.readInt()];
+        byte[] rms = new byte[peaks.length];
+        in.readFully(peaks);
+        in.readFully(rms);
+        int[] silences = new int[in.readInt() * 2];
+        for (int i = 0; i < silences.length; i++) {
+            silences[i] = in.readInt();
+        }
+        return new WaveformSummary(durationMillis, peaks, rms, silences, in.readBoolean());
+    }
+}
@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# Compiles the Android-free app sources together with the benchmarks and runs one of them.
+#   benchmark/run.sh DataPathBenchmarks --json build/benchmark-results.json
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+out=build/benchmark-classes
+rm -rf "$out"
+mkdir -p "$out"
+
+# App sources that import nothing from android.*, androidx.* or com.facebook.*.
+sources=$(grep -L -E '^import (android|androidx|com\.facebook)\.' app/src/main/java/com/dialerapp/*.java)
+javac -encoding UTF-8 -d "$out" $sources benchmark/src/main/java/com/dialerapp/*.java
+
+main=${1:-DataPathBenchmarks}
+shift || true
+java -cp "$out" "com.dialerapp.$main" "$@"
@@ -0,0 +1,131 @@
+package com.dialerapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Minimal warm-up/measure loop for the JVM benchmarks in this source set.
+final class BenchmarkRunner {
+
+    interface Operation {
+        // Returns something derived from the work so the JIT cannot drop it.
+        Object run() throws Exception;
+    }
+
+    static final class Result {
+        final String name;
+        final int iterations;
+        final double meanMicros;
+        final double p50Micros;
+        final double p99Micros;
+        final long allocatedBytesPerOp;
+
+        Result(String name, int iterations, double meanMicros, double p50Micros, double p99Micros,
+               long allocatedBytesPerOp) {
+            this.name = name;
+            this.iterations = iterations;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-48s mean %10.1f us  p50 %10.1f us  p99 %10.1f us  alloc %,12d B/op",
+                name, meanMicros, p50Micros, p99Micros, allocatedBytesPerOp);
+        }
+    }
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final List<Result> results = new ArrayList<>();
+    private Object sink;
+
+    BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    Result run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            sink = operation.run();
+        }
+
+        long[] samples = new long[measuredIterations];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < measuredIterations; i++) {
+            long start = System.nanoTime();
+            sink = operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        Arrays.sort(samples);
+        Result result = new Result(
+            name,
+            measuredIterations,
+            total / 1000.0 / measuredIterations,
+            samples[measuredIterations / 2] / 1000.0,
+            samples[Math.min(measuredIterations - 1, (int) Math.ceil(measuredIterations * 0.99) - 1)] / 1000.0,
+            allocated < 0 ? -1 : allocated / measuredIterations
+        );
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    List<Result> getResults() {
+        return results;
+    }
+
+    // One object per run, plus enough environment to tell two result files apart. Names are
+    // written as-is, so they must not contain quotes or backslashes.
+    void writeJson(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write("  \"timestamp\": " + System.currentTimeMillis() + ",\n");
+            out.write("  \"javaVersion\": \"" + System.getProperty("java.version") + "\",\n");
+            out.write("  \"os\": \"" + System.getProperty("os.name") + " " + System.getProperty("os.arch") + "\",\n");
+            out.write("  \"warmupIterations\": " + warmupIterations + ",\n");
+            out.write("  \"results\": [");
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i);
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write(String.format(java.util.Locale.ROOT,
+                    "    {\"name\": \"%s\", \"iterations\": %d, \"meanMicros\": %.3f, \"p50Micros\": %.3f, "
+                        + "\"p99Micros\": %.3f, \"allocatedBytesPerOp\": %d}",
+                    result.name, result.iterations, result.meanMicros, result.p50Micros, result.p99Micros,
+                    result.allocatedBytesPerOp));
+            }
+            out.write("\n  ]\n}\n");
+        }
+    }
+
+    Object getSink() {
+        return sink;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.dialerapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares the per-row map result of getCallLog (string keys, numeric fields via
+// putString, JSON on the legacy bridge) with the columnar blob of getCallLogColumnar.
+public final class ColumnarSerializationBenchmark {
+
+    private ColumnarSerializationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] rowCounts = { 10_000, 50_000 };
+        BenchmarkRunner runner = new BenchmarkRunner(5, 20);
+
+        for (int rows : rowCounts) {
+            Fixtures.CallLogRows data = Fixtures.CallLogRows.generate(rows, 42);
+
+            runner.run("callLog/perRowMaps+json/" + rows, () -> toJson(toRowMaps(data)));
+            runner.run("callLog/columnar+base64/" + rows, () -> toColumnarBase64(data));
+
+            int jsonBytes = toJson(toRowMaps(data)).getBytes(StandardCharsets.UTF_8).length;
+            int columnarBytes = toColumnarBase64(data).length();
+            System.out.printf("callLog/payload/%d  json %,d B  columnar %,d B  (%.1f%%)%n",
+                rows, jsonBytes, columnarBytes, 100.0 * columnarBytes / jsonBytes);
+        }
+    }
+
+    // Mirrors CallLogManagerModule.getCallLog: one map per row, numeric columns as strings.
+    static List<Map<String, Object>> toRowMaps(Fixtures.CallLogRows data) {
+        List<Map<String, Object>> rows = new ArrayList<>(data.size);
+        for (int i = 0; i < data.size; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", String.valueOf(data.ids[i]));
+            row.put("number", data.numbers[i]);
+            row.put("name", data.names[i]);
+            row.put("type", data.types[i]);
+            row.put("date", String.valueOf(data.dates[i]));
+            row.put("duration", String.valueOf(data.durations[i]));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    static String toColumnarBase64(Fixtures.CallLogRows data) {
+        ColumnarResultBuilder result = new ColumnarResultBuilder();
+        ColumnarResultBuilder.DoubleColumn ids = result.doubleColumn("id");
+        ColumnarResultBuilder.StringColumn numbers = result.stringColumn("number");
+        ColumnarResultBuilder.StringColumn names = result.stringColumn("name");
+        ColumnarResultBuilder.IntColumn types = result.intColumn("type");
+        ColumnarResultBuilder.DoubleColumn dates = result.doubleColumn("date");
+        ColumnarResultBuilder.IntColumn durations = result.intColumn("duration");
+        for (int i = 0; i < data.size; i++) {
+            ids.add(data.ids[i]);
+            numbers.add(data.numbers[i]);
+            names.add(data.names[i]);
+            types.add(data.types[i]);
+            dates.add(data.dates[i]);
+            durations.add(data.durations[i]);
+        }
+        return Base64.getEncoder().encodeToString(result.toByteArray());
+    }
+
+    // What the legacy bridge sends for an array of maps.
+    static String toJson(List<Map<String, Object>> rows) {
+        StringBuilder json = new StringBuilder(rows.size() * 128);
+        json.append('[');
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : rows.get(i).entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append('"').append(entry.getKey()).append("\":");
+                Object value = entry.getValue();
+                if (value == null) {
+                    json.append("null");
+                } else if (value instanceof String) {
+                    json.append('"').append((String) value).append('"');
+                } else {
+                    json.append(value);
+                }
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,552 @@
+package com.dialerapp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+// The pure-Java cores behind the dialer modules, run against fixtures of realistic size.
+//
+//   DataPathBenchmarks [--json <file>] [rows...]
+//
+// rows defaults to 10000 and 100000; results also go to build/benchmark-results.json
+// (relative to the working directory) unless --json says otherwise.
+public final class DataPathBenchmarks {
+    private static final int LOOKUPS_PER_OP = 10_000;
+    private static final int[] RECORDING_COUNTS = { 1_000, 10_000 };
+    private static final int SCREENING_SPAM_ENTRIES = 2_000_000;
+    private static final int PREFIX_TABLE_ENTRIES = 200_000;
+
+    private DataPathBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File json = new File("build/benchmark-results.json");
+        List<Integer> rowCounts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--json".equals(args[i]) && i + 1 < args.length) {
+                json = new File(args[++i]);
+            } else {
+                rowCounts.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (rowCounts.isEmpty()) {
+            rowCounts.add(10_000);
+            rowCounts.add(100_000);
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(5, 20);
+        patternIdentification(runner);
+        searchIndexing(runner);
+        for (int rows : rowCounts) {
+            spamLookup(runner, rows);
+            rowMapping(runner, rows);
+            callLogGrouping(runner, rows);
+            frecency(runner, rows);
+            backup(runner, rows);
+        }
+        for (int count : RECORDING_COUNTS) {
+            recordingListing(runner, count);
+        }
+        callScreening(runner);
+        prefixLookup(runner);
+        waveformAnalysis(runner);
+        segmentRecovery(runner);
+        sealedRecording(runner);
+        ringAlerts(runner);
+        recordingSessions(runner);
+
+        runner.writeJson(json);
+        System.out.println("\nWrote " + json.getAbsolutePath());
+    }
+
+    // The spam-database step of CallerIdentificationModule.identify. Each op is
+    // LOOKUPS_PER_OP numbers with about 10% hits.
+    private static void spamLookup(BenchmarkRunner runner, int spamEntries) throws Exception {
+        SpamDatabase spamDatabase = new SpamDatabase();
+        String[] spamNumbers = Fixtures.spamNumbers(spamEntries, 7);
+        for (String number : spamNumbers) {
+            spamDatabase.put(number, new SpamDatabase.SpamInfo("Robocall", "medium", 1, ""));
+        }
+        String[] lookups = Fixtures.lookupNumbers(spamNumbers, LOOKUPS_PER_OP, 0.1, 11);
+
+        runner.run("spamLookup/" + spamEntries + "entries/x" + LOOKUPS_PER_OP, () -> {
+            int hits = 0;
+            for (String number : lookups) {
+                if (spamDatabase.get(number) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+    }
+
+    // DialerScreeningService against a spam set of SCREENING_SPAM_ENTRIES: building the
+    // SpamTable snapshot (off the screening path), and LOOKUPS_PER_OP decisions with about
+    // 10% spam hits, half of them in a different format than reported, plus the
+    // premium-rate pattern numbers. No caller is a contact.
+    private static void callScreening(BenchmarkRunner runner) throws Exception {
+        SpamDatabase spamDatabase = new SpamDatabase();
+        String[] spamNumbers = Fixtures.spamNumbers(SCREENING_SPAM_ENTRIES, 37);
+        SpamDatabase.SpamInfo[] levels = {
+            new SpamDatabase.SpamInfo("Robocall", "medium", 1, ""),
+            new SpamDatabase.SpamInfo("Telemarketer", "high", 1, ""),
+            new SpamDatabase.SpamInfo("Scam", "critical", 1, ""),
+        };
+        for (int i = 0; i < spamNumbers.length; i++) {
+            spamDatabase.put(spamNumbers[i], levels[i % levels.length]);
+        }
+        String[] lookups = Fixtures.screenedNumbers(spamNumbers, LOOKUPS_PER_OP, 0.1, 41);
+
+        runner.run("screeningSnapshot/" + SCREENING_SPAM_ENTRIES, () -> SpamTable.snapshot(spamDatabase));
+
+        CallScreeningPolicy policy = new CallScreeningPolicy(spamDatabase);
+        policy.refresh();
+        CallScreeningPolicy.ContactLookup noContacts = number -> false;
+        runner.run("screeningDecide/" + SCREENING_SPAM_ENTRIES + "entries/x" + LOOKUPS_PER_OP, () -> {
+            int screened = 0;
+            for (String number : lookups) {
+                if (policy.decide(number, noContacts) != CallScreeningPolicy.ALLOW) {
+                    screened++;
+                }
+            }
+            return screened;
+        });
+    }
+
+    // The location fallback of CallerIdentificationModule.identify: NumberPrefixes maps a
+    // PrefixTable compiled from PREFIX_TABLE_ENTRIES prefixes, as on device.
+    private static void prefixLookup(BenchmarkRunner runner) throws Exception {
+        File file = File.createTempFile("number_prefixes", ".bin");
+        try {
+            try (BufferedReader source = new BufferedReader(
+                    new StringReader(Fixtures.prefixTableSource(PREFIX_TABLE_ENTRIES, 43)));
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                PrefixTable.compile(source, out);
+            }
+            PrefixTable table;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                table = PrefixTable.open(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+            }
+
+            String[] numbers = Fixtures.internationalNumbers(LOOKUPS_PER_OP, 47);
+            runner.run("prefixLookup/" + PREFIX_TABLE_ENTRIES + "/x" + LOOKUPS_PER_OP, () -> {
+                int found = 0;
+                for (String number : numbers) {
+                    if (table.find(number) != PrefixTable.NO_MATCH) {
+                        found++;
+                    }
+                }
+                return found;
+            });
+
+            // NumberPrefixes.label for national numbers in a region with a 2-digit code.
+            String[] national = Fixtures.nationalNumbers(LOOKUPS_PER_OP, 53);
+            runner.run("prefixLookupNational/" + PREFIX_TABLE_ENTRIES + "/x" + LOOKUPS_PER_OP, () -> {
+                int found = 0;
+                for (String number : national) {
+                    if (table.lookupNational(44, 2, number, PhoneNumbers.nationalStart(number, "0")) != null) {
+                        found++;
+                    }
+                }
+                return found;
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    // The fallback step for numbers that are neither contacts nor known spam.
+    private static void patternIdentification(BenchmarkRunner runner) throws Exception {
+        String[] patternNumbers = Fixtures.patternNumbers(LOOKUPS_PER_OP, 13);
+        runner.run("patternIdentify/x" + LOOKUPS_PER_OP, () -> {
+            int matches = 0;
+            for (String number : patternNumbers) {
+                if (NumberPatterns.identify(number) != null) {
+                    matches++;
+                }
+            }
+            return matches;
+        });
+    }
+
+    // The Java side of DialerSearchIndex: number terms built per indexed row, and ranking
+    // of matchinfo blobs for a full candidate set.
+    private static void searchIndexing(BenchmarkRunner runner) throws Exception {
+        String[] numbers = Fixtures.patternNumbers(LOOKUPS_PER_OP, 19);
+        runner.run("searchNumberTerms/x" + LOOKUPS_PER_OP, () -> {
+            int length = 0;
+            for (String number : numbers) {
+                length += SearchText.numberTerms(number).length();
+            }
+            return length;
+        });
+
+        // Two phrases over the six search_index columns, hits in title and terms.
+        byte[][] blobs = new byte[LOOKUPS_PER_OP][];
+        Random random = new Random(23);
+        for (int i = 0; i < blobs.length; i++) {
+            ByteBuffer blob = ByteBuffer.allocate(4 * (3 + 3 * 2 * 6)).order(ByteOrder.nativeOrder());
+            blob.putInt(2).putInt(6).putInt(50_000);
+            for (int cell = 0; cell < 2 * 6; cell++) {
+                int column = cell % 6;
+                boolean indexed = column == 2 || column == 4;
+                blob.putInt(indexed ? random.nextInt(3) : 0).putInt(indexed ? 900 : 0).putInt(indexed ? 700 : 0);
+            }
+            blobs[i] = blob.array();
+        }
+        double[] weights = { 0, 0, 2.0, 0, 1.0, 0 };
+        long now = System.currentTimeMillis();
+        runner.run("searchRank/x" + LOOKUPS_PER_OP, () -> {
+            double total = 0;
+            for (int i = 0; i < blobs.length; i++) {
+                total += SearchRanker.score(SearchRanker.decodeMatchinfo(blobs[i]), weights, now - i * 60_000L, now);
+            }
+            return total;
+        });
+    }
+
+    private static void rowMapping(BenchmarkRunner runner, int rows) throws Exception {
+        Fixtures.CallLogRows callLog = Fixtures.CallLogRows.generate(rows, 42);
+        Fixtures.ContactRows contacts = Fixtures.ContactRows.generate(rows, 43);
+
+        runner.run("callLogRowMapping/" + rows, () -> CallLogRowMapper.toColumnar(callLog.cursor()).toByteArray());
+        runner.run("contactRowMapping/" + rows, () -> ContactRowMapper.toColumnar(contacts.cursor()).toByteArray());
+    }
+
+    // getCallLogGroups: the first page of recents groups against grouping the whole log.
+    private static void callLogGrouping(BenchmarkRunner runner, int rows) throws Exception {
+        Fixtures.CallLogRows callLog = Fixtures.CallLogRows.generate(rows, 42);
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+
+        runner.run("callLogGroups/firstPage/" + rows, () -> {
+            CallLogGrouper grouper = new CallLogGrouper(30, zone);
+            grouper.consume(callLog.cursor());
+            return grouper.finish();
+        });
+        runner.run("callLogGroups/all/" + rows, () -> {
+            CallLogGrouper grouper = new CallLogGrouper(Integer.MAX_VALUE, zone);
+            grouper.consume(callLog.cursor());
+            return grouper.finish();
+        });
+    }
+
+    // CallFrecency: the first full pass over the log, one new call applied to a copy of
+    // the index (what each call-log change costs), getTopContacts' top 20, and dialpad
+    // search with and without frecency ordering.
+    private static void frecency(BenchmarkRunner runner, int rows) throws Exception {
+        Fixtures.CallLogRows callLog = Fixtures.CallLogRows.generate(rows, 42);
+        runner.run("frecencyBuild/" + rows, () -> {
+            FrecencyIndex index = new FrecencyIndex();
+            index.consume(callLog.cursor());
+            return index;
+        });
+
+        FrecencyIndex index = new FrecencyIndex();
+        index.consume(callLog.cursor());
+        runner.run("frecencyAppend/" + rows, () -> {
+            FrecencyIndex next = index.copy();
+            next.consume(new FakeCursor(1, new long[] { rows + 1L }, new String[] { callLog.numbers[0] },
+                new String[] { callLog.names[0] }, new int[] { 2 }, new long[] { callLog.dates[0] + 60_000 },
+                new int[] { 90 }));
+            return next;
+        });
+        runner.run("frecencyTop20/" + rows, () -> index.top(20, null));
+
+        Fixtures.ContactRows contacts = Fixtures.ContactRows.generate(rows, 43);
+        DialpadIndex dialpad = new DialpadIndex(contacts.contactIds, contacts.names, contacts.numbers);
+        runner.run("dialpadSearch/" + rows, () -> dialpad.search("72", 20));
+        runner.run("dialpadSearchRanked/" + rows, () -> dialpad.search("72", 20, index));
+    }
+
+    // DialerBackupModule without the providers and the file: export of the whole log and
+    // contact list through gzip, and parsing the compressed call-log backup back.
+    private static void backup(BenchmarkRunner runner, int rows) throws Exception {
+        Fixtures.CallLogRows callLog = Fixtures.CallLogRows.generate(rows, 42);
+        Fixtures.ContactRows contacts = Fixtures.ContactRows.generate(rows, 43);
+        BackupCodec.Progress progress = count -> { };
+        runner.run("backupExportCallLog/" + rows, () ->
+            gzip(writer -> BackupCodec.writeCalls(callLog.cursor(), writer, progress)));
+        runner.run("backupExportContactsNdjson/" + rows, () -> gzip(writer ->
+            BackupCodec.writeContacts(contacts.cursor(), writer, BackupCodec.FORMAT_NDJSON, progress)));
+        runner.run("backupExportContactsVCard/" + rows, () -> gzip(writer ->
+            BackupCodec.writeContacts(contacts.cursor(), writer, BackupCodec.FORMAT_VCARD, progress)));
+
+        byte[] callLogBackup = gzip(writer -> BackupCodec.writeCalls(callLog.cursor(), writer, progress));
+        runner.run("backupImportCallLog/" + rows, () -> {
+            long[] dates = new long[1];
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(callLogBackup)), StandardCharsets.UTF_8))) {
+                BackupCodec.readCalls(reader, (number, name, type, date, duration) -> dates[0] += date, progress);
+            }
+            return dates[0];
+        });
+    }
+
+    private interface BackupBody {
+        void write(Writer writer) throws IOException;
+    }
+
+    private static byte[] gzip(BackupBody body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(bytes, 65536),
+                StandardCharsets.UTF_8), 65536)) {
+            body.write(writer);
+        }
+        return bytes.toByteArray();
+    }
+
+    // EncryptedAmrRecorder's pump against writing the same stream unencrypted: 8 MB
+    // (about 90 minutes of AMR-NB) in pipe-read-sized pieces to a file, the sealing alone,
+    // then random 1 KB reads the way MediaExtractor seeks through SealedRecordingSource.
+    private static void sealedRecording(BenchmarkRunner runner) throws Exception {
+        byte[] audio = new byte[8 << 20];
+        new Random(53).nextBytes(audio);
+        int piece = SealedRecording.CHUNK_BYTES;
+        SecretKey key = new SecretKeySpec(Arrays.copyOf(audio, 32), "AES");
+        SecureRandom random = new SecureRandom();
+        File file = File.createTempFile("sealed", ".amr.enc");
+        try {
+            runner.run("recordingWritePlain/8MB", () -> {
+                try (OutputStream out = new FileOutputStream(file)) {
+                    for (int offset = 0; offset < audio.length; offset += piece) {
+                        out.write(audio, offset, piece);
+                    }
+                }
+                return file.length();
+            });
+            runner.run("recordingWriteSealed/8MB", () -> {
+                try (OutputStream out = new SealedRecording.Writer(new FileOutputStream(file), key, new byte[40],
+                        SealedRecording.CHUNK_BYTES, random)) {
+                    for (int offset = 0; offset < audio.length; offset += piece) {
+                        out.write(audio, offset, piece);
+                    }
+                }
+                return file.length();
+            });
+            // The encryption alone, without the file.
+            runner.run("recordingSealOnly/8MB", () -> {
+                try (OutputStream out = new SealedRecording.Writer(OutputStream.nullOutputStream(), key, new byte[40],
+                        SealedRecording.CHUNK_BYTES, random)) {
+                    for (int offset = 0; offset < audio.length; offset += piece) {
+                        out.write(audio, offset, piece);
+                    }
+                }
+                return audio.length;
+            });
+
+            try (SealedRecording.Reader reader = SealedRecording.Reader.open(file, wrapped -> key)) {
+                long[] positions = new long[1_000];
+                Random seeks = new Random(59);
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = (long) (seeks.nextDouble() * (audio.length - 1024));
+                }
+                byte[] buffer = new byte[1024];
+                runner.run("recordingReadSealed/random1KBx" + positions.length, () -> {
+                    long sum = 0;
+                    for (long position : positions) {
+                        sum += reader.read(position, buffer, 0, buffer.length);
+                    }
+                    return sum;
+                });
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    // The analysis core behind RecordingAnalyzer, fed in decoder-sized chunks: a 5 minute
+    // call at AMR-NB's 8 kHz.
+    private static void waveformAnalysis(BenchmarkRunner runner) throws Exception {
+        int sampleRate = 8_000;
+        short[] pcm = Fixtures.speechLikePcm(sampleRate, 300, 29);
+        int chunk = 160; // one 20 ms AMR frame
+        runner.run("waveformAnalysis/300s", () -> {
+            WaveformAnalyzer analyzer = new WaveformAnalyzer(sampleRate, 1);
+            for (int offset = 0; offset < pcm.length; offset += chunk) {
+                analyzer.addSamples(pcm, offset, Math.min(chunk, pcm.length - offset));
+            }
+            return analyzer.finish();
+        });
+    }
+
+    // AmrSegments.stitch as run by SegmentedAmrRecorder.stop and the startup recovery pass:
+    // a 60 minute call in 5 minute segments (about 5.8 MB), including the fsync.
+    private static void segmentRecovery(BenchmarkRunner runner) throws Exception {
+        File root = Fixtures.amrSegmentsRoot(60, 5, 31);
+        File output = new File(root, "stitched.amr");
+        try {
+            File[] segments = AmrSegments.list(root.listFiles(File::isDirectory)[0]);
+            runner.run("amrStitch/60min", () -> AmrSegments.stitch(segments, output));
+        } finally {
+            Fixtures.deleteRecursively(root);
+        }
+    }
+
+    // Hits the real filesystem: one listFiles plus a stat per entry, as on device.
+    private static void recordingListing(BenchmarkRunner runner, int count) throws Exception {
+        File dir = Fixtures.recordingsDir(count, 17);
+        try {
+            runner.run("recordingListing/" + count, () ->
+                RecordingListing.toColumnar(RecordingListing.list(dir, ".3gp")).toByteArray());
+        } finally {
+            Fixtures.deleteRecursively(dir);
+        }
+    }
+
+    // RingAlertController's decisions for a call that rings (its notification shown twice by
+    // JS), is answered, gets a waiting call that is answered, then hangs up.
+    // Expected to allocate nothing.
+    private static void ringAlerts(BenchmarkRunner runner) throws Exception {
+        RingAlertStateMachine machine = new RingAlertStateMachine();
+        int calls = 10_000;
+        runner.run("ringAlertTransitions/" + calls + "calls", () -> {
+            long actions = 0;
+            for (int i = 0; i < calls; i++) {
+                actions += machine.onIncoming(i).ordinal();
+                actions += machine.onIncoming(i + 1).ordinal();
+                actions += machine.onOffhook().ordinal();
+                actions += machine.onIncoming(i + 2).ordinal();
+                actions += machine.onOffhook().ordinal();
+                actions += machine.onIdle().ordinal();
+            }
+            return actions;
+        });
+    }
+
+    // RecordingSessionManager against FakeRecorder: the state machine is checked once,
+    // including failed prepares, starts and stops and the prepare timeout, then a warm
+    // prepare, start and stop is timed per call. Output files are never created.
+    private static void recordingSessions(BenchmarkRunner runner) throws Exception {
+        checkRecordingSessions();
+
+        FakeRecorder.Factory factory = new FakeRecorder.Factory();
+        RecordingSessionManager manager = new RecordingSessionManager(factory);
+        File dir = new File(System.getProperty("java.io.tmpdir"), "recording-sessions");
+        int calls = 1_000;
+        try {
+            runner.run("recordingSessions/" + calls + "calls", () -> {
+                factory.clear();
+                long segments = 0;
+                for (int i = 0; i < calls; i++) {
+                    String callId = "call-" + i;
+                    String path = new File(dir, callId + ".amr").getPath();
+                    RecordingSession prepared = manager.prepare(callId, path);
+                    manager.startNow(callId, path);
+                    segments += manager.stop(prepared.sessionId).segment;
+                    manager.stopCall(callId);
+                }
+                return segments;
+            });
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private static void checkRecordingSessions() throws Exception {
+        FakeRecorder.Factory factory = new FakeRecorder.Factory();
+        RecordingSessionManager manager = new RecordingSessionManager(factory, 100);
+        File dir = Files.createTempDirectory("recording-sessions").toFile();
+        String path = new File(dir, "call.amr").getPath();
+        try {
+            RecordingSession prepared = manager.prepare("a", path);
+            expect(prepared.state == RecordingSession.State.PREPARED, "prepare leaves the session prepared");
+            expect(manager.prepare("a", path) == prepared, "preparing twice reuses the prepared session");
+            RecordingSession recording = manager.startNow("a", path);
+            expect(recording.sessionId.equals(prepared.sessionId), "startNow starts the prepared session");
+            expect(recording.state == RecordingSession.State.RECORDING && recording.startTime > 0, "start records");
+            expect(manager.getLatestRecording() == recording, "the recording is published");
+            expectError(() -> manager.prepare("a", path), RecordingSessionManager.ERROR_ALREADY_RECORDING);
+            RecordingSession completed = manager.stop(recording.sessionId);
+            expect(completed.state == RecordingSession.State.COMPLETED && completed.endTime > 0, "stop completes");
+            expect(manager.getSessions().isEmpty(), "completed sessions are dropped");
+            expectError(() -> manager.start(recording.sessionId), RecordingSessionManager.ERROR_INVALID_STATE);
+            expectError(() -> manager.stop(recording.sessionId), RecordingSessionManager.ERROR_NOT_RECORDING);
+            expect(manager.startNow("a", path).segment == 2, "the next segment of the call is numbered on");
+            expect(manager.stopCall("a").get(0).state == RecordingSession.State.COMPLETED, "stopCall completes");
+
+            factory.failAt = FakeRecorder.Step.PREPARE;
+            expectError(() -> manager.prepare("b", path), RecordingSessionManager.ERROR_START_FAILED);
+            factory.failAt = FakeRecorder.Step.START;
+            RecordingSession failing = manager.prepare("b", path);
+            expectError(() -> manager.start(failing.sessionId), RecordingSessionManager.ERROR_START_FAILED);
+            factory.failAt = FakeRecorder.Step.STOP;
+            RecordingSession silent = manager.startNow("c", path);
+            expectError(() -> manager.stop(silent.sessionId), RecordingSessionManager.ERROR_STOP_FAILED);
+            expect(manager.getSessions().isEmpty(), "failed sessions are dropped");
+
+            factory.failAt = FakeRecorder.Step.NONE;
+            manager.prepare("d", path);
+            expect(manager.stopCall("d").get(0).state == RecordingSession.State.CANCELLED,
+                "stopCall cancels a prepared session");
+            manager.prepare("e", path);
+            Thread.sleep(500);
+            expect(manager.getSessions().isEmpty(), "a prepared session is cancelled after the timeout");
+            expect(factory.allReleased(), "every recorder is released");
+        } finally {
+            manager.shutdown();
+        }
+
+        // The same number calling back within the timeout: the first call's timer must not
+        // cancel the second call's prepared session.
+        RecordingSessionManager callback = new RecordingSessionManager(factory, 300);
+        try {
+            RecordingSession first = callback.prepare("f", path);
+            callback.stopCall("f");
+            Thread.sleep(150);
+            RecordingSession again = callback.prepare("f", path);
+            expect(!again.sessionId.equals(first.sessionId), "session ids are never reused");
+            Thread.sleep(225);
+            expect(callback.getSession(again.sessionId) != null, "an earlier call's timer leaves a new session alone");
+        } finally {
+            callback.shutdown();
+            Fixtures.deleteRecursively(dir);
+        }
+    }
+
+    private interface SessionCall {
+        void run() throws RecordingException;
+    }
+
+    private static void expectError(SessionCall call, String code) {
+        try {
+            call.run();
+        } catch (RecordingException e) {
+            expect(code.equals(e.getCode()), "expected " + code + ", got " + e.getCode());
+            return;
+        }
+        throw new IllegalStateException("expected " + code);
+    }
+
+    private static void expect(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Recording session check failed: " + what);
+        }
+    }
+}
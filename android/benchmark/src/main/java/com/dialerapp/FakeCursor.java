@@ -0,0 +1,35 @@
+package com.dialerapp;
+
+// Array-backed RowCursor standing in for a provider cursor. Each column is a long[],
+// int[] or String[] of the same length; reads of the wrong type fail like a bad projection would.
+final class FakeCursor implements RowCursor {
+    private final int size;
+    private final Object[] columns;
+    private int position = -1;
+
+    FakeCursor(int size, Object... columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return ++position < size;
+    }
+
+    @Override
+    public long getLong(int column) {
+        Object values = columns[column];
+        return values instanceof long[] ? ((long[]) values)[position] : ((int[]) values)[position];
+    }
+
+    @Override
+    public int getInt(int column) {
+        return ((int[]) columns[column])[position];
+    }
+
+    @Override
+    public String getString(int column) {
+        return ((String[]) columns[column])[position];
+    }
+}
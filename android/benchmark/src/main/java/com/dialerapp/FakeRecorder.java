@@ -0,0 +1,107 @@
+package com.dialerapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// In-memory Recorder standing in for MediaRecorder. Calls out of the order MediaRecorder
+// accepts throw IllegalStateException as it would, and failAt makes one step fail, like
+// a busy audio input (prepare) or a recording that captured nothing (stop).
+final class FakeRecorder implements Recorder {
+    enum Step {
+        NONE,
+        PREPARE,
+        START,
+        STOP
+    }
+
+    private final Step failAt;
+    private boolean prepared;
+    private boolean started;
+    private boolean stopped;
+    private boolean released;
+
+    FakeRecorder(Step failAt) {
+        this.failAt = failAt;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        check(!prepared && !released, "prepare");
+        if (failAt == Step.PREPARE) {
+            throw new IOException("audio input busy");
+        }
+        prepared = true;
+    }
+
+    @Override
+    public void start() {
+        check(prepared && !started && !released, "start");
+        if (failAt == Step.START) {
+            throw new IllegalStateException("start failed");
+        }
+        started = true;
+    }
+
+    @Override
+    public void stop() {
+        check(started && !stopped && !released, "stop");
+        stopped = true;
+        if (failAt == Step.STOP) {
+            throw new RuntimeException("stop failed");
+        }
+    }
+
+    @Override
+    public void release() {
+        released = true;
+    }
+
+    @Override
+    public int getMaxAmplitude() {
+        return started && !stopped ? 1000 : 0;
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    private static void check(boolean valid, String call) {
+        if (!valid) {
+            throw new IllegalStateException(call + " called in the wrong state");
+        }
+    }
+
+    // Creates recorders that fail at failAt, which can be changed between sessions, and
+    // keeps every one so a check can assert they were all released.
+    static final class Factory implements Recorder.Factory {
+        final List<FakeRecorder> created = new ArrayList<>();
+        volatile Step failAt = Step.NONE;
+
+        @Override
+        public Recorder create(String outputPath) {
+            FakeRecorder recorder = new FakeRecorder(failAt);
+            synchronized (created) {
+                created.add(recorder);
+            }
+            return recorder;
+        }
+
+        boolean allReleased() {
+            synchronized (created) {
+                for (FakeRecorder recorder : created) {
+                    if (!recorder.isReleased()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        void clear() {
+            synchronized (created) {
+                created.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.dialerapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Deterministic, realistically shaped data for the JVM benchmarks.
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static final class CallLogRows {
+        final int size;
+        final long[] ids;
+        final String[] numbers;
+        final String[] names;
+        final int[] types;
+        final long[] dates;
+        final int[] durations;
+
+        private CallLogRows(int size) {
+            this.size = size;
+            ids = new long[size];
+            numbers = new String[size];
+            names = new String[size];
+            types = new int[size];
+            dates = new long[size];
+            durations = new int[size];
+        }
+
+        // A few hundred distinct correspondents, most of them saved contacts, newest first.
+        static CallLogRows generate(int size, long seed) {
+            Random random = new Random(seed);
+            int correspondents = Math.max(50, size / 100);
+            String[] knownNumbers = new String[correspondents];
+            String[] knownNames = new String[correspondents];
+            for (int i = 0; i < correspondents; i++) {
+                knownNumbers[i] = String.format("+1%03d%07d", 200 + random.nextInt(700), random.nextInt(10_000_000));
+                knownNames[i] = random.nextInt(4) == 0 ? null : "Contact " + i;
+            }
+
+            CallLogRows rows = new CallLogRows(size);
+            long date = 1_760_000_000_000L;
+            for (int i = 0; i < size; i++) {
+                int who = (int) Math.min(correspondents - 1, Math.abs(random.nextGaussian()) * correspondents / 3);
+                rows.ids[i] = size - i;
+                rows.numbers[i] = knownNumbers[who];
+                rows.names[i] = knownNames[who];
+                rows.types[i] = 1 + random.nextInt(3);
+                date -= random.nextInt(6 * 60 * 60 * 1000);
+                rows.dates[i] = date;
+                rows.durations[i] = rows.types[i] == 3 ? 0 : random.nextInt(1800);
+            }
+            return rows;
+        }
+
+        // Same rows in CallLogRowMapper's projection order, as a provider cursor would return them.
+        FakeCursor cursor() {
+            return new FakeCursor(size, ids, numbers, names, types, dates, durations);
+        }
+    }
+
+    static final class ContactRows {
+        final int size;
+        final long[] contactIds;
+        final String[] names;
+        final String[] numbers;
+        final int[] types;
+
+        private ContactRows(int size) {
+            this.size = size;
+            contactIds = new long[size];
+            names = new String[size];
+            numbers = new String[size];
+            types = new int[size];
+        }
+
+        // One to three numbers per contact, sorted by display name like the provider query.
+        static ContactRows generate(int size, long seed) {
+            Random random = new Random(seed);
+            String[][] rows = new String[size][];
+            long contactId = 0;
+            int phonesLeft = 0;
+            String name = null;
+            for (int i = 0; i < size; i++) {
+                if (phonesLeft == 0) {
+                    contactId++;
+                    phonesLeft = 1 + random.nextInt(3);
+                    name = randomName(random);
+                }
+                phonesLeft--;
+                rows[i] = new String[] {
+                    name,
+                    Long.toString(contactId),
+                    String.format("+1%03d%07d", 200 + random.nextInt(700), random.nextInt(10_000_000)),
+                    Integer.toString(1 + random.nextInt(3))
+                };
+            }
+            Arrays.sort(rows, Comparator.comparing((String[] row) -> row[0]));
+
+            ContactRows contacts = new ContactRows(size);
+            for (int i = 0; i < size; i++) {
+                contacts.names[i] = rows[i][0];
+                contacts.contactIds[i] = Long.parseLong(rows[i][1]);
+                contacts.numbers[i] = rows[i][2];
+                contacts.types[i] = Integer.parseInt(rows[i][3]);
+            }
+            return contacts;
+        }
+
+        // Same rows in ContactRowMapper's projection order.
+        FakeCursor cursor() {
+            return new FakeCursor(size, contactIds, names, numbers, types);
+        }
+
+        private static String randomName(Random random) {
+            String[] first = { "Alex", "Maria", "Sam", "Priya", "Chen", "Olga", "Tom", "Fatima", "Luis", "Ana" };
+            String[] last = { "Smith", "Garcia", "Kumar", "Wang", "Ivanova", "Brown", "Khan", "Lopez", "Silva", "Ng" };
+            return first[random.nextInt(first.length)] + " " + last[random.nextInt(last.length)] + " " + random.nextInt(1000);
+        }
+    }
+
+    // Mono 16-bit call-like audio: tone bursts of varying loudness with pauses, some long
+    // enough to count as silence, over low-level noise.
+    static short[] speechLikePcm(int sampleRate, int seconds, long seed) {
+        Random random = new Random(seed);
+        short[] samples = new short[sampleRate * seconds];
+        int i = 0;
+        while (i < samples.length) {
+            boolean talking = random.nextInt(3) != 0;
+            int length = Math.min(samples.length - i, sampleRate * (talking ? 1 + random.nextInt(4) : 1) / 2);
+            double amplitude = talking ? 2_000 + random.nextInt(12_000) : 0;
+            double frequency = 150 + random.nextInt(250);
+            for (int j = 0; j < length; j++, i++) {
+                double tone = amplitude * Math.sin(2 * Math.PI * frequency * i / sampleRate);
+                samples[i] = (short) (tone + random.nextGaussian() * 40);
+            }
+        }
+        return samples;
+    }
+
+    // Numbers in the same format as the call log, roughly hitRatio of them present in spamNumbers.
+    static String[] lookupNumbers(String[] spamNumbers, int count, double hitRatio, long seed) {
+        Random random = new Random(seed);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = random.nextDouble() < hitRatio
+                ? spamNumbers[random.nextInt(spamNumbers.length)]
+                : randomNumber(random);
+        }
+        return numbers;
+    }
+
+    static String[] spamNumbers(int count, long seed) {
+        Random random = new Random(seed);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = randomNumber(random);
+        }
+        return numbers;
+    }
+
+    // Incoming numbers for the screening policy: lookupNumbers, with half the hits in
+    // national format ("(555) 123-4567") and some pattern numbers among the misses.
+    static String[] screenedNumbers(String[] spamNumbers, int count, double hitRatio, long seed) {
+        Random random = new Random(seed);
+        String[] patterns = patternNumbers(count, seed + 1);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (random.nextDouble() < hitRatio) {
+                String number = spamNumbers[random.nextInt(spamNumbers.length)];
+                numbers[i] = random.nextBoolean() ? number : String.format("(%s) %s-%s",
+                    number.substring(2, 5), number.substring(5, 8), number.substring(8));
+            } else {
+                numbers[i] = patterns[i];
+            }
+        }
+        return numbers;
+    }
+
+    // A mix of ordinary, toll-free and premium-rate numbers for the pattern rules.
+    static String[] patternNumbers(int count, long seed) {
+        Random random = new Random(seed);
+        String[] prefixes = { "+1800", "+1888", "+1877", "+1866", "+1900" };
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = random.nextInt(10) == 0
+                ? prefixes[random.nextInt(prefixes.length)] + String.format("%07d", random.nextInt(10_000_000))
+                : randomNumber(random);
+        }
+        return numbers;
+    }
+
+    // PrefixTable source shaped like a worldwide numbering plan: about 200 country codes,
+    // each split into region and carrier blocks of 1 to 4 more digits, count lines in all.
+    static String prefixTableSource(int count, long seed) {
+        Random random = new Random(seed);
+        StringBuilder source = new StringBuilder(count * 24);
+        Set<String> prefixes = new HashSet<>();
+        String[] countries = new String[200];
+        for (int i = 0; i < countries.length; i++) {
+            // A few 1-digit codes, then 2- and 3-digit ones, as in the real plan.
+            int low = i < 5 ? 1 : i < 50 ? 10 : 100;
+            String code;
+            do {
+                code = Integer.toString(low + random.nextInt(low * 9));
+            } while (!prefixes.add(code));
+            countries[i] = code;
+            source.append(code).append('\t').append("Country ").append(i).append('\n');
+        }
+        while (prefixes.size() < count) {
+            String country = countries[random.nextInt(countries.length)];
+            int extra = 1 + random.nextInt(4);
+            String prefix = country + String.format("%0" + extra + "d", random.nextInt((int) Math.pow(10, extra)));
+            if (prefixes.add(prefix)) {
+                source.append(prefix).append('\t')
+                    .append(random.nextBoolean() ? "Region " : "Carrier ").append(random.nextInt(5_000)).append('\n');
+            }
+        }
+        return source.toString();
+    }
+
+    // International numbers spread over the whole 1-999 country code range.
+    static String[] internationalNumbers(int count, long seed) {
+        Random random = new Random(seed);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = String.format("+%d%09d", 1 + random.nextInt(999), random.nextInt(1_000_000_000));
+        }
+        return numbers;
+    }
+
+    // National numbers with a trunk 0, some with separators, as delivered by most networks.
+    static String[] nationalNumbers(int count, long seed) {
+        Random random = new Random(seed);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            int area = 10 + random.nextInt(90);
+            int subscriber = random.nextInt(100_000_000);
+            numbers[i] = random.nextBoolean()
+                ? String.format("0%d%08d", area, subscriber)
+                : String.format("0%d %04d %04d", area, subscriber / 10_000, subscriber % 10_000);
+        }
+        return numbers;
+    }
+
+    // Recording files named like RecordingStorage.newRecordingFile, plus a few non-recordings.
+    static File recordingsDir(int count, long seed) throws IOException {
+        Random random = new Random(seed);
+        File dir = Files.createTempDirectory("dialer-recordings").toFile();
+        for (int i = 0; i < count; i++) {
+            File file = new File(dir, String.format("call_+1%09d_20250101_%06d.3gp", random.nextInt(1_000_000_000), i));
+            Files.write(file.toPath(), new byte[random.nextInt(64)]);
+        }
+        for (int i = 0; i < count / 100; i++) {
+            Files.write(new File(dir, "waveform_" + i + ".bin").toPath(), new byte[8]);
+        }
+        return dir;
+    }
+
+    // A segments root as SegmentedAmrRecorder leaves it after a crash: one directory of
+    // raw AMR-NB 12.2 kbit/s segments (50 frames per second), the last one cut mid-frame.
+    static File amrSegmentsRoot(int minutes, int segmentMinutes, long seed) throws IOException {
+        Random random = new Random(seed);
+        File root = Files.createTempDirectory("dialer-segments").toFile();
+        File dir = new File(root, "call_+15551234567_20250101_120000.amr");
+        dir.mkdirs();
+        byte[] frame = new byte[32];
+        frame[0] = 7 << 3 | 0x04; // frame type 7 (12.2 kbit/s), quality bit set
+        for (int segment = 0; segment * segmentMinutes < minutes; segment++) {
+            int frames = Math.min(segmentMinutes, minutes - segment * segmentMinutes) * 60 * 50;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(6 + frames * frame.length);
+            out.write("#!AMR\n".getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < frames; i++) {
+                for (int j = 1; j < frame.length; j++) {
+                    frame[j] = (byte) random.nextInt(256);
+                }
+                out.write(frame);
+            }
+            byte[] bytes = out.toByteArray();
+            boolean last = (segment + 1) * segmentMinutes >= minutes;
+            Files.write(new File(dir, AmrSegments.segmentName(segment)).toPath(),
+                last ? Arrays.copyOf(bytes, bytes.length - frame.length / 2) : bytes);
+        }
+        return root;
+    }
+
+    static void deleteRecursively(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteRecursively(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+
+    private static String randomNumber(Random random) {
+        return String.format("+1%03d%07d", 200 + random.nextInt(700), random.nextInt(10_000_000));
+    }
+}
@@ -0,0 +1,66 @@
+package com.dialerapp;
+
+// Cost of the timing wrapper every @ReactMethod now carries:
+//   long start = System.nanoTime(); try { ... } finally { X.recordSince(start); }
+public final class MetricsOverheadBenchmark {
+    private static final int CALLS_PER_OP = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(20, 50);
+        DialerMetrics.Histogram histogram = DialerMetrics.latency("benchmark.method");
+        DialerMetrics.Counter counter = DialerMetrics.counter("benchmark.counter");
+
+        BenchmarkRunner.Result baseline = runner.run("1M calls, no instrumentation", () -> {
+            long sink = 0;
+            for (int i = 0; i < CALLS_PER_OP; i++) {
+                sink += work(i);
+            }
+            return sink;
+        });
+        BenchmarkRunner.Result timed = runner.run("1M calls, nanoTime + recordSince", () -> {
+            long sink = 0;
+            for (int i = 0; i < CALLS_PER_OP; i++) {
+                long start = System.nanoTime();
+                try {
+                    sink += work(i);
+                } finally {
+                    histogram.recordSince(start);
+                }
+            }
+            return sink;
+        });
+        // Separates the clock reads, which dominate on VMs with a slow clocksource, from the histogram update.
+        BenchmarkRunner.Result recorded = runner.run("1M calls, record only", () -> {
+            long sink = 0;
+            for (int i = 0; i < CALLS_PER_OP; i++) {
+                long value = work(i);
+                sink += value;
+                histogram.record(value + 40);
+            }
+            return sink;
+        });
+        BenchmarkRunner.Result counted = runner.run("1M calls, counter increment", () -> {
+            long sink = 0;
+            for (int i = 0; i < CALLS_PER_OP; i++) {
+                sink += work(i);
+                counter.increment();
+            }
+            return sink;
+        });
+
+        System.out.printf("%ntimed overhead:   %.1f ns/call%n",
+            (timed.meanMicros - baseline.meanMicros) * 1000.0 / CALLS_PER_OP);
+        System.out.printf("record overhead:  %.1f ns/call%n",
+            (recorded.meanMicros - baseline.meanMicros) * 1000.0 / CALLS_PER_OP);
+        System.out.printf("counter overhead: %.1f ns/call%n",
+            (counted.meanMicros - baseline.meanMicros) * 1000.0 / CALLS_PER_OP);
+
+        DialerMetrics.Histogram.Snapshot snapshot = histogram.snapshot();
+        System.out.printf("recorded %,d samples, p50 %d ns, p99 %d ns, max %d ns%n",
+            snapshot.count, snapshot.percentile(50), snapshot.percentile(99), snapshot.max);
+    }
+
+    private static long work(int i) {
+        return (i * 0x9E3779B97F4A7C15L) >>> 61;
+    }
+}
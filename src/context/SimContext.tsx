@@ -2,8 +2,12 @@
 
 import type React from "react"
 import { createContext, useContext, useState, useEffect, type ReactNode } from "react"
-import SimManager, { type SimCard } from "../native/SimManager"
-import { Alert } from "react-native"
+import SimManager, {
+  SIM_SUBSCRIPTIONS_CHANGED_EVENT,
+  type SimCard,
+  type SimSubscriptionsChangedEvent,
+} from "../native/SimManager"
+import { Alert, NativeEventEmitter, NativeModules } from "react-native"
 
 interface SimContextType {
   simCards: SimCard[]
@@ -63,6 +67,17 @@ export const SimProvider: React.FC<{ children: ReactNode }> = ({ children }) =>
 
   useEffect(() => {
     refreshSimCards()
+
+    const emitter = new NativeEventEmitter(NativeModules.SimManager)
+    const subscription = emitter.addListener(
+      SIM_SUBSCRIPTIONS_CHANGED_EVENT,
+      (event: SimSubscriptionsChangedEvent) => {
+        setSimCards(event.simCards)
+        setIsDualSim(event.isDualSim)
+        setDefaultSimId(event.defaultSimForCalls)
+      },
+    )
+    return () => subscription.remove()
   }, [])
 
   return (
@@ -1,4 +1,5 @@
 import { NativeModules } from "react-native"
+import NativeCallLogManager from "./specs/NativeCallLogManager"
 
 interface CallLogEntry {
   id: string
@@ -9,9 +10,63 @@ interface CallLogEntry {
   duration: string
 }
 
+// "mirror" reads from the app's local copy once it has synced; "provider" is the default
+type ReadMode = "provider" | "mirror"
+
+interface CallHistoryEntry {
+  id: string
+  number: string
+  type: number
+  date: number
+  duration: number
+  contactId: string | null
+  contactName: string | null
+  isSpam: boolean
+  spamCategory: string | null
+  riskLevel: string | null
+  recordingCount: number
+}
+
+interface CallHistoryOptions {
+  limit?: number
+  offset?: number
+  // Restricts the page to this number, matched regardless of formatting
+  phoneNumber?: string
+}
+
+interface CallLogGroup {
+  // Newest member's id
+  id: string
+  number: string
+  name: string | null
+  type: number
+  count: number
+  latestDate: number
+  earliestDate: number
+  // Seconds
+  totalDuration: number
+  memberIds: string[]
+}
+
+interface CallLogGroupPage {
+  groups: CallLogGroup[]
+  // Pass back as pageToken for the next page; null on the last page
+  nextPageToken: string | null
+}
+
 interface CallLogManagerInterface {
   getCallLog(): Promise<CallLogEntry[]>
+  // Base64 blob; decode with decodeColumnar from ./columnar
+  getCallLogColumnar(): Promise<string>
+  setReadMode(mode: ReadMode): Promise<ReadMode>
+  // Rejects with MIRROR_NOT_READY until the first call-log sync has finished
+  getCallHistory(options: CallHistoryOptions): Promise<CallHistoryEntry[]>
+  // Adjacent calls with the same number, type and day, newest first
+  getCallLogGroups(options: { limit?: number; pageToken?: string | null }): Promise<CallLogGroupPage>
   deleteCallLogEntry(callId: string): Promise<boolean>
 }
 
-export const CallLogManager: CallLogManagerInterface = NativeModules.CallLogManager
+export const CallLogManager: CallLogManagerInterface =
+  (NativeCallLogManager as unknown as CallLogManagerInterface | null) ?? NativeModules.CallLogManager
+
+export type { CallHistoryEntry, CallHistoryOptions, CallLogGroup, CallLogGroupPage, ReadMode }
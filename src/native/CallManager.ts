@@ -1,11 +1,26 @@
 import { NativeModules } from "react-native"
 
+interface SimRoute {
+  subscriptionId: number
+  reason: "override" | "prefix_rule" | "history" | "carrier" | "country" | "default" | "none"
+}
+
 interface CallManagerInterface {
   makeCall(phoneNumber: string): Promise<boolean>
   makeCallWithSim(phoneNumber: string, subscriptionId: number): Promise<boolean>
+  makeSmartCall(phoneNumber: string): Promise<SimRoute>
+  getSimRoute(phoneNumber: string): Promise<SimRoute>
+  setPreferredSim(phoneNumber: string, subscriptionId: number): Promise<boolean>
+  clearPreferredSim(phoneNumber: string): Promise<boolean>
+  // Covers all of the contact's numbers; a per-number preference still wins
+  setContactPreferredSim(contactId: string, subscriptionId: number): Promise<boolean>
+  clearContactPreferredSim(contactId: string): Promise<boolean>
+  setSimRoutingRule(prefix: string, subscriptionId: number): Promise<boolean>
+  removeSimRoutingRule(prefix: string): Promise<boolean>
   endCall(): Promise<boolean>
 }
 
 const { CallManager } = NativeModules
 
 export default CallManager as CallManagerInterface
+export type { SimRoute }
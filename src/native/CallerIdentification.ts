@@ -0,0 +1,54 @@
+import { NativeModules } from "react-native"
+import NativeCallerIdentification from "./specs/NativeCallerIdentification"
+
+// Must match CallerIdentificationModule.FIELD_SEPARATOR
+const FIELD_SEPARATOR = "\u001f"
+
+interface CallerIdentity {
+  name: string
+  source: "contacts" | "spam_database" | "pattern_analysis" | "prefix_table" | "unknown"
+  type: "contact" | "spam" | "business" | "location" | "unknown"
+  isSpam: boolean
+  spamCategory?: string
+  riskLevel?: string
+  reportCount?: number
+  description?: string
+}
+
+interface CallerIdentificationInterface {
+  identifyCaller(phoneNumber: string): Promise<CallerIdentity>
+  identifyCallerSync(phoneNumber: string): string
+  reportSpam(
+    phoneNumber: string,
+    reportData: { category?: string; description?: string },
+  ): Promise<{ success: boolean; message: string }>
+  getSpamStatistics(): Promise<{ totalSpamNumbers: number; highRiskNumbers: number }>
+}
+
+export const CallerIdentification: CallerIdentificationInterface =
+  (NativeCallerIdentification as unknown as CallerIdentificationInterface | null) ??
+  NativeModules.CallerIdentification
+
+export const decodeCallerIdentity = (record: string): CallerIdentity => {
+  const [name, source, type, isSpam, spamCategory, riskLevel, reportCount, description] =
+    record.split(FIELD_SEPARATOR)
+  const identity: CallerIdentity = {
+    name,
+    source: source as CallerIdentity["source"],
+    type: type as CallerIdentity["type"],
+    isSpam: isSpam === "1",
+  }
+  if (identity.isSpam) {
+    identity.spamCategory = spamCategory
+    identity.riskLevel = riskLevel
+    identity.reportCount = Number(reportCount)
+    identity.description = description
+  }
+  return identity
+}
+
+// Synchronous lookup through JSI (new architecture) or the blocking bridge call.
+export const identifyCallerNow = (phoneNumber: string): CallerIdentity =>
+  decodeCallerIdentity(CallerIdentification.identifyCallerSync(phoneNumber))
+
+export type { CallerIdentity }
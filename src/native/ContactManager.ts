@@ -1,4 +1,9 @@
 import { NativeModules } from "react-native"
+import NativeContactManager from "./specs/NativeContactManager"
+import type { ReadMode } from "./CallLogManager"
+
+// Must match ContactManagerModule.FIELD_SEPARATOR
+const FIELD_SEPARATOR = "\u001f"
 
 interface Contact {
   id: string
@@ -7,9 +12,42 @@ interface Contact {
   type: number
 }
 
+interface TopContact extends Omit<Contact, "type"> {
+  // Decayed call frequency now; one call made just now counts 1, halving every 14 days
+  score: number
+  callCount: number
+  lastCallDate: number
+}
+
 interface ContactManagerInterface {
   getAllContacts(): Promise<Contact[]>
+  // Base64 blob; decode with decodeColumnar from ./columnar
+  getAllContactsColumnar(): Promise<string>
+  setReadMode(mode: ReadMode): Promise<ReadMode>
+  searchDialpad(digits: string, limit: number): Promise<Omit<Contact, "type">[]>
+  searchDialpadSync(digits: string, limit: number): string
+  getTopContacts(limit: number): Promise<TopContact[]>
+  // file:// thumbnail URIs by contact id, for the rows on screen; no entry means no photo
+  getContactPhotos(contactIds: string[]): Promise<Record<string, string>>
+  // Warm the thumbnail cache for rows about to scroll into view
+  prefetchContactPhotos(contactIds: string[]): void
   addContact(contact: { name: string; phoneNumber: string }): Promise<boolean>
 }
 
-export const ContactManager: ContactManagerInterface = NativeModules.ContactManager
+export const ContactManager: ContactManagerInterface =
+  (NativeContactManager as unknown as ContactManagerInterface | null) ?? NativeModules.ContactManager
+
+// Synchronous dialpad search; results come back ranked, best match first, frequently
+// called contacts ahead within the same kind of match.
+export const searchDialpadNow = (digits: string, limit: number): Omit<Contact, "type">[] => {
+  const encoded = ContactManager.searchDialpadSync(digits, limit)
+  if (!encoded) {
+    return []
+  }
+  return encoded.split("\n").map((line) => {
+    const [id, name, phoneNumber] = line.split(FIELD_SEPARATOR)
+    return { id, name, phoneNumber }
+  })
+}
+
+export type { Contact, TopContact }
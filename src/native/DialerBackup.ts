@@ -0,0 +1,41 @@
+import { NativeModules } from "react-native"
+
+// gzip'd NDJSON, one row per line, or gzip'd vCard 3.0 (contacts only)
+type ContactsFormat = "ndjson" | "vcard"
+
+type BackupOperation = "exportCallLog" | "exportContacts" | "importCallLog" | "importContacts"
+
+interface BackupProgress {
+  operation: BackupOperation
+  // Rows written, or lines read on import
+  rows: number
+  // Compressed bytes written or read so far
+  bytes: number
+  // -1 when not known up front
+  totalRows: number
+  totalBytes: number
+  elapsedMs: number
+  rowsPerSecond: number
+  done: boolean
+}
+
+interface ImportResult extends BackupProgress {
+  // Provider rows inserted; calls already in the log are skipped
+  inserted: number
+}
+
+interface DialerBackupInterface {
+  // Absolute file paths; exports replace the file only once complete
+  exportCallLog(path: string): Promise<BackupProgress>
+  exportContacts(path: string, format: ContactsFormat): Promise<BackupProgress>
+  importCallLog(path: string): Promise<ImportResult>
+  // Either contacts format, detected from the file
+  importContacts(path: string): Promise<ImportResult>
+}
+
+const { DialerBackup } = NativeModules
+
+export const DIALER_BACKUP_PROGRESS_EVENT = "DialerBackupProgress"
+
+export default DialerBackup as DialerBackupInterface
+export type { BackupOperation, BackupProgress, ContactsFormat, ImportResult }
@@ -0,0 +1,29 @@
+import { NativeModules } from "react-native"
+
+interface HistogramSummary {
+  // "ns" for latencies, "rows" or "bytes" for result sizes
+  unit: string
+  count: number
+  mean: number
+  p50: number
+  p90: number
+  p99: number
+  max: number
+}
+
+interface DialerMetricsSnapshot {
+  histograms: { [name: string]: HistogramSummary }
+  counters: { [name: string]: number }
+  gauges: { [name: string]: number }
+}
+
+interface DialerMetricsInterface {
+  getMetrics(): Promise<DialerMetricsSnapshot>
+  // Resolves with the path of the JSON file written under the app's files dir
+  dumpMetrics(): Promise<string>
+  resetMetrics(): Promise<boolean>
+}
+
+export const DialerMetrics: DialerMetricsInterface = NativeModules.DialerMetrics
+
+export type { DialerMetricsSnapshot, HistogramSummary }
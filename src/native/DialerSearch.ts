@@ -0,0 +1,43 @@
+import { NativeModules } from "react-native"
+
+type SearchKind = "call" | "contact" | "recording"
+
+interface SearchOptions {
+  limit?: number
+  offset?: number
+  // Defaults to every kind
+  kinds?: SearchKind[]
+  // Epoch millis; either bound leaves out contacts, which have no date
+  since?: number
+  until?: number
+  // Time budget for the query; defaults to 250
+  timeoutMs?: number
+}
+
+interface SearchHit {
+  kind: SearchKind
+  // Call log id, contact id or recording file path
+  id: string
+  title: string | null
+  number: string | null
+  date: number
+  score: number
+}
+
+interface SearchPage {
+  // Best match first
+  results: SearchHit[]
+  hasMore: boolean
+  // Ranking stopped early (time budget or candidate cap); narrow the query for exact ranks
+  truncated: boolean
+  // The local index has not finished its first sync, so results may be incomplete
+  indexing: boolean
+}
+
+interface DialerSearchInterface {
+  search(query: string, options: SearchOptions): Promise<SearchPage>
+}
+
+export const DialerSearch: DialerSearchInterface = NativeModules.DialerSearch
+
+export type { SearchHit, SearchKind, SearchOptions, SearchPage }
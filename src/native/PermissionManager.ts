@@ -5,4 +5,14 @@ interface PermissionManagerInterface {
   checkPermissions(): Promise<{ [key: string]: boolean }>
 }
 
+interface PermissionsChangedEvent {
+  // Every permission the native cache tracks, by Android permission name
+  permissions: { [key: string]: boolean }
+  // The ones that differ from the previous event
+  changed: string[]
+}
+
+export const PERMISSIONS_CHANGED_EVENT = "PermissionsChanged"
+
 export const PermissionManager: PermissionManagerInterface = NativeModules.PermissionManager
+export type { PermissionsChangedEvent }
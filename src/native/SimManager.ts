@@ -15,7 +15,15 @@ interface SimManagerInterface {
   isDualSimDevice(): Promise<boolean>
 }
 
+interface SimSubscriptionsChangedEvent {
+  simCards: SimCard[]
+  defaultSimForCalls: number
+  isDualSim: boolean
+}
+
 const { SimManager } = NativeModules
 
+export const SIM_SUBSCRIPTIONS_CHANGED_EVENT = "SimSubscriptionsChanged"
+
 export default SimManager as SimManagerInterface
-export type { SimCard }
+export type { SimCard, SimSubscriptionsChangedEvent }
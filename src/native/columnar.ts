@@ -0,0 +1,119 @@
+// Decoder for the binary format written by ColumnarResultBuilder.java.
+
+const MAGIC = 0x31524344 // "DCR1"
+const TYPE_INT32 = 1
+const TYPE_FLOAT64 = 2
+const TYPE_STRING = 3
+
+type ColumnValues = Int32Array | Float64Array | (string | null)[]
+
+interface ColumnarResult {
+  rowCount: number
+  columns: { [name: string]: ColumnValues }
+}
+
+const BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+const BASE64_LOOKUP = new Uint8Array(128)
+for (let i = 0; i < BASE64_ALPHABET.length; i++) {
+  BASE64_LOOKUP[BASE64_ALPHABET.charCodeAt(i)] = i
+}
+
+const decodeBase64 = (encoded: string): ArrayBuffer => {
+  let padding = 0
+  if (encoded.endsWith("==")) padding = 2
+  else if (encoded.endsWith("=")) padding = 1
+  const bytes = new Uint8Array((encoded.length * 3) / 4 - padding)
+  let out = 0
+  for (let i = 0; i < encoded.length; i += 4) {
+    const a = BASE64_LOOKUP[encoded.charCodeAt(i)]
+    const b = BASE64_LOOKUP[encoded.charCodeAt(i + 1)]
+    const c = BASE64_LOOKUP[encoded.charCodeAt(i + 2)]
+    const d = BASE64_LOOKUP[encoded.charCodeAt(i + 3)]
+    bytes[out++] = (a << 2) | (b >> 4)
+    if (out < bytes.length) bytes[out++] = ((b & 15) << 4) | (c >> 2)
+    if (out < bytes.length) bytes[out++] = ((c & 3) << 6) | d
+  }
+  return bytes.buffer
+}
+
+const decodeUtf8 = (bytes: Uint8Array, start: number, end: number): string => {
+  let result = ""
+  let i = start
+  while (i < end) {
+    const byte = bytes[i++]
+    let codePoint: number
+    if (byte < 0x80) {
+      codePoint = byte
+    } else if (byte < 0xe0) {
+      codePoint = ((byte & 0x1f) << 6) | (bytes[i++] & 0x3f)
+    } else if (byte < 0xf0) {
+      codePoint = ((byte & 0x0f) << 12) | ((bytes[i++] & 0x3f) << 6) | (bytes[i++] & 0x3f)
+    } else {
+      codePoint =
+        ((byte & 0x07) << 18) | ((bytes[i++] & 0x3f) << 12) | ((bytes[i++] & 0x3f) << 6) | (bytes[i++] & 0x3f)
+    }
+    result += String.fromCodePoint(codePoint)
+  }
+  return result
+}
+
+export const decodeColumnar = (encoded: string): ColumnarResult => {
+  const buffer = decodeBase64(encoded)
+  const view = new DataView(buffer)
+  const bytes = new Uint8Array(buffer)
+
+  if (view.getUint32(0, true) !== MAGIC) {
+    throw new Error("Not a columnar result")
+  }
+  const columnCount = view.getUint16(6, true)
+  const rowCount = view.getUint32(8, true)
+  const stringTableOffset = view.getUint32(12, true)
+
+  const stringCount = view.getUint32(stringTableOffset, true)
+  const strings: string[] = new Array(stringCount)
+  let stringOffset = stringTableOffset + 4 + stringCount * 4
+  for (let i = 0; i < stringCount; i++) {
+    const length = view.getUint32(stringTableOffset + 4 + i * 4, true)
+    strings[i] = decodeUtf8(bytes, stringOffset, stringOffset + length)
+    stringOffset += length
+  }
+
+  const columns: { [name: string]: ColumnValues } = {}
+  for (let c = 0; c < columnCount; c++) {
+    const descriptor = 16 + c * 12
+    const type = view.getUint8(descriptor)
+    const name = strings[view.getUint32(descriptor + 4, true)]
+    const dataOffset = view.getUint32(descriptor + 8, true)
+
+    if (type === TYPE_FLOAT64) {
+      columns[name] = new Float64Array(buffer, dataOffset, rowCount)
+    } else if (type === TYPE_INT32) {
+      columns[name] = new Int32Array(buffer, dataOffset, rowCount)
+    } else if (type === TYPE_STRING) {
+      const indices = new Int32Array(buffer, dataOffset, rowCount)
+      const values: (string | null)[] = new Array(rowCount)
+      for (let r = 0; r < rowCount; r++) {
+        values[r] = indices[r] < 0 ? null : strings[indices[r]]
+      }
+      columns[name] = values
+    }
+  }
+
+  return { rowCount, columns }
+}
+
+// Materializes row objects only for the requested range, e.g. the visible window of a list.
+export const columnarRows = <T>(result: ColumnarResult, start = 0, end = result.rowCount): T[] => {
+  const names = Object.keys(result.columns)
+  const rows: T[] = []
+  for (let r = start; r < Math.min(end, result.rowCount); r++) {
+    const row: { [name: string]: unknown } = {}
+    for (const name of names) {
+      row[name] = result.columns[name][r]
+    }
+    rows.push(row as T)
+  }
+  return rows
+}
+
+export type { ColumnarResult, ColumnValues }
@@ -0,0 +1,13 @@
+import type { TurboModule } from "react-native"
+import { TurboModuleRegistry } from "react-native"
+
+export interface Spec extends TurboModule {
+  getCallLog(): Promise<Object[]>
+  getCallLogColumnar(): Promise<string>
+  setReadMode(mode: string): Promise<string>
+  getCallHistory(options: Object): Promise<Object[]>
+  getCallLogGroups(options: Object): Promise<Object>
+  deleteCallLogEntry(callId: string): Promise<boolean>
+}
+
+export default TurboModuleRegistry.get<Spec>("CallLogManager")
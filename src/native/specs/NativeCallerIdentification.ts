@@ -0,0 +1,11 @@
+import type { TurboModule } from "react-native"
+import { TurboModuleRegistry } from "react-native"
+
+export interface Spec extends TurboModule {
+  identifyCaller(phoneNumber: string): Promise<Object>
+  identifyCallerSync(phoneNumber: string): string
+  reportSpam(phoneNumber: string, reportData: Object): Promise<Object>
+  getSpamStatistics(): Promise<Object>
+}
+
+export default TurboModuleRegistry.get<Spec>("CallerIdentification")
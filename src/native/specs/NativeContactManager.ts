@@ -0,0 +1,16 @@
+import type { TurboModule } from "react-native"
+import { TurboModuleRegistry } from "react-native"
+
+export interface Spec extends TurboModule {
+  getAllContacts(): Promise<Object[]>
+  getAllContactsColumnar(): Promise<string>
+  setReadMode(mode: string): Promise<string>
+  searchDialpad(digits: string, limit: number): Promise<Object[]>
+  searchDialpadSync(digits: string, limit: number): string
+  getTopContacts(limit: number): Promise<Object[]>
+  getContactPhotos(contactIds: string[]): Promise<Object>
+  prefetchContactPhotos(contactIds: string[]): void
+  addContact(contactData: Object): Promise<boolean>
+}
+
+export default TurboModuleRegistry.get<Spec>("ContactManager")
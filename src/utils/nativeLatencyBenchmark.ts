@@ -0,0 +1,49 @@
+import { CallerIdentification } from "../native/CallerIdentification"
+import { ContactManager } from "../native/ContactManager"
+
+interface LatencyResult {
+  iterations: number
+  asyncBridgeMicros: number
+  syncMicros: number
+}
+
+const now = () => global.performance?.now() ?? Date.now()
+
+const measure = async (iterations: number, asyncCall: () => Promise<unknown>, syncCall: () => unknown) => {
+  // Warm up both paths so the first module access is not counted
+  await asyncCall()
+  syncCall()
+
+  let start = now()
+  for (let i = 0; i < iterations; i++) {
+    await asyncCall()
+  }
+  const asyncBridgeMicros = ((now() - start) * 1000) / iterations
+
+  start = now()
+  for (let i = 0; i < iterations; i++) {
+    syncCall()
+  }
+  const syncMicros = ((now() - start) * 1000) / iterations
+
+  return { iterations, asyncBridgeMicros, syncMicros }
+}
+
+// Per-call latency of the promise-based bridge methods against their synchronous counterparts.
+export const benchmarkNativeLookups = async (
+  phoneNumber: string,
+  dialpadDigits: string,
+  iterations = 200,
+): Promise<{ identifyCaller: LatencyResult; dialpadSearch: LatencyResult }> => {
+  const identifyCaller = await measure(
+    iterations,
+    () => CallerIdentification.identifyCaller(phoneNumber),
+    () => CallerIdentification.identifyCallerSync(phoneNumber),
+  )
+  const dialpadSearch = await measure(
+    iterations,
+    () => ContactManager.searchDialpad(dialpadDigits, 20),
+    () => ContactManager.searchDialpadSync(dialpadDigits, 20),
+  )
+  return { identifyCaller, dialpadSearch }
+}